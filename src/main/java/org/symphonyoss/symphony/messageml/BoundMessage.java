@@ -0,0 +1,22 @@
+package org.symphonyoss.symphony.messageml;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.Getter;
+
+/**
+ * The outputs of a {@link PreparedMessage} rendered for a set of values.
+ */
+@Getter
+public class BoundMessage {
+  private final String presentationML;
+  private final String markdown;
+  private final String text;
+  private final ObjectNode entityJson;
+
+  BoundMessage(String presentationML, String markdown, String text, ObjectNode entityJson) {
+    this.presentationML = presentationML;
+    this.markdown = markdown;
+    this.text = text;
+    this.entityJson = entityJson;
+  }
+}
@@ -0,0 +1,20 @@
+package org.symphonyoss.symphony.messageml;
+
+/**
+ * How a {@link MessageMLValidator} checks the data of a message (mentioned users, link URIs and financial
+ * instruments) against its {@link org.symphonyoss.symphony.messageml.util.IDataProvider}.
+ */
+public enum DataProviderPolicy {
+
+  /** The data provider is not called, mentions and links are accepted as long as their attributes are valid. */
+  SKIP,
+
+  /**
+   * Only the users and URIs already looked up by previous validations with the {@link #FULL} policy are checked,
+   * other lookups are skipped.
+   */
+  CACHED_ONLY,
+
+  /** The data provider is called as during parsing, and its results are cached for {@link #CACHED_ONLY}. */
+  FULL
+}
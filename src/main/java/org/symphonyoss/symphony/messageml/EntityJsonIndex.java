@@ -0,0 +1,342 @@
+package org.symphonyoss.symphony.messageml;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.POJONode;
+import com.fasterxml.jackson.databind.util.RawValue;
+import org.symphonyoss.symphony.messageml.elements.Entity;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * EntityJSON read with a streaming parser, without building the nodes of its entities: the root is an object whose
+ * values are kept as raw JSON until they are looked up, and are written as they were received otherwise.
+ * <p>
+ * The whole EntityJSON is still read, so that malformed JSON is rejected as soon as it is received. The field names
+ * found below the root are kept, so that entities can be looked up by id as {@link JsonNode#findPath(String)} does:
+ * the root is only fully read when the id is also the name of a nested field.
+ */
+final class EntityJsonIndex {
+
+  private static final String NOT_AN_OBJECT = "Error parsing EntityJSON: provided content is not a JSON object";
+
+  private final ObjectMapper mapper;
+  private final ObjectNode root = new ObjectNode(JsonNodeFactory.instance);
+  /** Names of the fields below the root. */
+  private final Set<String> nestedNames = new HashSet<>();
+  /** Values of the type fields, as {@link #addTypes(List)} returns them. */
+  private final List<String> types = new ArrayList<>();
+  private final Map<String, Object> templateData = new TemplateData();
+
+  private CharSequence text;
+  private byte[] bytes;
+  private int offset;
+
+  private EntityJsonIndex(ObjectMapper mapper) {
+    this.mapper = mapper;
+  }
+
+  /**
+   * @throws InvalidInputException if the EntityJSON is not an object
+   * @throws JsonProcessingException if the EntityJSON is malformed, with the message
+   * {@link ObjectMapper#readTree(String)} reports
+   */
+  static EntityJsonIndex of(ObjectMapper mapper, String entityJson) throws InvalidInputException, IOException {
+    EntityJsonIndex index = new EntityJsonIndex(mapper);
+    try (JsonParser parser = mapper.getFactory().createParser(entityJson)) {
+      index.text = entityJson;
+      index.read(parser);
+    } catch (JsonProcessingException e) {
+      mapper.readTree(entityJson);
+      throw e;
+    }
+    return index;
+  }
+
+  /**
+   * @throws InvalidInputException if the EntityJSON is not an object
+   * @throws JsonProcessingException if the EntityJSON is malformed, with the message
+   * {@link ObjectMapper#readTree(byte[], int, int)} reports
+   */
+  static EntityJsonIndex of(ObjectMapper mapper, byte[] entityJson, int offset, int length)
+      throws InvalidInputException, IOException {
+    EntityJsonIndex index = new EntityJsonIndex(mapper);
+    try (JsonParser parser = mapper.getFactory().createParser(entityJson, offset, length)) {
+      index.bytes = entityJson;
+      index.offset = offset;
+      index.read(parser);
+    } catch (JsonProcessingException e) {
+      mapper.readTree(entityJson, offset, length);
+      throw e;
+    }
+    return index;
+  }
+
+  /**
+   * The root of the EntityJSON, the values which have not been looked up are {@link RawValue}s.
+   */
+  ObjectNode getRoot() {
+    return root;
+  }
+
+  /**
+   * The data model of templates, its entities are read when they are first used.
+   */
+  Map<String, Object> getTemplateData() {
+    return templateData;
+  }
+
+  /**
+   * Add the values of all the fields named "type", as {@link JsonNode#findValues(String)} finds them.
+   */
+  void addTypes(List<String> values) {
+    values.addAll(types);
+  }
+
+  /**
+   * Look up an entity by id, as {@link JsonNode#findPath(String)} does.
+   */
+  JsonNode findPath(String entityId) throws IOException {
+    if (nestedNames.contains(entityId)) {
+      return readAll(root).findPath(entityId);
+    }
+    return root.has(entityId) ? read(root, entityId) : MissingNode.getInstance();
+  }
+
+  /**
+   * Look up the entities with the given id, as {@link JsonNode#findValues(String)} does.
+   */
+  List<JsonNode> findValues(String entityId) throws IOException {
+    if (nestedNames.contains(entityId)) {
+      return readAll(root).findValues(entityId);
+    }
+    return root.has(entityId) ? Collections.singletonList(read(root, entityId)) : Collections.emptyList();
+  }
+
+  /**
+   * Read the entities with the given ids, if any.
+   */
+  void read(Set<String> entityIds) throws IOException {
+    for (String entityId : entityIds) {
+      if (root.has(entityId)) {
+        read(root, entityId);
+      }
+    }
+  }
+
+  /**
+   * Read the values of an EntityJSON root which have not been read yet.
+   */
+  static ObjectNode readAll(ObjectMapper mapper, ObjectNode root) throws IOException {
+    Iterator<Map.Entry<String, JsonNode>> fields = root.fields();
+    while (fields.hasNext()) {
+      Map.Entry<String, JsonNode> field = fields.next();
+      if (isRaw(field.getValue())) {
+        field.setValue(mapper.readTree(rawJson(field.getValue())));
+      }
+    }
+    return root;
+  }
+
+  private ObjectNode readAll(ObjectNode root) throws IOException {
+    return readAll(mapper, root);
+  }
+
+  private JsonNode read(ObjectNode root, String name) throws IOException {
+    JsonNode value = root.get(name);
+    if (isRaw(value)) {
+      value = mapper.readTree(rawJson(value));
+      root.set(name, value);
+    }
+    return value;
+  }
+
+  private static boolean isRaw(JsonNode value) {
+    return value instanceof POJONode && ((POJONode) value).getPojo() instanceof RawValue;
+  }
+
+  private static String rawJson(JsonNode value) {
+    return ((RawValue) ((POJONode) value).getPojo()).rawValue().toString();
+  }
+
+  private void read(JsonParser parser) throws IOException, InvalidInputException {
+    JsonToken token = parser.nextToken();
+    if (token == JsonToken.VALUE_STRING) {
+      // we got text and not a structured object, try to parse it as escaped JSON
+      String escaped = parser.getText();
+      try (JsonParser escapedParser = mapper.getFactory().createParser(escaped)) {
+        this.text = escaped;
+        this.bytes = null;
+        if (escapedParser.nextToken() != JsonToken.START_OBJECT) {
+          throw new InvalidInputException(NOT_AN_OBJECT);
+        }
+        readFields(escapedParser);
+      } catch (JsonProcessingException e) {
+        mapper.readTree(escaped);
+        throw e;
+      }
+    } else if (token == JsonToken.START_OBJECT) {
+      readFields(parser);
+    } else {
+      throw new InvalidInputException(NOT_AN_OBJECT);
+    }
+  }
+
+  private void readFields(JsonParser parser) throws IOException {
+    String name = null;
+    long start = 0;
+    while (true) {
+      JsonToken token = parser.nextToken();
+      if (name != null) {
+        // the value ends where the next field or the root ends
+        root.putRawValue(name, new RawValue(slice(start, tokenOffset(parser))));
+      }
+      if (token != JsonToken.FIELD_NAME) {
+        return;
+      }
+      name = parser.getCurrentName();
+      JsonToken value = parser.nextToken();
+      start = tokenOffset(parser);
+      readValue(parser, value, Entity.TYPE_FIELD.equals(name));
+    }
+  }
+
+  /**
+   * Read a value to its end, keeping the names of its fields and the values of its type fields.
+   *
+   * @param type whether the value is the one of a type field
+   */
+  private void readValue(JsonParser parser, JsonToken token, boolean type) throws IOException {
+    if (type) {
+      addType(parser, token);
+    }
+    if (!token.isStructStart()) {
+      return;
+    }
+    int depth = 1;
+    // type fields are not looked for in the values of type fields
+    int typeDepth = type ? depth : Integer.MAX_VALUE;
+    while (depth > 0) {
+      token = parser.nextToken();
+      if (token.isStructStart()) {
+        depth++;
+      } else if (token.isStructEnd()) {
+        depth--;
+        if (depth < typeDepth) {
+          typeDepth = Integer.MAX_VALUE;
+        }
+      } else if (token == JsonToken.FIELD_NAME) {
+        String name = parser.getCurrentName();
+        nestedNames.add(name);
+        if (Entity.TYPE_FIELD.equals(name) && typeDepth == Integer.MAX_VALUE) {
+          token = parser.nextToken();
+          addType(parser, token);
+          if (token.isStructStart()) {
+            depth++;
+            typeDepth = depth;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Keep the value of a type field as {@link JsonNode#asText()} returns it.
+   */
+  private void addType(JsonParser parser, JsonToken token) throws IOException {
+    if (token.isStructStart()) {
+      types.add("");
+    } else if (token == JsonToken.VALUE_NULL) {
+      types.add("null");
+    } else {
+      types.add(parser.getText());
+    }
+  }
+
+  private long tokenOffset(JsonParser parser) {
+    return (bytes != null) ? parser.getTokenLocation().getByteOffset() : parser.getTokenLocation().getCharOffset();
+  }
+
+  /**
+   * Return the raw JSON from start to end, without the separator following the value.
+   */
+  private String slice(long start, long end) {
+    int from = (int) start;
+    int to = (int) end;
+    while (to > from && isSeparator(charAt(to - 1))) {
+      to--;
+    }
+    if (bytes != null) {
+      return new String(bytes, offset + from, to - from, StandardCharsets.UTF_8);
+    }
+    return text.subSequence(from, to).toString();
+  }
+
+  private char charAt(int index) {
+    return (bytes != null) ? (char) (bytes[offset + index] & 0xFF) : text.charAt(index);
+  }
+
+  private static boolean isSeparator(char c) {
+    return c == ',' || c == ' ' || c == '\t' || c == '\n' || c == '\r';
+  }
+
+  /**
+   * The data model of templates, a map of the entities converted as {@link ObjectMapper#convertValue} does, each
+   * entity being read and converted when it is first used.
+   */
+  private class TemplateData extends AbstractMap<String, Object> {
+    private final Map<String, Object> converted = new HashMap<>();
+
+    @Override
+    public Object get(Object key) {
+      if (!(key instanceof String) || !root.has((String) key)) {
+        return null;
+      }
+      return converted.computeIfAbsent((String) key, name -> {
+        try {
+          return mapper.convertValue(read(root, name), Object.class);
+        } catch (IOException e) {
+          throw new IllegalStateException("Failed to read EntityJSON", e);
+        }
+      });
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return key instanceof String && root.has((String) key);
+    }
+
+    @Override
+    public int size() {
+      return root.size();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+      Map<String, Object> entries = new java.util.LinkedHashMap<>();
+      Iterator<String> names = root.fieldNames();
+      while (names.hasNext()) {
+        String name = names.next();
+        entries.put(name, get(name));
+      }
+      return entries.entrySet();
+    }
+  }
+}
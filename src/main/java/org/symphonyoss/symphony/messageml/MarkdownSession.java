@@ -0,0 +1,227 @@
+package org.symphonyoss.symphony.messageml;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.symphonyoss.symphony.messageml.elements.FormatEnum;
+import org.symphonyoss.symphony.messageml.elements.MessageML;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownParser;
+import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Converts a Markdown message streamed in chunks, e.g. the output of a bot generated incrementally, into a MessageML
+ * document tree updated after every chunk.
+ * <p>
+ * The blocks followed by a blank line and by the start of another block are stable: appending text to the message
+ * cannot change them anymore. They are parsed once, only the blocks after the last stable boundary are parsed again
+ * when a chunk is appended. Intermediate documents are previews: entities are only processed and the message only
+ * fully validated by {@link #finish(JsonNode, JsonNode)}, which parses the complete message in the underlying context.
+ * <p>
+ * A session is not thread-safe and is meant to convert a single message.
+ */
+public class MarkdownSession {
+
+  private final MessageMLContext context;
+  private final MarkdownParser markdownParser;
+  private final StringBuilder buffer = new StringBuilder();
+  private final MessageML messageML = new MessageML(FormatEnum.PRESENTATIONML, MessageML.MESSAGEML_VERSION);
+  private int stableLength;
+  private int stableSize;
+  private boolean finished;
+
+  /**
+   * Create a session converting a message with the given context, which holds the outputs once the session is
+   * finished.
+   */
+  public MarkdownSession(MessageMLContext context) {
+    this.context = context;
+    this.markdownParser = context.getMarkdownParser();
+  }
+
+  /**
+   * Append a chunk of Markdown to the message and update the document tree.
+   * @param chunk the next chunk of the message
+   * @return the document tree of the message received so far, updated in place by the next chunks
+   * @throws IllegalStateException thrown if the session is finished
+   */
+  public MessageML append(String chunk) throws IllegalStateException {
+    if (finished) {
+      throw new IllegalStateException("The Markdown session is already finished");
+    }
+    buffer.append(chunk);
+
+    // Drop the unstable blocks parsed for the previous chunk
+    messageML.getChildren().subList(stableSize, messageML.size()).clear();
+
+    int boundary = findStableBoundary(buffer, stableLength);
+    if (boundary > stableLength) {
+      markdownParser.parseBlocks(messageML, buffer.substring(stableLength, boundary), stableLength > 0);
+      stableLength = boundary;
+      stableSize = messageML.size();
+    }
+    markdownParser.parseBlocks(messageML, buffer.substring(stableLength), stableLength > 0);
+    return messageML;
+  }
+
+  /**
+   * Return the document tree of the message received so far.
+   */
+  public MessageML getMessageML() {
+    return messageML;
+  }
+
+  /**
+   * Serialize the document tree of the message received so far as PresentationML.
+   */
+  public String getPresentationML() {
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    XmlPrintStream out = new XmlPrintStream(bout);
+    out.setNoIndent(true);
+    out.setNoNl(true);
+    messageML.asPresentationML(out, context);
+    out.close();
+    return bout.toString();
+  }
+
+  /**
+   * Return the length of the beginning of the message made of stable blocks, which are not parsed anymore.
+   */
+  public int getStableLength() {
+    return stableLength;
+  }
+
+  /**
+   * Parse and validate the complete message along with its entities. The outputs are retrieved from the context.
+   * @param entities additional entity data in JSON
+   * @param media additional media data in JSON
+   * @return the context holding the parsed message
+   * @throws InvalidInputException thrown on invalid entity or media data
+   */
+  public MessageMLContext finish(JsonNode entities, JsonNode media) throws InvalidInputException {
+    finished = true;
+    context.parseMarkdown(buffer.toString(), entities, media);
+    return context;
+  }
+
+  /**
+   * Find the last boundary after which appending text cannot change the blocks before it: a blank line outside of a
+   * fenced code block, followed by a complete line starting a block which cannot belong to a list or a block quote
+   * opened before the blank line.
+   * @param text the message received so far
+   * @param from a previous boundary
+   * @return the index of the first character after the boundary, <code>from</code> if no boundary was found
+   */
+  static int findStableBoundary(CharSequence text, int from) {
+    int boundary = from;
+    boolean blank = false;
+    boolean content = false;
+    char fenceChar = 0;
+    int fenceLength = 0;
+
+    int lineStart = from;
+    int lineEnd;
+    while ((lineEnd = indexOf(text, '\n', lineStart)) >= 0) {
+      int indent = indentation(text, lineStart, lineEnd);
+      int fence = fenceLength(text, lineStart + indent, lineEnd, fenceChar);
+
+      if (fenceChar != 0) {
+        // Within a fenced code block, blank lines are part of the code
+        if (indent < 4 && fence >= fenceLength && isBlank(text, lineStart + indent + fence, lineEnd)) {
+          fenceChar = 0;
+        }
+      } else if (isBlank(text, lineStart, lineEnd)) {
+        blank = content;
+      } else {
+        if (blank && startsBlock(text, lineStart, lineEnd)) {
+          boundary = lineStart;
+        }
+        blank = false;
+        content = true;
+        if (indent < 4 && fence >= 3 && !isBacktickInfo(text, lineStart + indent, fence, lineEnd)) {
+          fenceChar = text.charAt(lineStart + indent);
+          fenceLength = fence;
+        }
+      }
+      lineStart = lineEnd + 1;
+    }
+    return boundary;
+  }
+
+  /**
+   * Whether the line starts a new block at the root of the message: not indented, not a list item nor a block quote.
+   */
+  private static boolean startsBlock(CharSequence text, int start, int end) {
+    char c = text.charAt(start);
+    if (Character.isWhitespace(c) || c == '>') {
+      return false;
+    }
+    if (c == '-' || c == '*' || c == '+') {
+      return start + 1 < end && !Character.isWhitespace(text.charAt(start + 1));
+    }
+    int i = start;
+    while (i < end && Character.isDigit(text.charAt(i))) {
+      i++;
+    }
+    return i == start || i == end || (text.charAt(i) != '.' && text.charAt(i) != ')');
+  }
+
+  /**
+   * Return the length of the fence starting at the given index, of the given character if not 0, 0 if there is none.
+   */
+  private static int fenceLength(CharSequence text, int start, int end, char fenceChar) {
+    if (start >= end) {
+      return 0;
+    }
+    char c = text.charAt(start);
+    if ((c != '`' && c != '~') || (fenceChar != 0 && c != fenceChar)) {
+      return 0;
+    }
+    int i = start;
+    while (i < end && text.charAt(i) == c) {
+      i++;
+    }
+    return i - start;
+  }
+
+  /**
+   * The info string of a backtick fence cannot contain backticks, such a line is not a fence.
+   */
+  private static boolean isBacktickInfo(CharSequence text, int start, int fence, int end) {
+    if (text.charAt(start) != '`') {
+      return false;
+    }
+    for (int i = start + fence; i < end; i++) {
+      if (text.charAt(i) == '`') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int indentation(CharSequence text, int start, int end) {
+    int i = start;
+    while (i < end && text.charAt(i) == ' ') {
+      i++;
+    }
+    return i - start;
+  }
+
+  private static boolean isBlank(CharSequence text, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (!Character.isWhitespace(text.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int indexOf(CharSequence text, char c, int from) {
+    for (int i = from; i < text.length(); i++) {
+      if (text.charAt(i) == c) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
@@ -16,24 +16,40 @@
 
 package org.symphonyoss.symphony.messageml;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import org.apache.commons.lang3.StringUtils;
 import org.symphonyoss.symphony.messageml.bi.BiContext;
 import org.symphonyoss.symphony.messageml.elements.MessageML;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ParseLimitExceededException;
 import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
 import org.symphonyoss.symphony.messageml.markdown.MarkdownParser;
 import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
+import org.symphonyoss.symphony.messageml.metrics.InstrumentedDataProvider;
+import org.symphonyoss.symphony.messageml.metrics.OutputFormat;
+import org.symphonyoss.symphony.messageml.metrics.ParseListener;
+import org.symphonyoss.symphony.messageml.metrics.ParseMetrics;
+import org.symphonyoss.symphony.messageml.metrics.ParseStage;
 import org.symphonyoss.symphony.messageml.util.IDataProvider;
 import org.symphonyoss.symphony.messageml.util.ShortID;
+import org.symphonyoss.symphony.messageml.util.XMLAttribute;
 import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+import org.symphonyoss.symphony.messageml.util.instrument.resolver.InstrumentResolutionCache;
 import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * The main entry point for parsing string message data in MessageML or Markdown formats and associated JSON entity
@@ -46,23 +62,173 @@ import java.io.IOException;
  */
 public class MessageMLContext {
 
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
   private final MessageMLParser messageMLParser;
   private final MarkdownParser markdownParser;
   private final ShortID shortID;
+  private final ParseListener listener;
 
   private MarkdownRenderer markdownRenderer;
   private MessageML messageML;
   private ObjectNode entityJson;
   private BiContext biContext;
   private String presentationML;
+  private String plainText;
+  private String text;
+  private Set<MessageOutput> renderedOutputs;
+  /** Whether the EntityJSON is still to be built from the message. */
+  private boolean entityJsonPending;
+  private boolean lazyEntityJson;
+  private boolean deferFinancialTags;
+  /** Whether the financial tags of the message are still to be resolved, along with its outputs. */
+  private boolean financialTagsPending;
 
   public MessageMLContext(IDataProvider dataProvider) {
+    this(dataProvider, ParseListener.NO_OP);
+  }
+
+  /**
+   * Create a context reporting parsing metrics to the given listener.
+   * @param dataProvider data provider used to resolve users, URIs and financial instruments
+   * @param listener listener receiving parsing metrics, calls to the data provider are reported as well
+   */
+  public MessageMLContext(IDataProvider dataProvider, ParseListener listener) {
+    this.listener = (listener != null) ? listener : ParseListener.NO_OP;
+    if (this.listener != ParseListener.NO_OP) {
+      dataProvider = new InstrumentedDataProvider(dataProvider, this.listener);
+    }
     this.markdownParser = new MarkdownParser(dataProvider);
-    this.messageMLParser = new MessageMLParser(dataProvider);
+    this.messageMLParser = new MessageMLParser(dataProvider, this.listener);
     this.shortID = new ShortID();
     this.biContext = new BiContext();
   }
 
+  /**
+   * Bound the resources a single call to {@link #parseMessageML(String, String, String)} can use. Messages exceeding
+   * one of the limits are rejected with a {@link ParseLimitExceededException}.
+   * @param limits limits applied to the next parses, null to remove all limits
+   */
+  public void setParseLimits(ParseLimits limits) {
+    messageMLParser.setLimits(limits);
+  }
+
+  /**
+   * Build PresentationML messages, e.g. read back from storage to be rendered again, without validating their elements
+   * nor calling the data provider. Mentions are rendered with the names stored in the message.
+   * <p>
+   * Only enable this for messages produced by this library and validated when they were sent: invalid PresentationML
+   * is not rejected in this mode. MessageML messages are always validated.
+   * @param trusted whether the next PresentationML messages are trusted
+   */
+  public void setTrustedPresentationML(boolean trusted) {
+    messageMLParser.setTrustPresentationML(trusted);
+  }
+
+  /**
+   * Cache the resolutions of financial tags across messages: the instruments of the tags of the next messages are
+   * looked up in the cache first, and only the missing ones are resolved with the data provider. The cache can be
+   * shared by several contexts.
+   * @param cache cache of the resolutions, null to always call the data provider
+   */
+  public void setInstrumentResolutionCache(InstrumentResolutionCache cache) {
+    messageMLParser.setInstrumentCache(cache);
+  }
+
+  /**
+   * Bound the time the data provider is given to resolve the financial tags of a message. The data provider is then
+   * called on the executor; when the deadline passes, the parse goes on and the tags which are not resolved are
+   * rendered with their fallback ticker, see {@link #isPartiallyEnriched()}. Tags without fallback ticker are then
+   * rejected as for instruments which are not found. The resolutions received after the deadline are still added to
+   * the cache, see {@link #setInstrumentResolutionCache(InstrumentResolutionCache)}, for the next messages.
+   * @param deadline time given to the data provider for each message, null to wait for it
+   * @param executor executor the data provider is called on, required with a deadline
+   */
+  public void setFinancialTagDeadline(Duration deadline, Executor executor) {
+    if (deadline != null && executor == null) {
+      throw new IllegalArgumentException("An executor is required to resolve financial tags with a deadline");
+    }
+    messageMLParser.setFinancialTagDeadline(deadline, executor);
+  }
+
+  /**
+   * Return whether the financial tags of the message could not all be resolved before the deadline set with
+   * {@link #setFinancialTagDeadline(Duration, Executor)}, some of them being rendered with their fallback ticker.
+   * @throws IllegalStateException thrown if the message hasn't been parsed yet
+   */
+  public boolean isPartiallyEnriched() throws IllegalStateException {
+    return getMessageML().isPartiallyEnriched();
+  }
+
+  /**
+   * Leave the financial tags of the next MessageML messages unresolved, e.g. to resolve the financial tags of several
+   * messages together: the parse stops once the message is validated, before any output is rendered, and is completed
+   * by {@link #resolveFinancialTags()}. The criteria of the tags of the message are given by
+   * {@link MessageML#getFinancialTagCriteria()}.
+   * @param deferred whether the financial tags of the next messages are resolved by {@link #resolveFinancialTags()}
+   */
+  public void setDeferredFinancialTags(boolean deferred) {
+    this.deferFinancialTags = deferred;
+    messageMLParser.setResolveFinancialTags(!deferred);
+  }
+
+  /**
+   * Resolve the financial tags of a message parsed with deferred financial tags, see
+   * {@link #setDeferredFinancialTags(boolean)}, then render its outputs as the parse does otherwise. Does nothing if
+   * the financial tags of the message are already resolved.
+   * @throws InvalidInputException thrown if the instrument of a tag without fallback ticker is not found
+   * @throws IllegalStateException thrown if the message hasn't been parsed yet
+   */
+  public void resolveFinancialTags() throws InvalidInputException, IllegalStateException {
+    if (messageML == null) {
+      throwCallParseFirstException();
+    }
+    if (!financialTagsPending) {
+      return;
+    }
+
+    try {
+      messageMLParser.enhanceFinancialTags(messageML);
+      this.financialTagsPending = false;
+      this.entityJson = messageMLParser.getEntityJson();
+      renderOutputs();
+    } catch (InvalidInputException | RuntimeException e) {
+      listener.onParseFailed(e);
+      throw e;
+    }
+    listener.onParseCompleted();
+  }
+
+  /**
+   * Select the outputs rendered right after each MessageML message is parsed, in a single traversal of the message
+   * rather than one traversal per output. The other outputs are rendered when they are first retrieved, Markdown
+   * errors are then thrown as {@link IllegalStateException}s.
+   * <p>
+   * By default, the EntityJSON, the Markdown and the legacy entities are rendered after each parse, and the
+   * PresentationML and the text when they are retrieved.
+   * @param outputs outputs rendered after the next parses, null to restore the default
+   */
+  public void setRenderedOutputs(Set<MessageOutput> outputs) {
+    if (outputs == null) {
+      this.renderedOutputs = null;
+    } else {
+      this.renderedOutputs = outputs.isEmpty() ? EnumSet.noneOf(MessageOutput.class) : EnumSet.copyOf(outputs);
+    }
+    messageMLParser.setDeferEntityJson(outputs != null);
+  }
+
+  /**
+   * Read the EntityJSON received with the next messages without building the entities the messages do not refer to.
+   * The EntityJSON is still fully read, malformed EntityJSON is rejected as in the default mode, but only the entities
+   * the messages refer to are built; the others are written as they were received by
+   * {@link #writeEntityJson(JsonGenerator)}, and only built when {@link #getEntityJson()} is called.
+   * @param lazy whether the entities of the next messages are built when they are referred to
+   */
+  public void setLazyEntityJson(boolean lazy) {
+    this.lazyEntityJson = lazy;
+    messageMLParser.setLazyEntityJson(lazy);
+  }
+
   /**
    * Parse the text contents of the message and optionally EntityJSON into a MessageMLV2 message. Expands
    * Freemarker templates and generates document tree structures for serialization into output formats with the
@@ -76,11 +242,63 @@ public class MessageMLContext {
    */
   public void parseMessageML(String message, String entityJson, String version) throws InvalidInputException, IOException,
       ProcessingException {
-    this.presentationML = null;
-    this.messageML = messageMLParser.parse(message, entityJson, version);
-    this.entityJson = messageMLParser.getEntityJson();
-    this.biContext = messageMLParser.getBiContext();
-    this.markdownRenderer = new MarkdownRenderer(messageML.asMarkdown());
+    parseMessageML(() -> messageMLParser.parse(message, entityJson, version));
+  }
+
+  /**
+   * Parse UTF-8 encoded message and EntityJSON, as received from the wire, into a MessageMLV2 message. The message is
+   * checked before it is decoded, and decoded only once.
+   * @param message UTF-8 bytes of a MessageMLV2 message with optional Freemarker templates
+   * @param entityJson UTF-8 bytes of EntityJSON data, may be null
+   * @param version string containing the version of the message format
+   * @throws InvalidInputException thrown on invalid MessageMLV2 input
+   * @throws ProcessingException thrown on errors generating the document tree
+   * @see #parseMessageML(String, String, String)
+   */
+  public void parseMessageML(byte[] message, byte[] entityJson, String version)
+      throws InvalidInputException, IOException, ProcessingException {
+    parseMessageML(() -> messageMLParser.parse(Utf8Input.of(message), Utf8Input.of(entityJson), version));
+  }
+
+  /**
+   * Parse the remaining UTF-8 bytes of the buffers, which are read without being copied when backed by an array. The
+   * positions of the buffers are left unchanged.
+   * @see #parseMessageML(byte[], byte[], String)
+   */
+  public void parseMessageML(ByteBuffer message, ByteBuffer entityJson, String version)
+      throws InvalidInputException, IOException, ProcessingException {
+    parseMessageML(() -> messageMLParser.parse(Utf8Input.of(message), Utf8Input.of(entityJson), version));
+  }
+
+  /**
+   * Parse UTF-8 encoded message and EntityJSON read until the end of the streams, which are not closed. Reading stops
+   * as soon as the input size limit is exceeded.
+   * @throws IOException thrown on errors reading the streams
+   * @see #parseMessageML(byte[], byte[], String)
+   */
+  public void parseMessageML(InputStream message, InputStream entityJson, String version)
+      throws InvalidInputException, IOException, ProcessingException {
+    parseMessageML(() -> messageMLParser.parse(messageMLParser.read(message), messageMLParser.read(entityJson),
+        version));
+  }
+
+  private void parseMessageML(ParseCall parseCall) throws InvalidInputException, IOException, ProcessingException {
+    clearOutputs();
+    try {
+      this.messageML = parseCall.parse();
+      this.plainText = messageMLParser.getPlainText();
+      this.entityJson = messageMLParser.getEntityJson();
+      this.biContext = messageMLParser.getBiContext();
+      if (deferFinancialTags) {
+        this.financialTagsPending = true;
+        return;
+      }
+      renderOutputs();
+    } catch (InvalidInputException | ProcessingException | IOException | RuntimeException e) {
+      listener.onParseFailed(e);
+      throw e;
+    }
+    listener.onParseCompleted();
   }
 
   /**
@@ -90,11 +308,122 @@ public class MessageMLContext {
    * @param entities additional entity data in JSON
    */
   public void parseMarkdown(String message, JsonNode entities, JsonNode media) throws InvalidInputException {
+    clearOutputs();
+    this.plainText = null;
+    try {
+      if (listener != ParseListener.NO_OP) {
+        listener.onInput(ParseMetrics.utf8Length(message), 0);
+      }
+      long start = startStage();
+      this.messageML = markdownParser.parse(message, entities, media);
+      start = endStage(ParseStage.BUILD, start);
+      this.entityJson = messageML.asEntityJson(this.entityJson);
+      endStage(ParseStage.SERIALIZE, start);
+      this.biContext = new BiContext();
+      if (listener != ParseListener.NO_OP) {
+        listener.onElements(ParseMetrics.countElements(messageML));
+      }
+      renderMarkdown();
+    } catch (InvalidInputException | RuntimeException e) {
+      listener.onParseFailed(e);
+      throw e;
+    }
+    listener.onParseCompleted();
+  }
+
+  /**
+   * Mark the texts of the next messages holding the given marker as placeholders of a message being prepared, their
+   * length being checked once the placeholders are bound, see {@link PreparedMessage}.
+   */
+  void setPlaceholderMarker(String marker) {
+    messageMLParser.setPlaceholderMarker(marker);
+  }
+
+  MarkdownParser getMarkdownParser() {
+    return markdownParser;
+  }
+
+  private void clearOutputs() {
+    this.financialTagsPending = false;
     this.presentationML = null;
-    this.messageML = markdownParser.parse(message, entities, media);
-    this.entityJson = messageML.asEntityJson(this.entityJson);
-    this.biContext = new BiContext();
-    this.markdownRenderer = new MarkdownRenderer(messageML.asMarkdown());
+    this.text = null;
+    this.markdownRenderer = null;
+    this.entityJsonPending = false;
+  }
+
+  private void renderOutputs() throws InvalidInputException {
+    if (renderedOutputs == null) {
+      renderMarkdown();
+    } else {
+      renderSelectedOutputs();
+    }
+  }
+
+  /**
+   * Render the selected outputs in a single traversal of the message. The text is read from the PresentationML.
+   */
+  private void renderSelectedOutputs() throws InvalidInputException {
+    boolean markdown = renderedOutputs.contains(MessageOutput.MARKDOWN)
+        || renderedOutputs.contains(MessageOutput.ENTITIES);
+    if (plainText != null) {
+      // the other outputs of a text only message are built without traversing it
+      if (markdown) {
+        renderMarkdown();
+      }
+      return;
+    }
+    boolean presentationML = renderedOutputs.contains(MessageOutput.PRESENTATIONML)
+        || renderedOutputs.contains(MessageOutput.TEXT);
+    boolean entityJson = renderedOutputs.contains(MessageOutput.ENTITY_JSON);
+    this.entityJsonPending = !entityJson;
+    if (!presentationML && !markdown && !entityJson) {
+      return;
+    }
+
+    long start = startStage();
+    ByteArrayOutputStream bout = presentationML ? new ByteArrayOutputStream() : null;
+    XmlPrintStream out = presentationML ? presentationMLStream(bout) : null;
+    MarkdownRenderer renderer = markdown ? new MarkdownRenderer() : null;
+    ObjectNode json = null;
+    if (entityJson) {
+      json = (this.entityJson != null) ? this.entityJson : new ObjectNode(JsonNodeFactory.instance);
+    }
+
+    messageML.asOutputs(out, this, markdown ? renderer.sink() : null, json);
+
+    if (presentationML) {
+      out.close();
+      this.presentationML = bout.toString();
+    }
+    this.markdownRenderer = renderer;
+    if (entityJson) {
+      this.entityJson = json;
+    }
+    if (renderedOutputs.contains(MessageOutput.TEXT)) {
+      this.text = PresentationMLText.textContent(this.presentationML);
+    }
+
+    if (listener != ParseListener.NO_OP) {
+      endStage(ParseStage.SERIALIZE, start);
+      if (presentationML) {
+        listener.onOutput(OutputFormat.PRESENTATIONML, ParseMetrics.utf8Length(this.presentationML));
+      }
+      if (markdown) {
+        listener.onOutput(OutputFormat.MARKDOWN, ParseMetrics.utf8Length(renderer.getText()));
+      }
+      if (text != null) {
+        listener.onOutput(OutputFormat.TEXT, ParseMetrics.utf8Length(text));
+      }
+    }
+  }
+
+  private void renderMarkdown() throws InvalidInputException {
+    long start = startStage();
+    this.markdownRenderer = new MarkdownRenderer(messageML);
+    if (listener != ParseListener.NO_OP) {
+      endStage(ParseStage.SERIALIZE, start);
+      listener.onOutput(OutputFormat.MARKDOWN, ParseMetrics.utf8Length(markdownRenderer.getText()));
+    }
   }
 
   /**
@@ -121,20 +450,47 @@ public class MessageMLContext {
       throwCallParseFirstException();
     }
 
-    ByteArrayOutputStream bout = new ByteArrayOutputStream();
-    XmlPrintStream out = new XmlPrintStream(bout);
+    long start = startStage();
+    if (plainText != null) {
+      presentationML = plainTextPresentationML();
+    } else {
+      ByteArrayOutputStream bout = new ByteArrayOutputStream();
+      XmlPrintStream out = presentationMLStream(bout);
 
-    out.setNoIndent(true);
-    out.setNoNl(true);
-
-    messageML.asPresentationML(out, this);
+      messageML.asPresentationML(out, this);
 
-    out.close();
+      out.close();
 
-    presentationML = bout.toString();
+      presentationML = bout.toString();
+    }
+    if (listener != ParseListener.NO_OP) {
+      endStage(ParseStage.SERIALIZE, start);
+      listener.onOutput(OutputFormat.PRESENTATIONML, ParseMetrics.utf8Length(presentationML));
+    }
     return presentationML;
   }
 
+  private static XmlPrintStream presentationMLStream(ByteArrayOutputStream bout) {
+    XmlPrintStream out = new XmlPrintStream(bout);
+    out.setNoIndent(true);
+    out.setNoNl(true);
+    return out;
+  }
+
+  /**
+   * Serialize a message made of text only, with the escaping and the removal of newlines of the serializer.
+   */
+  private String plainTextPresentationML() {
+    StringBuilder sb = new StringBuilder(plainText.length() + 64)
+        .append("<div data-format=\"PresentationML\" data-version=\"")
+        .append(XmlPrintStream.escapeXml(messageML.getVersion(), XMLAttribute.Format.STANDARD))
+        .append("\">");
+    if (!plainText.isEmpty()) {
+      sb.append(XmlPrintStream.escapeXml(XmlPrintStream.removeNewLines(plainText), XMLAttribute.Format.STANDARD));
+    }
+    return sb.append("</div>").toString();
+  }
+
   /**
    * Retrieve a JSON representation of entity data (EntityJSON).
    */
@@ -143,9 +499,62 @@ public class MessageMLContext {
       throwCallParseFirstException();
     }
 
+    buildEntityJson();
+    if (lazyEntityJson && entityJson != null) {
+      try {
+        EntityJsonIndex.readAll(MAPPER, entityJson);
+      } catch (IOException e) {
+        // the EntityJSON was read when the message was parsed
+        throw new IllegalStateException("Failed to read EntityJSON", e);
+      }
+    }
     return entityJson;
   }
 
+  private void buildEntityJson() {
+    if (entityJsonPending) {
+      long start = startStage();
+      this.entityJson = messageML.asEntityJson(entityJson);
+      this.entityJsonPending = false;
+      endStage(ParseStage.SERIALIZE, start);
+    }
+  }
+
+  /**
+   * Write the EntityJSON to the generator. When it is not rendered after the parse, see
+   * {@link #setRenderedOutputs(Set)}, the EntityJSON received with the message is written as it is, followed by the
+   * entities of the message, without building the EntityJSON tree. It is still built first if entities of the message
+   * are added to or modify the received entities.
+   * @throws IllegalStateException thrown if the message hasn't been parsed yet
+   */
+  public void writeEntityJson(JsonGenerator generator) throws IOException {
+    if (messageML == null) {
+      throwCallParseFirstException();
+    }
+
+    if (entityJsonPending) {
+      long start = startStage();
+      boolean written = messageML.writeEntityJson(generator, entityJson);
+      endStage(ParseStage.SERIALIZE, start);
+      if (written) {
+        return;
+      }
+    }
+    buildEntityJson();
+    MAPPER.writeTree(generator, entityJson);
+  }
+
+  /**
+   * Write the EntityJSON to the stream, encoded in UTF-8. The stream is not closed.
+   * @see #writeEntityJson(JsonGenerator)
+   */
+  public void writeEntityJson(OutputStream out) throws IOException {
+    try (JsonGenerator generator = MAPPER.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      writeEntityJson(generator);
+    }
+  }
+
   /**
    * Retrieve a string representation of the message in Markdown.
    * @throws IllegalStateException thrown if the message hasn't been parsed yet
@@ -155,7 +564,7 @@ public class MessageMLContext {
       throwCallParseFirstException();
     }
 
-    return markdownRenderer.getText();
+    return markdownRenderer().getText();
   }
 
   /**
@@ -167,7 +576,18 @@ public class MessageMLContext {
       throwCallParseFirstException();
     }
 
-    return markdownRenderer.getJson();
+    return markdownRenderer().getJson();
+  }
+
+  private MarkdownRenderer markdownRenderer() {
+    if (markdownRenderer == null) {
+      try {
+        renderMarkdown();
+      } catch (InvalidInputException e) {
+        throw new IllegalStateException(e.getMessage(), e);
+      }
+    }
+    return markdownRenderer;
   }
 
   /**
@@ -181,8 +601,16 @@ public class MessageMLContext {
       throwCallParseFirstException();
     }
 
-    Element doc = messageMLParser.parseDocument(getPresentationML());
-    return doc.getTextContent();
+    if (plainText != null) {
+      return reportText(XmlPrintStream.removeNewLines(plainText), startStage());
+    }
+
+    if (text != null) {
+      return text;
+    }
+    String presentationML = getPresentationML();
+    long start = startStage();
+    return reportText(PresentationMLText.textContent(presentationML), start);
   }
 
   /**
@@ -198,25 +626,22 @@ public class MessageMLContext {
       throwCallParseFirstException();
     }
 
-    StringBuilder sb = new StringBuilder();
-
-    Element doc = messageMLParser.parseDocument(getPresentationML());
-
-    NodeList nodes = doc.getChildNodes();
-
-    for (int i = 0; i < nodes.getLength(); i++) {
-      Node node = nodes.item(i);
-      String text = (preserveWhitespace) ? node.getTextContent() : node.getTextContent().trim();
+    if (plainText != null) {
+      String text = XmlPrintStream.removeNewLines(plainText);
+      return reportText(preserveWhitespace ? text : text.trim(), startStage());
+    }
 
-      // Prepend space unless we're at the first node or we trim whitespace and current text is blank
-      if (i > 0 && StringUtils.isNotEmpty(text)) {
-        sb.append(" ");
-      }
+    String presentationML = getPresentationML();
+    long start = startStage();
+    return reportText(PresentationMLText.textContent(presentationML, preserveWhitespace), start);
+  }
 
-      sb.append(text);
+  private String reportText(String text, long start) {
+    if (listener != ParseListener.NO_OP) {
+      endStage(ParseStage.SERIALIZE, start);
+      listener.onOutput(OutputFormat.TEXT, ParseMetrics.utf8Length(text));
     }
-
-    return sb.toString();
+    return text;
   }
 
   public String generateShortId(){
@@ -232,6 +657,24 @@ public class MessageMLContext {
     return this.biContext;
   }
 
+  private long startStage() {
+    return listener != ParseListener.NO_OP ? System.nanoTime() : 0L;
+  }
+
+  private long endStage(ParseStage stage, long start) {
+    if (listener == ParseListener.NO_OP) {
+      return 0L;
+    }
+    long now = System.nanoTime();
+    listener.onStage(stage, now - start);
+    return now;
+  }
+
+  @FunctionalInterface
+  private interface ParseCall {
+    MessageML parse() throws InvalidInputException, IOException, ProcessingException;
+  }
+
   private MessageML throwCallParseFirstException() {
     throw new IllegalStateException("The message hasn't been parsed yet. "
         + "Please call MessageMLContext.parse() first.");
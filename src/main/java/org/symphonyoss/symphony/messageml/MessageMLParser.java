@@ -12,7 +12,6 @@ import freemarker.template.Configuration;
 import freemarker.template.Template;
 import freemarker.template.TemplateException;
 import freemarker.template.TemplateExceptionHandler;
-import org.apache.commons.io.input.ReaderInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
@@ -20,6 +19,7 @@ import org.symphonyoss.symphony.messageml.bi.BiContext;
 import org.symphonyoss.symphony.messageml.bi.BiFields;
 import org.symphonyoss.symphony.messageml.bi.BiItem;
 import org.symphonyoss.symphony.messageml.elements.Bold;
+import org.symphonyoss.symphony.messageml.elements.BuildHooks;
 import org.symphonyoss.symphony.messageml.elements.BulletList;
 import org.symphonyoss.symphony.messageml.elements.Button;
 import org.symphonyoss.symphony.messageml.elements.Card;
@@ -75,30 +75,41 @@ import org.symphonyoss.symphony.messageml.elements.TableHeader;
 import org.symphonyoss.symphony.messageml.elements.TableHeaderCell;
 import org.symphonyoss.symphony.messageml.elements.TableRow;
 import org.symphonyoss.symphony.messageml.elements.TextArea;
+import org.symphonyoss.symphony.messageml.elements.TextNode;
 import org.symphonyoss.symphony.messageml.elements.TextField;
 import org.symphonyoss.symphony.messageml.elements.TimePicker;
 import org.symphonyoss.symphony.messageml.elements.TimezonePicker;
 import org.symphonyoss.symphony.messageml.elements.TooltipableElement;
 import org.symphonyoss.symphony.messageml.elements.UIAction;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ParseLimitExceededException;
 import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.metrics.ParseListener;
+import org.symphonyoss.symphony.messageml.metrics.ParseMetrics;
+import org.symphonyoss.symphony.messageml.metrics.ParseStage;
 import org.symphonyoss.symphony.messageml.util.IDataProvider;
-import org.symphonyoss.symphony.messageml.util.NoOpEntityResolver;
-import org.symphonyoss.symphony.messageml.util.NullErrorHandler;
+import org.symphonyoss.symphony.messageml.util.XmlParserPool;
 import org.symphonyoss.symphony.messageml.util.instrument.resolver.InstrumentKind;
 import org.symphonyoss.symphony.messageml.util.instrument.resolver.InstrumentResolution;
+import org.symphonyoss.symphony.messageml.util.instrument.resolver.InstrumentResolutionCache;
 import org.symphonyoss.symphony.messageml.util.instrument.resolver.ResolutionResults;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
+import org.w3c.dom.Text;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
-import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -106,53 +117,51 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 
 /**
  * Converts a string representation of the message and optional entity data into a MessageMLV2 document tree.
  */
 public class MessageMLParser {
   private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final String PLAIN_TEXT_START = "<" + MessageML.MESSAGEML_TAG + ">";
+  private static final String PLAIN_TEXT_END = "</" + MessageML.MESSAGEML_TAG + ">";
   private static final Configuration FREEMARKER = new Configuration(Configuration.VERSION_2_3_30);
 
-  // Store XML factories as thread locals as they are costly to create.
-  // Sonar warnings are ignored, we favor speed over memory usage, factories will stay in active threads
-  @SuppressWarnings("java:S5164")
-  private static final ThreadLocal<XPathFactory> X_PATH_FACTORY = ThreadLocal.withInitial(XPathFactory::newInstance);
-
-  @SuppressWarnings("java:S5164")
-  private static final ThreadLocal<DocumentBuilderFactory> DB_FACTORY = ThreadLocal.withInitial(() -> {
-    try {
-      DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-      // XXE prevention as per https://www.owasp.org/index.php/XML_External_Entity_(XXE)_Prevention_Cheat_Sheet
-      dbFactory.setXIncludeAware(false);
-      dbFactory.setExpandEntityReferences(false);
-      dbFactory.setIgnoringElementContentWhitespace(true);
-      dbFactory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-      dbFactory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-      return dbFactory;
-    } catch (ParserConfigurationException e) {
-      throw new RuntimeException(e); //NOSONAR
-    }
-  });
+  // XML parsers are costly to create, they are shared by all parsers through a bounded pool
+  private static final XmlParserPool XML_PARSERS = XmlParserPool.getDefault();
 
   private final IDataProvider dataProvider;
+  private final ParseListener listener;
+  private final BuildHooks hooks = new ParserHooks();
 
   private BiContext biContext;
   private FormatEnum messageFormat;
   private ObjectNode entityJson;
+  private EntityJsonIndex entityJsonIndex;
 
   private int index;
+  private String plainText;
+
+  private ParseLimits limits;
+  private ParseBudget budget;
+  private boolean validateOnly;
+  private boolean deferEntityJson;
+  private boolean lazyEntityJson;
+  private InstrumentResolutionCache instrumentCache;
+  private Duration financialTagDeadline;
+  private Executor financialTagExecutor;
+  private boolean resolveFinancialTags = true;
+  private boolean trustPresentationML;
+  private boolean trustedInput;
+  private String placeholderMarker;
 
   private Set<String> elementIds;
   // Map for storing SplittableElements components. The key is the id, the value the data holder of attributes
@@ -166,7 +175,12 @@ public class MessageMLParser {
   }
 
   MessageMLParser(IDataProvider dataProvider) {
+    this(dataProvider, ParseListener.NO_OP);
+  }
+
+  MessageMLParser(IDataProvider dataProvider, ParseListener listener) {
     this.dataProvider = dataProvider;
+    this.listener = listener;
   }
 
   /**
@@ -180,20 +194,95 @@ public class MessageMLParser {
    * @throws ProcessingException   thrown on errors generating the document tree
    */
   MessageML parse(String message, String entityJson, String version) throws InvalidInputException, ProcessingException {
-    clearBiContext();
-    this.index = 0;
-    this.elementIds = new HashSet<>();
-    this.splittableComponents = new HashMap<>();
-    String expandedMessage;
+    reset();
 
     if (StringUtils.isBlank(message)) {
       throw new InvalidInputException("Error parsing message: the message cannot be null or empty");
     }
 
+    if (budget != null) {
+      budget.checkInputSize(message);
+      budget.checkInputSize(entityJson);
+    }
+
+    if (listener != ParseListener.NO_OP) {
+      listener.onInput(ParseMetrics.utf8Length(message), ParseMetrics.utf8Length(entityJson));
+    }
+
+    parseEntityJson(entityJson);
+    return parseMessage(message, StringUtils.isBlank(entityJson), version, false);
+  }
+
+  /**
+   * Parse a UTF-8 encoded message and optionally EntityJSON into a MessageMLV2 message. Control characters and
+   * structure limits are checked on the bytes of the message, which is then decoded once.
+   *
+   * @param message    UTF-8 bytes of a MessageMLV2 message with optional Freemarker templates
+   * @param entityJson UTF-8 bytes of EntityJSON data
+   * @param version    string containing the version of the message format
+   * @throws InvalidInputException thrown on invalid MessageMLV2 input
+   * @throws ProcessingException   thrown on errors generating the document tree
+   */
+  MessageML parse(Utf8Input message, Utf8Input entityJson, String version)
+      throws InvalidInputException, ProcessingException {
+    reset();
+
+    if (message == null || message.isBlank()) {
+      throw new InvalidInputException("Error parsing message: the message cannot be null or empty");
+    }
+
+    if (budget != null) {
+      budget.checkInputSize(message);
+      budget.checkInputSize(entityJson);
+    }
+
+    if (listener != ParseListener.NO_OP) {
+      listener.onInput(message.length(), (entityJson != null) ? entityJson.length() : 0L);
+    }
+
     parseEntityJson(entityJson);
 
+    validateMessageText(message);
+    // templates are expanded from the decoded message, which is then checked again
+    boolean checked = !containsFreemarkerTags(message);
+    if (checked && budget != null) {
+      budget.checkWallTime();
+      budget.prescan(message);
+    }
+
+    return parseMessage(message.decode(), entityJson == null || entityJson.isBlank(), version, checked);
+  }
+
+  /**
+   * Read the UTF-8 bytes of an input stream, within the input size limit of the parser.
+   */
+  Utf8Input read(InputStream in) throws IOException, ParseLimitExceededException {
+    return Utf8Input.read(in, (limits != null) ? limits.getMaxInputBytes() : 0L);
+  }
+
+  /**
+   * Parse a message whose EntityJSON is already parsed.
+   *
+   * @param checked whether control characters and structure limits were already checked on the message
+   */
+  private MessageML parseMessage(String message, boolean noEntityJson, String version, boolean checked)
+      throws InvalidInputException, ProcessingException {
+    String expandedMessage;
+
+    if (noEntityJson) {
+      this.plainText = plainText(message);
+      if (plainText != null) {
+        MessageML messageML = parsePlainText(plainText, version);
+        this.biContext.addItemWithValue(BiFields.MESSAGE_LENGTH.getValue(), message.length());
+        return messageML;
+      }
+    }
+
+    long start = startStage();
     try {
       expandedMessage = expandTemplates(message, this.entityJson);
+    } catch (ParseBudget.LimitExceededIOException e) {
+      throw e.getLimitExceeded();
     } catch (IOException e) {
       throw new InvalidInputException("Error parsing EntityJSON: " + e.getMessage());
     } catch (TemplateException e) {
@@ -201,32 +290,158 @@ public class MessageMLParser {
           + "column %s", e.getLineNumber(), e.getColumnNumber()));
     }
 
-    MessageML messageML = parseMessageML(expandedMessage, version);
-    this.entityJson = messageML.asEntityJson(this.entityJson);
+    endStage(ParseStage.TEMPLATE, start);
+
+    MessageML messageML = parseMessageML(expandedMessage, version, checked && expandedMessage == message);
+    if (entityJsonIndex != null) {
+      try {
+        entityJsonIndex.read(messageML.getEntityIds());
+      } catch (IOException e) {
+        throw new InvalidInputException("Error parsing EntityJSON: " + e.getMessage());
+      }
+    }
+    if (!validateOnly && !deferEntityJson && resolveFinancialTags) {
+      start = startStage();
+      this.entityJson = messageML.asEntityJson(this.entityJson);
+      endStage(ParseStage.SERIALIZE, start);
+    }
     this.biContext.addItemWithValue(BiFields.MESSAGE_LENGTH.getValue(), message.length());
     return messageML;
   }
 
-  private void parseEntityJson(String entityJson) throws InvalidInputException {
+  /**
+   * Clear the state kept between the stages of a single parse.
+   */
+  void reset() {
+    clearBiContext();
+    this.index = 0;
+    this.trustedInput = false;
+    this.plainText = null;
+    this.entityJsonIndex = null;
+    this.budget = (limits != null) ? new ParseBudget(limits) : null;
+    this.elementIds = new HashSet<>();
+    this.splittableComponents = new HashMap<>();
+  }
+
+  /**
+   * Set the resource budgets applied to the next parses, null for no limits.
+   */
+  void setLimits(ParseLimits limits) {
+    this.limits = limits;
+  }
+
+  /**
+   * Only validate the next messages, without generating their EntityJSON.
+   */
+  void setValidateOnly(boolean validateOnly) {
+    this.validateOnly = validateOnly;
+  }
+
+  /**
+   * Resolve the financial tags of the next messages while they are parsed. When they are not, they are resolved with
+   * {@link #enhanceFinancialTags(MessageML)} once the message is parsed, along with its EntityJSON, unless the messages
+   * are only validated: resolving them is then required to check that a tag without fallback ticker matches an
+   * instrument.
+   */
+  void setResolveFinancialTags(boolean resolveFinancialTags) {
+    this.resolveFinancialTags = resolveFinancialTags;
+  }
+
+  /**
+   * Resolve the financial tags of the message last parsed without resolving them, then build its EntityJSON.
+   */
+  void enhanceFinancialTags(MessageML messageML) throws InvalidInputException {
+    long start = startStage();
+    if (!trustedInput) {
+      messageML.enhanceFinancialTags(messageML, dataProvider, instrumentCache, financialTagDeadline,
+          financialTagExecutor);
+      start = endStage(ParseStage.BUILD, start);
+    }
+    if (!validateOnly && !deferEntityJson) {
+      this.entityJson = messageML.asEntityJson(this.entityJson);
+      endStage(ParseStage.SERIALIZE, start);
+    }
+  }
+
+  /**
+   * Leave the EntityJSON of the next messages to be built by the caller, along with their other outputs: the
+   * EntityJSON of the parser is then the one received with the message.
+   */
+  void setDeferEntityJson(boolean deferEntityJson) {
+    this.deferEntityJson = deferEntityJson;
+  }
+
+  /**
+   * Read the EntityJSON of the next messages without building the nodes of the entities the messages do not refer
+   * to: these entities are kept as raw JSON, see {@link EntityJsonIndex}.
+   */
+  void setLazyEntityJson(boolean lazyEntityJson) {
+    this.lazyEntityJson = lazyEntityJson;
+  }
+
+  /**
+   * Cache the resolutions of the financial tags of the next messages, null to always call the data provider.
+   */
+  void setInstrumentCache(InstrumentResolutionCache instrumentCache) {
+    this.instrumentCache = instrumentCache;
+  }
+
+  /**
+   * Bound the time the data provider is given to resolve the financial tags of the next messages.
+   *
+   * @param deadline time given to the data provider, null to wait for it
+   * @param executor executor the data provider is called on
+   */
+  void setFinancialTagDeadline(Duration deadline, Executor executor) {
+    this.financialTagDeadline = deadline;
+    this.financialTagExecutor = executor;
+  }
+
+  /**
+   * Build the next PresentationML messages without validating their elements or calling the data provider. The
+   * messages must have been produced by this library and validated when they were sent, e.g. when read back from
+   * storage; MessageML messages are still validated.
+   */
+  void setTrustPresentationML(boolean trustPresentationML) {
+    this.trustPresentationML = trustPresentationML;
+  }
+
+  /**
+   * Mark the texts holding the given marker as placeholders of a message being prepared.
+   */
+  void setPlaceholderMarker(String placeholderMarker) {
+    this.placeholderMarker = placeholderMarker;
+  }
+
+  void parseEntityJson(String entityJson) throws InvalidInputException {
     if (StringUtils.isNotBlank(entityJson)) {
       this.biContext.addItemWithValue(BiFields.ENTITY_JSON_SIZE.getValue(), entityJson.length());
       try {
-        JsonNode jsonNode = MAPPER.readTree(entityJson);
-        if (jsonNode.isObject()) {
-          this.entityJson = (ObjectNode) jsonNode;
-        } else if (jsonNode.isTextual()) {
-          // we got text and not a structured object, try to parse it as escaped JSON
-          jsonNode = MAPPER.readTree(jsonNode.asText());
-          if (jsonNode.isObject()) {
-            this.entityJson = (ObjectNode) jsonNode;
-          } else {
-            throw new InvalidInputException("Error parsing EntityJSON: provided content is not a JSON object");
-          }
+        if (lazyEntityJson) {
+          indexEntityJson(EntityJsonIndex.of(MAPPER, entityJson));
+        } else {
+          readEntityJson(MAPPER.readTree(entityJson));
+        }
+      } catch (IOException e) {
+        throw new InvalidInputException("Error parsing EntityJSON: " + e.getMessage());
+      }
+    } else {
+      this.entityJson = new ObjectNode(JsonNodeFactory.instance);
+    }
+  }
+
+  private void parseEntityJson(Utf8Input entityJson) throws InvalidInputException {
+    if (entityJson != null && !entityJson.isBlank()) {
+      this.biContext.addItemWithValue(BiFields.ENTITY_JSON_SIZE.getValue(),
+          entityJson.decodedLength(0, entityJson.length()));
+      try {
+        if (lazyEntityJson) {
+          indexEntityJson(EntityJsonIndex.of(MAPPER, entityJson.getBytes(), entityJson.getOffset(),
+              entityJson.length()));
         } else {
-          throw new InvalidInputException("Error parsing EntityJSON: provided content is not a JSON object");
+          readEntityJson(MAPPER.readTree(entityJson.getBytes(), entityJson.getOffset(), entityJson.length()));
         }
-        addCustomEntitiesToBiContext(jsonNode);
-      } catch (JsonProcessingException e) {
+      } catch (IOException e) {
         throw new InvalidInputException("Error parsing EntityJSON: " + e.getMessage());
       }
     } else {
@@ -234,17 +449,44 @@ public class MessageMLParser {
     }
   }
 
+  private void readEntityJson(JsonNode jsonNode) throws InvalidInputException, JsonProcessingException {
+    if (jsonNode.isObject()) {
+      this.entityJson = (ObjectNode) jsonNode;
+    } else if (jsonNode.isTextual()) {
+      // we got text and not a structured object, try to parse it as escaped JSON
+      jsonNode = MAPPER.readTree(jsonNode.asText());
+      if (jsonNode.isObject()) {
+        this.entityJson = (ObjectNode) jsonNode;
+      } else {
+        throw new InvalidInputException("Error parsing EntityJSON: provided content is not a JSON object");
+      }
+    } else {
+      throw new InvalidInputException("Error parsing EntityJSON: provided content is not a JSON object");
+    }
+    addCustomEntitiesToBiContext(jsonNode);
+  }
+
+  private void indexEntityJson(EntityJsonIndex index) {
+    this.entityJsonIndex = index;
+    this.entityJson = index.getRoot();
+    List<String> entityTypes = new ArrayList<>();
+    index.addTypes(entityTypes);
+    entityTypes.forEach(this::addCustomEntityToBiContext);
+  }
+
   /**
    * For each custom entity found in the entityJson payload we:
    * - create a BiItem containing the type of entity found
    * - increase the total count of entities found in the message
    */
   private void addCustomEntitiesToBiContext(JsonNode entityNode) {
-    entityNode.findValues(Entity.TYPE_FIELD).forEach(entityType -> {
-      biContext.updateItemCount(BiFields.ENTITIES.getValue());
-      biContext.addItem(new BiItem(BiFields.ENTITY.getValue(),
-              Collections.singletonMap(BiFields.ENTITY_TYPE.getValue(), entityType.asText())));
-    });
+    entityNode.findValues(Entity.TYPE_FIELD).forEach(entityType -> addCustomEntityToBiContext(entityType.asText()));
+  }
+
+  private void addCustomEntityToBiContext(String entityType) {
+    biContext.updateItemCount(BiFields.ENTITIES.getValue());
+    biContext.addItem(new BiItem(BiFields.ENTITY.getValue(),
+        Collections.singletonMap(BiFields.ENTITY_TYPE.getValue(), entityType)));
   }
 
   /**
@@ -255,12 +497,13 @@ public class MessageMLParser {
   }
 
   /**
-   * Check the input message text for null value and restricted characters.
+   * Check the input message text, or its UTF-8 bytes, for null value and restricted characters.
    */
-  private static void validateMessageText(String messageML) throws InvalidInputException {
+  static void validateMessageText(CharSequence messageML) throws InvalidInputException {
     if (messageML == null) { throw new InvalidInputException("Message input is NULL"); }
 
-    for (char ch : messageML.toCharArray()) {
+    for (int i = 0; i < messageML.length(); i++) {
+      char ch = messageML.charAt(i);
       if (ch != '\n' && ch != '\r' && ch != '\t' && (ch < ' ')) {
         throw new InvalidInputException("Invalid control characters in message");
       }
@@ -270,17 +513,16 @@ public class MessageMLParser {
   /**
    * Check whether <i>data-entity-id</i> attributes in the message match EntityJSON entities.
    */
-  private static void validateEntities(String messageML, org.w3c.dom.Element document, JsonNode entityJson)
+  private void validateEntities(String messageML, org.w3c.dom.Element document)
       throws InvalidInputException, ProcessingException {
     // quick bypass to avoid xpath evaluation if possible
     if (!messageML.contains("data-entity-id")) {
       return;
     }
 
-    XPath xpath = X_PATH_FACTORY.get().newXPath();
     NodeList nodes;
-    try {
-      XPathExpression expr = xpath.compile("//@data-entity-id");
+    try (XmlParserPool.Lease lease = XML_PARSERS.borrow()) {
+      XPathExpression expr = lease.getXPath().compile("//@data-entity-id");
       nodes = (NodeList) expr.evaluate(document, XPathConstants.NODESET);
     } catch (XPathExpressionException e) {
       throw new ProcessingException("Internal error processing document tree: " + e.getMessage());
@@ -290,7 +532,7 @@ public class MessageMLParser {
       Node node = nodes.item(i);
       String entityId = ((org.w3c.dom.Attr) node).getValue();
 
-      JsonNode entityNode = entityJson.findPath(entityId);
+      JsonNode entityNode = findEntity(entityId);
       if (entityNode.isMissingNode()) {
         throw new InvalidInputException("Error processing EntityJSON: "
             + "no entity data provided for \"data-entity-id\"=\"" + entityId + "\"");
@@ -313,7 +555,7 @@ public class MessageMLParser {
   /**
    * Expand Freemarker templates.
    */
-  private String expandTemplates(String message, JsonNode entityJson) throws IOException, TemplateException {
+  String expandTemplates(String message, JsonNode entityJson) throws IOException, TemplateException {
     // quick bypass to avoid creating the templating engine if possible
     if (!containsFreemarkerTags(message)) {
       return message;
@@ -321,15 +563,20 @@ public class MessageMLParser {
 
     // Read entityJSON data
     Map<String, Object> data = new HashMap<>();
-    data.put("data", MAPPER.convertValue(entityJson, Map.class));
-    data.put("entity", MAPPER.convertValue(entityJson, Map.class));
+    if (entityJsonIndex != null && entityJson == entityJsonIndex.getRoot()) {
+      data.put("data", entityJsonIndex.getTemplateData());
+      data.put("entity", entityJsonIndex.getTemplateData());
+    } else {
+      data.put("data", MAPPER.convertValue(entityJson, Map.class));
+      data.put("entity", MAPPER.convertValue(entityJson, Map.class));
+    }
 
     // Read MessageMLV2 template
     StringWriter sw = new StringWriter();
     Template template = new Template("messageML", message, FREEMARKER);
 
     // Expand the template
-    template.process(data, sw);
+    template.process(data, (budget != null) ? budget.limitTemplateOutput(sw) : sw);
 
     if (sw.toString().length() != message.length()) {
       this.biContext.updateItemCount(BiFields.FREEMARKER.getValue());
@@ -337,22 +584,149 @@ public class MessageMLParser {
     return sw.toString();
   }
 
-  private boolean containsFreemarkerTags(String message) {
+  private static boolean containsFreemarkerTags(CharSequence message) {
     // Based https://freemarker.apache.org/docs/dgui_template_directives.html
     // We consider that directives cannot be customized (to use [ or without #)
-    return message.contains("<#") || message.contains("<@") || message.contains("${") || message.contains("#{");
+    return Utf8Input.indexOf(message, "<#", 0) >= 0 || Utf8Input.indexOf(message, "<@", 0) >= 0
+        || Utf8Input.indexOf(message, "${", 0) >= 0 || Utf8Input.indexOf(message, "#{", 0) >= 0;
   }
 
   /**
-   * Parse the message string into its MessageML representation.
+   * Return the text of a message made of text only, e.g. <code>&lt;messageML&gt;Hello&lt;/messageML&gt;</code>, null
+   * for any other message. The message is checked in a single scan, the way {@link #validateMessageText(String)} does:
+   * it must not contain markup, XML entities, Freemarker interpolations or characters rejected by the XML parser.
+   * Line breaks are normalized as the XML parser would.
    */
-  private MessageML parseMessageML(String messageML, String version) throws InvalidInputException, ProcessingException {
-    validateMessageText(messageML);
+  static String plainText(String message) {
+    int start = PLAIN_TEXT_START.length();
+    int end = message.length() - PLAIN_TEXT_END.length();
+    if (end < start || !message.startsWith(PLAIN_TEXT_START) || !message.endsWith(PLAIN_TEXT_END)) {
+      return null;
+    }
+
+    boolean carriageReturn = false;
+    for (int i = start; i < end; i++) {
+      char ch = message.charAt(i);
+      switch (ch) {
+        case '<':
+        case '&':
+          return null;
+        case '{':
+          if (i > start && (message.charAt(i - 1) == '$' || message.charAt(i - 1) == '#')) {
+            return null;
+          }
+          break;
+        case '>':
+          // "]]>" is not allowed in XML text
+          if (i > start + 1 && message.charAt(i - 1) == ']' && message.charAt(i - 2) == ']') {
+            return null;
+          }
+          break;
+        case '\r':
+          carriageReturn = true;
+          break;
+        default:
+          if ((ch < ' ' && ch != '\n' && ch != '\t') || Character.isSurrogate(ch) || ch > '\uFFFD') {
+            return null;
+          }
+      }
+    }
+
+    String text = message.substring(start, end);
+    return carriageReturn ? text.replace("\r\n", "\n").replace('\r', '\n') : text;
+  }
+
+  /**
+   * Build the MessageML document tree of a message made of text only, without parsing it as XML.
+   */
+  private MessageML parsePlainText(String text, String version) {
+    long start = startStage();
+    this.messageFormat = FormatEnum.MESSAGEML;
+    MessageML result = new MessageML(messageFormat, StringUtils.isBlank(version) ? MessageML.MESSAGEML_VERSION : version);
+    if (!text.isEmpty()) {
+      result.addChild(new TextNode(result, text));
+    }
+    endStage(ParseStage.XML, start);
+
+    if (listener != ParseListener.NO_OP) {
+      listener.onElements(ParseMetrics.countElements(result));
+    }
+    return result;
+  }
+
+  /**
+   * Return the text of the last parsed message if it was made of text only, null otherwise.
+   */
+  String getPlainText() {
+    return plainText;
+  }
+
+  /**
+   * Parse the message string into its MessageML representation, skipping the checks already done on the message.
+   */
+  private MessageML parseMessageML(String messageML, String version, boolean checked)
+      throws InvalidInputException, ProcessingException {
+    long start = startStage();
+    if (!checked) {
+      validateMessageText(messageML);
+
+      if (budget != null) {
+        budget.checkWallTime();
+        budget.prescan(messageML);
+      }
+    }
 
     org.w3c.dom.Element docElement = parseDocument(messageML);
+    this.trustedInput = trustPresentationML && MessageML.PRESENTATIONML_TAG.equals(docElement.getTagName());
+
+    if (!trustedInput) {
+      validateEntities(messageML, docElement);
+    }
+    start = endStage(ParseStage.XML, start);
+
+    MessageML result = buildMessageML(docElement, version);
+    if (resolveFinancialTags && !trustedInput) {
+      result.enhanceFinancialTags(result, dataProvider, instrumentCache, financialTagDeadline, financialTagExecutor);
+    }
+    start = endStage(ParseStage.BUILD, start);
+
+    if (budget != null) {
+      budget.checkWallTime();
+    }
+
+    result.validateRoot(hooks);
+    endStage(ParseStage.VALIDATE, start);
 
-    validateEntities(messageML, docElement, entityJson);
+    if (listener != ParseListener.NO_OP) {
+      listener.onElements(ParseMetrics.countElements(result));
+    }
+    return result;
+  }
 
+  /**
+   * Return the start time of a stage, only read when a {@link ParseListener} is registered.
+   */
+  private long startStage() {
+    return listener != ParseListener.NO_OP ? System.nanoTime() : 0L;
+  }
+
+  /**
+   * Report the time spent in a stage to the {@link ParseListener} and return the start time of the next one.
+   */
+  private long endStage(ParseStage stage, long start) {
+    if (listener == ParseListener.NO_OP) {
+      return 0L;
+    }
+    long now = System.nanoTime();
+    listener.onStage(stage, now - start);
+    return now;
+  }
+
+  /**
+   * Construct the MessageML document tree from the root DOM element.
+   */
+  MessageML buildMessageML(org.w3c.dom.Element docElement, String version)
+      throws InvalidInputException, ProcessingException {
     switch (docElement.getTagName()) {
       case MessageML.MESSAGEML_TAG:
         this.messageFormat = FormatEnum.MESSAGEML;
@@ -371,9 +745,7 @@ public class MessageMLParser {
     }
 
     MessageML result = new MessageML(messageFormat, version);
-    result.buildAll(this, docElement);
-    result.enhanceFinancialTags(result, dataProvider);
-    result.validate();
+    result.buildAll(this, hooks, docElement);
     return result;
   }
 
@@ -388,31 +760,75 @@ public class MessageMLParser {
    * </br>
    */
   org.w3c.dom.Element parseDocument(String messageML) throws InvalidInputException, ProcessingException {
-    try {
-      DocumentBuilder dBuilder = DB_FACTORY.get().newDocumentBuilder();
-      dBuilder.setErrorHandler(new NullErrorHandler()); // default handler prints to stderr
-      dBuilder.setEntityResolver(new NoOpEntityResolver());
-
-      StringReader sr = new StringReader(messageML);
-      ReaderInputStream ris = new ReaderInputStream(sr, StandardCharsets.UTF_8);
+    try (XmlParserPool.Lease lease = XML_PARSERS.borrow()) {
+      DocumentBuilder dBuilder = lease.getDocumentBuilder();
 
-      Document doc = dBuilder.parse(ris); // nosemgrep owasp.java.xxe.javax.xml.parsers.DocumentBuilderFactory
+      // the parser reads the characters as they are, without encoding them to bytes and decoding them again
+      Document doc = dBuilder.parse(new InputSource(new StringReader(messageML))); // nosemgrep owasp.java.xxe.javax.xml.parsers.DocumentBuilderFactory
 
-      doc.getDocumentElement().normalize();
+      normalize(doc.getDocumentElement());
 
       return doc.getDocumentElement();
 
     } catch (SAXException e) {
       throw new InvalidInputException("Invalid messageML: " + e.getMessage(), e);
-    } catch (ParserConfigurationException | IOException e) {
+    } catch (IOException e) {
       throw new ProcessingException("Failed to parse messageML", e);
     }
   }
 
-  private boolean containsAttribute(String input, String attribute) {
-    String[] splitInput = input.split("\\s+");
+  /**
+   * Merge adjacent text nodes and remove empty ones as {@link Node#normalize()} does, with an explicit stack rather
+   * than recursively.
+   */
+  private static void normalize(org.w3c.dom.Element root) {
+    Deque<Node> stack = new ArrayDeque<>();
+    stack.push(root);
+    while (!stack.isEmpty()) {
+      Node node = stack.pop();
+      Node child = node.getFirstChild();
+      while (child != null) {
+        Node next = child.getNextSibling();
+        if (child.getNodeType() == Node.TEXT_NODE) {
+          if (next != null && next.getNodeType() == Node.TEXT_NODE) {
+            ((Text) child).appendData(next.getNodeValue());
+            node.removeChild(next);
+            continue;
+          }
+          if (child.getNodeValue().isEmpty()) {
+            node.removeChild(child);
+          }
+        } else if (child.getNodeType() == Node.ELEMENT_NODE) {
+          stack.push(child);
+        }
+        child = next;
+      }
+    }
+  }
+
+  /**
+   * Check whether a whitespace separated list of tokens, e.g. a class attribute, contains a token. The list is scanned
+   * in place rather than split with a regular expression, as this is done for every div, span and input.
+   */
+  static boolean containsAttribute(String input, String attribute) {
+    int length = attribute.length();
+    int from = 0;
+    int index;
+    while ((index = input.indexOf(attribute, from)) >= 0) {
+      int end = index + length;
+      if ((index == 0 || isSpace(input.charAt(index - 1))) && (end == input.length() || isSpace(input.charAt(end)))) {
+        return true;
+      }
+      from = index + 1;
+    }
+    return false;
+  }
 
-    return Arrays.asList(splitInput).contains(attribute);
+  /**
+   * Whether a character is matched by the <code>\s</code> regular expression class.
+   */
+  private static boolean isSpace(char ch) {
+    return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\u000B' || ch == '\f' || ch == '\r';
   }
 
   private void removeAttribute(org.w3c.dom.Element element, String input, String attribute) {
@@ -824,10 +1240,38 @@ public class MessageMLParser {
     }
   }
 
+  /**
+   * Look up an entity of the EntityJSON by id, as {@link JsonNode#findPath(String)} does.
+   */
+  private JsonNode findEntity(String entityId) throws InvalidInputException {
+    if (entityJsonIndex == null) {
+      return entityJson.findPath(entityId);
+    }
+    try {
+      return entityJsonIndex.findPath(entityId);
+    } catch (IOException e) {
+      throw new InvalidInputException("Error parsing EntityJSON: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Look up the entities of the EntityJSON with the given id, as {@link JsonNode#findValues(String)} does.
+   */
+  private List<JsonNode> findEntities(String entityId) throws InvalidInputException {
+    if (entityJsonIndex == null) {
+      return entityJson.findValues(entityId);
+    }
+    try {
+      return entityJsonIndex.findValues(entityId);
+    } catch (IOException e) {
+      throw new InvalidInputException("Error parsing EntityJSON: " + e.getMessage());
+    }
+  }
+
   private Element createEntity(org.w3c.dom.Element element, Element parent) throws InvalidInputException {
     String entityId = element.getAttribute(Entity.ENTITY_ID_ATTR);
     String tag = element.getNodeName();
-    List<JsonNode> entityList = entityJson.findValues(entityId);
+    List<JsonNode> entityList = findEntities(entityId);
 
     if (entityList.isEmpty()) {
       throw new InvalidInputException("The attribute \"data-entity-id\" is required");
@@ -924,4 +1368,49 @@ public class MessageMLParser {
       return new LinkedHashMap<>(attributesBySplittable);
     }
   }
+
+  /**
+   * The accounting of the elements built by the parser, checking the depth, number of elements, patterns and parsing
+   * time against its {@link ParseLimits}.
+   */
+  private class ParserHooks implements BuildHooks {
+
+    @Override
+    public boolean isTrustedInput() {
+      return trustedInput;
+    }
+
+    @Override
+    public void enterElement(Element element) throws InvalidInputException {
+      if (budget != null) {
+        budget.enterElement(element);
+      }
+    }
+
+    @Override
+    public void exitElement() {
+      if (budget != null) {
+        budget.exitElement();
+      }
+    }
+
+    @Override
+    public void checkPattern(String regex) throws ParseLimitExceededException {
+      if (budget != null) {
+        budget.checkPattern(regex);
+      }
+    }
+
+    @Override
+    public boolean isPlaceholder(String text) {
+      return placeholderMarker != null && text.contains(placeholderMarker);
+    }
+
+    @Override
+    public void onValidated(Element element) {
+      if (listener != ParseListener.NO_OP) {
+        listener.onValidated(ParseMetrics.tagOf(element));
+      }
+    }
+  }
 }
@@ -0,0 +1,68 @@
+package org.symphonyoss.symphony.messageml;
+
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.util.IDataProvider;
+
+/**
+ * Validates MessageML messages, e.g. drafts being composed, without generating their PresentationML, Markdown or
+ * EntityJSON. Messages are checked as {@link MessageMLContext#parseMessageML(String, String, String)} does, the calls
+ * to the data provider depending on the {@link DataProviderPolicy}.
+ * <p>
+ * As a {@link MessageMLContext}, a validator is meant to be used by one thread at a time.
+ */
+public class MessageMLValidator {
+
+  private final ValidationDataProvider dataProvider;
+  private final MessageMLParser parser;
+  private final DataProviderPolicy defaultPolicy;
+
+  /**
+   * @param dataProvider  data provider used to resolve users, URIs and financial instruments
+   * @param defaultPolicy policy of the validations not specifying one
+   */
+  public MessageMLValidator(IDataProvider dataProvider, DataProviderPolicy defaultPolicy) {
+    this.dataProvider = new ValidationDataProvider(dataProvider);
+    this.parser = new MessageMLParser(this.dataProvider);
+    this.parser.setValidateOnly(true);
+    this.defaultPolicy = defaultPolicy;
+  }
+
+  /**
+   * Bound the resources a single validation can use, as {@link MessageMLContext#setParseLimits(ParseLimits)} does.
+   */
+  public void setParseLimits(ParseLimits limits) {
+    parser.setLimits(limits);
+  }
+
+  /**
+   * Validate a message with the default policy of the validator.
+   *
+   * @see #validate(String, String, String, DataProviderPolicy)
+   */
+  public ValidationResult validate(String message, String entityJson, String version) throws ProcessingException {
+    return validate(message, entityJson, version, defaultPolicy);
+  }
+
+  /**
+   * Validate the structure and attributes of a message and its EntityJSON.
+   *
+   * @param message    string containing a MessageMLV2 message with optional Freemarker templates
+   * @param entityJson string containing EntityJSON data
+   * @param version    string containing the version of the message format
+   * @param policy     how the data of the message is checked against the data provider
+   * @return the result of the validation, with the error details if the message is invalid
+   * @throws ProcessingException thrown on errors processing the message not caused by the message itself
+   */
+  public ValidationResult validate(String message, String entityJson, String version, DataProviderPolicy policy)
+      throws ProcessingException {
+    dataProvider.setPolicy(policy);
+    parser.setResolveFinancialTags(policy == DataProviderPolicy.FULL);
+    try {
+      parser.parse(message, entityJson, version);
+      return new ValidationResult(null, dataProvider.getSkippedLookups());
+    } catch (InvalidInputException e) {
+      return new ValidationResult(e, dataProvider.getSkippedLookups());
+    }
+  }
+}
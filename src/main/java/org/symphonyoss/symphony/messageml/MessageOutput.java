@@ -0,0 +1,15 @@
+package org.symphonyoss.symphony.messageml;
+
+/**
+ * The outputs of a parsed message, which can be rendered together in a single traversal of the message, see
+ * {@link MessageMLContext#setRenderedOutputs(java.util.Set)}.
+ */
+public enum MessageOutput {
+  PRESENTATIONML,
+  MARKDOWN,
+  /** Entities in the legacy JSON format, rendered with the Markdown. */
+  ENTITIES,
+  ENTITY_JSON,
+  /** Text content of the PresentationML, which is rendered with it. */
+  TEXT
+}
@@ -0,0 +1,249 @@
+package org.symphonyoss.symphony.messageml;
+
+import org.symphonyoss.symphony.messageml.elements.Element;
+import org.symphonyoss.symphony.messageml.elements.RegexPatterns;
+import org.symphonyoss.symphony.messageml.elements.TableCell;
+import org.symphonyoss.symphony.messageml.elements.TableHeaderCell;
+import org.symphonyoss.symphony.messageml.exceptions.ParseLimitExceededException;
+import org.symphonyoss.symphony.messageml.metrics.ParseMetrics;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Tracks the resources consumed by the parsing of one message against its {@link ParseLimits}.
+ */
+class ParseBudget {
+
+  static final String INPUT_BYTES = "input size in bytes";
+  static final String DEPTH = "nesting depth";
+  static final String ELEMENTS = "number of elements";
+  static final String TABLE_CELLS = "number of table cells";
+  static final String ATTRIBUTE_LENGTH = "attribute length";
+  static final String EXPANDED_TEMPLATE_SIZE = "expanded template size";
+  static final String WALL_TIME = "parsing time in ms";
+  static final String REGEX_PROBE_STEPS = "regex probe steps";
+
+  private final ParseLimits limits;
+  private final long deadline;
+
+  private int depth;
+  private int elements;
+  private int tableCells;
+
+  ParseBudget(ParseLimits limits) {
+    this.limits = limits;
+    this.deadline = limits.getMaxWallTime().isZero() ? 0L : System.nanoTime() + limits.getMaxWallTime().toNanos();
+  }
+
+  /**
+   * Check the UTF-8 size of an input, without encoding it unless its length is close to the limit.
+   */
+  void checkInputSize(String input) throws ParseLimitExceededException {
+    long max = limits.getMaxInputBytes();
+    if (max > 0 && input != null && input.length() * 3L > max
+        && (input.length() > max || ParseMetrics.utf8Length(input) > max)) {
+      throw new ParseLimitExceededException(INPUT_BYTES, max);
+    }
+  }
+
+  void checkInputSize(Utf8Input input) throws ParseLimitExceededException {
+    long max = limits.getMaxInputBytes();
+    if (max > 0 && input != null && input.length() > max) {
+      throw new ParseLimitExceededException(INPUT_BYTES, max);
+    }
+  }
+
+  void checkWallTime() throws ParseLimitExceededException {
+    if (deadline != 0L && System.nanoTime() - deadline > 0) {
+      throw new ParseLimitExceededException(WALL_TIME, limits.getMaxWallTime().toMillis());
+    }
+  }
+
+  /**
+   * Reject a pattern prone to catastrophic backtracking, the pattern has already been checked to compile.
+   */
+  void checkPattern(String regex) throws ParseLimitExceededException {
+    long max = limits.getMaxRegexProbeSteps();
+    if (max > 0 && regex != null && !RegexPatterns.isSafe(regex, max)) {
+      throw new ParseLimitExceededException(REGEX_PROBE_STEPS, max);
+    }
+  }
+
+  /**
+   * Scan the markup of the message before it is parsed, to reject messages exceeding the structure limits without
+   * building their DOM. Malformed markup is left for the XML parser to report.
+   *
+   * @param message the text of the message, or its UTF-8 bytes as a {@link Utf8Input}
+   */
+  void prescan(CharSequence message) throws ParseLimitExceededException {
+    if (!limits.hasStructureLimits()) {
+      return;
+    }
+
+    int scanDepth = 0;
+    int scanElements = 0;
+    int scanCells = 0;
+    int length = message.length();
+    int i = 0;
+
+    while (i < length) {
+      if (message.charAt(i) != '<' || i + 1 >= length) {
+        i++;
+        continue;
+      }
+
+      char next = message.charAt(i + 1);
+      if (next == '/') {
+        scanDepth--;
+        i = skipPast(message, i, ">");
+      } else if (Utf8Input.startsWith(message, "<!--", i)) {
+        i = skipPast(message, i, "-->");
+      } else if (Utf8Input.startsWith(message, "<![CDATA[", i)) {
+        i = skipPast(message, i, "]]>");
+      } else if (next == '!' || next == '?') {
+        i = skipPast(message, i, ">");
+      } else {
+        int nameEnd = i + 1;
+        while (nameEnd < length && !isTagNameEnd(message.charAt(nameEnd))) {
+          nameEnd++;
+        }
+        if (scanDepth > 0) {
+          // the root element is not counted
+          checkElements(++scanElements);
+        }
+        if (isTableCell(message, i + 1, nameEnd)) {
+          checkTableCells(++scanCells);
+        }
+
+        i = nameEnd;
+        boolean selfClosing = false;
+        while (i < length && message.charAt(i) != '>') {
+          char c = message.charAt(i);
+          if (c == '"' || c == '\'') {
+            int end = Utf8Input.indexOf(message, String.valueOf(c), i + 1);
+            end = (end < 0) ? length : end;
+            checkAttributeLength(textLength(message, i + 1, end));
+            i = end;
+          }
+          selfClosing = (c == '/');
+          i++;
+        }
+        i++;
+
+        if (!selfClosing) {
+          checkDepth(scanDepth++);
+        } else if (scanDepth > 0) {
+          checkDepth(scanDepth);
+        }
+      }
+    }
+  }
+
+  /**
+   * Account for an element added to the document tree.
+   */
+  void enterElement(Element element) throws ParseLimitExceededException {
+    checkDepth(++depth);
+    checkElements(++elements);
+    if (element instanceof TableCell || element instanceof TableHeaderCell) {
+      checkTableCells(++tableCells);
+    }
+    checkWallTime();
+  }
+
+  void exitElement() {
+    depth--;
+  }
+
+  /**
+   * Wrap the writer receiving the expanded templates to stop expansion as soon as a limit is exceeded.
+   */
+  Writer limitTemplateOutput(Writer writer) {
+    return new Writer() {
+      private long size;
+
+      @Override
+      public void write(char[] buffer, int offset, int length) throws IOException {
+        size += length;
+        long max = limits.getMaxExpandedTemplateSize();
+        try {
+          if (max > 0 && size > max) {
+            throw new ParseLimitExceededException(EXPANDED_TEMPLATE_SIZE, max);
+          }
+          checkWallTime();
+        } catch (ParseLimitExceededException e) {
+          throw new LimitExceededIOException(e);
+        }
+        writer.write(buffer, offset, length);
+      }
+
+      @Override
+      public void flush() throws IOException {
+        writer.flush();
+      }
+
+      @Override
+      public void close() throws IOException {
+        writer.close();
+      }
+    };
+  }
+
+  private void checkDepth(int value) throws ParseLimitExceededException {
+    if (limits.getMaxDepth() > 0 && value > limits.getMaxDepth()) {
+      throw new ParseLimitExceededException(DEPTH, limits.getMaxDepth());
+    }
+  }
+
+  private void checkElements(int value) throws ParseLimitExceededException {
+    if (limits.getMaxElements() > 0 && value > limits.getMaxElements()) {
+      throw new ParseLimitExceededException(ELEMENTS, limits.getMaxElements());
+    }
+  }
+
+  private void checkTableCells(int value) throws ParseLimitExceededException {
+    if (limits.getMaxTableCells() > 0 && value > limits.getMaxTableCells()) {
+      throw new ParseLimitExceededException(TABLE_CELLS, limits.getMaxTableCells());
+    }
+  }
+
+  private void checkAttributeLength(int value) throws ParseLimitExceededException {
+    if (limits.getMaxAttributeLength() > 0 && value > limits.getMaxAttributeLength()) {
+      throw new ParseLimitExceededException(ATTRIBUTE_LENGTH, limits.getMaxAttributeLength());
+    }
+  }
+
+  private static int textLength(CharSequence message, int start, int end) {
+    return (message instanceof Utf8Input) ? ((Utf8Input) message).decodedLength(start, end) : end - start;
+  }
+
+  private static int skipPast(CharSequence message, int from, String end) {
+    int index = Utf8Input.indexOf(message, end, from + 1);
+    return (index < 0) ? message.length() : index + end.length();
+  }
+
+  private static boolean isTagNameEnd(char c) {
+    return c == '>' || c == '/' || Character.isWhitespace(c);
+  }
+
+  private static boolean isTableCell(CharSequence message, int start, int end) {
+    return end - start == 2 && message.charAt(start) == 't'
+        && (message.charAt(start + 1) == 'd' || message.charAt(start + 1) == 'h');
+  }
+
+  /**
+   * Carries a {@link ParseLimitExceededException} through the Freemarker writer.
+   */
+  static class LimitExceededIOException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    LimitExceededIOException(ParseLimitExceededException cause) {
+      super(cause.getMessage(), cause);
+    }
+
+    ParseLimitExceededException getLimitExceeded() {
+      return (ParseLimitExceededException) getCause();
+    }
+  }
+}
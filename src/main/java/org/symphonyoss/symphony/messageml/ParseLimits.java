@@ -0,0 +1,85 @@
+package org.symphonyoss.symphony.messageml;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Resource budgets applied while parsing a message, to bound the time a single oversized or pathologically nested
+ * message can take. Messages exceeding any of them are rejected with a
+ * {@link org.symphonyoss.symphony.messageml.exceptions.ParseLimitExceededException} as soon as the excess is detected.
+ * <p>
+ * A value of 0 (the default) disables the corresponding limit.
+ */
+@Getter
+public class ParseLimits {
+
+  /** Maximum UTF-8 size of the message, and of the EntityJSON. */
+  private long maxInputBytes;
+  /** Maximum nesting depth of elements, the root element not included. */
+  private int maxDepth;
+  /** Maximum number of elements. */
+  private int maxElements;
+  /** Maximum number of table cells (header cells included). */
+  private int maxTableCells;
+  /** Maximum length of an attribute value. */
+  private int maxAttributeLength;
+  /** Maximum size, in characters, of the message once its Freemarker templates are expanded. */
+  private long maxExpandedTemplateSize;
+  /** Maximum time spent parsing the message, output generation not included. */
+  private Duration maxWallTime = Duration.ZERO;
+  /**
+   * Maximum number of characters read by the matcher of a form field pattern on its probe inputs, rejecting patterns
+   * prone to catastrophic backtracking. Patterns are probed once and the outcome is cached, see
+   * {@link org.symphonyoss.symphony.messageml.elements.RegexPatterns}.
+   */
+  private long maxRegexProbeSteps;
+
+  public ParseLimits maxInputBytes(long maxInputBytes) {
+    this.maxInputBytes = maxInputBytes;
+    return this;
+  }
+
+  public ParseLimits maxDepth(int maxDepth) {
+    this.maxDepth = maxDepth;
+    return this;
+  }
+
+  public ParseLimits maxElements(int maxElements) {
+    this.maxElements = maxElements;
+    return this;
+  }
+
+  public ParseLimits maxTableCells(int maxTableCells) {
+    this.maxTableCells = maxTableCells;
+    return this;
+  }
+
+  public ParseLimits maxAttributeLength(int maxAttributeLength) {
+    this.maxAttributeLength = maxAttributeLength;
+    return this;
+  }
+
+  public ParseLimits maxExpandedTemplateSize(long maxExpandedTemplateSize) {
+    this.maxExpandedTemplateSize = maxExpandedTemplateSize;
+    return this;
+  }
+
+  public ParseLimits maxWallTime(Duration maxWallTime) {
+    this.maxWallTime = (maxWallTime != null) ? maxWallTime : Duration.ZERO;
+    return this;
+  }
+
+  public ParseLimits maxRegexProbeSteps(long maxRegexProbeSteps) {
+    this.maxRegexProbeSteps = maxRegexProbeSteps;
+    return this;
+  }
+
+  /**
+   * Return true if the limits of the document structure (depth, elements, table cells, attributes) are set, which
+   * requires scanning the message.
+   */
+  boolean hasStructureLimits() {
+    return maxDepth > 0 || maxElements > 0 || maxTableCells > 0 || maxAttributeLength > 0;
+  }
+}
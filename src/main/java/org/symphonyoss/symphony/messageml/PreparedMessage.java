@@ -0,0 +1,788 @@
+package org.symphonyoss.symphony.messageml;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.symphonyoss.symphony.messageml.elements.Element;
+import org.symphonyoss.symphony.messageml.elements.MessageML;
+import org.symphonyoss.symphony.messageml.elements.TextNode;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
+import org.symphonyoss.symphony.messageml.util.IDataProvider;
+import org.symphonyoss.symphony.messageml.util.XMLAttribute;
+import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A MessageML message with placeholders, parsed and validated once, then rendered for any number of bindings, in the
+ * manner of a JDBC <code>PreparedStatement</code>.
+ * <p>
+ * Placeholders use the Freemarker syntax, the same message can be expanded as a template:
+ * <ul>
+ *   <li><code>${name}</code>, in text or in an attribute value, is replaced by the bound value</li>
+ *   <li><code>&lt;#list rows as row&gt;...&lt;/#list&gt;</code> repeats a section, e.g. a table row, for each bound
+ *   row, its <code>${row.name}</code> placeholders being replaced by the values of the row</li>
+ * </ul>
+ * The message is parsed with every placeholder replaced by a marker and its outputs are split at the markers. Markers
+ * carry probe characters revealing how the parser transforms a value at their position (XML escaping, Markdown
+ * escaping, removal of newlines), binding values only applies the same transformations: values are always text, never
+ * markup. A placeholder at a position where the parser validates or rewrites the value (e.g. a URL or a user id) is
+ * rejected when the message is prepared; the elements holding the other placeholders, in their attribute values or in
+ * their text, are checked with the bound values when they are bound.
+ * <p>
+ * A prepared message is immutable and can be bound concurrently.
+ */
+public class PreparedMessage {
+
+  private static final Pattern TOKEN = Pattern.compile(
+      "\\$\\{([^}]*)}|<#list\\s+(\\w+)\\s+as\\s+(\\w+)\\s*>|</#list\\s*>|</?#");
+  private static final Pattern NAME = Pattern.compile("\\w+(\\.\\w+)*");
+  private static final String MARKER_START = "{{slot";
+  private static final String MARKER_END = "}}";
+  private static final Pattern MARKER = Pattern.compile("\\{\\{slot(\\d+)(&amp;|&)(\\\\_|_)(\n| )?}}");
+  private static final String TEXT_PROBE = "&amp;_\n";
+  private static final String ATTRIBUTE_PROBE = "&amp;_";
+
+  private static final int NORMALIZE_LINE_ENDS = 1;
+  private static final int REMOVE_NEWLINES = 2;
+  private static final int ESCAPE_XML = 4;
+  private static final int ESCAPE_MARKDOWN = 8;
+
+  private final IDataProvider dataProvider;
+  private final String entityJson;
+  private final String version;
+  private final List<Object> segments;
+  private final List<Slot> slots = new ArrayList<>();
+  private final List<Occurrence> occurrences = new ArrayList<>();
+  private final Map<String, Section> sections = new LinkedHashMap<>();
+  private final Map<Set<String>, Template> templates = new ConcurrentHashMap<>();
+
+  private PreparedMessage(IDataProvider dataProvider, String message, String entityJson, String version)
+      throws InvalidInputException {
+    this.dataProvider = dataProvider;
+    this.entityJson = entityJson;
+    this.version = version;
+    this.segments = tokenize(message);
+  }
+
+  /**
+   * Parse and validate a message with placeholders.
+   * @param dataProvider data provider used to resolve users, URIs and financial instruments of the static message
+   * @param message string containing a MessageML message with placeholders
+   * @param entityJson string containing EntityJSON data
+   * @param version string containing the version of the message format
+   * @throws InvalidInputException thrown on invalid MessageML input or placeholders
+   * @throws ProcessingException thrown on errors generating the document tree
+   */
+  public static PreparedMessage prepare(IDataProvider dataProvider, String message, String entityJson, String version)
+      throws InvalidInputException, ProcessingException {
+    if (message == null) {
+      throw new InvalidInputException("Message input is NULL");
+    }
+    if (message.contains(MARKER_START)) {
+      throw new InvalidInputException("Invalid text \"%s\" in message", MARKER_START);
+    }
+    PreparedMessage prepared = new PreparedMessage(dataProvider, message, entityJson, version);
+    Template template = prepared.compile(Collections.emptySet());
+    if (template.error != null) {
+      throw template.error;
+    }
+    prepared.templates.put(Collections.emptySet(), template);
+    return prepared;
+  }
+
+  /**
+   * Render the message for the given values.
+   * @param values the value of every placeholder, by name. The value of a repeated section is a collection of rows,
+   * each row being a map of the values of its placeholders.
+   * @return the outputs of the message
+   * @throws InvalidInputException thrown on missing or invalid values
+   */
+  public BoundMessage bind(Map<String, ?> values) throws InvalidInputException {
+    Map<String, List<Map<?, ?>>> rows = new HashMap<>();
+    Set<String> emptySections = new TreeSet<>();
+    for (Section section : sections.values()) {
+      List<Map<?, ?>> sectionRows = getRows(values, section.name);
+      rows.put(section.name, sectionRows);
+      if (sectionRows.isEmpty()) {
+        emptySections.add(section.name);
+      }
+    }
+
+    Binding binding = new Binding(values, rows);
+    for (Slot slot : slots) {
+      if (slot.section == null) {
+        slot.validate(values.get(slot.name));
+      } else {
+        for (Map<?, ?> row : rows.get(slot.section)) {
+          slot.validate(row.get(slot.name));
+        }
+      }
+    }
+
+    Template template = templates.get(emptySections);
+    if (template == null) {
+      template = templates.computeIfAbsent(emptySections, this::compile);
+    }
+    if (template.error != null) {
+      throw template.error;
+    }
+    for (ElementCheck check : template.elementChecks) {
+      check.validate(binding);
+    }
+    return new BoundMessage(template.presentationML.render(binding), template.markdown.render(binding),
+        template.text.render(binding), template.entityJson.deepCopy());
+  }
+
+  /**
+   * Return the names of the placeholders outside of repeated sections and of the repeated sections.
+   */
+  public Set<String> getNames() {
+    Set<String> names = new TreeSet<>(sections.keySet());
+    for (Slot slot : slots) {
+      if (slot.section == null) {
+        names.add(slot.name);
+      }
+    }
+    return names;
+  }
+
+  private static List<Map<?, ?>> getRows(Map<String, ?> values, String name) throws InvalidInputException {
+    Object value = values.get(name);
+    if (value == null) {
+      throw new InvalidInputException("Missing value for repeated section \"%s\"", name);
+    }
+    if (!(value instanceof Collection)) {
+      throw new InvalidInputException("The value of repeated section \"%s\" must be a collection of rows", name);
+    }
+    List<Map<?, ?>> rows = new ArrayList<>();
+    for (Object row : (Collection<?>) value) {
+      if (!(row instanceof Map)) {
+        throw new InvalidInputException("The rows of repeated section \"%s\" must be maps of values", name);
+      }
+      rows.add((Map<?, ?>) row);
+    }
+    return rows;
+  }
+
+  /**
+   * Split the message into static text, placeholders and repeated sections.
+   */
+  private List<Object> tokenize(String message) throws InvalidInputException {
+    List<Object> result = new ArrayList<>();
+    List<Object> current = result;
+    Section section = null;
+    Occurrence previous = null;
+    boolean inTag = false;
+    int position = 0;
+
+    Matcher matcher = TOKEN.matcher(message);
+    while (matcher.find()) {
+      String text = message.substring(position, matcher.start());
+      inTag = isInTag(text, inTag);
+      current.add(text);
+      position = matcher.end();
+      if (previous != null) {
+        previous.after = textBefore(text, '<');
+      }
+      previous = null;
+
+      if (matcher.group(1) != null) {
+        Slot slot = slot(matcher.group(1), section, inTag);
+        previous = new Occurrence(occurrences.size(), slot, textAfter(text, '>'));
+        occurrences.add(previous);
+        current.add(previous);
+      } else if (matcher.group(2) != null) {
+        if (section != null) {
+          throw new InvalidInputException("Nested repeated sections are not supported");
+        }
+        if (sections.containsKey(matcher.group(2))) {
+          throw new InvalidInputException("Repeated section \"%s\" is used twice", matcher.group(2));
+        }
+        section = new Section(matcher.group(2), matcher.group(3));
+        sections.put(section.name, section);
+        current.add(section);
+        current = section.body;
+      } else if (matcher.group().startsWith("</#list")) {
+        if (section == null) {
+          throw new InvalidInputException("Unexpected end of repeated section");
+        }
+        String name = section.name;
+        if (occurrences.stream().noneMatch(occurrence -> name.equals(occurrence.slot.section))) {
+          throw new InvalidInputException("Repeated section \"%s\" does not use its row \"%s\"", section.name,
+              section.variable);
+        }
+        section = null;
+        current = result;
+      } else {
+        throw new InvalidInputException("Unsupported template directive at index %s", matcher.start());
+      }
+    }
+    if (section != null) {
+      throw new InvalidInputException("Repeated section \"%s\" is not closed", section.name);
+    }
+    String text = message.substring(position);
+    if (previous != null) {
+      previous.after = textBefore(text, '<');
+    }
+    current.add(text);
+    return result;
+  }
+
+  /**
+   * Return the text before the given character, null if the text does not contain it.
+   */
+  private static String textBefore(String text, char c) {
+    int index = text.indexOf(c);
+    return index < 0 ? null : text.substring(0, index);
+  }
+
+  /**
+   * Return the text after the last occurrence of the given character, null if the text does not contain it.
+   */
+  private static String textAfter(String text, char c) {
+    int index = text.lastIndexOf(c);
+    return index < 0 ? null : text.substring(index + 1);
+  }
+
+  private Slot slot(String name, Section section, boolean attribute) throws InvalidInputException {
+    if (!NAME.matcher(name).matches()) {
+      throw new InvalidInputException("Unsupported placeholder \"${%s}\"", name);
+    }
+    String sectionName = null;
+    if (section != null && name.startsWith(section.variable + ".")) {
+      sectionName = section.name;
+      name = name.substring(section.variable.length() + 1);
+    } else if (section != null && name.equals(section.variable)) {
+      throw new InvalidInputException("Placeholder \"${%s}\" must reference a value of the row", name);
+    }
+    for (Slot slot : slots) {
+      if (slot.name.equals(name) && slot.attribute == attribute && (sectionName == null ? slot.section == null
+          : sectionName.equals(slot.section))) {
+        return slot;
+      }
+    }
+    Slot slot = new Slot(sectionName, name, attribute);
+    slots.add(slot);
+    return slot;
+  }
+
+  private static boolean isInTag(String text, boolean inTag) {
+    int open = text.lastIndexOf('<');
+    int close = text.lastIndexOf('>');
+    return (open < 0 && close < 0) ? inTag : open > close;
+  }
+
+  /**
+   * Parse the message with the given repeated sections left out, then split its outputs at the markers.
+   */
+  private Template compile(Set<String> emptySections) {
+    try {
+      Outputs base = parse(skeleton(emptySections, null));
+      Map<String, Outputs> doubled = new LinkedHashMap<>();
+      for (String section : sections.keySet()) {
+        if (!emptySections.contains(section)) {
+          doubled.put(section, parse(skeleton(emptySections, section)));
+        }
+      }
+
+      return new Template(
+          compile(base.presentationML, doubled, outputs -> outputs.presentationML),
+          compile(base.markdown, doubled, outputs -> outputs.markdown),
+          compile(base.text, doubled, outputs -> outputs.text),
+          base.entityJson,
+          elementChecks(base.messageML));
+    } catch (InvalidInputException e) {
+      return new Template(e);
+    } catch (ProcessingException e) {
+      return new Template(new InvalidInputException(e.getMessage(), e));
+    }
+  }
+
+  /**
+   * Return the message with markers in place of placeholders, repeated sections being included once, but for the
+   * empty ones which are left out and the doubled one which is included twice.
+   */
+  private String skeleton(Set<String> emptySections, String doubledSection) {
+    StringBuilder sb = new StringBuilder();
+    appendSkeleton(sb, segments, 0, emptySections, doubledSection);
+    return sb.toString();
+  }
+
+  private void appendSkeleton(StringBuilder sb, List<Object> body, int copy, Set<String> emptySections,
+      String doubledSection) {
+    for (Object segment : body) {
+      if (segment instanceof String) {
+        sb.append((String) segment);
+      } else if (segment instanceof Occurrence) {
+        Occurrence occurrence = (Occurrence) segment;
+        sb.append(MARKER_START).append(occurrence.id * 2 + copy)
+            .append(occurrence.slot.attribute ? ATTRIBUTE_PROBE : TEXT_PROBE).append(MARKER_END);
+      } else {
+        Section section = (Section) segment;
+        int copies = emptySections.contains(section.name) ? 0 : section.name.equals(doubledSection) ? 2 : 1;
+        for (int i = 0; i < copies; i++) {
+          appendSkeleton(sb, section.body, i, emptySections, doubledSection);
+        }
+      }
+    }
+  }
+
+  private Outputs parse(String message) throws InvalidInputException, ProcessingException {
+    MessageMLContext context = new MessageMLContext(dataProvider);
+    context.setPlaceholderMarker(MARKER_START);
+    try {
+      context.parseMessageML(message, entityJson, version);
+    } catch (IOException e) {
+      throw new InvalidInputException("Failed to parse EntityJSON", e);
+    }
+    Outputs outputs = new Outputs(context.getMessageML(), context.getPresentationML(), context.getMarkdown(),
+        context.getText(), context.getEntityJson());
+    if (outputs.entityJson.toString().contains(MARKER_START)) {
+      throw new InvalidInputException("Placeholders cannot be used in entity data");
+    }
+    return outputs;
+  }
+
+  /**
+   * Return the checks of the elements having placeholders in their attribute values or in their text children.
+   */
+  private List<ElementCheck> elementChecks(MessageML messageML) {
+    List<ElementCheck> checks = new ArrayList<>();
+    Deque<Element> elements = new ArrayDeque<>();
+    elements.push(messageML);
+    while (!elements.isEmpty()) {
+      Element element = elements.pop();
+      ElementCheck check = new ElementCheck(element);
+      for (Map.Entry<String, String> attribute : element.getAttributes().entrySet()) {
+        List<Object> parts = parts(attribute.getValue(), check);
+        if (parts != null) {
+          check.attributes.put(attribute.getKey(), parts);
+        }
+      }
+      List<Element> children = element.getChildren();
+      for (int i = 0; i < children.size(); i++) {
+        Element child = children.get(i);
+        if (child instanceof TextNode) {
+          List<Object> parts = parts(((TextNode) child).getText(), check);
+          if (parts != null) {
+            check.texts.put(i, parts);
+          }
+        } else {
+          elements.push(child);
+        }
+      }
+      if (!check.attributes.isEmpty() || !check.texts.isEmpty()) {
+        checks.add(check);
+      }
+    }
+    return checks;
+  }
+
+  /**
+   * Split a value of the tree into static text and placeholders, keeping the repeated section of the placeholders.
+   *
+   * @return the parts of the value, null if it has no placeholder
+   */
+  private List<Object> parts(String value, ElementCheck check) {
+    if (value == null || !value.contains(MARKER_START)) {
+      return null;
+    }
+    List<Object> parts = new ArrayList<>();
+    int position = 0;
+    Matcher matcher = MARKER.matcher(value);
+    while (matcher.find()) {
+      parts.add(value.substring(position, matcher.start()));
+      Occurrence occurrence = occurrences.get(Integer.parseInt(matcher.group(1)) / 2);
+      if (occurrence.slot.section != null) {
+        check.section = occurrence.slot.section;
+      }
+      parts.add(occurrence);
+      position = matcher.end();
+    }
+    parts.add(value.substring(position));
+    return parts;
+  }
+
+  /**
+   * Split an output at the markers. For each non empty repeated section, the output of the message with the section
+   * included twice is the base output with one more row inserted: the row is inserted after the markers of the first
+   * row and before the markers of the second one, at a position where it is surrounded by the same text.
+   */
+  private Output compile(String base, Map<String, Outputs> doubled, Function<Outputs, String> format)
+      throws InvalidInputException {
+    TreeMap<Integer, Repeat> repeats = new TreeMap<>();
+    for (Map.Entry<String, Outputs> entry : doubled.entrySet()) {
+      String section = entry.getKey();
+      String output = format.apply(entry.getValue());
+      int rowLength = output.length() - base.length();
+      int min = base.length() - commonSuffix(base, output);
+      int max = commonPrefix(base, output);
+
+      Matcher matcher = MARKER.matcher(output);
+      boolean secondRow = false;
+      while (matcher.find() && !secondRow) {
+        int id = Integer.parseInt(matcher.group(1));
+        if (section.equals(occurrences.get(id / 2).slot.section)) {
+          if (id % 2 == 0) {
+            min = Math.max(min, matcher.end());
+          } else {
+            max = Math.min(max, matcher.start());
+            secondRow = true;
+          }
+        }
+      }
+      if (rowLength <= 0 || min > max || repeats.containsKey(min)) {
+        throw new InvalidInputException("Repeated section \"%s\" cannot be prepared", section);
+      }
+      repeats.put(min, new Repeat(section, split(output.substring(min, min + rowLength))));
+    }
+
+    List<Object> parts = new ArrayList<>();
+    int position = 0;
+    for (Map.Entry<Integer, Repeat> entry : repeats.entrySet()) {
+      parts.addAll(split(base.substring(position, entry.getKey())));
+      parts.add(entry.getValue());
+      position = entry.getKey();
+    }
+    parts.addAll(split(base.substring(position)));
+    return new Output(parts);
+  }
+
+  /**
+   * Split a part of an output into static text and placeholders, checking that markers are output verbatim.
+   */
+  private List<Object> split(String output) throws InvalidInputException {
+    List<Object> parts = new ArrayList<>();
+    int position = 0;
+    Matcher matcher = MARKER.matcher(output);
+    while (matcher.find()) {
+      parts.add(checkStatic(output.substring(position, matcher.start())));
+      Occurrence occurrence = occurrences.get(Integer.parseInt(matcher.group(1)) / 2);
+      Slot slot = occurrence.slot;
+      int flags = 0;
+      if (!slot.attribute) {
+        flags |= NORMALIZE_LINE_ENDS;
+        if (!"\n".equals(matcher.group(4))) {
+          flags |= REMOVE_NEWLINES;
+        }
+      } else if (matcher.group(4) != null) {
+        throw new InvalidInputException("Placeholder \"${%s}\" cannot be bound at this position", slot.name);
+      }
+      if (matcher.group(2).length() > 1) {
+        flags |= ESCAPE_XML;
+      }
+      if (matcher.group(3).length() > 1) {
+        flags |= ESCAPE_MARKDOWN;
+      }
+      parts.add(new SlotReference(occurrence, flags));
+      position = matcher.end();
+    }
+    parts.add(checkStatic(output.substring(position)));
+    return parts;
+  }
+
+  private String checkStatic(String text) throws InvalidInputException {
+    int index = text.indexOf(MARKER_START);
+    if (index >= 0) {
+      // The marker has been transformed by the parser
+      Matcher matcher = Pattern.compile("(\\d+)").matcher(text.substring(index + MARKER_START.length()));
+      String name = matcher.lookingAt() ? occurrences.get(Integer.parseInt(matcher.group(1)) / 2).slot.name : "";
+      throw new InvalidInputException("Placeholder \"${%s}\" cannot be bound at this position", name);
+    }
+    return text;
+  }
+
+  private static int commonPrefix(String a, String b) {
+    int length = Math.min(a.length(), b.length());
+    int i = 0;
+    while (i < length && a.charAt(i) == b.charAt(i)) {
+      i++;
+    }
+    return i;
+  }
+
+  private static int commonSuffix(String a, String b) {
+    int length = Math.min(a.length(), b.length());
+    int i = 0;
+    while (i < length && a.charAt(a.length() - 1 - i) == b.charAt(b.length() - 1 - i)) {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * A placeholder: a value outside of repeated sections or a value of the rows of a repeated section.
+   */
+  private static class Slot {
+    private final String section;
+    private final String name;
+    private final boolean attribute;
+
+    private Slot(String section, String name, boolean attribute) {
+      this.section = section;
+      this.name = name;
+      this.attribute = attribute;
+    }
+
+    private void validate(Object value) throws InvalidInputException {
+      if (value == null) {
+        throw new InvalidInputException("Missing value for placeholder \"${%s}\"", name);
+      }
+      String text = value.toString();
+      MessageMLParser.validateMessageText(text);
+      if (attribute && (text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0 || text.indexOf('\t') >= 0)) {
+        throw new InvalidInputException("Line breaks are not allowed in the value of attribute placeholder \"${%s}\"",
+            name);
+      }
+    }
+  }
+
+  /**
+   * A placeholder in the message, along with the text surrounding it up to the closest tags when they are known.
+   */
+  private static class Occurrence {
+    private final int id;
+    private final Slot slot;
+    private final String before;
+    private String after;
+
+    private Occurrence(int id, Slot slot, String before) {
+      this.id = id;
+      this.slot = slot;
+      this.before = before;
+    }
+  }
+
+  private static class Section {
+    private final String name;
+    private final String variable;
+    private final List<Object> body = new ArrayList<>();
+
+    private Section(String name, String variable) {
+      this.name = name;
+      this.variable = variable;
+    }
+  }
+
+  private static class SlotReference {
+    private final Occurrence occurrence;
+    private final Slot slot;
+    private final int flags;
+
+    private SlotReference(Occurrence occurrence, int flags) {
+      this.occurrence = occurrence;
+      this.slot = occurrence.slot;
+      this.flags = flags;
+    }
+
+    private String transform(Object value) {
+      String text = value.toString();
+      if ((flags & NORMALIZE_LINE_ENDS) != 0) {
+        text = text.replace("\r\n", "\n").replace('\r', '\n');
+      }
+      if ((flags & REMOVE_NEWLINES) != 0) {
+        text = XmlPrintStream.removeNewLines(text);
+      }
+      if ((flags & ESCAPE_XML) != 0) {
+        text = XmlPrintStream.escapeXml(text, XMLAttribute.Format.STANDARD);
+      }
+      if ((flags & ESCAPE_MARKDOWN) != 0) {
+        text = escapeMarkdown(text);
+      }
+      return text;
+    }
+
+    /**
+     * Markdown characters are not escaped in a text made of a single repeated character, the value is escaped as a part
+     * of the text surrounding it when it is known.
+     */
+    private String escapeMarkdown(String text) {
+      if (occurrence.before != null && occurrence.after != null) {
+        String content = occurrence.before + text + occurrence.after;
+        if (MarkdownRenderer.addEscapeCharacter(content).equals(content)) {
+          return text;
+        }
+      }
+      return MarkdownRenderer.escapeReservedCharacters(text);
+    }
+  }
+
+  private static class Repeat {
+    private final String section;
+    private final List<Object> parts;
+
+    private Repeat(String section, List<Object> parts) {
+      this.section = section;
+      this.parts = parts;
+    }
+  }
+
+  private static class Binding {
+    private final Map<String, ?> values;
+    private final Map<String, List<Map<?, ?>>> rows;
+
+    private Binding(Map<String, ?> values, Map<String, List<Map<?, ?>>> rows) {
+      this.values = values;
+      this.rows = rows;
+    }
+
+    /**
+     * Outside of repeated rows, the placeholders of a section belong to its first row.
+     */
+    private Object get(Slot slot, Map<?, ?> row) {
+      if (slot.section == null) {
+        return values.get(slot.name);
+      }
+      return (row != null ? row : rows.get(slot.section).get(0)).get(slot.name);
+    }
+  }
+
+  /**
+   * An output split into static text, placeholders and repeated rows.
+   */
+  private static class Output {
+    private final List<Object> parts;
+
+    private Output(List<Object> parts) {
+      this.parts = parts;
+    }
+
+    private String render(Binding binding) {
+      StringBuilder sb = new StringBuilder();
+      render(sb, parts, binding, null);
+      return sb.toString();
+    }
+
+    private static void render(StringBuilder sb, List<Object> parts, Binding binding, Map<?, ?> row) {
+      for (Object part : parts) {
+        if (part instanceof String) {
+          sb.append((String) part);
+        } else if (part instanceof SlotReference) {
+          SlotReference reference = (SlotReference) part;
+          sb.append(reference.transform(binding.get(reference.slot, row)));
+        } else {
+          Repeat repeat = (Repeat) part;
+          List<Map<?, ?>> rows = binding.rows.get(repeat.section);
+          for (Map<?, ?> next : rows.subList(1, rows.size())) {
+            render(sb, repeat.parts, binding, next);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * The attribute values and text children of an element which have placeholders, checked by a copy of the element for
+   * each binding as the element would be when parsing the message with the bound values. An element within a
+   * repeated section is checked for each row.
+   */
+  private static class ElementCheck {
+    private final Element element;
+    private final Map<String, List<Object>> attributes = new LinkedHashMap<>();
+    private final Map<Integer, List<Object>> texts = new LinkedHashMap<>();
+    private String section;
+
+    private ElementCheck(Element element) {
+      this.element = element;
+    }
+
+    private void validate(Binding binding) throws InvalidInputException {
+      if (section == null) {
+        validate(binding, null);
+      } else {
+        for (Map<?, ?> row : binding.rows.get(section)) {
+          validate(binding, row);
+        }
+      }
+    }
+
+    private void validate(Binding binding, Map<?, ?> row) throws InvalidInputException {
+      Map<String, String> attributeValues = new HashMap<>();
+      for (Map.Entry<String, List<Object>> attribute : attributes.entrySet()) {
+        attributeValues.put(attribute.getKey(), bind(attribute.getValue(), binding, row));
+      }
+      Map<Integer, String> textValues = new HashMap<>();
+      for (Map.Entry<Integer, List<Object>> text : texts.entrySet()) {
+        // line ends are normalized when the message is parsed
+        textValues.put(text.getKey(), bind(text.getValue(), binding, row).replace("\r\n", "\n").replace('\r', '\n'));
+      }
+      element.validateCopy(attributeValues, textValues);
+    }
+
+    private static String bind(List<Object> parts, Binding binding, Map<?, ?> row) {
+      StringBuilder sb = new StringBuilder();
+      for (Object part : parts) {
+        if (part instanceof String) {
+          sb.append((String) part);
+        } else {
+          sb.append(binding.get(((Occurrence) part).slot, row));
+        }
+      }
+      return sb.toString();
+    }
+  }
+
+  private static class Outputs {
+    private final MessageML messageML;
+    private final String presentationML;
+    private final String markdown;
+    private final String text;
+    private final ObjectNode entityJson;
+
+    private Outputs(MessageML messageML, String presentationML, String markdown, String text, ObjectNode entityJson) {
+      this.messageML = messageML;
+      this.presentationML = presentationML;
+      this.markdown = markdown;
+      this.text = text;
+      this.entityJson = entityJson;
+    }
+  }
+
+  /**
+   * The outputs of the message for a given set of empty repeated sections, or the error making them invalid.
+   */
+  private static class Template {
+    private final Output presentationML;
+    private final Output markdown;
+    private final Output text;
+    private final ObjectNode entityJson;
+    private final List<ElementCheck> elementChecks;
+    private final InvalidInputException error;
+
+    private Template(Output presentationML, Output markdown, Output text, ObjectNode entityJson,
+        List<ElementCheck> elementChecks) {
+      this.presentationML = presentationML;
+      this.markdown = markdown;
+      this.text = text;
+      this.entityJson = entityJson;
+      this.elementChecks = elementChecks;
+      this.error = null;
+    }
+
+    private Template(InvalidInputException error) {
+      this.presentationML = null;
+      this.markdown = null;
+      this.text = null;
+      this.entityJson = null;
+      this.elementChecks = null;
+      this.error = error;
+    }
+  }
+}
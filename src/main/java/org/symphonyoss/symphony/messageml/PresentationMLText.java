@@ -0,0 +1,241 @@
+package org.symphonyoss.symphony.messageml;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Text content of PresentationML printed by this library, read in a single scan of the markup rather than by parsing
+ * it into a DOM tree. The text is the one of the normalized DOM tree: character references are decoded, line breaks
+ * are normalized to "\n". Comments and processing instructions, which are never printed, are skipped.
+ */
+final class PresentationMLText {
+
+  private final String presentationML;
+  private final StringBuilder segment = new StringBuilder();
+  private final List<String> segments = new ArrayList<>();
+  /** Whether the child of the root read so far is text, an element, or none. */
+  private Child child = Child.NONE;
+  private int depth;
+
+  private PresentationMLText(String presentationML) {
+    this.presentationML = presentationML;
+  }
+
+  /**
+   * Return the text content of the root element, as {@link org.w3c.dom.Node#getTextContent()} does.
+   */
+  static String textContent(String presentationML) {
+    List<String> segments = new PresentationMLText(presentationML).scan();
+    if (segments.size() == 1) {
+      return segments.get(0);
+    }
+    StringBuilder text = new StringBuilder(presentationML.length());
+    for (String segment : segments) {
+      text.append(segment);
+    }
+    return text.toString();
+  }
+
+  /**
+   * Return the text contents of the children of the root element separated by a single space, skipping the
+   * separator before empty contents.
+   *
+   * @param preserveWhitespace if false, trims the leading and trailing whitespace of each child
+   */
+  static String textContent(String presentationML, boolean preserveWhitespace) {
+    List<String> segments = new PresentationMLText(presentationML).scan();
+    StringBuilder text = new StringBuilder(presentationML.length());
+    for (int i = 0; i < segments.size(); i++) {
+      String segment = preserveWhitespace ? segments.get(i) : segments.get(i).trim();
+      if (i > 0 && StringUtils.isNotEmpty(segment)) {
+        text.append(' ');
+      }
+      text.append(segment);
+    }
+    return text.toString();
+  }
+
+  /**
+   * Split the text content of the root element by child: adjacent text is a single child, as in a normalized DOM
+   * tree, and each element is a child even when its text content is empty.
+   */
+  private List<String> scan() {
+    String s = presentationML;
+    int length = s.length();
+    int i = 0;
+    while (i < length) {
+      char c = s.charAt(i);
+      if (c == '<') {
+        i = readMarkup(i);
+      } else if (c == '&') {
+        i = readReference(i);
+      } else {
+        if (c == '\r') {
+          // line breaks are normalized by XML parsers
+          c = '\n';
+          if (i + 1 < length && s.charAt(i + 1) == '\n') {
+            i++;
+          }
+        }
+        appendText(c);
+        i++;
+      }
+    }
+    endSegment();
+    return segments;
+  }
+
+  /**
+   * Read a tag, a comment, a CDATA section or a processing instruction.
+   *
+   * @return the index following it
+   */
+  private int readMarkup(int start) {
+    String s = presentationML;
+    if (s.startsWith("<!--", start)) {
+      return skipPast("-->", start + 4);
+    }
+    if (s.startsWith("<![CDATA[", start)) {
+      int end = s.indexOf("]]>", start + 9);
+      end = (end < 0) ? s.length() : end;
+      for (int i = start + 9; i < end; i++) {
+        appendText(s.charAt(i));
+      }
+      return Math.min(end + 3, s.length());
+    }
+    if (s.startsWith("<?", start) || s.startsWith("<!", start)) {
+      return skipPast(">", start + 2);
+    }
+    if (s.startsWith("</", start)) {
+      depth--;
+      if (depth <= 1) {
+        // end of a child of the root, or of the root
+        endSegment();
+      }
+      return skipPast(">", start + 2);
+    }
+
+    // start tag, attribute values may contain '>'
+    int i = start + 1;
+    char quote = 0;
+    while (i < s.length()) {
+      char c = s.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '"' || c == '\'') {
+        quote = c;
+      } else if (c == '>') {
+        break;
+      }
+      i++;
+    }
+    boolean empty = s.charAt(i - 1) == '/';
+    if (depth == 1) {
+      endSegment();
+      child = Child.ELEMENT;
+      if (empty) {
+        endSegment();
+      }
+    }
+    if (!empty) {
+      depth++;
+    }
+    return Math.min(i + 1, s.length());
+  }
+
+  /**
+   * Read an entity or character reference, kept as it is if it is not one of the predefined XML entities.
+   *
+   * @return the index following it
+   */
+  private int readReference(int start) {
+    String s = presentationML;
+    int end = s.indexOf(';', start);
+    if (end < 0) {
+      appendText('&');
+      return start + 1;
+    }
+    String name = s.substring(start + 1, end);
+    switch (name) {
+      case "lt":
+        appendText('<');
+        break;
+      case "gt":
+        appendText('>');
+        break;
+      case "amp":
+        appendText('&');
+        break;
+      case "quot":
+        appendText('"');
+        break;
+      case "apos":
+        appendText('\'');
+        break;
+      default:
+        int codePoint = codePoint(name);
+        if (codePoint < 0) {
+          appendText('&');
+          return start + 1;
+        }
+        if (depth > 0) {
+          startText();
+          segment.appendCodePoint(codePoint);
+        }
+    }
+    return end + 1;
+  }
+
+  private static int codePoint(String reference) {
+    int codePoint = -1;
+    try {
+      if (reference.startsWith("#x")) {
+        codePoint = Integer.parseInt(reference.substring(2), 16);
+      } else if (reference.startsWith("#")) {
+        codePoint = Integer.parseInt(reference.substring(1));
+      }
+    } catch (NumberFormatException e) {
+      // not a character reference
+    }
+    return Character.isValidCodePoint(codePoint) ? codePoint : -1;
+  }
+
+  private int skipPast(String end, int from) {
+    int index = presentationML.indexOf(end, from);
+    return (index < 0) ? presentationML.length() : index + end.length();
+  }
+
+  private void appendText(char c) {
+    // text outside the root element is ignored, as XML parsers only accept whitespace there
+    if (depth > 0) {
+      startText();
+      segment.append(c);
+    }
+  }
+
+  private void startText() {
+    if (depth == 1 && child != Child.TEXT) {
+      endSegment();
+      child = Child.TEXT;
+    }
+  }
+
+  /**
+   * Add the child of the root read so far, if any.
+   */
+  private void endSegment() {
+    if (child != Child.NONE) {
+      segments.add(segment.toString());
+      segment.setLength(0);
+      child = Child.NONE;
+    }
+  }
+
+  private enum Child {
+    NONE, TEXT, ELEMENT
+  }
+}
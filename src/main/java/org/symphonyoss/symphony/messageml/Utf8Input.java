@@ -0,0 +1,190 @@
+package org.symphonyoss.symphony.messageml;
+
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ParseLimitExceededException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A UTF-8 encoded input, read as a sequence of bytes so that it can be checked before being decoded.
+ * <p>
+ * Each byte is exposed as a character of the same value. The markup and the control characters are ASCII, and the
+ * bytes of multi-byte sequences are all above 0x7F, so scanning for them gives the same result on the bytes as on the
+ * decoded text.
+ */
+final class Utf8Input implements CharSequence {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final byte[] bytes;
+  private final int offset;
+  private final int length;
+
+  private Utf8Input(byte[] bytes, int offset, int length) {
+    this.bytes = bytes;
+    this.offset = offset;
+    this.length = length;
+  }
+
+  static Utf8Input of(byte[] bytes) {
+    return (bytes != null) ? of(bytes, 0, bytes.length) : null;
+  }
+
+  private static Utf8Input of(byte[] bytes, int offset, int length) {
+    // a byte order mark is skipped, as the XML parser would do
+    if (length >= 3 && bytes[offset] == (byte) 0xEF && bytes[offset + 1] == (byte) 0xBB
+        && bytes[offset + 2] == (byte) 0xBF) {
+      return new Utf8Input(bytes, offset + 3, length - 3);
+    }
+    return new Utf8Input(bytes, offset, length);
+  }
+
+  /**
+   * Read the remaining bytes of a buffer, without copying them if the buffer is backed by an array. The position of
+   * the buffer is left unchanged.
+   */
+  static Utf8Input of(ByteBuffer buffer) {
+    if (buffer == null) {
+      return null;
+    }
+    if (buffer.hasArray()) {
+      return of(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    }
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
+    return of(bytes);
+  }
+
+  /**
+   * Read a stream until its end, stopping as soon as more than maxBytes are read.
+   *
+   * @param maxBytes maximum number of bytes to read, 0 for no limit
+   */
+  static Utf8Input read(InputStream in, long maxBytes) throws IOException, ParseLimitExceededException {
+    if (in == null) {
+      return null;
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream(BUFFER_SIZE);
+    byte[] buffer = new byte[BUFFER_SIZE];
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      out.write(buffer, 0, read);
+      if (maxBytes > 0 && out.size() > maxBytes) {
+        throw new ParseLimitExceededException(ParseBudget.INPUT_BYTES, maxBytes);
+      }
+    }
+    return of(out.toByteArray());
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public char charAt(int index) {
+    return (char) (bytes[offset + index] & 0xFF);
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    return new Utf8Input(bytes, offset + start, end - start);
+  }
+
+  /**
+   * The bytes of the input, one character per byte. Use {@link #decode()} to get the text of the input.
+   */
+  @Override
+  public String toString() {
+    return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+  }
+
+  boolean isBlank() {
+    for (int i = offset; i < offset + length; i++) {
+      if (!Character.isWhitespace(bytes[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Return the number of UTF-16 characters the bytes from start to end decode to.
+   */
+  int decodedLength(int start, int end) {
+    int decoded = 0;
+    for (int i = offset + start; i < offset + end; i++) {
+      int b = bytes[i] & 0xFF;
+      if ((b & 0xC0) != 0x80) {
+        // supplementary characters take 4 bytes and 2 UTF-16 characters
+        decoded += ((b & 0xF8) == 0xF0) ? 2 : 1;
+      }
+    }
+    return decoded;
+  }
+
+  /**
+   * Decode the input, rejecting malformed UTF-8 the way the XML parser does.
+   */
+  String decode() throws InvalidInputException {
+    String text = new String(bytes, offset, length, StandardCharsets.UTF_8);
+    if (text.indexOf('\uFFFD') < 0) {
+      return text;
+    }
+    // the replacement character is either in the input or replaces malformed bytes
+    try {
+      return StandardCharsets.UTF_8.newDecoder()
+          .onMalformedInput(CodingErrorAction.REPORT)
+          .onUnmappableCharacter(CodingErrorAction.REPORT)
+          .decode(ByteBuffer.wrap(bytes, offset, length))
+          .toString();
+    } catch (CharacterCodingException e) {
+      throw new InvalidInputException("Invalid messageML: the input is not valid UTF-8", e);
+    }
+  }
+
+  byte[] getBytes() {
+    return bytes;
+  }
+
+  int getOffset() {
+    return offset;
+  }
+
+  /**
+   * Return the index of the first occurrence of an ASCII string in a sequence, -1 if there is none.
+   */
+  static int indexOf(CharSequence sequence, String target, int from) {
+    if (sequence instanceof String) {
+      return ((String) sequence).indexOf(target, from);
+    }
+    int last = sequence.length() - target.length();
+    for (int i = Math.max(from, 0); i <= last; i++) {
+      if (startsWith(sequence, target, i)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  static boolean startsWith(CharSequence sequence, String prefix, int from) {
+    if (sequence instanceof String) {
+      return ((String) sequence).startsWith(prefix, from);
+    }
+    if (from < 0 || from + prefix.length() > sequence.length()) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (sequence.charAt(from + i) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
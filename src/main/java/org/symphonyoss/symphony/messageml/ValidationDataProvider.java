@@ -0,0 +1,128 @@
+package org.symphonyoss.symphony.messageml;
+
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.util.IDataProvider;
+import org.symphonyoss.symphony.messageml.util.IUserPresentation;
+import org.symphonyoss.symphony.messageml.util.instrument.resolver.InstrumentResolution;
+import org.symphonyoss.symphony.messageml.util.instrument.resolver.ResolutionResults;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies a {@link DataProviderPolicy} to the calls made while validating a message. Users and URIs looked up with the
+ * {@link DataProviderPolicy#FULL} policy are kept in a bounded cache, failures included, for the
+ * {@link DataProviderPolicy#CACHED_ONLY} policy.
+ */
+class ValidationDataProvider implements IDataProvider {
+
+  private static final int MAX_CACHED_LOOKUPS = 1000;
+
+  private final IDataProvider delegate;
+  private final Map<Object, Lookup> lookups = new LinkedHashMap<Object, Lookup>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Object, Lookup> eldest) {
+      return size() > MAX_CACHED_LOOKUPS;
+    }
+  };
+
+  private DataProviderPolicy policy = DataProviderPolicy.FULL;
+  private int skippedLookups;
+
+  ValidationDataProvider(IDataProvider delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * Set the policy of the next validation and reset the number of skipped lookups.
+   */
+  void setPolicy(DataProviderPolicy policy) {
+    this.policy = policy;
+    this.skippedLookups = 0;
+  }
+
+  /**
+   * Return the number of lookups skipped since the policy was set.
+   */
+  int getSkippedLookups() {
+    return skippedLookups;
+  }
+
+  @Override
+  public IUserPresentation getUserPresentation(String emailAddress) throws InvalidInputException {
+    return (IUserPresentation) lookup("email:" + emailAddress, () -> delegate.getUserPresentation(emailAddress));
+  }
+
+  @Override
+  public IUserPresentation getUserPresentation(Long uid) throws InvalidInputException {
+    return (IUserPresentation) lookup(uid, () -> delegate.getUserPresentation(uid));
+  }
+
+  @Override
+  public void validateURI(URI uri) throws InvalidInputException, ProcessingException {
+    lookup(uri, () -> {
+      delegate.validateURI(uri);
+      return uri;
+    });
+  }
+
+  /**
+   * Financial tags are only resolved with the {@link DataProviderPolicy#FULL} policy, see
+   * {@link MessageMLParser#setResolveFinancialTags(boolean)}.
+   */
+  @Override
+  public ResolutionResults getFinTagPresentation(List<InstrumentResolution> criteria) throws InvalidInputException {
+    return delegate.getFinTagPresentation(criteria);
+  }
+
+  private Object lookup(Object key, Call call) throws InvalidInputException {
+    Lookup lookup;
+    if (policy == DataProviderPolicy.FULL) {
+      // the data provider is always called, its result replaces the cached one
+      try {
+        lookup = new Lookup(call.call(), null);
+      } catch (InvalidInputException | ProcessingException e) {
+        lookup = new Lookup(null, e);
+      }
+      lookups.put(key, lookup);
+    } else {
+      lookup = (policy == DataProviderPolicy.CACHED_ONLY) ? lookups.get(key) : null;
+      if (lookup == null) {
+        // a skipped user lookup leaves the mention as written, as a failed lookup with fallback does
+        skippedLookups++;
+        return null;
+      }
+    }
+    return lookup.get();
+  }
+
+  @FunctionalInterface
+  private interface Call {
+    Object call() throws InvalidInputException, ProcessingException;
+  }
+
+  /**
+   * The outcome of a lookup: its value, or the exception it failed with.
+   */
+  private static final class Lookup {
+    private final Object value;
+    private final Exception error;
+
+    private Lookup(Object value, Exception error) {
+      this.value = value;
+      this.error = error;
+    }
+
+    Object get() throws InvalidInputException {
+      if (error instanceof InvalidInputException) {
+        throw (InvalidInputException) error;
+      } else if (error != null) {
+        throw new InvalidInputException(error.getMessage(), error);
+      }
+      return value;
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package org.symphonyoss.symphony.messageml;
+
+import lombok.Getter;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ParseLimitExceededException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * The outcome of the validation of a message by a {@link MessageMLValidator}. Validation stops at the first error, as
+ * parsing does.
+ */
+@Getter
+public class ValidationResult {
+  /** The error the message was rejected with, null if the message is valid. */
+  private final InvalidInputException error;
+  /** Line of the error in the message, -1 if the error is not an XML syntax error. */
+  private final int line;
+  /** Column of the error in the message, -1 if the error is not an XML syntax error. */
+  private final int column;
+  /** Name of the exceeded {@link ParseLimits} limit, null if no limit was exceeded. */
+  private final String limit;
+  /** Number of data provider lookups skipped by the {@link DataProviderPolicy}. */
+  private final int skippedLookups;
+
+  ValidationResult(InvalidInputException error, int skippedLookups) {
+    this.error = error;
+    this.skippedLookups = skippedLookups;
+    SAXParseException syntaxError = (error != null && error.getCause() instanceof SAXParseException)
+        ? (SAXParseException) error.getCause() : null;
+    this.line = (syntaxError != null) ? syntaxError.getLineNumber() : -1;
+    this.column = (syntaxError != null) ? syntaxError.getColumnNumber() : -1;
+    this.limit = (error instanceof ParseLimitExceededException) ? ((ParseLimitExceededException) error).getLimit()
+        : null;
+  }
+
+  public boolean isValid() {
+    return error == null;
+  }
+
+  /**
+   * @return the message of the error, null if the message is valid
+   */
+  public String getErrorMessage() {
+    return (error != null) ? error.getMessage() : null;
+  }
+}
@@ -0,0 +1,182 @@
+package org.symphonyoss.symphony.messageml.batch;
+
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.util.IDataProvider;
+import org.symphonyoss.symphony.messageml.util.IUserPresentation;
+import org.symphonyoss.symphony.messageml.util.instrument.resolver.InstrumentResolution;
+import org.symphonyoss.symphony.messageml.util.instrument.resolver.InstrumentResolutionCache;
+import org.symphonyoss.symphony.messageml.util.instrument.resolver.ResolutionResult;
+import org.symphonyoss.symphony.messageml.util.instrument.resolver.ResolutionResults;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Data provider shared by all the messages of a batch, so that each distinct user, URI or financial instrument is
+ * looked up once for the whole batch. Failed lookups are remembered as well and fail again with the same exception.
+ * <p>
+ * Each lookup is a future, which the messages looking up the same key while it is running wait for: the delegate is
+ * never called while holding a lock of the maps.
+ */
+class BatchDataProvider implements IDataProvider {
+
+  private final IDataProvider delegate;
+
+  private final Map<String, CompletableFuture<Lookup<IUserPresentation>>> usersByEmail = new ConcurrentHashMap<>();
+  private final Map<Long, CompletableFuture<Lookup<IUserPresentation>>> usersByUid = new ConcurrentHashMap<>();
+  private final Map<URI, CompletableFuture<Lookup<Boolean>>> uris = new ConcurrentHashMap<>();
+  // Resolution results by criteria, see InstrumentResolutionCache#criteria; null when the instrument is not found
+  private final Map<InstrumentResolution, CompletableFuture<Lookup<ResolutionResult>>> instruments =
+      new ConcurrentHashMap<>();
+
+  BatchDataProvider(IDataProvider delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public IUserPresentation getUserPresentation(String emailAddress) throws InvalidInputException {
+    return lookup(usersByEmail, emailAddress, () -> delegate.getUserPresentation(emailAddress)).get();
+  }
+
+  @Override
+  public IUserPresentation getUserPresentation(Long uid) throws InvalidInputException {
+    return lookup(usersByUid, uid, () -> delegate.getUserPresentation(uid)).get();
+  }
+
+  @Override
+  public void validateURI(URI uri) throws InvalidInputException, ProcessingException {
+    lookup(uris, uri, () -> {
+      delegate.validateURI(uri);
+      return Boolean.TRUE;
+    }).getOrProcessingException();
+  }
+
+  /**
+   * Only the criteria not already resolved for the batch are sent to the delegate, in a single call.
+   */
+  @Override
+  public ResolutionResults getFinTagPresentation(List<InstrumentResolution> criteria) throws InvalidInputException {
+    resolve(criteria);
+
+    Map<String, ResolutionResult> resolved = new HashMap<>();
+    for (InstrumentResolution resolution : criteria) {
+      ResolutionResult result = instruments.get(InstrumentResolutionCache.criteria(resolution)).join().get();
+      if (result != null) {
+        resolved.put(resolution.getResolutionId(), result);
+      }
+    }
+    ResolutionResults results = new ResolutionResults();
+    results.setInstruments(resolved);
+    return results;
+  }
+
+  /**
+   * Resolve the criteria which are not resolved or being resolved for the batch yet, in a single call to the
+   * delegate. A failed call fails the lookups of all its criteria.
+   */
+  void resolve(Collection<InstrumentResolution> criteria) {
+    Map<InstrumentResolution, CompletableFuture<Lookup<ResolutionResult>>> owned = new LinkedHashMap<>();
+    for (InstrumentResolution resolution : criteria) {
+      InstrumentResolution key = InstrumentResolutionCache.criteria(resolution);
+      if (!owned.containsKey(key)) {
+        CompletableFuture<Lookup<ResolutionResult>> future = new CompletableFuture<>();
+        if (instruments.putIfAbsent(key, future) == null) {
+          owned.put(key, future);
+        }
+      }
+    }
+    if (owned.isEmpty()) {
+      return;
+    }
+
+    List<InstrumentResolution> missing = new ArrayList<>();
+    for (InstrumentResolution key : owned.keySet()) {
+      InstrumentResolution resolution = InstrumentResolutionCache.criteria(key);
+      resolution.setResolutionId(String.valueOf(missing.size()));
+      missing.add(resolution);
+    }
+    Lookup<ResolutionResults> results;
+    try {
+      results = Lookup.of(() -> delegate.getFinTagPresentation(missing));
+    } catch (RuntimeException e) {
+      owned.values().forEach(future -> future.completeExceptionally(e));
+      throw e;
+    }
+
+    Map<String, ResolutionResult> found = (results.value != null && results.value.getInstruments() != null)
+        ? results.value.getInstruments() : new HashMap<>();
+    int i = 0;
+    for (CompletableFuture<Lookup<ResolutionResult>> future : owned.values()) {
+      future.complete(new Lookup<>(found.get(String.valueOf(i++)), results.error));
+    }
+  }
+
+  /**
+   * Return the lookup of the key, calling the delegate if no other message of the batch has looked it up yet, or
+   * waiting for the message looking it up otherwise.
+   */
+  private static <K, T> Lookup<T> lookup(Map<K, CompletableFuture<Lookup<T>>> lookups, K key, Call<T> call) {
+    CompletableFuture<Lookup<T>> future = new CompletableFuture<>();
+    CompletableFuture<Lookup<T>> existing = lookups.putIfAbsent(key, future);
+    if (existing != null) {
+      return existing.join();
+    }
+    try {
+      future.complete(Lookup.of(call));
+    } catch (RuntimeException e) {
+      future.completeExceptionally(e);
+      throw e;
+    }
+    return future.join();
+  }
+
+  @FunctionalInterface
+  private interface Call<T> {
+    T call() throws InvalidInputException, ProcessingException;
+  }
+
+  /**
+   * The outcome of a lookup: its value, or the exception it failed with.
+   */
+  private static final class Lookup<T> {
+    private final T value;
+    private final Exception error;
+
+    private Lookup(T value, Exception error) {
+      this.value = value;
+      this.error = error;
+    }
+
+    static <T> Lookup<T> of(Call<T> call) {
+      try {
+        return new Lookup<>(call.call(), null);
+      } catch (InvalidInputException | ProcessingException e) {
+        return new Lookup<>(null, e);
+      }
+    }
+
+    T get() throws InvalidInputException {
+      if (error instanceof InvalidInputException) {
+        throw (InvalidInputException) error;
+      } else if (error != null) {
+        throw new InvalidInputException(error.getMessage(), error);
+      }
+      return value;
+    }
+
+    T getOrProcessingException() throws InvalidInputException, ProcessingException {
+      if (error instanceof ProcessingException) {
+        throw (ProcessingException) error;
+      }
+      return get();
+    }
+  }
+}
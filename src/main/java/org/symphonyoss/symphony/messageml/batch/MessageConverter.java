@@ -0,0 +1,60 @@
+package org.symphonyoss.symphony.messageml.batch;
+
+import org.symphonyoss.symphony.messageml.MessageMLContext;
+import org.symphonyoss.symphony.messageml.ParseLimits;
+import org.symphonyoss.symphony.messageml.util.IDataProvider;
+
+/**
+ * Parses a {@link MessageInput} and renders its PresentationML, so that the rendering happens on the worker thread.
+ */
+class MessageConverter {
+
+  private final IDataProvider dataProvider;
+  private final ParseLimits limits;
+
+  MessageConverter(IDataProvider dataProvider, ParseLimits limits) {
+    this.dataProvider = dataProvider;
+    this.limits = limits;
+  }
+
+  MessageResult convert(MessageInput input) {
+    return render(parse(input, false));
+  }
+
+  /**
+   * Parse a message, leaving its financial tags to be resolved by {@link #render(MessageResult)} when they are
+   * deferred, see {@link MessageMLContext#setDeferredFinancialTags(boolean)}.
+   */
+  MessageResult parse(MessageInput input, boolean deferFinancialTags) {
+    MessageMLContext context = new MessageMLContext(dataProvider);
+    context.setParseLimits(limits);
+    context.setDeferredFinancialTags(deferFinancialTags);
+    try {
+      if (input.getFormat() == MessageInput.Format.MARKDOWN) {
+        context.parseMarkdown(input.getMessage(), input.getEntities(), input.getMedia());
+      } else {
+        context.parseMessageML(input.getMessage(), input.getEntityJson(), input.getVersion());
+      }
+      return new MessageResult(input, context, null);
+    } catch (Exception e) {
+      return new MessageResult(input, null, e);
+    }
+  }
+
+  /**
+   * Resolve the financial tags of a parsed message if they were deferred, and render its PresentationML. Every output
+   * of the context is then rendered, so that its getters only read it.
+   */
+  MessageResult render(MessageResult parsed) {
+    if (!parsed.isSuccess()) {
+      return parsed;
+    }
+    try {
+      parsed.getContext().resolveFinancialTags();
+      parsed.getContext().getPresentationML();
+      return parsed;
+    } catch (Exception e) {
+      return new MessageResult(parsed.getInput(), null, e);
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package org.symphonyoss.symphony.messageml.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A message to parse as part of a batch or a pipeline, see {@link MessageMLBatchParser} and {@link MessagePipeline}.
+ */
+@Getter
+public class MessageInput {
+
+  /**
+   * Format of the input message.
+   */
+  public enum Format {
+    MESSAGEML,
+    MARKDOWN
+  }
+
+  private final Format format;
+  private final String message;
+  private final String entityJson;
+  private final String version;
+  private final JsonNode entities;
+  private final JsonNode media;
+
+  /**
+   * @param message string containing a MessageMLV2 message with optional Freemarker templates
+   * @param entityJson string containing EntityJSON data, can be null
+   * @param version string containing the version of the message format, can be null
+   */
+  public MessageInput(String message, String entityJson, String version) {
+    this(Format.MESSAGEML, message, entityJson, version, null, null);
+  }
+
+  public MessageInput(String message) {
+    this(message, null, null);
+  }
+
+  private MessageInput(Format format, String message, String entityJson, String version, JsonNode entities,
+      JsonNode media) {
+    this.format = format;
+    this.message = message;
+    this.entityJson = entityJson;
+    this.version = version;
+    this.entities = entities;
+    this.media = media;
+  }
+
+  /**
+   * @param markdown string containing a message in Markdown
+   * @param entities additional entity data in JSON, can be null
+   * @param media media data in JSON, can be null
+   */
+  public static MessageInput markdown(String markdown, JsonNode entities, JsonNode media) {
+    return new MessageInput(Format.MARKDOWN, markdown, null, null, entities, media);
+  }
+
+  /**
+   * Inputs with the same key give the same parsing result.
+   */
+  List<Object> key() {
+    return Arrays.asList(format, message, entityJson, version, entities, media);
+  }
+}
@@ -0,0 +1,119 @@
+package org.symphonyoss.symphony.messageml.batch;
+
+import org.symphonyoss.symphony.messageml.MessageMLContext;
+import org.symphonyoss.symphony.messageml.ParseLimits;
+import org.symphonyoss.symphony.messageml.util.IDataProvider;
+import org.symphonyoss.symphony.messageml.util.instrument.resolver.InstrumentResolution;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Parses many messages at once, for instance the same announcement sent to many recipients or a burst of messages.
+ * <p>
+ * Messages are parsed in parallel in a {@link ForkJoinPool}. Identical messages (same message, EntityJSON and version)
+ * are parsed once and share the same result, whose context is fully rendered before it is returned and must only be
+ * read. Lookups of the data provider are shared across the batch: each distinct user, URI or financial instrument is
+ * looked up once, and the financial instruments of the whole batch are requested in a single call, once all the
+ * messages are parsed and before their outputs are rendered.
+ */
+public class MessageMLBatchParser {
+
+  private final IDataProvider dataProvider;
+  private final ForkJoinPool pool;
+  private ParseLimits limits;
+
+  /**
+   * Create a batch parser running in the common {@link ForkJoinPool}.
+   */
+  public MessageMLBatchParser(IDataProvider dataProvider) {
+    this(dataProvider, ForkJoinPool.commonPool());
+  }
+
+  public MessageMLBatchParser(IDataProvider dataProvider, ForkJoinPool pool) {
+    this.dataProvider = dataProvider;
+    this.pool = pool;
+  }
+
+  /**
+   * Bound the resources the parsing of each message of a batch can use, see
+   * {@link MessageMLContext#setParseLimits(ParseLimits)}.
+   */
+  public void setParseLimits(ParseLimits limits) {
+    this.limits = limits;
+  }
+
+  /**
+   * Parse a batch of messages. The PresentationML of each message is rendered as part of the batch.
+   * @param inputs the messages to parse
+   * @return the result of each message, in the order of the inputs; a failed message does not fail the batch
+   * @throws InterruptedException thrown if the current thread is interrupted while waiting for the batch
+   */
+  public List<MessageResult> parseBatch(List<MessageInput> inputs) throws InterruptedException {
+    BatchDataProvider batchDataProvider = new BatchDataProvider(dataProvider);
+    MessageConverter converter = new MessageConverter(batchDataProvider, limits);
+
+    Map<List<Object>, MessageInput> distinct = new LinkedHashMap<>();
+    for (MessageInput input : inputs) {
+      distinct.putIfAbsent(input.key(), input);
+    }
+
+    List<Callable<MessageResult>> parses = new ArrayList<>();
+    for (MessageInput input : distinct.values()) {
+      parses.add(() -> converter.parse(input, true));
+    }
+    List<MessageResult> parsed = invokeAll(parses);
+
+    Set<InstrumentResolution> criteria = new LinkedHashSet<>();
+    for (MessageResult result : parsed) {
+      if (result.isSuccess()) {
+        criteria.addAll(result.getContext().getMessageML().getFinancialTagCriteria());
+      }
+    }
+    batchDataProvider.resolve(criteria);
+
+    List<Callable<MessageResult>> renders = new ArrayList<>();
+    for (MessageResult result : parsed) {
+      renders.add(() -> converter.render(result));
+    }
+    List<MessageResult> rendered = invokeAll(renders);
+
+    Map<List<Object>, MessageResult> results = new LinkedHashMap<>();
+    int i = 0;
+    for (List<Object> key : distinct.keySet()) {
+      results.put(key, rendered.get(i++));
+    }
+
+    List<MessageResult> ordered = new ArrayList<>(inputs.size());
+    for (MessageInput input : inputs) {
+      MessageResult result = results.get(input.key());
+      ordered.add(new MessageResult(input, result.getContext(), result.getError()));
+    }
+    return ordered;
+  }
+
+  private List<MessageResult> invokeAll(List<Callable<MessageResult>> tasks) throws InterruptedException {
+    List<MessageResult> results = new ArrayList<>(tasks.size());
+    for (Future<MessageResult> future : pool.invokeAll(tasks)) {
+      results.add(get(future));
+    }
+    return results;
+  }
+
+  private static MessageResult get(Future<MessageResult> future) throws InterruptedException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      return new MessageResult(null, null, cause instanceof Exception ? (Exception) cause : e);
+    }
+  }
+}
@@ -0,0 +1,231 @@
+package org.symphonyoss.symphony.messageml.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.symphonyoss.symphony.messageml.ParseLimits;
+import org.symphonyoss.symphony.messageml.util.IDataProvider;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Converts a continuous stream of messages, parsing them in parallel and emitting their results to a subscriber.
+ * <p>
+ * The number of messages in flight (submitted but not emitted yet) is bounded: once the bound is reached,
+ * {@link #submit(MessageInput)} blocks and {@link #offer(MessageInput, long, TimeUnit)} times out until results are
+ * emitted, so that the producer is slowed down when parsing or the data provider cannot keep up.
+ * <p>
+ * Results are emitted one at a time, either in the order the messages were submitted or as soon as they are ready.
+ * The subscriber is called without holding any lock of the pipeline, so it can submit messages itself; its failures
+ * are logged and do not stop the emission of the next results.
+ */
+public class MessagePipeline implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(MessagePipeline.class);
+
+  private final IDataProvider dataProvider;
+  private final Consumer<MessageResult> subscriber;
+  private final ExecutorService executor;
+  private final boolean ownExecutor;
+  private final int maxInFlight;
+  private final boolean ordered;
+  private final Semaphore inFlight;
+
+  private final Object lock = new Object();
+  // Results waiting for the results of messages submitted before them, by sequence number
+  private final Map<Long, MessageResult> pending = new HashMap<>();
+  // Results to emit, in the order they are emitted
+  private final Queue<MessageResult> ready = new ArrayDeque<>();
+  // Thread emitting the ready results, null when none is
+  private Thread emittingThread;
+  private long nextSequence;
+  private long nextToEmit;
+  private volatile boolean closed;
+
+  private volatile MessageConverter converter;
+
+  /**
+   * Create a pipeline running its own pool of threads, shut down on {@link #close()}.
+   * @param dataProvider data provider used to resolve users, URIs and financial instruments
+   * @param subscriber receives the result of every message, never called concurrently
+   * @param parallelism number of messages parsed in parallel
+   * @param maxInFlight maximum number of messages submitted but not emitted yet
+   * @param ordered true to emit the results in the order the messages were submitted
+   */
+  public MessagePipeline(IDataProvider dataProvider, Consumer<MessageResult> subscriber, int parallelism,
+      int maxInFlight, boolean ordered) {
+    this(dataProvider, subscriber, Executors.newFixedThreadPool(parallelism), true, maxInFlight, ordered);
+  }
+
+  /**
+   * Create a pipeline running in the given executor, which is not shut down on {@link #close()}.
+   */
+  public MessagePipeline(IDataProvider dataProvider, Consumer<MessageResult> subscriber, ExecutorService executor,
+      int maxInFlight, boolean ordered) {
+    this(dataProvider, subscriber, executor, false, maxInFlight, ordered);
+  }
+
+  private MessagePipeline(IDataProvider dataProvider, Consumer<MessageResult> subscriber, ExecutorService executor,
+      boolean ownExecutor, int maxInFlight, boolean ordered) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("The maximum number of messages in flight must be positive");
+    }
+    this.subscriber = subscriber;
+    this.executor = executor;
+    this.ownExecutor = ownExecutor;
+    this.maxInFlight = maxInFlight;
+    this.ordered = ordered;
+    this.inFlight = new Semaphore(maxInFlight);
+    this.dataProvider = dataProvider;
+    this.converter = new MessageConverter(dataProvider, null);
+  }
+
+  /**
+   * Bound the resources the parsing of each message can use, see
+   * {@link org.symphonyoss.symphony.messageml.MessageMLContext#setParseLimits(ParseLimits)}. Applies to messages
+   * submitted afterwards.
+   */
+  public void setParseLimits(ParseLimits limits) {
+    this.converter = new MessageConverter(dataProvider, limits);
+  }
+
+  /**
+   * Submit a message, waiting for the number of messages in flight to go below the bound if needed.
+   * @throws InterruptedException thrown if the current thread is interrupted while waiting
+   */
+  public void submit(MessageInput input) throws InterruptedException {
+    checkOpen();
+    inFlight.acquire();
+    dispatch(input);
+  }
+
+  /**
+   * Submit a message, waiting at most the given time for the number of messages in flight to go below the bound.
+   * @return false if the message could not be submitted in time
+   * @throws InterruptedException thrown if the current thread is interrupted while waiting
+   */
+  public boolean offer(MessageInput input, long timeout, TimeUnit unit) throws InterruptedException {
+    checkOpen();
+    if (!inFlight.tryAcquire(timeout, unit)) {
+      return false;
+    }
+    dispatch(input);
+    return true;
+  }
+
+  /**
+   * Return the number of messages submitted but not emitted yet.
+   */
+  public int getInFlight() {
+    return maxInFlight - inFlight.availablePermits();
+  }
+
+  /**
+   * Stop accepting messages and wait for the results of the messages in flight to be emitted. If the current thread is
+   * interrupted while waiting, it stops waiting and its interrupt status is set.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    try {
+      inFlight.acquire(maxInFlight);
+      inFlight.release(maxInFlight);
+      synchronized (lock) {
+        // the permits are released before the results are emitted; a subscriber closing the pipeline does not wait
+        while (emittingThread != null && emittingThread != Thread.currentThread()) {
+          lock.wait();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      if (ownExecutor) {
+        executor.shutdown();
+      }
+    }
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("The pipeline is closed");
+    }
+  }
+
+  private void dispatch(MessageInput input) {
+    long sequence;
+    synchronized (lock) {
+      sequence = nextSequence++;
+    }
+    MessageConverter current = converter;
+    try {
+      executor.execute(() -> emit(sequence, current.convert(input)));
+    } catch (RejectedExecutionException e) {
+      emit(sequence, new MessageResult(input, null, e));
+    }
+  }
+
+  private void emit(long sequence, MessageResult result) {
+    synchronized (lock) {
+      if (!ordered) {
+        ready.add(result);
+      } else {
+        pending.put(sequence, result);
+        MessageResult next;
+        while ((next = pending.remove(nextToEmit)) != null) {
+          nextToEmit++;
+          ready.add(next);
+        }
+      }
+      if (emittingThread != null) {
+        // emitted by the thread already emitting, after the results before it
+        return;
+      }
+      emittingThread = Thread.currentThread();
+    }
+    emitReady();
+  }
+
+  /**
+   * Emit the ready results one at a time until there are none left, calling the subscriber outside of the lock.
+   */
+  private void emitReady() {
+    boolean done = false;
+    try {
+      while (true) {
+        MessageResult result;
+        synchronized (lock) {
+          result = ready.poll();
+          if (result == null) {
+            done = true;
+            emittingThread = null;
+            lock.notifyAll();
+            return;
+          }
+        }
+        // a subscriber submitting a message gets the permit of the result it receives
+        inFlight.release();
+        try {
+          subscriber.accept(result);
+        } catch (RuntimeException e) {
+          logger.warn("The subscriber failed to receive the result of a message", e);
+        }
+      }
+    } finally {
+      if (!done) {
+        // the subscriber threw an error, the results left are emitted along with the next one
+        synchronized (lock) {
+          emittingThread = null;
+          lock.notifyAll();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package org.symphonyoss.symphony.messageml.batch;
+
+import lombok.Getter;
+import org.symphonyoss.symphony.messageml.MessageMLContext;
+
+/**
+ * The result of the parsing of a message of a batch or a pipeline: either the context holding the parsed message, or
+ * the error which made the parsing fail.
+ * <p>
+ * The outputs of the context are rendered before the result is returned. Identical messages of a batch share the same
+ * context, which must not be used to parse other messages, nor its outputs modified.
+ */
+@Getter
+public class MessageResult {
+  private final MessageInput input;
+  private final MessageMLContext context;
+  private final Exception error;
+
+  MessageResult(MessageInput input, MessageMLContext context, Exception error) {
+    this.input = input;
+    this.context = context;
+    this.error = error;
+  }
+
+  public boolean isSuccess() {
+    return error == null;
+  }
+}
@@ -0,0 +1,42 @@
+package org.symphonyoss.symphony.messageml.elements;
+
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+
+/**
+ * Callbacks of the parser while it builds a tree of elements, see
+ * {@link Element#buildAll(org.symphonyoss.symphony.messageml.MessageMLParser, BuildHooks, org.w3c.dom.Element)}.
+ * This interface is used internally: the parser implements it privately, so that the accounting of the elements is
+ * not part of its API.
+ */
+public interface BuildHooks {
+
+  /**
+   * Whether the message being built is trusted PresentationML, whose elements are not validated.
+   */
+  boolean isTrustedInput();
+
+  /**
+   * Account for an element about to be built, checking the limits of the parser.
+   */
+  void enterElement(Element element) throws InvalidInputException;
+
+  /**
+   * Account for an element whose children have all been built.
+   */
+  void exitElement();
+
+  /**
+   * Check the pattern of a form field against the limits of the parser.
+   */
+  void checkPattern(String regex) throws InvalidInputException;
+
+  /**
+   * Whether a text holds placeholders of a message being prepared, whose values are checked once they are bound.
+   */
+  boolean isPlaceholder(String text);
+
+  /**
+   * Report an element validated while the tree is built.
+   */
+  void onValidated(Element element);
+}
@@ -31,6 +31,7 @@ import java.util.Collections;
  */
 public class BulletList extends Element {
   public static final String MESSAGEML_TAG = "ul";
+  private static final ContentModel CHILDREN = ContentModel.of(ListItem.class);
 
   public BulletList(Element parent) {
     super(parent, MESSAGEML_TAG);
@@ -47,7 +48,7 @@ public class BulletList extends Element {
   @Override
   public void validate() throws InvalidInputException {
     assertNoText();
-    assertContentModel(Collections.<Class<? extends Element>>singleton(ListItem.class));
+    assertContentModel(CHILDREN);
     assertContainsChildOfType(Collections.<Class<? extends Element>>singleton(ListItem.class));
   }
 
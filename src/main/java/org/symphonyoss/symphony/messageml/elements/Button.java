@@ -42,6 +42,8 @@ public class Button extends Element {
   Logger logger = LoggerFactory.getLogger(Button.class);
 
   public static final String MESSAGEML_TAG = "button";
+  private static final ContentModel ANCESTORS = ContentModel.of(Form.class, UIAction.class);
+  private static final ContentModel TEXT_CONTENT = ContentModel.of(TextNode.class);
   public static final String ACTION_TYPE = "action";
   public static final String CANCEL_TYPE = "cancel";
   public static final String RESET_TYPE = "reset";
@@ -94,12 +96,9 @@ public class Button extends Element {
   }
 
   @Override
-  void asPresentationML(XmlPrintStream out, MessageMLContext context) {
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
     out.openElement(getPresentationMLTag(), getPresentationMLAttributes());
-    for (Element child : getChildren()) {
-      child.asPresentationML(out, context);
-    }
-    out.closeElement();
+    return 1;
   }
 
   private Map<String, String> getPresentationMLAttributes() {
@@ -120,7 +119,7 @@ public class Button extends Element {
 
   @Override
   public void validate() throws InvalidInputException {
-    assertParentAtAnyLevel(Arrays.asList(Form.class, UIAction.class));
+    assertParentAtAnyLevel(ANCESTORS);
     validateCommonAttributes();
     if (isUIActionButton()) {
       validateUIActionButton();
@@ -163,7 +162,7 @@ public class Button extends Element {
       throw new InvalidInputException("Attribute \"name\" is allowed for action buttons only");
     }
 
-    assertContentModel(Collections.singleton(TextNode.class));
+    assertContentModel(TEXT_CONTENT);
     assertContainsChildOfType(Collections.singleton(TextNode.class));
   }
 
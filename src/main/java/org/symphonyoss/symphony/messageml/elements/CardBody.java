@@ -33,6 +33,7 @@ import java.util.Collections;
 public class CardBody extends Element {
 
   public static final String MESSAGEML_TAG = "body";
+  private static final ContentModel PARENTS = ContentModel.of(Card.class);
   public static final String PRESENTATIONML_CLASS = "cardBody";
   private static final String PRESENTATIONML_TAG = "div";
 
@@ -47,15 +48,9 @@ public class CardBody extends Element {
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out,
-      MessageMLContext context) {
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
     out.openElement(PRESENTATIONML_TAG, Collections.singletonMap(CLASS_ATTR, PRESENTATIONML_CLASS));
-
-    for (Element child : getChildren()) {
-      child.asPresentationML(out, context);
-    }
-
-    out.closeElement();
+    return 1;
   }
 
   @Override
@@ -66,7 +61,7 @@ public class CardBody extends Element {
   @Override
   void validate() throws InvalidInputException {
     assertNoAttributes();
-    assertParent(Collections.singleton(Card.class));
+    assertParent(PARENTS);
   }
 
   @Override
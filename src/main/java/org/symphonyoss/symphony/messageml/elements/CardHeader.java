@@ -34,6 +34,7 @@ import java.util.Collections;
 public class CardHeader extends Element {
 
   public static final String MESSAGEML_TAG = "header";
+  private static final ContentModel PARENTS = ContentModel.of(Card.class);
   public static final String PRESENTATIONML_CLASS = "cardHeader";
   private static final String PRESENTATIONML_TAG = "div";
 
@@ -48,15 +49,9 @@ public class CardHeader extends Element {
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out,
-      MessageMLContext context) {
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
     out.openElement(PRESENTATIONML_TAG, Collections.singletonMap(CLASS_ATTR, PRESENTATIONML_CLASS));
-
-    for (Element child : getChildren()) {
-      child.asPresentationML(out, context);
-    }
-
-    out.closeElement();
+    return 1;
   }
 
   @Override
@@ -67,7 +62,7 @@ public class CardHeader extends Element {
   @Override
   void validate() throws InvalidInputException {
     assertNoAttributes();
-    assertParent(Collections.singleton(Card.class));
+    assertParent(PARENTS);
   }
 
   @Override
@@ -54,7 +54,7 @@ public class CashTag extends Keyword {
   }
 
   @Override
-  public String asText() {
+  String asOwnText() {
     return "$" + getTag();
   }
 
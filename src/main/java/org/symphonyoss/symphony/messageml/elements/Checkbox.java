@@ -18,6 +18,7 @@ import java.util.Map;
  */
 public class Checkbox extends GroupedElement implements LabelableElement {
   public static final String MESSAGEML_TAG = "checkbox";
+  private static final ContentModel LABEL_CONTENT = ContentModel.of(TextNode.class, Bold.class, Italic.class);
   public static final String PRESENTATIONML_INPUT_TYPE = "checkbox";
   public static final String PRESENTATIONML_DIV_CLASS = "checkbox-group";
 
@@ -50,7 +51,7 @@ public class Checkbox extends GroupedElement implements LabelableElement {
     }
 
     if (!getChildren().isEmpty()) {
-      assertContentModel(Arrays.asList(TextNode.class, Bold.class, Italic.class));
+      assertContentModel(LABEL_CONTENT);
     }
 
     assertAttributeNotBlank(NAME_ATTR);
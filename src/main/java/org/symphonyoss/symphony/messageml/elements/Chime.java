@@ -65,14 +65,14 @@ public class Chime extends Element {
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out,
-      MessageMLContext context) {
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
     out.printElement(PRESENTATIONML_TAG, null, ATTR_SRC, SRC,
         ATTR_AUTOPLAY, "true");
+    return -1;
   }
 
   @Override
-  public String asText() {
+  String asOwnText() {
     return "";
   }
 
@@ -71,7 +71,7 @@ public class Code extends Element {
   }
 
   @Override
-  void asPresentationML(XmlPrintStream out, MessageMLContext context) {
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
     final Map<String, Object> attrs = new HashMap<>();
 
     if (getAttribute(MML_LANGUAGE_ATTR) != null) {
@@ -83,12 +83,7 @@ public class Code extends Element {
     }
 
     out.openElement(MESSAGEML_TAG, attrs);
-
-    for (Element child : getChildren()) {
-      child.asPresentationML(out, context);
-    }
-
-    out.closeElement();
+    return 1;
   }
 
   @Override
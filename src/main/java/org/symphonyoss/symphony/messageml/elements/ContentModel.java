@@ -0,0 +1,81 @@
+package org.symphonyoss.symphony.messageml.elements;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A set of element types compiled to a bitset of their kinds, the number given to each element type the first time it
+ * is seen. Checking whether a child, a parent or any ancestor of an element is of one of the types is then a single bit
+ * test, see {@link Element#getAncestorKinds()}.
+ */
+final class ContentModel {
+  private static final AtomicInteger NEXT_KIND = new AtomicInteger();
+  private static final ClassValue<Integer> KINDS = new ClassValue<Integer>() {
+    @Override
+    protected Integer computeValue(Class<?> type) {
+      return NEXT_KIND.getAndIncrement();
+    }
+  };
+
+  private final List<Class<? extends Element>> types;
+  private final BitSet kinds = new BitSet();
+
+  private ContentModel(List<Class<? extends Element>> types) {
+    this.types = Collections.unmodifiableList(types);
+    for (Class<? extends Element> type : types) {
+      kinds.set(kindOf(type));
+    }
+  }
+
+  @SafeVarargs
+  static ContentModel of(Class<? extends Element>... types) {
+    List<Class<? extends Element>> all = new ArrayList<>(types.length);
+    for (Class<? extends Element> type : types) {
+      all.add(type);
+    }
+    return new ContentModel(all);
+  }
+
+  static ContentModel of(Collection<Class<? extends Element>> types) {
+    return new ContentModel(new ArrayList<>(types));
+  }
+
+  /**
+   * Return a model permitting the types of this model and the given ones.
+   */
+  @SafeVarargs
+  final ContentModel with(Class<? extends Element>... types) {
+    List<Class<? extends Element>> all = new ArrayList<>(this.types);
+    // the array is read rather than passed on, which keeps the method safe
+    for (Class<? extends Element> type : types) {
+      all.add(type);
+    }
+    return new ContentModel(all);
+  }
+
+  static int kindOf(Class<?> type) {
+    return KINDS.get(type);
+  }
+
+  boolean contains(Element element) {
+    return kinds.get(element.getKind());
+  }
+
+  /**
+   * Check whether any of the given kinds is permitted by the model.
+   */
+  boolean intersects(BitSet otherKinds) {
+    return kinds.intersects(otherKinds);
+  }
+
+  /**
+   * The element types of the model, in the order they were given.
+   */
+  List<Class<? extends Element>> getTypes() {
+    return types;
+  }
+}
@@ -10,7 +10,6 @@ import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.markdown.nodes.form.DatePickerNode;
 import org.symphonyoss.symphony.messageml.util.XMLAttribute;
 import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
-import org.symphonyoss.symphony.messageml.util.pojo.DateInterval;
 import org.w3c.dom.Node;
 
 import java.time.format.DateTimeFormatter;
@@ -128,7 +127,7 @@ public class DatePicker extends FormElement implements LabelableElement, Tooltip
         throw new InvalidInputException("Attribute \"%s\" contains an unsupported date format, only 'M', 'd' and 'y' are supported with a space or '.','-','/',':' as separator", FORMAT_ATTR);
       }
       try {
-        DateTimeFormatter.ofPattern(getAttribute(FORMAT_ATTR));
+        PickerAttributes.formatter(getAttribute(FORMAT_ATTR));
       } catch (IllegalArgumentException i) {
         throw new InvalidInputException("Attribute \"%s\" contains an invalid date format", FORMAT_ATTR);
       }
@@ -138,7 +137,7 @@ public class DatePicker extends FormElement implements LabelableElement, Tooltip
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out, MessageMLContext context) {
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
     Map<String, Object> presentationAttrs = buildDataPickerInputAttributes();
     if (isSplittable()) {
       // open div + adding splittable elements
@@ -150,6 +149,7 @@ public class DatePicker extends FormElement implements LabelableElement, Tooltip
     } else {
       innerAsPresentationML(out, presentationAttrs);
     }
+    return -1;
   }
 
   private void innerAsPresentationML(XmlPrintStream out, Map<String, Object> presentationAttrs) {
@@ -212,10 +212,8 @@ public class DatePicker extends FormElement implements LabelableElement, Tooltip
    */
   private XMLAttribute convertJsonDateToPresentationML(String attributeName) {
     try {
-      DateInterval[] dateIntervals = MAPPER.readValue(getAttribute(attributeName), DateInterval[].class);
-      String result = MAPPER.writeValueAsString(dateIntervals);
-      return XMLAttribute.of(result, XMLAttribute.Format.JSON);
-    } catch (JsonProcessingException e) {
+      return XMLAttribute.of(PickerAttributes.dateIntervals(getAttribute(attributeName)), XMLAttribute.Format.JSON);
+    } catch (JsonProcessingException | InvalidInputException e) {
       // this exception should never happens because this method is called after validation
       throw new IllegalArgumentException(e);
     }
@@ -236,10 +234,7 @@ public class DatePicker extends FormElement implements LabelableElement, Tooltip
                 DATE_RANGE_MAX_LENGTH));
       }
       try {
-        DateInterval[] dateIntervals = MAPPER.readValue(attributeValue, DateInterval[].class);
-        for(DateInterval dateInterval:dateIntervals){
-          dateInterval.assertIsValid();
-        }
+        PickerAttributes.dateIntervals(attributeValue);
       } catch (JsonProcessingException e) {
         throw new InvalidInputException(
             String.format("Error parsing json in attribute \"%s\": %s", attributeName,
@@ -11,7 +11,6 @@ import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
 import org.symphonyoss.symphony.messageml.markdown.nodes.form.DateSelectorNode;
 import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
 import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.NodeList;
 
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -42,15 +41,12 @@ public class DateSelector extends FormElement {
   }
 
   @Override
-  public void buildAll(MessageMLParser parser, org.w3c.dom.Element element) throws InvalidInputException, ProcessingException {
+  org.w3c.dom.Node buildAttributes(MessageMLParser parser, org.w3c.dom.Element element) throws InvalidInputException, ProcessingException {
     switch (getFormat()) {
       case MESSAGEML:
-        super.buildAll(parser, element);
-        break;
+        return super.buildAttributes(parser, element);
       case PRESENTATIONML:
-        buildElementFromDiv(parser, element);
-        this.validate();
-        break;
+        return buildElementFromDiv(parser, element);
       default:
         throw new InvalidInputException(String.format("Invalid message format for \"%s\" element", MESSAGEML_TAG));
     }
@@ -70,11 +66,11 @@ public class DateSelector extends FormElement {
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out,
-      MessageMLContext context) {
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
     Map<String, String> presentationAttrs = buildDateSelectorInputAttributes();
     out.openElement(PRESENTATIONML_TAG, presentationAttrs);
     out.closeElement();
+    return -1;
   }
 
   @Override
@@ -134,7 +130,7 @@ public class DateSelector extends FormElement {
     return presentationAttrs;
   }
 
-  void buildElementFromDiv(MessageMLParser parser, org.w3c.dom.Element element) throws InvalidInputException, ProcessingException {
+  org.w3c.dom.Node buildElementFromDiv(MessageMLParser parser, org.w3c.dom.Element element) throws InvalidInputException, ProcessingException {
 
     element.setAttribute(NAME_ATTR, element.getAttribute(PRESENTATIONML_NAME_ATTR));
     element.removeAttribute(PRESENTATIONML_NAME_ATTR);
@@ -155,11 +151,6 @@ public class DateSelector extends FormElement {
       buildAttribute(parser, attributes.item(i));
     }
 
-    NodeList children = element.getChildNodes();
-
-    for (int i = 0; i < children.getLength(); i++) {
-      buildNode(parser, children.item(i));
-    }
-
+    return element;
   }
 }
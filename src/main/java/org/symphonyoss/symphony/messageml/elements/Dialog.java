@@ -35,6 +35,9 @@ import java.util.Map;
 public class Dialog extends Element {
 
   public static final String MESSAGEML_TAG = "dialog";
+  private static final ContentModel FORM_CONTENT = ContentModel.of(Form.class);
+  private static final ContentModel DIALOG_CHILDREN =
+      ContentModel.of(DialogChild.Footer.class, DialogChild.Title.class, DialogChild.Body.class);
 
   public static final String STATE_ATTR = "state";
   public static final String CLOSE_STATE = "close";
@@ -93,12 +96,9 @@ public class Dialog extends Element {
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out, MessageMLContext context) {
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
     out.openElement(getPresentationMLTag(), getPresentationMLAttributes());
-    for (Element child : getChildren()) {
-      child.asPresentationML(out, context);
-    }
-    out.closeElement();
+    return 1;
   }
 
   @Override
@@ -136,7 +136,7 @@ public class Dialog extends Element {
   private void validateChildrenTypes() throws InvalidInputException {
     long formsCount = getChildren().stream().filter(element -> element instanceof Form).count();
     if (formsCount == 1) {
-      assertContentModel(singleton(Form.class),
+      assertContentModel(FORM_CONTENT,
           "A \"dialog\" element can't contain a \"form\" element and any other element.");
     } else if (formsCount > 1) {
       throw new InvalidInputException("A \"dialog\" element can contain only one \"form\" element");
@@ -144,7 +144,7 @@ public class Dialog extends Element {
       if (this.format == FormatEnum.MESSAGEML) {
         assertContainsAlwaysChildOfType(singleton(DialogChild.Title.class));
         assertContainsAlwaysChildOfType(singleton(DialogChild.Body.class));
-        assertContentModel(asList(DialogChild.Footer.class, DialogChild.Title.class, DialogChild.Body.class));
+        assertContentModel(DIALOG_CHILDREN);
       } else {
         assertContainsAlwaysChildMatching(
             e -> e.isPresentationMLElement("dialog-title") || e.isPresentationMLElement("dialog-body"),
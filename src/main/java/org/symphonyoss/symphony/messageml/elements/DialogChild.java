@@ -6,7 +6,6 @@ import org.symphonyoss.symphony.messageml.MessageMLContext;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
 
-import java.util.Collection;
 import java.util.Collections;
 
 /**
@@ -16,6 +15,8 @@ import java.util.Collections;
  */
 public abstract class DialogChild extends Element {
   public static final String DIALOG_CLASS_PREFIX = "dialog-";
+  private static final ContentModel FORM_PARENT = ContentModel.of(Form.class);
+  private static final ContentModel DIALOG_PARENT = ContentModel.of(Dialog.class);
 
 
   /**
@@ -59,7 +60,7 @@ public abstract class DialogChild extends Element {
 
   @Override
   public void validate() throws InvalidInputException {
-    Collection<Class<? extends Element>> list = getValidParentClasses();
+    ContentModel list = getValidParentClasses();
     assertNoAttributes();
     assertParent(list);
 
@@ -69,20 +70,17 @@ public abstract class DialogChild extends Element {
     }
   }
 
-  private Collection<Class<? extends Element>> getValidParentClasses() {
+  private ContentModel getValidParentClasses() {
     if (getParent() instanceof Form && getParent().getParent() instanceof Dialog) {
-      return Collections.singletonList(Form.class);
+      return FORM_PARENT;
     }
-    return Collections.singletonList(Dialog.class);
+    return DIALOG_PARENT;
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out, MessageMLContext context) {
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
     out.openElement(Div.MESSAGEML_TAG, Collections.singletonMap(CLASS_ATTR, DIALOG_CLASS_PREFIX + getMessageMLTag()));
-    for (Element child : getChildren()) {
-      child.asPresentationML(out, context);
-    }
-    out.closeElement();
+    return 1;
   }
 
   @Override
@@ -20,6 +20,7 @@ import static org.apache.commons.lang3.StringUtils.containsWhitespace;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
 import static org.symphonyoss.symphony.messageml.elements.UIAction.TARGET_ID;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.apache.commons.lang3.StringUtils;
@@ -32,6 +33,7 @@ import org.symphonyoss.symphony.messageml.bi.BiContext;
 import org.symphonyoss.symphony.messageml.bi.BiFields;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownSink;
 import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.NodeList;
@@ -43,10 +45,15 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -71,7 +78,7 @@ import java.util.stream.Collectors;
  * @author lukasz
  * @since 3/27/17
  */
-public abstract class Element {
+public abstract class Element implements Cloneable {
   private static final Logger logger = LoggerFactory.getLogger(Element.class);
   public static final String CLASS_ATTR = "class";
   public static final String STYLE_ATTR = "style";
@@ -79,21 +86,25 @@ public abstract class Element {
 
   public static final int ID_MAX_LENGTH = 64;
 
-  private static final List<Class<? extends Element>> PHRASING_TYPES =
-      Arrays.asList(TextNode.class, Link.class, Chime.class, Bold.class, Italic.class, Image.class,
+  private static final ContentModel PHRASING_TYPES =
+      ContentModel.of(TextNode.class, Link.class, Chime.class, Bold.class, Italic.class, Image.class,
           LineBreak.class, Span.class, Emoji.class, HashTag.class, CashTag.class, Mention.class,
           Subscript.class, Superscript.class);
 
-  private static final List<Class<? extends Element>> PHRASING_OR_PREFORMATTED_TYPES = new ArrayList<Class<? extends Element>>() {{
-    addAll(PHRASING_TYPES);
-    add(Preformatted.class);
-  }};
+  private static final ContentModel PHRASING_OR_PREFORMATTED_TYPES = PHRASING_TYPES.with(Preformatted.class);
+
+  private static final BitSet NO_KINDS = new BitSet();
 
   protected FormatEnum format;
-  private final Map<String, String> attributes = new LinkedHashMap<>();
-  private final List<Element> children = new ArrayList<>();
+  // allocated with the first attribute, text nodes have none
+  private Map<String, String> attributes;
+  private List<Element> children = new ArrayList<>();
   private final Element parent;
   private final String messageMLTag;
+  private final int kind;
+  private final BitSet ancestorKinds;
+  private BitSet childAncestorKinds;
+  private boolean validated;
 
   private static final Set<String> VALID_BOOLEAN_VALUES = new HashSet<>(Arrays.asList("true", "false"));
   public static final ObjectMapper MAPPER = new ObjectMapper();
@@ -110,6 +121,8 @@ public abstract class Element {
     this.messageMLTag = messageMLTag;
     this.parent = parent;
     this.format = format;
+    this.kind = ContentModel.kindOf(getClass());
+    this.ancestorKinds = (parent != null) ? parent.getChildAncestorKinds() : NO_KINDS;
   }
 
   /**
@@ -124,21 +137,92 @@ public abstract class Element {
   /**
    * Process a DOM element, descending into its children, and construct the output MessageML tree.
    */
-  public void buildAll(MessageMLParser parser, org.w3c.dom.Element element) throws InvalidInputException,
+  public final void buildAll(MessageMLParser parser, BuildHooks hooks, org.w3c.dom.Element element)
+      throws InvalidInputException, ProcessingException {
+    org.w3c.dom.Node content = buildAttributes(parser, element);
+    if (content != null) {
+      buildChildren(parser, hooks, content);
+    }
+
+    if (!MessageML.MESSAGEML_TAG.equals(getMessageMLTag())) {
+      updateBiContext(parser.getBiContext());
+    }
+  }
+
+  /**
+   * Validate the element at the root of a tree built by {@link #buildAll}, or only set its derived state if the tree is
+   * built from trusted PresentationML.
+   */
+  public final void validateRoot(BuildHooks hooks) throws InvalidInputException {
+    if (hooks.isTrustedInput()) {
+      assumeValid();
+    } else {
+      validate();
+    }
+  }
+
+  /**
+   * Build the attributes of the element from its DOM element. The children of the element are then built from the
+   * children of the returned node.
+   *
+   * @return the DOM node holding the children of the element, null if it has none to build
+   */
+  org.w3c.dom.Node buildAttributes(MessageMLParser parser, org.w3c.dom.Element element) throws InvalidInputException,
       ProcessingException {
     NamedNodeMap attr = element.getAttributes();
     for (int i = 0; i < attr.getLength(); i++) {
       buildAttribute(parser, attr.item(i));
     }
+    return element;
+  }
 
-    NodeList children = element.getChildNodes();
+  /**
+   * Build the descendants of the DOM node with an explicit stack, so that the depth of the tree does not grow the call
+   * stack.
+   */
+  private void buildChildren(MessageMLParser parser, BuildHooks hooks, org.w3c.dom.Node content)
+      throws InvalidInputException, ProcessingException {
+    Deque<BuildFrame> frames = new ArrayDeque<>();
+    frames.push(new BuildFrame(this, null, content.getFirstChild()));
+
+    while (!frames.isEmpty()) {
+      BuildFrame frame = frames.peek();
+      org.w3c.dom.Node node = frame.next;
+
+      if (node == null) {
+        frames.pop();
+        if (frame.owner != null && frame.owner != frame.element) {
+          // all children are built, finish the element as buildAll and buildElement do
+          if (!MessageML.MESSAGEML_TAG.equals(frame.element.getMessageMLTag())) {
+            frame.element.updateBiContext(parser.getBiContext());
+          }
+          frame.owner.addBuiltChild(parser, hooks, frame.element);
+        }
+        continue;
+      }
+      frame.next = node.getNextSibling();
 
-    for (int i = 0; i < children.getLength(); i++) {
-      buildNode(parser, children.item(i));
-    }
+      if (node.getNodeType() != org.w3c.dom.Node.ELEMENT_NODE) {
+        frame.element.buildNode(parser, node);
+        if (hooks.isPlaceholder(node.getNodeValue())) {
+          frame.element.children.get(frame.element.children.size() - 1).setPlaceholder();
+        }
+        continue;
+      }
 
-    if (!MessageML.MESSAGEML_TAG.equals(getMessageMLTag())) {
-      updateBiContext(parser.getBiContext());
+      org.w3c.dom.Element childElement = (org.w3c.dom.Element) node;
+      Element child = parser.createElement(childElement, frame.element);
+      if (child == null) {
+        if (childElement.getNodeName().equals(Div.MESSAGEML_TAG)) {
+          // children of a div which is not converted, like the div generated by a SplittableElement, are attached to
+          // the current element
+          frames.push(new BuildFrame(frame.element, frame.element, childElement.getFirstChild()));
+        }
+      } else {
+        hooks.enterElement(child);
+        org.w3c.dom.Node childContent = child.buildAttributes(parser, childElement);
+        frames.push(new BuildFrame(child, frame.element, (childContent != null) ? childContent.getFirstChild() : null));
+      }
     }
   }
 
@@ -234,12 +318,12 @@ public abstract class Element {
   void buildAttribute(MessageMLParser parser, org.w3c.dom.Node item) throws InvalidInputException {
     switch (item.getNodeName()) {
       case CLASS_ATTR:
-        attributes.put(CLASS_ATTR, getStringAttribute(item));
+        setAttribute(CLASS_ATTR, getStringAttribute(item));
         break;
       case STYLE_ATTR:
         final String styleAttribute = getStringAttribute(item);
         Styles.validate(styleAttribute);
-        attributes.put(STYLE_ATTR, styleAttribute);
+        setAttribute(STYLE_ATTR, styleAttribute);
         break;
       default:
         if ((this instanceof RegexElement && RegexElement.ALL_REGEX_ATTRS.contains(item.getNodeName()))
@@ -247,11 +331,11 @@ public abstract class Element {
             item.getNodeName()))
             || (format == FormatEnum.MESSAGEML && this instanceof SplittableElement
             && ((SplittableElement) this).isSplittableNodeComponent(item))) {
-          attributes.put(item.getNodeName(), getStringAttribute(item));
+          setAttribute(item.getNodeName(), getStringAttribute(item));
         } else if (format == FormatEnum.PRESENTATIONML
             && this instanceof SplittableElement
             && ID_ATTR.equals(item.getNodeName())) {
-          ((SplittableElement) this).fillAttributes(parser, item, attributes);
+          ((SplittableElement) this).fillAttributes(parser, item, getAttributes());
         } else {
           throwInvalidInputException(item);
         }
@@ -259,56 +343,37 @@ public abstract class Element {
   }
 
   /**
-   * Build a text node or a MessageML element based on the provided DOM node.
+   * Build a text node based on the provided DOM node, elements being built by {@link #buildChildren}.
    */
   protected void buildNode(MessageMLParser context, org.w3c.dom.Node node)
       throws InvalidInputException, ProcessingException {
-    switch (node.getNodeType()) {
-      case org.w3c.dom.Node.TEXT_NODE:
-        buildText((Text) node);
-        break;
-
-      case org.w3c.dom.Node.ELEMENT_NODE:
-        buildElement(context, (org.w3c.dom.Element) node);
-        break;
-
-      default:
-        throw new InvalidInputException("Invalid element \"" + node.getNodeName() + "\"");
-
+    if (node.getNodeType() == org.w3c.dom.Node.TEXT_NODE) {
+      buildText((Text) node);
+    } else {
+      throw new InvalidInputException("Invalid element \"" + node.getNodeName() + "\"");
     }
   }
 
   /**
-   * Build a MessageML element based on the provided DOM element and descend into its children.
+   * Validate a child element whose children are all built and add it to the element.
    */
-  private void buildElement(MessageMLParser context, org.w3c.dom.Element element) throws InvalidInputException,
-      ProcessingException {
-    Element child = context.createElement(element, this);
-    if (child != null) {
-      child.buildAll(context, element);
-      try {
-        child.validate();
-      } catch (InvalidInputException e) {
-        context.clearBiContext();
-        throw e;
-      }
-      if (child.hasIdAttribute()) {
-        context.loadElementId(child.getAttribute(ID_ATTR));
-      }
-
-      addChild(child);
-    } else if (element.getNodeName().equals(Div.MESSAGEML_TAG)) {
-      /*
-      When converting from PresentationML -> MessageML tree object some elements are not converted
-      like the div generated by SplittableElement (context.createElement(element, this) returns null).
-      However, children of this div must not be lost and they must be attached to the current element
-       */
-      org.w3c.dom.Node node = element.getFirstChild();
-      while (node != null) {
-        buildNode(context, node);
-        node = node.getNextSibling();
+  private void addBuiltChild(MessageMLParser context, BuildHooks hooks, Element child) throws InvalidInputException {
+    hooks.exitElement();
+    try {
+      if (hooks.isTrustedInput()) {
+        child.assumeValid();
+      } else {
+        child.validateOnce(hooks);
       }
+    } catch (InvalidInputException e) {
+      context.clearBiContext();
+      throw e;
+    }
+    if (child.hasIdAttribute()) {
+      context.loadElementId(child.getAttribute(ID_ATTR));
     }
+
+    addChild(child);
   }
 
   /**
@@ -318,24 +383,70 @@ public abstract class Element {
     addChild(new TextNode(this, text)); // do not escape here
   }
 
+  /**
+   * Mark a text as holding placeholders of a message being prepared, see {@link BuildHooks#isPlaceholder(String)}.
+   */
+  void setPlaceholder() {
+  }
+
   /**
    * Traverse the element and its children to construct its representation as a Markdown tree.
    */
   void buildMarkdown(Node parent) throws InvalidInputException {
-    for (Element child : this.children) {
+    Deque<TraversalFrame<Node>> frames = new ArrayDeque<>();
+    frames.push(new TraversalFrame<>(this.children, parent));
+
+    while (!frames.isEmpty()) {
+      TraversalFrame<Node> frame = frames.peek();
+      if (!frame.children.hasNext()) {
+        frames.pop();
+        continue;
+      }
+      Element child = frame.children.next();
       Node node = child.asMarkdown();
 
       if (node != null) {
         try {
-          parent.appendChild(node);
+          frame.value.appendChild(node);
         } catch (IllegalArgumentException ex) {
           // minor issue that appears while parsing Markdown, this fix does not impact Markdown generation
-          logger.trace("{} cannot be appended to {}", node, parent, ex);
+          logger.trace("{} cannot be appended to {}", node, frame.value, ex);
         }
       } else {
-        node = parent;
+        node = frame.value;
+      }
+      frames.push(new TraversalFrame<>(child.children, node));
+    }
+  }
+
+  /**
+   * Traverse the element and its children to send their Markdown nodes to the sink, in the order
+   * {@link #buildMarkdown(Node)} appends them. Children of nodes the sink does not open are built as a detached tree.
+   */
+  void buildMarkdown(MarkdownSink sink) throws InvalidInputException {
+    // the value of a frame is the node to close once its children are sent, if any
+    Deque<TraversalFrame<Node>> frames = new ArrayDeque<>();
+    frames.push(new TraversalFrame<>(this.children, null));
+
+    while (!frames.isEmpty()) {
+      TraversalFrame<Node> frame = frames.peek();
+      if (!frame.children.hasNext()) {
+        frames.pop();
+        if (frame.value != null) {
+          sink.close(frame.value);
+        }
+        continue;
+      }
+      Element child = frame.children.next();
+      Node node = child.asMarkdown();
+
+      if (node == null) {
+        frames.push(new TraversalFrame<>(child.children, null));
+      } else if (sink.open(node)) {
+        frames.push(new TraversalFrame<>(child.children, node));
+      } else {
+        child.buildMarkdown(node);
       }
-      child.buildMarkdown(node);
     }
   }
 
@@ -343,15 +454,71 @@ public abstract class Element {
    * Traverse the element and its children to construct its representation as EntityJSON nodes.
    */
   void buildEntityJson(ObjectNode parent) {
-    for (Element child : this.children) {
-      ObjectNode node = child.asEntityJson(parent);
+    Deque<TraversalFrame<ObjectNode>> frames = new ArrayDeque<>();
+    frames.push(new TraversalFrame<>(this.children, parent));
+
+    while (!frames.isEmpty()) {
+      TraversalFrame<ObjectNode> frame = frames.peek();
+      if (!frame.children.hasNext()) {
+        frames.pop();
+        continue;
+      }
+      Element child = frame.children.next();
+      ObjectNode node = child.asEntityJson(frame.value);
+      frames.push(new TraversalFrame<>(child.children, (node != null) ? node : frame.value));
+    }
+  }
 
-      if (node != null) {
-        child.buildEntityJson(node);
-      } else {
-        child.buildEntityJson(parent);
+  /**
+   * Traverse the element and its children as {@link #buildEntityJson(ObjectNode)} does, without building any node:
+   * collect the entities whose nodes would be added to the root of the EntityJSON.
+   *
+   * @return the entities by id in the order their nodes would be added, null if nodes would instead be added to or
+   * modified below the root, or if the EntityJSON does not hold the entities the elements refer to
+   */
+  Map<String, Entity> collectEntityJson(ObjectNode root) {
+    Map<String, Entity> entities = new LinkedHashMap<>();
+    // the value of a frame is the node the children are added to, null for the node of a collected entity
+    Deque<TraversalFrame<JsonNode>> frames = new ArrayDeque<>();
+    frames.push(new TraversalFrame<>(this.children, root));
+
+    while (!frames.isEmpty()) {
+      TraversalFrame<JsonNode> frame = frames.peek();
+      if (!frame.children.hasNext()) {
+        frames.pop();
+        continue;
+      }
+      Element child = frame.children.next();
+      JsonNode parent = frame.value;
+      JsonNode node = parent;
+
+      if (child instanceof Entity && ((Entity) child).hasEntityJson()) {
+        Entity entity = (Entity) child;
+        if (parent == null) {
+          return null;
+        }
+        node = parent.path(entity.entityId);
+        if (node.isMissingNode()) {
+          if (parent != root || (entities.containsKey(entity.entityId) && entity.updatesEntityJson())) {
+            return null;
+          }
+          entities.putIfAbsent(entity.entityId, entity);
+          node = null;
+        } else if (!node.isObject() || entity.updatesEntityJson()) {
+          return null;
+        }
+      } else if ((child instanceof Div || child instanceof Span) && child.getAttribute(Entity.ENTITY_ID_ATTR) != null) {
+        if (parent == null) {
+          return null;
+        }
+        node = parent.path(child.getAttribute(Entity.ENTITY_ID_ATTR));
+        if (!node.isObject()) {
+          return null;
+        }
       }
+      frames.push(new TraversalFrame<>(child.children, node));
     }
+    return entities;
   }
 
   /**
@@ -362,9 +529,47 @@ public abstract class Element {
   }
 
   /**
-   * Print a PresentationML representation of the element and its children to the provided PrintStream.
+   * Print a PresentationML representation of the element and its children to the provided PrintStream. Descendants
+   * are printed with an explicit stack, each element printing its start with
+   * {@link #openPresentationML(XmlPrintStream, MessageMLContext)}.
    */
   void asPresentationML(XmlPrintStream out, MessageMLContext context) {
+    Deque<OutputFrame> frames = new ArrayDeque<>();
+    boolean removeNl = out.isRemoveNl();
+    int closings = openPresentationML(out, context);
+    if (closings >= 0) {
+      frames.push(new OutputFrame(this, closings, removeNl, false, null, null));
+    } else {
+      out.setRemoveNl(removeNl);
+    }
+
+    while (!frames.isEmpty()) {
+      OutputFrame frame = frames.peek();
+      if (!frame.children.hasNext()) {
+        frames.pop();
+        frame.closePresentationML(out);
+        continue;
+      }
+      Element child = frame.children.next();
+      removeNl = out.isRemoveNl();
+      closings = child.openPresentationML(out, context);
+      if (closings >= 0) {
+        frames.push(new OutputFrame(child, closings, removeNl, false, null, null));
+      } else {
+        out.setRemoveNl(removeNl);
+      }
+    }
+  }
+
+  /**
+   * Print the start of the PresentationML representation of the element, its children are then printed before the
+   * end of the element. The stream is restored once the children are printed, an element can change how the text of
+   * its descendants is printed.
+   *
+   * @return the number of elements to close once the children are printed, -1 if the element is printed with its
+   * children, if any
+   */
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
     Map<String, String> attributes = new LinkedHashMap<>();
 
     if (this instanceof RegexElement) {
@@ -372,33 +577,92 @@ public abstract class Element {
       attributes.putAll(regexElement.getOtherAttributes());
       attributes.putAll(regexElement.getRegexAttrForPresentationML());
     } else {
-      attributes.putAll(getAttributes());
+      attributes.putAll(readAttributes());
     }
 
+    int closings = 0;
     if (this instanceof SplittableElement && ((SplittableElement) this).isSplittable()) {
       ((SplittableElement) this).splittableRemove().forEach(attributes::remove);
       // open div + adding splittable elements
       String uid = ((SplittableElement) this).splittableAsPresentationML(out, context);
       attributes.put("id", uid);
-      // render element
-      innerAsPresentationML(out, context, attributes);
-      // close div
-      out.closeElement();
-    } else {
-      innerAsPresentationML(out, context, attributes);
+      // the div is closed after the element
+      closings++;
     }
-  }
 
-  private void innerAsPresentationML(XmlPrintStream out,
-      MessageMLContext context, Map<String, String> attributes) {
     if (areNestedElementsAllowed()) {
       out.openElement(getPresentationMLTag(), attributes);
-      for (Element child : getChildren()) {
-        child.asPresentationML(out, context);
-      }
+      return closings + 1;
+    }
+    out.printElement(getPresentationMLTag(), attributes);
+    for (int i = 0; i < closings; i++) {
       out.closeElement();
-    } else {
-      out.printElement(getPresentationMLTag(), attributes);
+    }
+    return -1;
+  }
+
+  /**
+   * Traverse the children of the element once to print their PresentationML, send their Markdown nodes to the sink
+   * and construct their EntityJSON nodes, each output being the same as the one of {@link #asPresentationML},
+   * {@link #buildMarkdown(MarkdownSink)} and {@link #buildEntityJson(ObjectNode)}. The start of the element itself is
+   * printed by the caller.
+   *
+   * @param out stream the children are printed to, null to skip PresentationML
+   * @param closings number of elements to close once the children are printed
+   * @param sink sink the Markdown nodes are sent to, null to skip Markdown
+   * @param entityJson parent of the EntityJSON nodes, null to skip EntityJSON
+   */
+  void buildOutputs(XmlPrintStream out, MessageMLContext context, int closings, MarkdownSink sink,
+      ObjectNode entityJson) throws InvalidInputException {
+    Deque<OutputFrame> frames = new ArrayDeque<>();
+    frames.push(new OutputFrame(this, (out != null) ? closings : -1, out != null && out.isRemoveNl(), sink != null,
+        null, entityJson));
+
+    while (!frames.isEmpty()) {
+      OutputFrame frame = frames.peek();
+      if (!frame.children.hasNext()) {
+        frames.pop();
+        frame.closePresentationML(out);
+        if (frame.markdownNode != null) {
+          sink.close(frame.markdownNode);
+        }
+        continue;
+      }
+      Element child = frame.children.next();
+
+      int childClosings = -1;
+      boolean removeNl = false;
+      if (frame.closings >= 0) {
+        removeNl = out.isRemoveNl();
+        childClosings = child.openPresentationML(out, context);
+        if (childClosings < 0) {
+          out.setRemoveNl(removeNl);
+        }
+      }
+
+      boolean markdown = false;
+      Node node = null;
+      if (frame.markdown) {
+        node = child.asMarkdown();
+        if (node == null || sink.open(node)) {
+          markdown = true;
+        } else {
+          child.buildMarkdown(node);
+          node = null;
+        }
+      }
+
+      ObjectNode json = null;
+      if (frame.entityJson != null) {
+        json = child.asEntityJson(frame.entityJson);
+        if (json == null) {
+          json = frame.entityJson;
+        }
+      }
+
+      if (childClosings >= 0 || markdown || json != null) {
+        frames.push(new OutputFrame(child, childClosings, removeNl, markdown, node, json));
+      }
     }
   }
 
@@ -406,15 +670,46 @@ public abstract class Element {
    * Return a text representation of the element, descending into its children.
    */
   public String asText() {
-    StringBuilder b = new StringBuilder();
+    String text = asOwnText();
+    return (text != null) ? text : asChildrenText();
+  }
 
-    for (Element child : children) {
-      b.append(child.asText());
+  /**
+   * Return the text representation of the children of the element.
+   */
+  String asChildrenText() {
+    String text;
+    StringBuilder b = new StringBuilder();
+    Deque<Iterator<Element>> frames = new ArrayDeque<>();
+    frames.push(children.iterator());
+
+    while (!frames.isEmpty()) {
+      Iterator<Element> frame = frames.peek();
+      if (!frame.hasNext()) {
+        frames.pop();
+        continue;
+      }
+      Element child = frame.next();
+      text = child.asOwnText();
+      if (text != null) {
+        b.append(text);
+      } else {
+        frames.push(child.children.iterator());
+      }
     }
 
     return b.toString();
   }
 
+  /**
+   * Return the text representation of the element when it does not descend into its children.
+   *
+   * @return the text of the element, null if it is the text of its children
+   */
+  String asOwnText() {
+    return null;
+  }
+
   /**
    * This method applies a breadth-first traversal of a tree of elements counting the number of elements found which
    * belong to the class type passed as input
@@ -477,6 +772,58 @@ public abstract class Element {
     }
   }
 
+  /**
+   * Check a copy of the element as the element is checked while the tree is built, with some of its attributes set to
+   * the given values and some of its text children replaced, e.g. with the values bound to the placeholders of a
+   * prepared message. The element itself is left unchanged.
+   *
+   * @param attributes the values of the attributes to set, by name
+   * @param texts      the texts replacing the text children, by index of the child
+   */
+  public void validateCopy(Map<String, String> attributes, Map<Integer, String> texts) throws InvalidInputException {
+    Element copy = detachedCopy();
+    attributes.forEach(copy::setAttribute);
+    texts.forEach((index, text) -> copy.children.set(index, new TextNode(copy, text)));
+    copy.validate();
+  }
+
+  /**
+   * Return a copy of the element sharing its children, whose attributes and list of children can be changed without
+   * changing the element.
+   */
+  private Element detachedCopy() {
+    try {
+      Element copy = (Element) super.clone();
+      copy.attributes = (attributes != null) ? new LinkedHashMap<>(attributes) : null;
+      copy.children = new ArrayList<>(children);
+      return copy;
+    } catch (CloneNotSupportedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Validate the element, unless it already was. This is the only place elements are validated while the tree is
+   * built: once all their children are built and validated, before they are added to their parent.
+   */
+  final void validateOnce(BuildHooks hooks) throws InvalidInputException {
+    if (!validated) {
+      validate();
+      if (this instanceof RegexElement) {
+        hooks.checkPattern(getAttribute(RegexElement.PATTERN_ATTR));
+      }
+      validated = true;
+      hooks.onValidated(this);
+    }
+  }
+
+  /**
+   * Set the state {@link #validate()} derives from the element, without checking it, when the element is built from
+   * trusted PresentationML.
+   */
+  void assumeValid() throws InvalidInputException {
+  }
+
   /**
    * Get a DOM attribute as a String value.
    */
@@ -684,8 +1031,7 @@ public abstract class Element {
   /**
    * Check that the element's children are limited to allowed element types returning a specific message given in input.
    */
-  void assertContentModel(Collection<Class<? extends Element>> permittedChildren, String message)
-      throws InvalidInputException {
+  void assertContentModel(ContentModel permittedChildren, String message) throws InvalidInputException {
     try {
       assertContentModel(permittedChildren);
     } catch (InvalidInputException e) {
@@ -696,9 +1042,9 @@ public abstract class Element {
   /**
    * Check that the element's children are limited to allowed element types.
    */
-  void assertContentModel(Collection<Class<? extends Element>> permittedChildren) throws InvalidInputException {
+  void assertContentModel(ContentModel permittedChildren) throws InvalidInputException {
     for (Element child : this.getChildren()) {
-      if (!permittedChildren.contains(child.getClass())) {
+      if (!permittedChildren.contains(child)) {
 
         //Permit whitespace
         if (child instanceof TextNode && StringUtils.isBlank(((TextNode) child).getText())) {
@@ -731,9 +1077,9 @@ public abstract class Element {
   /**
    * Check that the element's allowed parents are limited to the specified element types.
    */
-  void assertParent(Collection<Class<? extends Element>> permittedParents) throws InvalidInputException {
-    if (!permittedParents.contains(this.getParent().getClass())) {
-      String permittedParentsClassAsString = permittedParents.stream()
+  void assertParent(ContentModel permittedParents) throws InvalidInputException {
+    if (!permittedParents.contains(this.getParent())) {
+      String permittedParentsClassAsString = permittedParents.getTypes().stream()
           .map(permittedParentClass -> permittedParentClass.getSimpleName().toLowerCase())
           .reduce((item, anotherItem) -> String.format("%s, %s", item, anotherItem))
           .orElse("");
@@ -746,11 +1092,9 @@ public abstract class Element {
   /**
    * Check in above levels if an element has a permitted parent.
    */
-  void assertParentAtAnyLevel(Collection<Class<? extends Element>> permittedParents) throws InvalidInputException {
-    Boolean permittedParentFound = hasParentAtAnyLevel(permittedParents);
-
-    if (!permittedParentFound) {
-      String permittedParentsClassAsString = permittedParents.stream()
+  void assertParentAtAnyLevel(ContentModel permittedParents) throws InvalidInputException {
+    if (!permittedParents.intersects(ancestorKinds)) {
+      String permittedParentsClassAsString = permittedParents.getTypes().stream()
           .map(permittedParentClass -> permittedParentClass.getSimpleName().toLowerCase())
           .reduce((item, anotherItem) -> String.format("%s, %s", item, anotherItem))
           .orElse("");
@@ -763,11 +1107,9 @@ public abstract class Element {
   /**
    * Check in above levels if an element has a forbidden parent.
    */
-  void assertNotParentAtAnyLevel(Collection<Class<? extends Element>> forbiddenParents) throws InvalidInputException {
-    Boolean forbiddenParentFound = hasParentAtAnyLevel(forbiddenParents);
-
-    if (forbiddenParentFound) {
-      String forbiddenParentsClassAsString = forbiddenParents.stream()
+  void assertNotParentAtAnyLevel(ContentModel forbiddenParents) throws InvalidInputException {
+    if (forbiddenParents.intersects(ancestorKinds)) {
+      String forbiddenParentsClassAsString = forbiddenParents.getTypes().stream()
           .map(forbiddenParentClass -> forbiddenParentClass.getSimpleName().toLowerCase())
           .reduce((item, anotherItem) -> String.format("%s, %s", item, anotherItem))
           .orElse("");
@@ -909,21 +1251,31 @@ public abstract class Element {
    * Return a map of the element's attributes.
    */
   public Map<String, String> getAttributes() {
+    if (attributes == null) {
+      attributes = new LinkedHashMap<>();
+    }
     return attributes;
   }
 
+  /**
+   * Return the element's attributes for reading, without allocating a map for an element which has none.
+   */
+  Map<String, String> readAttributes() {
+    return (attributes != null) ? attributes : Collections.emptyMap();
+  }
+
   /**
    * Return the value of the element's attribute "attr".
    */
   public String getAttribute(String attr) {
-    return attributes.get(attr);
+    return (attributes != null) ? attributes.get(attr) : null;
   }
 
   /**
    * Set the element's attribute "attr" to the given value.
    */
   void setAttribute(String attr, String value) {
-    attributes.put(attr, value);
+    getAttributes().put(attr, value);
   }
 
   /**
@@ -954,6 +1306,36 @@ public abstract class Element {
     return children.size();
   }
 
+  /**
+   * The number of the element type, see {@link ContentModel}.
+   */
+  int getKind() {
+    return kind;
+  }
+
+  /**
+   * The kinds of all the ancestors of the element, set when the element is created so that checking them does not walk
+   * up the tree.
+   */
+  BitSet getAncestorKinds() {
+    return ancestorKinds;
+  }
+
+  /**
+   * The ancestor kinds of the children of the element, shared by all of them.
+   */
+  private BitSet getChildAncestorKinds() {
+    if (childAncestorKinds == null) {
+      if (ancestorKinds.get(kind)) {
+        childAncestorKinds = ancestorKinds;
+      } else {
+        childAncestorKinds = (BitSet) ancestorKinds.clone();
+        childAncestorKinds.set(kind);
+      }
+    }
+    return childAncestorKinds;
+  }
+
   /**
    * Return the parent of the element.
    */
@@ -1046,26 +1428,6 @@ public abstract class Element {
     return element.equals(TextNode.class) ? "text content" : element.getSimpleName().toLowerCase();
   }
 
-  /**
-   * Check if the element has one of informed element types as a parent at any level.
-   *
-   * @param possibleParents list of allowed parents
-   * @return true if contains; false otherwise.
-   */
-  private Boolean hasParentAtAnyLevel(Collection<Class<? extends Element>> possibleParents) {
-    Element element = this;
-    boolean parentFound = false;
-
-    while (!parentFound && element.getParent() != null) {
-      if (possibleParents.contains(element.getParent().getClass())) {
-        parentFound = true;
-      } else {
-        element = element.getParent();
-      }
-    }
-    return parentFound;
-  }
-
   protected void throwInvalidInputException(org.w3c.dom.Node item) throws InvalidInputException {
     throw new InvalidInputException("Attribute \"" + item.getNodeName()
         + "\" is not allowed in \"" + getMessageMLTag() + "\"");
@@ -1086,4 +1448,74 @@ public abstract class Element {
     }
     return value;
   }
+
+  /**
+   * A DOM element whose children are being built into a MessageML element.
+   */
+  private static final class BuildFrame {
+    private final Element element;
+    /** Element the built element is added to, the element itself for the children of an unconverted div. */
+    private final Element owner;
+    private org.w3c.dom.Node next;
+
+    private BuildFrame(Element element, Element owner, org.w3c.dom.Node next) {
+      this.element = element;
+      this.owner = owner;
+      this.next = next;
+    }
+  }
+
+  /**
+   * A frame of {@link #buildOutputs} and {@link #asPresentationML}, with the state of each output for the children of
+   * an element.
+   */
+  private static final class OutputFrame {
+    private final Iterator<Element> children;
+    /** Number of elements to close once the children are printed, -1 if they are not printed. */
+    private final int closings;
+    /** Whether the stream removed new lines before the element was opened. */
+    private final boolean removeNl;
+    /** Whether the children are sent to the Markdown sink. */
+    private final boolean markdown;
+    /** Markdown node to close once the children are sent, if any. */
+    private final Node markdownNode;
+    /** Parent of the EntityJSON nodes of the children, null if they are not built. */
+    private final ObjectNode entityJson;
+
+    private OutputFrame(Element element, int closings, boolean removeNl, boolean markdown, Node markdownNode,
+        ObjectNode entityJson) {
+      this.children = element.children.iterator();
+      this.closings = closings;
+      this.removeNl = removeNl;
+      this.markdown = markdown;
+      this.markdownNode = markdownNode;
+      this.entityJson = entityJson;
+    }
+
+    /**
+     * Close the elements left open once the children are printed, and restore the stream.
+     */
+    private void closePresentationML(XmlPrintStream out) {
+      if (closings < 0) {
+        return;
+      }
+      for (int i = 0; i < closings; i++) {
+        out.closeElement();
+      }
+      out.setRemoveNl(removeNl);
+    }
+  }
+
+  /**
+   * The remaining children of an element being traversed, with the value the traversal keeps for the element.
+   */
+  private static final class TraversalFrame<T> {
+    private final Iterator<Element> children;
+    private final T value;
+
+    private TraversalFrame(List<Element> children, T value) {
+      this.children = children.iterator();
+      this.value = value;
+    }
+  }
 }
@@ -1,8 +1,6 @@
 package org.symphonyoss.symphony.messageml.elements;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.JsonNodeFactory;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.JsonGenerator;
 import org.symphonyoss.symphony.messageml.MessageMLContext;
 import org.symphonyoss.symphony.messageml.MessageMLParser;
 import org.symphonyoss.symphony.messageml.bi.BiContext;
@@ -14,6 +12,7 @@ import org.symphonyoss.symphony.messageml.util.EmojiShortcodeToUnicode;
 import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
 import org.w3c.dom.Node;
 
+import java.io.IOException;
 import java.util.Collections;
 
 
@@ -81,19 +80,15 @@ public class Emoji extends Entity {
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out,
-      MessageMLContext context) {
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
     out.openElement(presentationMLTag, CLASS_ATTR, Entity.PRESENTATIONML_CLASS, ENTITY_ID_ATTR, entityId);
 
     if (this.getChildren().isEmpty()) {
       out.append(asDefaultRepresentation());
-    } else {
-      for (Element child : getChildren()) {
-        child.asPresentationML(out, context);
-      }
+      out.closeElement();
+      return -1;
     }
-
-    out.closeElement();
+    return 1;
   }
 
   @Override
@@ -102,53 +97,29 @@ public class Emoji extends Entity {
   }
 
   @Override
-  public String asText() {
-    StringBuilder b = new StringBuilder();
-
-    if (this.getChildren().isEmpty()) {
-      b.append(asDefaultRepresentation());
-    } else {
-      for (Element child : this.getChildren()) {
-        b.append(child.asText());
-      }
-    }
-
-    return b.toString();
+  String asOwnText() {
+    return this.getChildren().isEmpty() ? asDefaultRepresentation() : null;
   }
 
   @Override
-  public ObjectNode asEntityJson(ObjectNode parent) {
-    JsonNode entityNode = parent.path(entityId);
-
-    if (entityNode.isMissingNode()) {
-      ObjectNode node = new ObjectNode(JsonNodeFactory.instance);
-      node.put(TYPE_FIELD, getEntityType());
-      node.put(VERSION_FIELD, getEntityVersion());
-
-      ObjectNode idNode = new ObjectNode(JsonNodeFactory.instance);
-      idNode.put(ATTR_SHORTCODE, getShortCode());
-      idNode.put(ATTR_ANNOTATION, getAnnotation());
-      idNode.put(ATTR_SIZE, getSize());
-
-      if (EmojiShortcodeToUnicode.hasUnicodeRepresentation(shortcode)) {
-        idNode.put(UNICODE_FIELD, EmojiShortcodeToUnicode.getUnicode(shortcode));
-      }
-
-      if (getFamily() != null) {
-        idNode.put(ATTR_FAMILY, getFamily());
-      }
-
-      node.set(DATA_FIELD, idNode);
-
-
-
-      parent.set(entityId, node);
-      return node;
-    } else {
-      //For preexisting data-entity-id the node type has already been validated by MessageMLParser
-      return (ObjectNode) entityNode;
+  void writeEntityJson(JsonGenerator generator) throws IOException {
+    generator.writeStartObject();
+    generator.writeStringField(TYPE_FIELD, getEntityType());
+    generator.writeStringField(VERSION_FIELD, getEntityVersion());
+
+    generator.writeObjectFieldStart(DATA_FIELD);
+    generator.writeStringField(ATTR_SHORTCODE, getShortCode());
+    generator.writeStringField(ATTR_ANNOTATION, getAnnotation());
+    generator.writeStringField(ATTR_SIZE, getSize());
+    if (EmojiShortcodeToUnicode.hasUnicodeRepresentation(shortcode)) {
+      generator.writeStringField(UNICODE_FIELD, EmojiShortcodeToUnicode.getUnicode(shortcode));
+    }
+    if (getFamily() != null) {
+      generator.writeStringField(ATTR_FAMILY, getFamily());
     }
+    generator.writeEndObject();
 
+    generator.writeEndObject();
   }
 
   @Override
@@ -16,14 +16,16 @@
 
 package org.symphonyoss.symphony.messageml.elements;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import org.symphonyoss.symphony.messageml.MessageMLParser;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.w3c.dom.Node;
 
+import java.io.IOException;
+
 /**
  * @author lukasz
  * @since 4/19/17
@@ -67,18 +69,7 @@ public abstract class Entity extends Element {
 
     //Generate JSON only if we don't have a corresponding entity in EntityJson
     if (entityNode.isMissingNode()) {
-      ObjectNode node = new ObjectNode(JsonNodeFactory.instance);
-      node.put(TYPE_FIELD, getEntityType());
-      node.put(VERSION_FIELD, getEntityVersion());
-
-      ArrayNode idArray = new ArrayNode(JsonNodeFactory.instance);
-      ObjectNode idNode = new ObjectNode(JsonNodeFactory.instance);
-      idNode.put(TYPE_FIELD, getEntitySubType());
-      idNode.put(VALUE_FIELD, getEntityValue());
-
-      idArray.add(idNode);
-      node.set(ID_FIELD, idArray);
-
+      ObjectNode node = (ObjectNode) buildJson(this::writeEntityJson);
       parent.set(entityId, node);
       return node;
     } else {
@@ -88,6 +79,62 @@ public abstract class Entity extends Element {
 
   }
 
+  /**
+   * Whether the entity has an EntityJSON node, see {@link #asEntityJson(ObjectNode)}.
+   */
+  boolean hasEntityJson() {
+    return true;
+  }
+
+  /**
+   * Whether {@link #asEntityJson(ObjectNode)} modifies the node of the entity when it is already in the EntityJSON.
+   */
+  boolean updatesEntityJson() {
+    return false;
+  }
+
+  /**
+   * Write the node of the entity when it is not already in the EntityJSON. This is the only description of the node:
+   * {@link #asEntityJson(ObjectNode)} builds it from what is written.
+   */
+  void writeEntityJson(JsonGenerator generator) throws IOException {
+    generator.writeStartObject();
+    generator.writeStringField(TYPE_FIELD, getEntityType());
+    generator.writeStringField(VERSION_FIELD, getEntityVersion());
+    generator.writeArrayFieldStart(ID_FIELD);
+    writeIds(generator);
+    generator.writeEndArray();
+    generator.writeEndObject();
+  }
+
+  /**
+   * Write the elements of the id array of the node of the entity.
+   */
+  void writeIds(JsonGenerator generator) throws IOException {
+    writeId(generator, getEntitySubType(), getEntityValue());
+  }
+
+  static void writeId(JsonGenerator generator, String type, String value) throws IOException {
+    generator.writeStartObject();
+    generator.writeStringField(TYPE_FIELD, type);
+    generator.writeStringField(VALUE_FIELD, value);
+    generator.writeEndObject();
+  }
+
+  /**
+   * Build the JSON node written by the writer.
+   */
+  static JsonNode buildJson(JsonWriter writer) {
+    TokenBuffer buffer = new TokenBuffer(MAPPER, false);
+    try {
+      writer.write(buffer);
+      return MAPPER.readTree(buffer.asParser());
+    } catch (IOException e) {
+      // the tokens are buffered in memory
+      throw new IllegalStateException("Failed to build EntityJSON", e);
+    }
+  }
+
   @Override
   public void validate() throws InvalidInputException {
     if (this.format == FormatEnum.PRESENTATIONML && this.entityId == null) {
@@ -113,4 +160,9 @@ public abstract class Entity extends Element {
   protected abstract String getEntityType();
 
   protected abstract String getEntityIdPrefix();
+
+  @FunctionalInterface
+  interface JsonWriter {
+    void write(JsonGenerator generator) throws IOException;
+  }
 }
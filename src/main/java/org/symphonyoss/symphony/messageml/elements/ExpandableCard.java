@@ -65,8 +65,7 @@ public class ExpandableCard extends Element {
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out,
-      MessageMLContext context) {
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
     Map<String, String> presentationAttrs = new LinkedHashMap<>();
     if (getAttribute(CLASS_ATTR) != null) {
       presentationAttrs.put(CLASS_ATTR, String.format("%s %s", PRESENTATIONML_CLASS, getAttribute(CLASS_ATTR)));
@@ -78,12 +77,7 @@ public class ExpandableCard extends Element {
     }
 
     out.openElement(PRESENTATIONML_TAG, presentationAttrs);
-
-    for (Element child : getChildren()) {
-      child.asPresentationML(out, context);
-    }
-
-    out.closeElement();
+    return 1;
   }
 
   @Override
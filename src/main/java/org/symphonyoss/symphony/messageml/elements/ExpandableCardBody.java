@@ -24,7 +24,6 @@ import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
 
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -38,6 +37,7 @@ import java.util.Map;
 public class ExpandableCardBody extends Element {
 
   public static final String MESSAGEML_TAG = "body";
+  private static final ContentModel PARENTS = ContentModel.of(ExpandableCard.class);
   public static final String PRESENTATIONML_CLASS = "expandableCardBody";
   public static final String PRESENTATIONML_VARIANT_ATTR = "data-variant";
   private static final String PRESENTATIONML_TAG = "div";
@@ -61,20 +61,14 @@ public class ExpandableCardBody extends Element {
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out,
-      MessageMLContext context) {
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
     Map<String, String> presentationAttrs = new LinkedHashMap<>();
     presentationAttrs.put(CLASS_ATTR, PRESENTATIONML_CLASS);
     if (getAttribute(ATTR_VARIANT) != null) {
       presentationAttrs.put(PRESENTATIONML_VARIANT_ATTR, getAttribute(ATTR_VARIANT));
     }
     out.openElement(PRESENTATIONML_TAG, presentationAttrs);
-
-    for (Element child : getChildren()) {
-      child.asPresentationML(out, context);
-    }
-
-    out.closeElement();
+    return 1;
   }
 
   @Override
@@ -86,7 +80,7 @@ public class ExpandableCardBody extends Element {
   void validate() throws InvalidInputException {
     super.validate();
 
-    assertParent(Collections.singleton(ExpandableCard.class));
+    assertParent(PARENTS);
     if(getAttribute(ATTR_VARIANT) != null){
       assertAttributeValue(ATTR_VARIANT, allowedVariants);
     }
@@ -15,7 +15,6 @@ import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
 import org.w3c.dom.Node;
 
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -29,6 +28,9 @@ import java.util.Map;
  */
 public class Form extends Element {
   public static final String MESSAGEML_TAG = "form";
+  private static final ContentModel FORBIDDEN_ANCESTORS = ContentModel.of(Form.class);
+  private static final ContentModel DIALOG_CHILDREN =
+      ContentModel.of(DialogChild.Footer.class, DialogChild.Title.class, DialogChild.Body.class);
 
   private static final String ID_ATTR = "id";
   private static final String MULTI_SUBMIT = "multi-submit";
@@ -50,7 +52,7 @@ public class Form extends Element {
   @Override
   public void validate() throws InvalidInputException {
     super.validate();
-    assertNotParentAtAnyLevel(Collections.singletonList(this.getClass()));
+    assertNotParentAtAnyLevel(FORBIDDEN_ANCESTORS);
     assertChildrenNotExceedingMaxCount(Arrays.asList(Checkbox.class, Radio.class), MAX_COUNT_PER_CHILD_TYPE);
 
     assertAttributeNotBlank(ID_ATTR);
@@ -58,7 +60,7 @@ public class Form extends Element {
       assertAtLeastOneActionButton();
     } else {
       if (format == FormatEnum.MESSAGEML) {
-        assertContentModel(Arrays.asList(DialogChild.Footer.class, DialogChild.Title.class, DialogChild.Body.class));
+        assertContentModel(DIALOG_CHILDREN);
       } else {
         assertContentModel(
             e -> e.isPresentationMLElement("dialog-title") || e.isPresentationMLElement("dialog-body") || e.isPresentationMLElement("dialog-footer"),
@@ -107,7 +109,7 @@ public class Form extends Element {
   }
 
   @Override
-  void asPresentationML(XmlPrintStream out, MessageMLContext context) {
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
     Map<String, String> presentationAttrs = new LinkedHashMap<>();
     if (getAttribute(ID_ATTR) != null) {
       presentationAttrs.put(ID_ATTR, getAttribute(ID_ATTR));
@@ -116,9 +118,6 @@ public class Form extends Element {
       presentationAttrs.put(PRESENTATIONML_MULTI_SUBMIT, getAttribute(MULTI_SUBMIT));
     }
     out.openElement(getPresentationMLTag(), presentationAttrs);
-    for (Element child : getChildren()) {
-      child.asPresentationML(out, context);
-    }
-    out.closeElement();
+    return 1;
   }
 }
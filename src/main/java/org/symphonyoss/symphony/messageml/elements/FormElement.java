@@ -2,14 +2,14 @@ package org.symphonyoss.symphony.messageml.elements;
 
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 
-import java.util.Collections;
-
 public class FormElement extends Element {
   public static final String INPUT_TAG = "input";
   public static final String TYPE_ATTR = "type";
 
   protected static final String NAME_ATTR = "name";
 
+  private static final ContentModel ANCESTORS = ContentModel.of(Form.class);
+
   public FormElement(Element parent, String messageMLTag) {
     super(parent, messageMLTag);
   }
@@ -21,6 +21,6 @@ public class FormElement extends Element {
   @Override
   public void validate() throws InvalidInputException {
     super.validate();
-    assertParentAtAnyLevel(Collections.singleton(Form.class));
+    assertParentAtAnyLevel(ANCESTORS);
   }
 }
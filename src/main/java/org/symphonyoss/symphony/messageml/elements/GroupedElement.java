@@ -39,33 +39,31 @@ public abstract class GroupedElement extends FormElement {
   }
 
   @Override
-  public void buildAll(MessageMLParser parser, org.w3c.dom.Element element) throws InvalidInputException,
+  Node buildAttributes(MessageMLParser parser, org.w3c.dom.Element element) throws InvalidInputException,
       ProcessingException {
     switch (getFormat()) {
       case MESSAGEML:
-        super.buildAll(parser, element);
-        break;
+        return super.buildAttributes(parser, element);
       case PRESENTATIONML:
         if(INPUT_TAG.equals(element.getNodeName())) {
           buildElementAttrFromInputTag(parser, element);
+          return null;
         } else {
-          buildElementFromGroupDiv(parser, element);
+          return buildElementFromGroupDiv(parser, element);
         }
-        this.validate();
-        break;
       default:
         throw new InvalidInputException(String.format("Invalid message format for \"%s\" element", getMessageMLTag()));
     }
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out,
-      MessageMLContext context) {
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
     String id = String.format("%s-%s", getPresentationMLDivClass(), context.generateShortId());
     Map<String, String> presentationInputAttrs = buildGroupedElementInputAttributes(id);
     Map<String, String> presentationLabelForAttr = new LinkedHashMap<>();
     if (getChildren().isEmpty()) {
       out.printElement(INPUT_TAG, presentationInputAttrs);
+      return -1;
     }
     else {
       out.openElement(PRESENTATIONML_DIV_TAG, PRESENTATIONML_CLASS_ATTR, getPresentationMLDivClass());
@@ -73,16 +71,17 @@ public abstract class GroupedElement extends FormElement {
       out.printElement(INPUT_TAG, presentationInputAttrs);
       presentationLabelForAttr.put(FOR_ATTR, id);
       out.openElement(PRESENTATIONML_LABEL_TAG, presentationLabelForAttr);
-      for (Element child : getChildren()) {
-        child.asPresentationML(out, context);
-      }
-      out.closeElement(); // Closing label
-
-      out.closeElement(); // Closing div
+      // the label and the div are closed once the children are printed
+      return 2;
     }
   }
 
-  protected void buildElementFromGroupDiv(MessageMLParser parser, org.w3c.dom.Element element)
+  /**
+   * Build the attributes of the element from the input of the group div.
+   *
+   * @return the label of the group, whose children are the children of the element
+   */
+  protected Node buildElementFromGroupDiv(MessageMLParser parser, org.w3c.dom.Element element)
       throws
       InvalidInputException, ProcessingException {
     NodeList children = element.getChildNodes();
@@ -93,6 +92,7 @@ public abstract class GroupedElement extends FormElement {
     }
 
     String firstNodeName = "";
+    Node label = null;
     for (int i = 0; i < children.getLength(); i++) {
       if(firstNodeName.equals(children.item(i).getNodeName())) {
         throw new InvalidInputException(String.format("Invalid PresentationML for the \"%s\" element", getMessageMLTag()));
@@ -104,7 +104,7 @@ public abstract class GroupedElement extends FormElement {
           firstNodeName = INPUT_TAG;
           break;
         case PRESENTATIONML_LABEL_TAG:
-          buildTextFromLabelTag(parser, children.item(i));
+          label = checkLabelTag(children.item(i));
           firstNodeName = PRESENTATIONML_LABEL_TAG;
           break;
         case "#text":
@@ -113,17 +113,15 @@ public abstract class GroupedElement extends FormElement {
           throw new InvalidInputException(String.format("Invalid PresentationML for the \"%s\" element", getMessageMLTag()));
       }
     }
+    return label;
   }
 
-  private void buildTextFromLabelTag(MessageMLParser context, org.w3c.dom.Node labelElement) throws InvalidInputException, ProcessingException {
+  private Node checkLabelTag(org.w3c.dom.Node labelElement) throws InvalidInputException {
     NodeList childNodes = labelElement.getChildNodes();
     if(childNodes == null || childNodes.getLength() <= 0) {
       throw new InvalidInputException(String.format("Invalid PresentationML for the \"%s\" element", getMessageMLTag()));
     }
-
-    for (int i = 0; i < childNodes.getLength(); i++) {
-      buildNode(context, childNodes.item(i));
-    }
+    return labelElement;
   }
 
   protected void buildElementAttrFromInputTag(MessageMLParser parser, org.w3c.dom.Node inputElement)
@@ -70,7 +70,7 @@ public class HashTag extends Keyword {
   }
 
   @Override
-  public String asText() {
+  String asOwnText() {
     return "#" + getTag();
   }
 
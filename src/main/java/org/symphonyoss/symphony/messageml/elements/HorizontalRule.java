@@ -42,7 +42,7 @@ public class HorizontalRule extends Element {
   }
 
   @Override
-  public String asText() {
+  String asOwnText() {
     return "\n";
   }
 
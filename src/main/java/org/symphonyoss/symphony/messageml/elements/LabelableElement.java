@@ -14,7 +14,7 @@ import java.util.Map;
  * Simply implement it into the element when you want to add label support
  *
  * Beware:
- *  If the element implementing this interface overrides {@link Element#buildAttribute(org.symphonyoss.symphony.messageml.MessageMLParser, org.w3c.dom.Node)} and/or {@link Element#asPresentationML(XmlPrintStream out,
+ *  If the element implementing this interface overrides {@link Element#buildAttribute(org.symphonyoss.symphony.messageml.MessageMLParser, org.w3c.dom.Node)} and/or {@link Element#openPresentationML(XmlPrintStream out,
  *       MessageMLContext context)} without calling super, it is needed to manage manually LABEL attribute and {@link #splittableAsPresentationML(XmlPrintStream out,
  *       MessageMLContext context)} method
  *
@@ -43,7 +43,7 @@ public class LineBreak extends Element {
   }
 
   @Override
-  public String asText() {
+  String asOwnText() {
     return "\n";
   }
 
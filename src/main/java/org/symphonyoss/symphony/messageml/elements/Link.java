@@ -75,19 +75,15 @@ public class Link extends Element {
   }
 
   @Override
-  void asPresentationML(XmlPrintStream out,
-      MessageMLContext context) {
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
     out.openElement(getMessageMLTag(), getAttributes());
 
     if (getChildren().isEmpty()) {
       out.print(out.escape(getUri().toString()));
-    } else {
-      for (Element child : getChildren()) {
-        child.asPresentationML(out, context);
-      }
+      out.closeElement();
+      return -1;
     }
-
-    out.closeElement();
+    return 1;
   }
 
   @Override
@@ -19,7 +19,6 @@ package org.symphonyoss.symphony.messageml.elements;
 import org.commonmark.node.Node;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 
-import java.util.Arrays;
 
 /**
  * Class representing a list item.
@@ -29,6 +28,7 @@ import java.util.Arrays;
  */
 public class ListItem extends Element {
   public static final String MESSAGEML_TAG = "li";
+  private static final ContentModel PARENTS = ContentModel.of(OrderedList.class, BulletList.class);
 
   public ListItem(Element parent) {
     super(parent, MESSAGEML_TAG);
@@ -37,7 +37,7 @@ public class ListItem extends Element {
   @Override
   void validate() throws InvalidInputException {
     super.validate();
-    assertParent(Arrays.asList(OrderedList.class, BulletList.class));
+    assertParent(PARENTS);
   }
 
   @Override
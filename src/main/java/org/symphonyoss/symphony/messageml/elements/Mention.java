@@ -103,8 +103,7 @@ public class Mention extends Entity {
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out,
-      MessageMLContext context) {
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
     if (userPresentation != null) {
       out.printElement(presentationMLTag, asText(), CLASS_ATTR, PRESENTATIONML_CLASS,
           ENTITY_ID_ATTR, entityId);
@@ -134,6 +133,7 @@ public class Mention extends Entity {
         }
       }
     }
+    return -1;
   }
 
   @Override
@@ -164,7 +164,12 @@ public class Mention extends Entity {
   }
 
   @Override
-  public String asText() {
+  boolean hasEntityJson() {
+    return getEntityValue() != null;
+  }
+
+  @Override
+  String asOwnText() {
     return StringUtils.isNotBlank(userPresentation.getPrettyName()) ? "@" + userPresentation.getPrettyName() : "";
   }
 
@@ -197,6 +202,18 @@ public class Mention extends Entity {
     }
   }
 
+  /**
+   * Take the user from the stored mention, as rendered by {@link #asText()}, rather than from the data provider.
+   */
+  @Override
+  void assumeValid() {
+    if (uid != null) {
+      String text = asChildrenText();
+      prettyName = text.startsWith("@") ? text.substring(1) : text;
+      userPresentation = new StoredUserPresentation(uid, prettyName);
+    }
+  }
+
   private void resolveUser() throws InvalidInputException {
     if (uid != null) {
       userPresentation = dataProvider.getUserPresentation(uid);
@@ -250,4 +267,37 @@ public class Mention extends Entity {
     context.updateItemCount(BiFields.MENTIONS.getValue());
     context.addItem(new BiItem(BiFields.ENTITY.getValue(), Collections.singletonMap(BiFields.ENTITY_TYPE.getValue(), this.getEntityType())));
   }
+
+  /**
+   * A user known from a trusted PresentationML mention, only its id and pretty name are rendered.
+   */
+  private static class StoredUserPresentation implements IUserPresentation {
+    private final long id;
+    private final String prettyName;
+
+    private StoredUserPresentation(long id, String prettyName) {
+      this.id = id;
+      this.prettyName = prettyName;
+    }
+
+    @Override
+    public long getId() {
+      return id;
+    }
+
+    @Override
+    public String getScreenName() {
+      return null;
+    }
+
+    @Override
+    public String getPrettyName() {
+      return prettyName;
+    }
+
+    @Override
+    public String getEmail() {
+      return null;
+    }
+  }
 }
@@ -24,26 +24,42 @@ package org.symphonyoss.symphony.messageml.elements;
 
 import static org.symphonyoss.symphony.messageml.elements.UIAction.TARGET_ID;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.apache.commons.lang3.tuple.Pair;
 import org.commonmark.node.Document;
 import org.symphonyoss.symphony.messageml.MessageMLContext;
 import org.symphonyoss.symphony.messageml.MessageMLParser;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownSink;
 import org.symphonyoss.symphony.messageml.util.IDataProvider;
 import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
 import org.symphonyoss.symphony.messageml.util.instrument.resolver.InstrumentKind;
 import org.symphonyoss.symphony.messageml.util.instrument.resolver.InstrumentResolution;
+import org.symphonyoss.symphony.messageml.util.instrument.resolver.InstrumentResolutionCache;
 import org.symphonyoss.symphony.messageml.util.instrument.resolver.MarketSector;
+import org.symphonyoss.symphony.messageml.util.instrument.resolver.ResolutionResult;
 import org.symphonyoss.symphony.messageml.util.instrument.resolver.ResolutionResults;
 import org.w3c.dom.Node;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 
 /**
@@ -67,6 +83,7 @@ public class MessageML extends Element {
 
   private String version;
   private boolean chime;
+  private boolean partiallyEnriched;
   private String xmlns;
 
   public MessageML(FormatEnum format, String version) {
@@ -112,17 +129,50 @@ public class MessageML extends Element {
     return root;
   }
 
+  /**
+   * Send the Markdown representation of the document to the sink, in a single traversal of the document tree.
+   */
+  public void asMarkdown(MarkdownSink sink) throws InvalidInputException {
+    try {
+      buildMarkdown(sink);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidInputException("Failed to build Markdown: " + e.getMessage());
+    }
+  }
+
   @Override
   public void asPresentationML(XmlPrintStream out,
       MessageMLContext context) {
+    super.asPresentationML(out, context);
+  }
 
-    out.openElement(PRESENTATIONML_TAG, ATTR_FORMAT, PRESENTATIONML_FORMAT, ATTR_VERSION, version);
+  @Override
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
+    openDocument(out);
+    return 1;
+  }
 
-    for (Element child : getChildren()) {
-      child.asPresentationML(out, context);
+  /**
+   * Render the selected outputs of the document in a single traversal of the document tree. Each output is the same
+   * as the one of {@link #asPresentationML}, {@link #asMarkdown(MarkdownSink)} and {@link #asEntityJson}.
+   * @param out stream the PresentationML is printed to, null to skip PresentationML
+   * @param sink sink the Markdown nodes are sent to, null to skip Markdown
+   * @param entityJson EntityJSON the entities of the document are added to, null to skip EntityJSON
+   */
+  public void asOutputs(XmlPrintStream out, MessageMLContext context, MarkdownSink sink, ObjectNode entityJson)
+      throws InvalidInputException {
+    if (out != null) {
+      openDocument(out);
     }
+    try {
+      buildOutputs(out, context, 1, sink, entityJson);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidInputException("Failed to build Markdown: " + e.getMessage());
+    }
+  }
 
-    out.closeElement();
+  private void openDocument(XmlPrintStream out) {
+    out.openElement(PRESENTATIONML_TAG, ATTR_FORMAT, PRESENTATIONML_FORMAT, ATTR_VERSION, version);
   }
 
   @Override
@@ -135,6 +185,54 @@ public class MessageML extends Element {
     return parent;
   }
 
+  /**
+   * Return the ids of the EntityJSON nodes the elements of the document refer to or add, the entities of the
+   * received EntityJSON which are not among them are left as they are by {@link #asEntityJson(ObjectNode)}.
+   */
+  public Set<String> getEntityIds() {
+    Set<String> entityIds = new LinkedHashSet<>();
+    for (Element element : findElements(element -> element instanceof Entity
+        || element.getAttribute(Entity.ENTITY_ID_ATTR) != null)) {
+      if (element instanceof Entity) {
+        if (((Entity) element).entityId != null) {
+          entityIds.add(((Entity) element).entityId);
+        }
+      } else {
+        entityIds.add(element.getAttribute(Entity.ENTITY_ID_ATTR));
+      }
+    }
+    return entityIds;
+  }
+
+  /**
+   * Write the EntityJSON of the document to the generator without building it: the given EntityJSON is written as it
+   * is, followed by the nodes of the entities of the document, as {@link #asEntityJson(ObjectNode)} would add them.
+   * @param entityJson EntityJSON received with the document, which is not modified, may be null
+   * @return false, writing nothing, if entities of the document would be added to or modify the nodes of the given
+   * EntityJSON, which must then be built
+   */
+  public boolean writeEntityJson(JsonGenerator generator, ObjectNode entityJson) throws IOException {
+    ObjectNode root = (entityJson != null) ? entityJson : new ObjectNode(JsonNodeFactory.instance);
+    Map<String, Entity> entities = collectEntityJson(root);
+    if (entities == null) {
+      return false;
+    }
+
+    generator.writeStartObject();
+    Iterator<Map.Entry<String, JsonNode>> fields = root.fields();
+    while (fields.hasNext()) {
+      Map.Entry<String, JsonNode> field = fields.next();
+      generator.writeFieldName(field.getKey());
+      MAPPER.writeTree(generator, field.getValue());
+    }
+    for (Map.Entry<String, Entity> entity : entities.entrySet()) {
+      generator.writeFieldName(entity.getKey());
+      entity.getValue().writeEntityJson(generator);
+    }
+    generator.writeEndObject();
+    return true;
+  }
+
   @Override
   public void validate() throws InvalidInputException {
     if (format == FormatEnum.MESSAGEML) {
@@ -160,6 +258,13 @@ public class MessageML extends Element {
     validateTargetIdForUIActions();
   }
 
+  /**
+   * Return the version of the message format.
+   */
+  public String getVersion() {
+    return version;
+  }
+
   /**
    * Return whether this message is a chime.
    */
@@ -175,11 +280,27 @@ public class MessageML extends Element {
     this.chime = chime;
   }
 
+  /**
+   * Return whether the instruments of financial tags could not all be resolved before the enrichment deadline, the
+   * tags which are not resolved being rendered with their fallback ticker.
+   */
+  public boolean isPartiallyEnriched() {
+    return partiallyEnriched;
+  }
+
   @Override
   public String getPresentationMLTag() {
     return PRESENTATIONML_TAG;
   }
 
+  /**
+   * Dialogs get a new id on each rendering, which the ui-actions opening them must still target.
+   */
+  @Override
+  void assumeValid() throws InvalidInputException {
+    validateTargetIdForUIActions();
+  }
+
   /**
    * If the messageML contains a uiAction with a target-id this method checks that exists a corresponding
    * dialog element with the same id.
@@ -193,44 +314,154 @@ public class MessageML extends Element {
     }
   }
 
+  /**
+   * Return the distinct criteria of the financial tags of the document, see
+   * {@link InstrumentResolutionCache#criteria(InstrumentResolution)}, in the order they are first used.
+   */
+  public Set<InstrumentResolution> getFinancialTagCriteria() {
+    Set<InstrumentResolution> criteria = new LinkedHashSet<>();
+    for (Element element : getChildrenOfType(Tag.class)) {
+      criteria.add(InstrumentResolutionCache.criteria(buildInstrumentResolutionRequest((Tag) element)));
+    }
+    return criteria;
+  }
+
   public void enhanceFinancialTags(MessageML result, IDataProvider dataProvider)
       throws InvalidInputException {
+    enhanceFinancialTags(result, dataProvider, null, null, null);
+  }
+
+  /**
+   * Resolve the instruments of the financial tags of the document with the data provider. Each distinct criteria is
+   * resolved once, whatever the number of tags using it.
+   * <p>
+   * With a deadline, the data provider is called on the executor and the tags which are not resolved once the deadline
+   * has passed are rendered with their fallback ticker, the document being flagged as partially enriched. The
+   * resolutions received after the deadline are still added to the cache.
+   * @param cache cache of the resolutions shared across messages, null to always call the data provider
+   * @param deadline time given to the data provider to resolve the instruments, null to wait for it
+   * @param executor executor the data provider is called on when there is a deadline
+   */
+  public void enhanceFinancialTags(MessageML result, IDataProvider dataProvider, InstrumentResolutionCache cache,
+      Duration deadline, Executor executor) throws InvalidInputException {
 
     List<Tag> elements = result.getChildrenOfType(Tag.class)
         .stream()
         .map(element -> Tag.class.cast(element))
         .collect(Collectors.toList());
-    if (elements != null && !elements.isEmpty()) {processFinancialTags(elements, dataProvider);}
+    if (elements != null && !elements.isEmpty()) {
+      result.partiallyEnriched = !processFinancialTags(elements, dataProvider, cache, deadline, executor);
+    }
   }
 
-  private void processFinancialTags(List<Tag> elements, IDataProvider dataProvider)
-      throws InvalidInputException {
-    List<Pair<InstrumentResolution, Tag>> instrumentResolutionMap =
-        IntStream.range(0, elements.size())
-            .mapToObj(index -> buildInstrumentResolutionRequest(elements.get(index), index))
-            .collect(Collectors.toList());
-    // Build  resolver api request
-    List<InstrumentResolution> criteria =
-        instrumentResolutionMap.stream().map(Pair::getLeft).collect(Collectors.toList());
-    ResolutionResults results = dataProvider.getFinTagPresentation(criteria);
-    // update financial tag element data
-    instrumentResolutionMap.forEach(entry -> {
-          String resolutionId = entry.getLeft().getResolutionId();
-          if (results != null && results.getInstruments() != null && results.getInstruments()
-              .containsKey(resolutionId)) {
-            entry.getRight()
-                .setInstrument(
-                    results.getInstruments().get(resolutionId).getInstrument());
-          }
+  /**
+   * @return false if the instruments were not resolved before the deadline
+   */
+  private boolean processFinancialTags(List<Tag> elements, IDataProvider dataProvider,
+      InstrumentResolutionCache cache, Duration deadline, Executor executor) throws InvalidInputException {
+    // tags by criteria, in the order they are first used
+    Map<InstrumentResolution, List<Tag>> tagsByCriteria = new LinkedHashMap<>();
+    for (Tag element : elements) {
+      tagsByCriteria.computeIfAbsent(InstrumentResolutionCache.criteria(buildInstrumentResolutionRequest(element)),
+          criteria -> new ArrayList<>()).add(element);
+    }
+
+    // Build  resolver api request, with the criteria which are not cached
+    List<InstrumentResolution> criteria = new ArrayList<>();
+    for (Map.Entry<InstrumentResolution, List<Tag>> entry : tagsByCriteria.entrySet()) {
+      ResolutionResult cached = (cache != null) ? cache.get(entry.getKey()) : null;
+      if (cached != null) {
+        setInstrument(entry.getValue(), cached);
+      } else {
+        InstrumentResolution resolution = InstrumentResolutionCache.criteria(entry.getKey());
+        resolution.setResolutionId(String.valueOf(criteria.size()));
+        criteria.add(resolution);
+      }
+    }
+
+    boolean resolved = true;
+    if (!criteria.isEmpty()) {
+      ResolutionResults results = null;
+      if (deadline == null) {
+        results = dataProvider.getFinTagPresentation(criteria);
+        cacheResults(cache, criteria, results);
+      } else {
+        try {
+          results = resolve(criteria, dataProvider, cache, deadline, executor);
+        } catch (TimeoutException e) {
+          resolved = false;
+        }
+      }
+      Map<String, ResolutionResult> instruments = (results != null) ? results.getInstruments() : null;
+      // update financial tag element data
+      for (InstrumentResolution resolution : criteria) {
+        ResolutionResult found = (instruments != null) ? instruments.get(resolution.getResolutionId()) : null;
+        if (found != null) {
+          setInstrument(tagsByCriteria.get(InstrumentResolutionCache.criteria(resolution)), found);
         }
-    );
+      }
+    }
     for (Tag element : elements) {element.validateFallBackTicker();}
+    return resolved;
+  }
+
+  /**
+   * Call the data provider on the executor and wait for its results until the deadline. The results are cached
+   * whenever they are received.
+   *
+   * @throws TimeoutException if the deadline has passed, or if the thread was interrupted while waiting
+   */
+  private static ResolutionResults resolve(List<InstrumentResolution> criteria, IDataProvider dataProvider,
+      InstrumentResolutionCache cache, Duration deadline, Executor executor)
+      throws InvalidInputException, TimeoutException {
+    CompletableFuture<ResolutionResults> future = CompletableFuture.supplyAsync(() -> {
+      try {
+        return dataProvider.getFinTagPresentation(criteria);
+      } catch (InvalidInputException e) {
+        throw new CompletionException(e);
+      }
+    }, executor);
+    if (cache != null) {
+      future.thenAccept(results -> cacheResults(cache, criteria, results));
+    }
+
+    try {
+      return future.get(deadline.toNanos(), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TimeoutException("Interrupted while resolving financial tags");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof InvalidInputException) {
+        throw (InvalidInputException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new InvalidInputException("Failed to resolve financial tags: " + cause.getMessage(), cause);
+    }
+  }
+
+  private static void cacheResults(InstrumentResolutionCache cache, List<InstrumentResolution> criteria,
+      ResolutionResults results) {
+    if (cache == null) {
+      return;
+    }
+    Map<String, ResolutionResult> instruments = (results != null) ? results.getInstruments() : null;
+    for (InstrumentResolution resolution : criteria) {
+      cache.put(resolution, (instruments != null) ? instruments.get(resolution.getResolutionId()) : null);
+    }
+  }
+
+  private static void setInstrument(List<Tag> tags, ResolutionResult result) {
+    for (Tag tag : tags) {
+      tag.setInstrument(result.getInstrument());
+    }
   }
 
-  private Pair<InstrumentResolution, Tag> buildInstrumentResolutionRequest(Tag tag,
-      Integer order) {
+  private InstrumentResolution buildInstrumentResolutionRequest(Tag tag) {
     InstrumentResolution resolution = new InstrumentResolution();
-    resolution.setResolutionId(order.toString());
     resolution.setBbgCompTicker(tag.getTagAttributes().getBbgcompticker());
     resolution.setFigi(tag.getTagAttributes().getFigi());
     resolution.setFigiTicker(tag.getTagAttributes().getFigiTicker());
@@ -246,7 +477,7 @@ public class MessageML extends Element {
     resolution.setReturnMainListing(tag.getTagAttributes().getReturnMainListing());
     resolution.setBbgMarketSector(
         MarketSector.fromValue(tag.getTagAttributes().getBbgmarketsector()));
-    return new ImmutablePair<>(resolution, tag);
+    return resolution;
   }
 
 }
@@ -63,7 +63,7 @@ public interface MinMaxLengthElement{
      * @throws InvalidInputException if the the initial value  is not in range
      */
     default void validateInitialValueIfFound(Integer minLength, Integer maxLength) throws InvalidInputException {
-        if(hasElementInitialValue()) {
+        if(hasElementInitialValue() && !isInitialValuePlaceholder()) {
             String initialValue = getElementInitialValue();
             if (isTextSmallerThanMinLength(minLength, initialValue) || isTextBiggerThanMaxLength(maxLength, initialValue)) {
                 throw new InvalidInputException(String.format(
@@ -164,6 +164,14 @@ public interface MinMaxLengthElement{
      */
     String getElementInitialValue();
 
+    /**
+     * @return true if the initial value holds placeholders of a message being prepared, its length being checked once
+     * they are bound
+     */
+    default boolean isInitialValuePlaceholder() {
+        return false;
+    }
+
     /**
      * @param attributeName we want to retrieve
      * @return the value corresponding to the attributeName given in input
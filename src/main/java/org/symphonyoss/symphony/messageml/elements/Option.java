@@ -1,28 +1,41 @@
 package org.symphonyoss.symphony.messageml.elements;
 
+import org.symphonyoss.symphony.messageml.MessageMLContext;
 import org.symphonyoss.symphony.messageml.MessageMLParser;
 import org.symphonyoss.symphony.messageml.bi.BiContext;
 import org.symphonyoss.symphony.messageml.bi.BiFields;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.markdown.nodes.form.OptionNode;
+import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
 import org.w3c.dom.Node;
 
+import java.util.AbstractMap;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Class representing a Symphony Elements option
+ * <p>
+ * Selects can hold thousands of options, their two attributes are kept in fields rather than in an attribute map and
+ * they are printed directly.
  *
  * @author lumoura
  * @since 03/22/19
  */
 public class Option extends FormElement {
   public static final String MESSAGEML_TAG = "option";
+  private static final ContentModel PARENTS = ContentModel.of(Select.class);
+  private static final ContentModel TEXT_CONTENT = ContentModel.of(TextNode.class);
   private static final String VALUE_ATTR = "value";
   private static final String SELECTED_ATTR = "selected";
 
+  private String value;
+  private String selected;
+
   public Option(Element parent) {
     super(parent, MESSAGEML_TAG);
   }
@@ -42,10 +55,11 @@ public class Option extends FormElement {
       assertAttributeValue(SELECTED_ATTR, Arrays.asList(Boolean.TRUE.toString(), Boolean.FALSE.toString()));
     }
 
-    assertParent(Collections.singleton(Select.class));
-    assertContentModel(Collections.singleton(TextNode.class));
+    assertParent(PARENTS);
+    assertContentModel(TEXT_CONTENT);
     assertContainsChildOfType(Collections.singleton(TextNode.class));
   }
+
   @Override
   protected void buildAttribute(MessageMLParser parser,
       Node item) throws InvalidInputException {
@@ -60,4 +74,86 @@ public class Option extends FormElement {
         throwInvalidInputException(item);
     }
   }
+
+  @Override
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
+    StringBuilder text = new StringBuilder();
+    for (Element child : getChildren()) {
+      if (!(child instanceof TextNode) || !out.isNoNl()) {
+        // only text labels printed without new lines take the direct path
+        return super.openPresentationML(out, context);
+      }
+      text.append(((TextNode) child).getText());
+    }
+    String label = out.isRemoveNl() ? XmlPrintStream.removeNewLines(text.toString()) : text.toString();
+    // attributes are printed in the order of the DOM, which sorts them by name
+    if (selected != null && value != null) {
+      out.printElement(MESSAGEML_TAG, label, SELECTED_ATTR, selected, VALUE_ATTR, value);
+    } else if (selected != null) {
+      out.printElement(MESSAGEML_TAG, label, SELECTED_ATTR, selected);
+    } else if (value != null) {
+      out.printElement(MESSAGEML_TAG, label, VALUE_ATTR, value);
+    } else {
+      out.printElement(MESSAGEML_TAG, label);
+    }
+    return -1;
+  }
+
+  @Override
+  public String getAttribute(String attr) {
+    if (VALUE_ATTR.equals(attr)) {
+      return value;
+    } else if (SELECTED_ATTR.equals(attr)) {
+      return selected;
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Return an unmodifiable view of the element's attributes, which are set with
+   * {@link #setAttribute(String, String)}.
+   */
+  @Override
+  public Map<String, String> getAttributes() {
+    return new AbstractMap<String, String>() {
+      @Override
+      public String get(Object key) {
+        return (key instanceof String) ? getAttribute((String) key) : null;
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+        return get(key) != null;
+      }
+
+      @Override
+      public Set<Entry<String, String>> entrySet() {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        if (selected != null) {
+          attributes.put(SELECTED_ATTR, selected);
+        }
+        if (value != null) {
+          attributes.put(VALUE_ATTR, value);
+        }
+        return Collections.unmodifiableMap(attributes).entrySet();
+      }
+    };
+  }
+
+  @Override
+  Map<String, String> readAttributes() {
+    return getAttributes();
+  }
+
+  @Override
+  void setAttribute(String attr, String value) {
+    if (VALUE_ATTR.equals(attr)) {
+      this.value = value;
+    } else if (SELECTED_ATTR.equals(attr)) {
+      this.selected = value;
+    } else {
+      throw new IllegalArgumentException("Unexpected attribute " + attr);
+    }
+  }
 }
@@ -32,6 +32,7 @@ import java.util.Collections;
 public class OrderedList extends Element {
 
   public static final String MESSAGEML_TAG = "ol";
+  private static final ContentModel CHILDREN = ContentModel.of(ListItem.class);
 
   public OrderedList(Element parent) {
     super(parent, MESSAGEML_TAG);
@@ -48,7 +49,7 @@ public class OrderedList extends Element {
   @Override
   public void validate() throws InvalidInputException {
     assertNoText();
-    assertContentModel(Collections.<Class<? extends Element>>singleton(ListItem.class));
+    assertContentModel(CHILDREN);
     assertContainsChildOfType(Collections.<Class<? extends Element>>singleton(ListItem.class));
   }
 
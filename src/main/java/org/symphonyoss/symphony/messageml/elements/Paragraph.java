@@ -34,7 +34,7 @@ public class Paragraph extends Element {
   }
 
   @Override
-  public String asText() {
+  String asOwnText() {
     return "\n";
   }
 
@@ -13,7 +13,6 @@ import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
 import org.symphonyoss.symphony.messageml.markdown.nodes.form.PersonSelectorNode;
 import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
 import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.NodeList;
 
 import java.util.Arrays;
 import java.util.HashMap;
@@ -53,15 +52,12 @@ public class PersonSelector extends FormElement implements LabelableElement, Too
   }
 
   @Override
-  public void buildAll(MessageMLParser parser, org.w3c.dom.Element element) throws InvalidInputException, ProcessingException {
+  org.w3c.dom.Node buildAttributes(MessageMLParser parser, org.w3c.dom.Element element) throws InvalidInputException, ProcessingException {
     switch (getFormat()) {
       case MESSAGEML:
-        super.buildAll(parser, element);
-        break;
+        return super.buildAttributes(parser, element);
       case PRESENTATIONML:
-        buildElementFromDiv(parser, element);
-        this.validate();
-        break;
+        return buildElementFromDiv(parser, element);
       default:
         throw new InvalidInputException(String.format("Invalid message format for \"%s\" element", MESSAGEML_TAG));
     }
@@ -94,8 +90,7 @@ public class PersonSelector extends FormElement implements LabelableElement, Too
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out,
-                               MessageMLContext context) {
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
     Map<String, String> presentationAttrs = buildPersonSelectorInputAttributes();
     if (isSplittable()) {
       // open div + adding splittable elements
@@ -107,6 +102,7 @@ public class PersonSelector extends FormElement implements LabelableElement, Too
     } else {
       innerAsPresentationML(out, presentationAttrs);
     }
+    return -1;
   }
 
   private void innerAsPresentationML(XmlPrintStream out, Map<String, String> presentationAttrs) {
@@ -163,7 +159,7 @@ public class PersonSelector extends FormElement implements LabelableElement, Too
     return presentationAttrs;
   }
 
-  private void buildElementFromDiv(MessageMLParser parser, org.w3c.dom.Element element) throws InvalidInputException, ProcessingException {
+  private org.w3c.dom.Node buildElementFromDiv(MessageMLParser parser, org.w3c.dom.Element element) throws InvalidInputException, ProcessingException {
 
     element.setAttribute(NAME_ATTR, element.getAttribute(PRESENTATIONML_NAME_ATTR));
     element.removeAttribute(PRESENTATIONML_NAME_ATTR);
@@ -189,12 +185,7 @@ public class PersonSelector extends FormElement implements LabelableElement, Too
       buildAttribute(parser, attributes.item(i));
     }
 
-    NodeList children = element.getChildNodes();
-
-    for (int i = 0; i < children.getLength(); i++) {
-      buildNode(parser, children.item(i));
-    }
-
+    return element;
   }
 
   @Override
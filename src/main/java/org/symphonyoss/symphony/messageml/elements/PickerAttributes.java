@@ -0,0 +1,150 @@
+package org.symphonyoss.symphony.messageml.elements;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.CollectionType;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.util.pojo.DateInterval;
+import org.symphonyoss.symphony.messageml.util.pojo.TimeInterval;
+
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bounded caches of the parsed attributes of the date, time and timezone pickers, shared by all parsers and keyed by
+ * the raw attribute values. Scheduling forms are sent again and again with the same attributes, which are then parsed
+ * once. Only valid values are cached, the size of each cache can be set with -Dmessageml.pickerCache.maxSize.
+ */
+final class PickerAttributes {
+
+  static final String MAX_SIZE_PROPERTY = "messageml.pickerCache.maxSize";
+
+  private static final int MAX_SIZE = Math.max(1, Integer.getInteger(MAX_SIZE_PROPERTY, 1024));
+
+  private static final ObjectMapper MAPPER = Element.MAPPER;
+  private static final CollectionType STRING_LIST = MAPPER.getTypeFactory()
+      .constructCollectionType(List.class, String.class);
+
+  /** Region based zones, other zones are offsets which are parsed. */
+  private static final Set<String> ZONE_IDS = Collections.unmodifiableSet(new HashSet<>(ZoneId.getAvailableZoneIds()));
+
+  private static final Cache<String, DateTimeFormatter> FORMATTERS = newCache();
+  private static final Cache<String, String> DATE_INTERVALS = newCache();
+  private static final Cache<String, String> TIME_INTERVALS = newCache();
+  private static final Cache<String, Timezones> TIMEZONES = newCache();
+
+  private PickerAttributes() {
+  }
+
+  /**
+   * @throws IllegalArgumentException if the pattern is not valid
+   */
+  static DateTimeFormatter formatter(String pattern) {
+    DateTimeFormatter formatter = FORMATTERS.getIfPresent(pattern);
+    if (formatter == null) {
+      formatter = DateTimeFormatter.ofPattern(pattern);
+      FORMATTERS.put(pattern, formatter);
+    }
+    return formatter;
+  }
+
+  /**
+   * Validate a JSON array of {@link DateInterval}s.
+   *
+   * @return the intervals in PresentationML
+   */
+  static String dateIntervals(String json) throws JsonProcessingException, InvalidInputException {
+    String intervals = DATE_INTERVALS.getIfPresent(json);
+    if (intervals == null) {
+      DateInterval[] dateIntervals = MAPPER.readValue(json, DateInterval[].class);
+      for (DateInterval dateInterval : dateIntervals) {
+        dateInterval.assertIsValid();
+      }
+      intervals = MAPPER.writeValueAsString(dateIntervals);
+      DATE_INTERVALS.put(json, intervals);
+    }
+    return intervals;
+  }
+
+  /**
+   * Validate a JSON array of {@link TimeInterval}s.
+   *
+   * @return the intervals in PresentationML
+   */
+  static String timeIntervals(String json) throws JsonProcessingException, InvalidInputException {
+    String intervals = TIME_INTERVALS.getIfPresent(json);
+    if (intervals == null) {
+      TimeInterval[] timeIntervals = MAPPER.readValue(json, TimeInterval[].class);
+      for (TimeInterval timeInterval : timeIntervals) {
+        timeInterval.assertIsValid();
+      }
+      intervals = MAPPER.writeValueAsString(timeIntervals);
+      TIME_INTERVALS.put(json, intervals);
+    }
+    return intervals;
+  }
+
+  /**
+   * Parse a JSON array of timezones, without validating them.
+   */
+  static Timezones timezones(String json) throws JsonProcessingException {
+    Timezones timezones = TIMEZONES.getIfPresent(json);
+    if (timezones == null) {
+      List<String> zones = MAPPER.readValue(json, STRING_LIST);
+      timezones = new Timezones(zones, MAPPER.writeValueAsString(zones));
+      TIMEZONES.put(json, timezones);
+    }
+    return timezones;
+  }
+
+  static boolean isValidTimezone(String timezone) {
+    if (ZONE_IDS.contains(timezone)) {
+      return true;
+    }
+    try {
+      ZoneId.of(timezone);
+      return true;
+    } catch (DateTimeException e) {
+      return false;
+    }
+  }
+
+  static void clear() {
+    FORMATTERS.invalidateAll();
+    DATE_INTERVALS.invalidateAll();
+    TIME_INTERVALS.invalidateAll();
+    TIMEZONES.invalidateAll();
+  }
+
+  private static <V> Cache<String, V> newCache() {
+    return CacheBuilder.newBuilder().maximumSize(MAX_SIZE).build();
+  }
+
+  static class Timezones {
+    private final List<String> zones;
+    private final String json;
+
+    Timezones(List<String> zones, String json) {
+      this.zones = Collections.unmodifiableList(zones);
+      this.json = json;
+    }
+
+    List<String> getZones() {
+      return zones;
+    }
+
+    /**
+     * @return the timezones in PresentationML
+     */
+    String getJson() {
+      return json;
+    }
+  }
+}
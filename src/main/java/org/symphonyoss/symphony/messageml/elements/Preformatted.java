@@ -37,15 +37,10 @@ public class Preformatted extends Element {
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out,
-      MessageMLContext context) {
-    boolean removeNl = out.isRemoveNl();
-
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
+    // new lines are kept down to the end of the element, when the stream is restored
     out.setRemoveNl(false);
-
-    super.asPresentationML(out, context);
-
-    out.setRemoveNl(removeNl);
+    return super.openPresentationML(out, context);
   }
 
   @Override
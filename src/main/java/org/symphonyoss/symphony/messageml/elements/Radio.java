@@ -36,6 +36,7 @@ import java.util.Map;
 public class Radio extends GroupedElement implements LabelableElement{
 
   public static final String MESSAGEML_TAG = "radio";
+  private static final ContentModel LABEL_CONTENT = ContentModel.of(TextNode.class, Bold.class, Italic.class);
 
   public static final String PRESENTATIONML_INPUT_TYPE = "radio";
   public static final String PRESENTATIONML_DIV_CLASS = "radio-group";
@@ -78,7 +79,7 @@ public class Radio extends GroupedElement implements LabelableElement{
     }
 
     if (!getChildren().isEmpty()) {
-      assertContentModel(Arrays.asList(TextNode.class, Bold.class, Italic.class));
+      assertContentModel(LABEL_CONTENT);
     }
   }
 
@@ -8,7 +8,6 @@ import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 /**
@@ -21,7 +20,7 @@ import java.util.regex.PatternSyntaxException;
  * Simply implement it into the element when you want to add regex support
  *
  * Beware:
- *  If the element implementing this interface overrides {@link Element#validate()} and/or {@link Element#buildAttribute(org.symphonyoss.symphony.messageml.MessageMLParser, Node)} and/or {@link Element#asPresentationML(XmlPrintStream, org.symphonyoss.symphony.messageml.MessageMLContext)}
+ *  If the element implementing this interface overrides {@link Element#validate()} and/or {@link Element#buildAttribute(org.symphonyoss.symphony.messageml.MessageMLParser, Node)} and/or {@link Element#openPresentationML(XmlPrintStream, org.symphonyoss.symphony.messageml.MessageMLContext)}
  *  without calling super, it is needed to manage manually PATTERN_ATTR and PATTERN_ERROR_MESSAGE_ATTR in these methods
  *
  * @author enrico.molino (12/05/2020)
@@ -69,7 +68,7 @@ public interface RegexElement {
       }
 
       try {
-        Pattern.compile(regexPattern);
+        RegexPatterns.compile(regexPattern);
       } catch (PatternSyntaxException p){
         throw new InvalidInputException(String.format(REGEX_NOT_VALID_ERR, regexPattern), p);
       }
@@ -0,0 +1,189 @@
+package org.symphonyoss.symphony.messageml.elements;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Bounded cache of the patterns of {@link RegexElement}s, shared by all parsers. Forms are often sent again and again
+ * with the same patterns, which are then compiled once.
+ * <p>
+ * Patterns can also be probed for catastrophic backtracking: they are matched against inputs built from their own
+ * characters, which take exponential or high polynomial time on patterns like <code>(.*a){8}</code>. The probe counts
+ * the characters read by the matcher and is stopped once it exceeds its budget, so that its outcome only depends on
+ * the pattern and the budget, and is cached with the pattern.
+ */
+public final class RegexPatterns {
+
+  /** System property overriding the maximum number of cached patterns. */
+  public static final String MAX_SIZE_PROPERTY = "messageml.regexCache.maxSize";
+
+  private static final int MAX_SIZE = Math.max(1, Integer.getInteger(MAX_SIZE_PROPERTY, 1024));
+
+  /** Length of the repeated part of the probe inputs. */
+  private static final int PROBE_LENGTH = 1024;
+  /** Maximum number of distinct characters of the pattern the probe inputs are built from. */
+  private static final int PROBE_CHARACTERS = 16;
+  private static final String DEFAULT_PROBE_CHARACTERS = "a0 _A.";
+
+  private static final Cache<String, Entry> CACHE = CacheBuilder.newBuilder().maximumSize(MAX_SIZE).build();
+
+  private RegexPatterns() {
+  }
+
+  /**
+   * Return the compiled pattern, from the cache if it has already been compiled.
+   *
+   * @throws PatternSyntaxException if the pattern is not valid
+   */
+  public static Pattern compile(String regex) {
+    return entry(regex).pattern;
+  }
+
+  /**
+   * Probe a pattern for catastrophic backtracking.
+   *
+   * @param maxSteps budget of the probe, in characters read by the matcher
+   * @return false if matching the probe inputs reads more characters than the budget
+   * @throws PatternSyntaxException if the pattern is not valid
+   */
+  public static boolean isSafe(String regex, long maxSteps) {
+    Entry entry = entry(regex);
+    long probed = entry.probeSteps;
+    if (probed >= 0) {
+      return probed <= maxSteps;
+    }
+    if (probed != Entry.NOT_PROBED && maxSteps <= -probed) {
+      // the probe already exceeded a larger budget
+      return false;
+    }
+    long steps = probe(entry.pattern, maxSteps);
+    entry.probeSteps = (steps >= 0) ? steps : -maxSteps;
+    return steps >= 0;
+  }
+
+  /**
+   * @return the number of cached patterns
+   */
+  public static long size() {
+    return CACHE.size();
+  }
+
+  static void clear() {
+    CACHE.invalidateAll();
+  }
+
+  private static Entry entry(String regex) {
+    Entry entry = CACHE.getIfPresent(regex);
+    if (entry == null) {
+      entry = CACHE.asMap().computeIfAbsent(regex, key -> new Entry(Pattern.compile(key)));
+    }
+    return entry;
+  }
+
+  /**
+   * Match the pattern against runs of each of its characters followed by a character it is unlikely to accept.
+   *
+   * @return the number of characters read by the probe, or -1 if it exceeded the budget
+   */
+  private static long probe(Pattern pattern, long maxSteps) {
+    long steps = 0;
+    try {
+      for (char c : probeCharacters(pattern.pattern())) {
+        CountingSequence input = new CountingSequence(c, PROBE_LENGTH, maxSteps - steps);
+        try {
+          pattern.matcher(input).matches();
+          pattern.matcher(input).find();
+        } catch (StackOverflowError e) {
+          // deeply recursive but not slow, the matcher stack depends on the thread and not on the pattern alone
+        }
+        steps += input.reads;
+      }
+    } catch (StepsExceededException e) {
+      return -1;
+    }
+    return steps;
+  }
+
+  private static Set<Character> probeCharacters(String regex) {
+    Set<Character> characters = new LinkedHashSet<>();
+    for (int i = 0; i < regex.length() && characters.size() < PROBE_CHARACTERS; i++) {
+      char c = regex.charAt(i);
+      if (!Character.isISOControl(c) && "\\()[]{}|*+?^$".indexOf(c) < 0) {
+        characters.add(c);
+      }
+    }
+    for (int i = 0; i < DEFAULT_PROBE_CHARACTERS.length(); i++) {
+      characters.add(DEFAULT_PROBE_CHARACTERS.charAt(i));
+    }
+    return characters;
+  }
+
+  private static class Entry {
+    private static final long NOT_PROBED = Long.MIN_VALUE;
+
+    private final Pattern pattern;
+    /** Characters read by the probe, or the opposite of the budget it exceeded. */
+    private volatile long probeSteps = NOT_PROBED;
+
+    Entry(Pattern pattern) {
+      this.pattern = pattern;
+    }
+  }
+
+  /**
+   * A run of a character followed by a control character, which stops the matcher reading it once it has read more
+   * characters than its budget.
+   */
+  private static class CountingSequence implements CharSequence {
+    private final char c;
+    private final int length;
+    private final long maxReads;
+    private long reads;
+
+    CountingSequence(char c, int length, long maxReads) {
+      this.c = c;
+      this.length = length;
+      this.maxReads = maxReads;
+    }
+
+    @Override
+    public int length() {
+      return length + 1;
+    }
+
+    @Override
+    public char charAt(int index) {
+      if (++reads > maxReads) {
+        throw new StepsExceededException();
+      }
+      return (index < length) ? c : '\u0001';
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder builder = new StringBuilder(length + 1);
+      for (int i = 0; i < length; i++) {
+        builder.append(c);
+      }
+      return builder.append('\u0001').toString();
+    }
+  }
+
+  private static class StepsExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    StepsExceededException() {
+      super(null, null, false, false);
+    }
+  }
+}
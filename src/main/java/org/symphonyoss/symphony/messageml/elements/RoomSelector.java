@@ -15,7 +15,6 @@ import org.symphonyoss.symphony.messageml.markdown.nodes.form.PersonSelectorNode
 import org.symphonyoss.symphony.messageml.markdown.nodes.form.RoomSelectorNode;
 import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
 import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.NodeList;
 
 import java.util.Arrays;
 import java.util.HashMap;
@@ -57,16 +56,13 @@ public class RoomSelector extends FormElement implements LabelableElement, Toolt
   }
 
   @Override
-  public void buildAll(MessageMLParser parser, org.w3c.dom.Element element)
+  org.w3c.dom.Node buildAttributes(MessageMLParser parser, org.w3c.dom.Element element)
       throws InvalidInputException, ProcessingException {
     switch (getFormat()) {
       case MESSAGEML:
-        super.buildAll(parser, element);
-        break;
+        return super.buildAttributes(parser, element);
       case PRESENTATIONML:
-        buildElementFromDiv(parser, element);
-        this.validate();
-        break;
+        return buildElementFromDiv(parser, element);
       default:
         throw new InvalidInputException(
             String.format("Invalid message format for \"%s\" element", MESSAGEML_TAG));
@@ -104,8 +100,7 @@ public class RoomSelector extends FormElement implements LabelableElement, Toolt
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out,
-      MessageMLContext context) {
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
     Map<String, String> presentationAttrs = buildRoomSelectorInputAttributes();
     if (isSplittable()) {
       // open div + adding splittable elements
@@ -117,6 +112,7 @@ public class RoomSelector extends FormElement implements LabelableElement, Toolt
     } else {
       innerAsPresentationML(out, presentationAttrs);
     }
+    return -1;
   }
 
   private void innerAsPresentationML(XmlPrintStream out, Map<String, String> presentationAttrs) {
@@ -174,7 +170,7 @@ public class RoomSelector extends FormElement implements LabelableElement, Toolt
     return presentationAttrs;
   }
 
-  private void buildElementFromDiv(MessageMLParser parser, org.w3c.dom.Element element)
+  private org.w3c.dom.Node buildElementFromDiv(MessageMLParser parser, org.w3c.dom.Element element)
       throws InvalidInputException, ProcessingException {
 
     element.setAttribute(NAME_ATTR, element.getAttribute(PRESENTATIONML_NAME_ATTR));
@@ -201,12 +197,7 @@ public class RoomSelector extends FormElement implements LabelableElement, Toolt
       buildAttribute(parser, attributes.item(i));
     }
 
-    NodeList children = element.getChildNodes();
-
-    for (int i = 0; i < children.getLength(); i++) {
-      buildNode(parser, children.item(i));
-    }
-
+    return element;
   }
 
   @Override
@@ -52,6 +52,7 @@ import java.util.Map;
 public class Select extends FormElement implements LabelableElement, TooltipableElement {
 
   public static final String MESSAGEML_TAG = "select";
+  private static final ContentModel CHILDREN = ContentModel.of(Option.class);
   public static final String ELEMENT_ID = "dropdown";
   private static final String REQUIRED_ATTR = "required";
   private static final String OPTION_SELECTED_ATTR = "selected";
@@ -84,8 +85,7 @@ public class Select extends FormElement implements LabelableElement, Tooltipable
     }
     assertAttributeNotBlank(NAME_ATTR);
 
-    assertContentModel(Collections.singleton(Option.class));
-    assertContainsChildOfType(Collections.singleton(Option.class));
+    int selectedOptions = assertOptions();
 
     if (getAttribute(REQUIRED_ATTR) != null) {
       assertAttributeValue(REQUIRED_ATTR, Arrays.asList(Boolean.TRUE.toString(), Boolean.FALSE.toString()));
@@ -132,8 +132,8 @@ public class Select extends FormElement implements LabelableElement, Tooltipable
       throw new InvalidInputException("Attribute \"min\" cannot be 0 if \"required\" is true");
     }
 
-    if (!multipleAttributeValue) {
-      assertOnlyOneOptionSelected();
+    if (!multipleAttributeValue && selectedOptions > 1) {
+      throw new InvalidInputException("Element \"select\" can only have one selected \"option\"");
     }
   }
 
@@ -185,25 +185,37 @@ public class Select extends FormElement implements LabelableElement, Tooltipable
     this.putOneIfPresent(attributesMapBi, BiFields.REQUIRED.getValue(), REQUIRED_ATTR);
     this.putOneIfPresent(attributesMapBi, BiFields.MULTI_SELECT.getValue(), MULTIPLE_ATTR);
 
-    attributesMapBi.put(BiFields.OPTIONS_COUNT.getValue(), countChildrenOfType(Option.class));
-    attributesMapBi.put(BiFields.DEFAULT.getValue(), isAtLeastOneOptionSelected());
+    // options are direct children of the select, counted along with the selected ones in a single pass
+    int options = 0;
+    boolean selected = false;
+    for (Element child : getChildren()) {
+      if (child instanceof Option) {
+        options++;
+        selected |= child.getAttribute(OPTION_SELECTED_ATTR) != null;
+      }
+    }
+    attributesMapBi.put(BiFields.OPTIONS_COUNT.getValue(), options);
+    attributesMapBi.put(BiFields.DEFAULT.getValue(), selected ? 1 : 0);
 
     context.addItem(new BiItem(BiFields.SELECT.getValue(), attributesMapBi));
   }
 
-  private int isAtLeastOneOptionSelected() {
-    return getChildren().stream()
-            .anyMatch(child -> child.getAttribute(OPTION_SELECTED_ATTR) != null) ? 1 : 0;
-  }
-
-  private void assertOnlyOneOptionSelected() throws InvalidInputException {
-    long numberOfSelectedOptions = getChildren().stream()
-            .map(child -> child.getAttribute(OPTION_SELECTED_ATTR))
-            .filter(selectedAttr -> selectedAttr != null && selectedAttr.equalsIgnoreCase(Boolean.TRUE.toString()))
-            .count();
+  /**
+   * Check the content model and the presence of options, then count the selected options. The content model is
+   * checked against a single {@link ContentModel}, as selects can hold thousands of options.
+   *
+   * @return the number of selected options
+   */
+  private int assertOptions() throws InvalidInputException {
+    assertContentModel(CHILDREN);
+    assertContainsChildOfType(Collections.singleton(Option.class));
 
-    if (numberOfSelectedOptions > 1) {
-      throw new InvalidInputException("Element \"select\" can only have one selected \"option\"");
+    int selectedOptions = 0;
+    for (Element child : getChildren()) {
+      if (Boolean.TRUE.toString().equalsIgnoreCase(child.getAttribute(OPTION_SELECTED_ATTR))) {
+        selectedOptions++;
+      }
     }
+    return selectedOptions;
   }
 }
@@ -22,7 +22,6 @@ import org.symphonyoss.symphony.messageml.bi.BiFields;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.markdown.nodes.TableNode;
 
-import java.util.Arrays;
 
 /**
  * Class representing a table container.
@@ -32,6 +31,8 @@ import java.util.Arrays;
  */
 public class Table extends Element {
   public static final String MESSAGEML_TAG = "table";
+  private static final ContentModel CHILDREN =
+      ContentModel.of(TableHeader.class, TableBody.class, TableFooter.class, TableRow.class);
 
   public Table(Element parent) {
     super(parent, MESSAGEML_TAG);
@@ -50,7 +51,7 @@ public class Table extends Element {
   @Override
   public void validate() throws InvalidInputException {
     assertNoText();
-    assertContentModel(Arrays.asList(TableHeader.class, TableBody.class, TableFooter.class, TableRow.class));
+    assertContentModel(CHILDREN);
   }
 
   @Override
@@ -20,7 +20,6 @@ import org.symphonyoss.symphony.messageml.bi.BiContext;
 import org.symphonyoss.symphony.messageml.bi.BiFields;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 
-import java.util.Collections;
 
 /**
  * Class representing a table header container.
@@ -30,6 +29,7 @@ import java.util.Collections;
  */
 public class TableHeader extends Element {
   public static final String MESSAGEML_TAG = "thead";
+  private static final ContentModel CHILDREN = ContentModel.of(TableRow.class);
 
   public TableHeader(Element parent) {
     super(parent, MESSAGEML_TAG);
@@ -43,7 +43,7 @@ public class TableHeader extends Element {
   @Override
   public void validate() throws InvalidInputException {
     assertNoText();
-    assertContentModel(Collections.<Class<? extends Element>>singleton(TableRow.class));
+    assertContentModel(CHILDREN);
   }
 
   @Override
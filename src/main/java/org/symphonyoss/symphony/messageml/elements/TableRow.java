@@ -22,7 +22,6 @@ import org.symphonyoss.symphony.messageml.bi.BiFields;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.markdown.nodes.TableRowNode;
 
-import java.util.Arrays;
 
 /**
  * Class representing a table row container.
@@ -32,6 +31,7 @@ import java.util.Arrays;
  */
 public class TableRow extends Element {
   public static final String MESSAGEML_TAG = "tr";
+  private static final ContentModel CHILDREN = ContentModel.of(TableHeaderCell.class, TableCell.class);
 
   public TableRow(Element parent) {
     super(parent, MESSAGEML_TAG);
@@ -50,7 +50,7 @@ public class TableRow extends Element {
   @Override
   public void validate() throws InvalidInputException {
     assertNoText();
-    assertContentModel(Arrays.asList(TableHeaderCell.class, TableCell.class));
+    assertContentModel(CHILDREN);
   }
 
   @Override
@@ -16,9 +16,9 @@
 
 package org.symphonyoss.symphony.messageml.elements;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.Getter;
 import lombok.Setter;
@@ -37,7 +37,11 @@ import org.symphonyoss.symphony.messageml.util.instrument.resolver.Instrument;
 import org.symphonyoss.symphony.messageml.util.instrument.resolver.InstrumentKind;
 import org.symphonyoss.symphony.messageml.util.instrument.resolver.MarketSector;
 
+import java.io.IOException;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
 
 /**
  * Class representing a convenience element for a financial tag .
@@ -49,6 +53,8 @@ public class Tag extends Entity {
   private static final String ENTITY_SUBTYPE = "org.symphonyoss.fin.security.id.ticker";
   private static final String ENTITY_VERSION = "2.0";
   private static final String LEGACY_ENTITY_VERSION = "1.0";
+  /** Ids added to the EntityJSON of resolved instruments, by type. */
+  private static final Map<String, Function<Instrument, String>> INSTRUMENT_IDS = instrumentIds();
   @Getter
   private TagAttributes tagAttributes = new TagAttributes();
   @Setter
@@ -133,9 +139,10 @@ public class Tag extends Entity {
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out, MessageMLContext context) {
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
     out.printElement(presentationMLTag, asText(), CLASS_ATTR, PRESENTATIONML_CLASS,
         ENTITY_ID_ATTR, entityId);
+    return -1;
   }
 
   @Override
@@ -149,49 +156,58 @@ public class Tag extends Entity {
 
   @Override
   public ObjectNode asEntityJson(ObjectNode parent) {
+    boolean received = !parent.path(entityId).isMissingNode();
     ObjectNode node = super.asEntityJson(parent);
-    if (instrument != null) {
-      enhanceInstrumentEntityJson(node);
+    if (instrument != null && received) {
+      // the ids of the instrument are added to the node received with the message
+      ArrayNode ids = (ArrayNode) buildJson(generator -> {
+        generator.writeStartArray();
+        writeInstrumentIds(generator);
+        generator.writeEndArray();
+      });
+      ArrayNode.class.cast(node.get(ID_FIELD)).addAll(ids);
     }
     return node;
   }
 
+  @Override
+  boolean updatesEntityJson() {
+    return instrument != null;
+  }
 
-  private void enhanceInstrumentEntityJson(ObjectNode node) {
-    ArrayNode idArray = ArrayNode.class.cast(node.get(ID_FIELD));
-    idArray.add(
-        buildNode("org.symphonyoss.fin.security.id.uniqueId", instrument.getUniqueId()));
-    idArray.add(buildNode("org.symphonyoss.fin.security.id.fullBbgTicker",
-        instrument.getFullBbgCompTicker()));
-    idArray.add(buildNode("org.symphonyoss.fin.security.bbgcompticker",
-        instrument.getBbgCompTicker()));
-    idArray.add(buildNode("org.symphonyoss.fin.security.id.isin", instrument.getIsin()));
-    idArray.add(buildNode("org.symphonyoss.fin.security.id.figi", instrument.getFigi()));
-    idArray.add(buildNode("org.symphonyoss.fin.security.id.figiTicker",
-        instrument.getFigiTicker()));
-    idArray.add(
-        buildNode("org.symphonyoss.fin.security.id.lei", instrument.getFigiTicker()));
-    idArray.add(
-        buildNode("org.symphonyoss.fin.security.id.localCode", instrument.getLocalCode()));
-    idArray.add(buildNode("org.symphonyoss.fin.security.id.operationalMic",
-        instrument.getOperationalMic()));
-    idArray.add(buildNode("org.symphonyoss.fin.security.countryCode", instrument.getCountryCode()));
-    idArray.add(buildNode("org.symphonyoss.fin.security.countryName", instrument.getCountryName()));
-    idArray.add(
-        buildNode("org.symphonyoss.fin.security.exchangeName", instrument.getExchangeName()));
-    idArray.add(buildNode("org.symphonyoss.fin.security.displayName", instrument.getDisplayName()));
-    idArray.add(buildNode("org.symphonyoss.fin.security.currency", instrument.getCurrency()));
-    idArray.add(buildNode("org.symphonyoss.fin.security.instrumentTypeCode",
-        instrument.getInstrumentTypeCode()));
-    idArray.add(buildNode("org.symphonyoss.fin.security.instrumentTypeName",
-        instrument.getInstrumentTypeName()));
-  }
-
-  private ObjectNode buildNode(String type, String value) {
-    ObjectNode node = new ObjectNode(JsonNodeFactory.instance);
-    node.put(TYPE_FIELD, type);
-    node.put(VALUE_FIELD, value);
-    return node;
+  @Override
+  void writeIds(JsonGenerator generator) throws IOException {
+    super.writeIds(generator);
+    if (instrument != null) {
+      writeInstrumentIds(generator);
+    }
+  }
+
+  private void writeInstrumentIds(JsonGenerator generator) throws IOException {
+    for (Map.Entry<String, Function<Instrument, String>> id : INSTRUMENT_IDS.entrySet()) {
+      writeId(generator, id.getKey(), id.getValue().apply(instrument));
+    }
+  }
+
+  private static Map<String, Function<Instrument, String>> instrumentIds() {
+    Map<String, Function<Instrument, String>> ids = new LinkedHashMap<>();
+    ids.put("org.symphonyoss.fin.security.id.uniqueId", Instrument::getUniqueId);
+    ids.put("org.symphonyoss.fin.security.id.fullBbgTicker", Instrument::getFullBbgCompTicker);
+    ids.put("org.symphonyoss.fin.security.bbgcompticker", Instrument::getBbgCompTicker);
+    ids.put("org.symphonyoss.fin.security.id.isin", Instrument::getIsin);
+    ids.put("org.symphonyoss.fin.security.id.figi", Instrument::getFigi);
+    ids.put("org.symphonyoss.fin.security.id.figiTicker", Instrument::getFigiTicker);
+    ids.put("org.symphonyoss.fin.security.id.lei", Instrument::getFigiTicker);
+    ids.put("org.symphonyoss.fin.security.id.localCode", Instrument::getLocalCode);
+    ids.put("org.symphonyoss.fin.security.id.operationalMic", Instrument::getOperationalMic);
+    ids.put("org.symphonyoss.fin.security.countryCode", Instrument::getCountryCode);
+    ids.put("org.symphonyoss.fin.security.countryName", Instrument::getCountryName);
+    ids.put("org.symphonyoss.fin.security.exchangeName", Instrument::getExchangeName);
+    ids.put("org.symphonyoss.fin.security.displayName", Instrument::getDisplayName);
+    ids.put("org.symphonyoss.fin.security.currency", Instrument::getCurrency);
+    ids.put("org.symphonyoss.fin.security.instrumentTypeCode", Instrument::getInstrumentTypeCode);
+    ids.put("org.symphonyoss.fin.security.instrumentTypeName", Instrument::getInstrumentTypeName);
+    return Collections.unmodifiableMap(ids);
   }
 
   @Override
@@ -221,7 +237,7 @@ public class Tag extends Entity {
   }
 
   @Override
-  public String asText() {
+  String asOwnText() {
     String text = instrument == null ? tagAttributes.getFallbackTicker()
         : instrument.getRootBbgCompTicker();
     return PREFIX + text;
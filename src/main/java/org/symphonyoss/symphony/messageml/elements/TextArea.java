@@ -9,7 +9,6 @@ import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.markdown.nodes.form.TextAreaNode;
 
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,6 +21,7 @@ import java.util.Map;
 public class TextArea extends FormElement implements RegexElement, LabelableElement, TooltipableElement, MinMaxLengthElement{
 
   public static final String MESSAGEML_TAG = "textarea";
+  private static final ContentModel TEXT_CONTENT = ContentModel.of(TextNode.class);
 
   private Integer MIN_ALLOWED_LENGTH = 0;
   private Integer MAX_ALLOWED_LENGTH = 10000;
@@ -67,7 +67,7 @@ public class TextArea extends FormElement implements RegexElement, LabelableElem
     }
 
     assertAttributeNotBlank(NAME_ATTR);
-    assertContentModel(Collections.singleton(TextNode.class));
+    assertContentModel(TEXT_CONTENT);
     validateMinAndMaxLengths();
 
   }
@@ -139,6 +139,11 @@ public class TextArea extends FormElement implements RegexElement, LabelableElem
     return ((TextNode) getChild(0)).getText();
   }
 
+  @Override
+  public boolean isInitialValuePlaceholder() {
+    return ((TextNode) getChild(0)).isPlaceholder();
+  }
+
   @Override
   public String getAttributeValue(String attributeName) {
     return getAttribute(attributeName);
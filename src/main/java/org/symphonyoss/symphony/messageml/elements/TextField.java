@@ -12,7 +12,6 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -28,6 +27,7 @@ import java.util.Set;
 public class TextField extends FormElement implements RegexElement, LabelableElement, TooltipableElement, MinMaxLengthElement {
 
   public static final String MESSAGEML_TAG = "text-field";
+  private static final ContentModel TEXT_CONTENT = ContentModel.of(TextNode.class);
   public static final String ELEMENT_ID = "textfield";
   public static final String PRESENTATIONML_INPUT_TYPE = "text";
 
@@ -80,21 +80,21 @@ public class TextField extends FormElement implements RegexElement, LabelableEle
     }
 
     assertAttributeNotBlank(NAME_ATTR);
-    assertContentModel(Collections.singleton(TextNode.class));
+    assertContentModel(TEXT_CONTENT);
     validateMinAndMaxLengths();
   }
 
   @Override
-  public void buildAll(MessageMLParser parser, org.w3c.dom.Element element)
+  org.w3c.dom.Node buildAttributes(MessageMLParser parser, org.w3c.dom.Element element)
       throws InvalidInputException, ProcessingException {
     switch (getFormat()) {
       case MESSAGEML:
-        super.buildAll(parser, element);
-        break;
+        return super.buildAttributes(parser, element);
       case PRESENTATIONML:
         this.buildAllFromPresentationML(parser, element);
         break;
     }
+    return null;
   }
 
   @Override
@@ -270,6 +270,11 @@ public class TextField extends FormElement implements RegexElement, LabelableEle
     return ((TextNode) getChild(0)).getText();
   }
 
+  @Override
+  public boolean isInitialValuePlaceholder() {
+    return ((TextNode) getChild(0)).isPlaceholder();
+  }
+
   @Override
   public String getAttributeValue(String attributeName) {
     return getAttribute(attributeName);
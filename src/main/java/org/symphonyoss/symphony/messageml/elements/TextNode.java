@@ -29,6 +29,7 @@ import org.w3c.dom.Text;
  */
 public class TextNode extends Element {
   private String text;
+  private boolean placeholder;
 
   public TextNode(Element parent, Text node) {
     this(parent, node.getTextContent());
@@ -40,14 +41,14 @@ public class TextNode extends Element {
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out,
-      MessageMLContext context) {
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
     String content = this.text;
     if (out.isRemoveNl() && !(getParent() instanceof Code) && !(getParent() instanceof TextArea)) { // Do not remove newlines if the parent node is a code node or a text area node
       content = XmlPrintStream.removeNewLines(content);
     }
     content = out.escape(content);
     out.println(content);
+    return -1;
   }
 
   @Override
@@ -60,6 +61,18 @@ public class TextNode extends Element {
     this.text = node.getTextContent();
   }
 
+  @Override
+  void setPlaceholder() {
+    this.placeholder = true;
+  }
+
+  /**
+   * Whether the text holds placeholders of a message being prepared, whose values are checked once they are bound.
+   */
+  boolean isPlaceholder() {
+    return placeholder;
+  }
+
   public String getText() {
     return this.text;
   }
@@ -69,7 +82,7 @@ public class TextNode extends Element {
   }
 
   @Override
-  public String asText() {
+  String asOwnText() {
     return this.text;
   }
 
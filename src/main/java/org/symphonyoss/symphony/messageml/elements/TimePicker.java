@@ -10,7 +10,6 @@ import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.markdown.nodes.form.TimePickerNode;
 import org.symphonyoss.symphony.messageml.util.XMLAttribute;
 import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
-import org.symphonyoss.symphony.messageml.util.pojo.TimeInterval;
 import org.w3c.dom.Node;
 
 import java.time.format.DateTimeFormatter;
@@ -48,7 +47,7 @@ public class TimePicker extends FormElement implements LabelableElement, Tooltip
   private static final int MAX_STEP_ALLOWED = 43200;
 
   private static final String FORMAT_ATTR_PATTERN = "^[hHmsa: ]+$";
-  private static final String TIME_FORMAT_ALLOWED = "HH:mm:ss";
+  private static final DateTimeFormatter TIME_FORMAT_ALLOWED = DateTimeFormatter.ofPattern("HH:mm:ss");
 
 
   public TimePicker(Element parent, FormatEnum format) {
@@ -108,9 +107,9 @@ public class TimePicker extends FormElement implements LabelableElement, Tooltip
     assertAttrStepRange();
     assertAttrFormat();
 
-    assertTimeFormat(MIN_ATTR, DateTimeFormatter.ofPattern(TIME_FORMAT_ALLOWED));
-    assertTimeFormat(MAX_ATTR, DateTimeFormatter.ofPattern(TIME_FORMAT_ALLOWED));
-    assertTimeFormat(VALUE_ATTR, DateTimeFormatter.ofPattern(TIME_FORMAT_ALLOWED));
+    assertTimeFormat(MIN_ATTR, TIME_FORMAT_ALLOWED);
+    assertTimeFormat(MAX_ATTR, TIME_FORMAT_ALLOWED);
+    assertTimeFormat(VALUE_ATTR, TIME_FORMAT_ALLOWED);
 
     if (getAttribute(REQUIRED_ATTR) != null) {
       assertAttributeValue(REQUIRED_ATTR, Arrays.asList("true", "false"));
@@ -129,8 +128,7 @@ public class TimePicker extends FormElement implements LabelableElement, Tooltip
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out,
-                               MessageMLContext context) {
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
     Map<String, Object> presentationAttrs = buildTimePickerInputAttributes();
     if (isSplittable()) {
       // open div + adding splittable elements
@@ -142,6 +140,7 @@ public class TimePicker extends FormElement implements LabelableElement, Tooltip
     } else {
       innerAsPresentationML(out, presentationAttrs);
     }
+    return -1;
   }
 
   @Override
@@ -213,10 +212,7 @@ public class TimePicker extends FormElement implements LabelableElement, Tooltip
                       DISABLED_TIME_RANGE_MAX_LENGTH));
     }
     try {
-      TimeInterval[] timeIntervals = MAPPER.readValue(disabledTime, TimeInterval[].class);
-      for (TimeInterval timeInterval : timeIntervals) {
-        timeInterval.assertIsValid();
-      }
+      PickerAttributes.timeIntervals(disabledTime);
     } catch (JsonProcessingException e) {
       throw new InvalidInputException(
               String.format("Error parsing json in attribute \"%s\": %s", DISABLED_TIME_ATTR,
@@ -256,7 +252,7 @@ public class TimePicker extends FormElement implements LabelableElement, Tooltip
                       "'s' and 'a' are supported with ':' or space as separator", FORMAT_ATTR));
     }
     try {
-      DateTimeFormatter.ofPattern(format);
+      PickerAttributes.formatter(format);
     } catch (IllegalArgumentException i) {
       throw new InvalidInputException(
               String.format("Attribute \"%s\" contains an invalid time format", FORMAT_ATTR));
@@ -324,10 +320,8 @@ public class TimePicker extends FormElement implements LabelableElement, Tooltip
    */
   private XMLAttribute convertJsonTimeToPresentationML(String attributeName) {
     try {
-      TimeInterval[] timeIntervals = MAPPER.readValue(getAttribute(attributeName), TimeInterval[].class);
-      String result = MAPPER.writeValueAsString(timeIntervals);
-      return XMLAttribute.of(result, XMLAttribute.Format.JSON);
-    } catch (JsonProcessingException e) {
+      return XMLAttribute.of(PickerAttributes.timeIntervals(getAttribute(attributeName)), XMLAttribute.Format.JSON);
+    } catch (JsonProcessingException | InvalidInputException e) {
       // this exception should never happens because this method is called after validation
       throw new IllegalArgumentException(e);
     }
@@ -12,12 +12,9 @@ import org.symphonyoss.symphony.messageml.util.XMLAttribute;
 import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
 import org.w3c.dom.Node;
 
-import java.time.DateTimeException;
-import java.time.ZoneId;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -116,9 +113,7 @@ public class TimezonePicker extends FormElement implements LabelableElement, Too
     String disabledTimezones = getAttribute(attributeName);
     if (disabledTimezones == null) return;
     try {
-      List<String> timezones = MAPPER.readValue(disabledTimezones,
-          MAPPER.getTypeFactory().constructCollectionType(List.class, String.class));
-      for (String timezone : timezones) {
+      for (String timezone : PickerAttributes.timezones(disabledTimezones).getZones()) {
         assertTimezoneValid(attributeName, timezone);
       }
     } catch (JsonProcessingException e) {
@@ -130,15 +125,13 @@ public class TimezonePicker extends FormElement implements LabelableElement, Too
 
   private void assertTimezoneValid(String attributeValue, String timezone)
       throws InvalidInputException {
-    try {
-      ZoneId.of(timezone);
-    } catch (DateTimeException e) {
-      throw new InvalidInputException(String.format("Attribute \"%s\" contains an invalid timezone: %s", attributeValue, timezone), e);
+    if (!PickerAttributes.isValidTimezone(timezone)) {
+      throw new InvalidInputException(String.format("Attribute \"%s\" contains an invalid timezone: %s", attributeValue, timezone));
     }
   }
 
   @Override
-  public void asPresentationML(XmlPrintStream out, MessageMLContext context) {
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
     Map<String, Object> presentationAttrs = buildTimezonePickerInputAttributes();
     if (isSplittable()) {
       // open div + adding splittable elements
@@ -150,6 +143,7 @@ public class TimezonePicker extends FormElement implements LabelableElement, Too
     } else {
       innerAsPresentationML(out, presentationAttrs);
     }
+    return -1;
   }
 
   @Override
@@ -231,10 +225,7 @@ public class TimezonePicker extends FormElement implements LabelableElement, Too
 
   private XMLAttribute convertJsonTimezoneToPresentationML(String attributeName) {
     try {
-      List<String> timezones = MAPPER.readValue(getAttribute(attributeName),
-          MAPPER.getTypeFactory().constructCollectionType(List.class, String.class));
-      String result = MAPPER.writeValueAsString(timezones);
-      return XMLAttribute.of(result, XMLAttribute.Format.JSON);
+      return XMLAttribute.of(PickerAttributes.timezones(getAttribute(attributeName)).getJson(), XMLAttribute.Format.JSON);
     } catch (JsonProcessingException e) {
       // this exception should never happens because this method is called after validation
       throw new IllegalArgumentException(e);
@@ -18,7 +18,7 @@ import java.util.Map;
  *
  * Beware:
  *  If the element implementing this interface overrides {@link Element#buildAttribute(org.symphonyoss.symphony.messageml.MessageMLParser, org.w3c.dom.Node)}
- *  and/or {@link Element#asPresentationML(XmlPrintStream out, MessageMLContext context)} without calling super,
+ *  and/or {@link Element#openPresentationML(XmlPrintStream out, MessageMLContext context)} without calling super,
  *  it is needed to manage manually TITLE attribute and {@link SplittableElement#splittableAsPresentationML(XmlPrintStream out, MessageMLContext context)} method
  *
  * @author enrico.molino (24/06/2020)
@@ -34,6 +34,7 @@ import java.util.Map;
 public class UIAction extends Element {
 
   public static final String MESSAGEML_TAG = "ui-action";
+  private static final ContentModel ALLOWED_CHILDREN = ContentModel.of(Button.class, UIAction.class);
 
   private static final String TRIGGER_ATTR = "trigger";
   private static final String ACTION_ATTR = "action";
@@ -129,19 +130,15 @@ public class UIAction extends Element {
   }
 
   private void assertUIActionAllowedChildren() throws InvalidInputException {
-    List<Class<? extends Element>> allowedChildren = Arrays.asList(Button.class, UIAction.class);
-    assertContentModel(allowedChildren);
-    assertContainsAlwaysChildOfType(allowedChildren);
+    assertContentModel(ALLOWED_CHILDREN);
+    assertContainsAlwaysChildOfType(ALLOWED_CHILDREN.getTypes());
   }
 
   @Override
-  void asPresentationML(XmlPrintStream out, MessageMLContext context) {
+  int openPresentationML(XmlPrintStream out, MessageMLContext context) {
     Map<String, String> presentationAttrs = buildAUIActionAttributes();
     out.openElement(getPresentationMLTag(), presentationAttrs);
-    for (Element child : getChildren()) {
-      child.asPresentationML(out, context);
-    }
-    out.closeElement();
+    return 1;
   }
 
   @Override
@@ -0,0 +1,22 @@
+package org.symphonyoss.symphony.messageml.exceptions;
+
+/**
+ * Thrown when a message exceeds one of the configured {@link org.symphonyoss.symphony.messageml.ParseLimits}.
+ */
+public class ParseLimitExceededException extends InvalidInputException {
+  private static final long serialVersionUID = 1L;
+
+  private final String limit;
+
+  public ParseLimitExceededException(String limit, Object max) {
+    super(String.format("Message exceeds the maximum allowed %s [%s]", limit, max));
+    this.limit = limit;
+  }
+
+  /**
+   * Return the name of the exceeded limit.
+   */
+  public String getLimit() {
+    return limit;
+  }
+}
@@ -16,6 +16,7 @@
 
 package org.symphonyoss.symphony.messageml.markdown;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import org.commonmark.node.Link;
 import org.commonmark.node.Node;
 import org.commonmark.node.Text;
@@ -27,9 +28,15 @@ import org.symphonyoss.symphony.messageml.markdown.nodes.TableCellNode;
 import org.symphonyoss.symphony.messageml.markdown.nodes.TableNode;
 import org.symphonyoss.symphony.messageml.markdown.nodes.TableRowNode;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Custom processor for entities (tags, mentions, urls). Supports text processed by the method
- * <i>enrich()</i> in {@link MarkdownParser}.
+ * <i>enrich()</i> in {@link MarkdownParser}: entities are replaced in the text by their index in a side table, between
+ * two {@link #ENTITY_DELIMITER}, and the nodes of the side table replace the delimited text.
+ * <p>
+ * The side table is filled for each message, hence a processor must not be shared by parsers used concurrently.
  * @author lukasz
  * @since 4/11/17
  */
@@ -44,6 +51,9 @@ public class EntityDelimiterProcessor implements DelimiterProcessor {
   public static final String TABLE = "TABLE";
   public static final String EMOJI = "EMOJI";
 
+  // Nodes replacing the entities of the message being parsed, null for entities rendered as nothing
+  private final List<Node> entities = new ArrayList<>();
+
   @Override
   public char getOpeningCharacter() {
     return ENTITY_DELIMITER;
@@ -69,44 +79,65 @@ public class EntityDelimiterProcessor implements DelimiterProcessor {
     }
   }
 
-  private Node createNode(Text node) {
-    String[] text = node.getLiteral().split(String.valueOf(FIELD_DELIMITER));
-    if (text.length >= 2) {
-      switch (text[0]) {
-        case KEYWORD:
-          String prefix = text[1].substring(0, 1);
-          String value = text[1].substring(1);
-          return new KeywordNode(prefix, value);
-
-        case URL:
-          return new Link(text[1], text[1]);
-
-        case MENTION:
-          try {
-            Long uid = Long.valueOf(text[1]);
-            return new MentionNode(uid);
-          } catch (NumberFormatException e) {
-            return new Text(text[1]);
-          }
-
-        case TABLE:
-          TableNode tableNode = new TableNode();
-          for (String row : text[1].split(String.valueOf(GROUP_DELIMITER))) {
-            TableRowNode rowNode = new TableRowNode();
-            for (String cell : row.split(String.valueOf(RECORD_DELIMITER))) {
-              TableCellNode cellNode = new TableCellNode();
-              cellNode.appendChild(new Text(cell));
-              rowNode.appendChild(cellNode);
-            }
-            tableNode.appendChild(rowNode);
-          }
-          return tableNode;
-
-        default:
-          return null;
+  /**
+   * Clear the side table before parsing a new message.
+   */
+  void reset() {
+    entities.clear();
+  }
+
+  /**
+   * Add an entity to the side table.
+   * @return the index to write between delimiters in the text
+   */
+  int addEntity(String type, String id) {
+    entities.add(createNode(type, id));
+    return entities.size() - 1;
+  }
+
+  /**
+   * Add a table, given as an array of rows, each row an array of cells, to the side table.
+   * @return the index to write between delimiters in the text
+   */
+  int addTable(JsonNode table) {
+    TableNode tableNode = new TableNode();
+    for (JsonNode row : table) {
+      TableRowNode rowNode = new TableRowNode();
+      for (JsonNode cell : row) {
+        TableCellNode cellNode = new TableCellNode();
+        cellNode.appendChild(new Text(cell.asText()));
+        rowNode.appendChild(cellNode);
       }
-    } else {
-      return node;
+      tableNode.appendChild(rowNode);
+    }
+    entities.add(tableNode);
+    return entities.size() - 1;
+  }
+
+  private Node createNode(String type, String id) {
+    if (id.isEmpty()) {
+      return null;
+    }
+
+    switch (type) {
+      case KEYWORD:
+        String prefix = id.substring(0, 1);
+        String value = id.substring(1);
+        return new KeywordNode(prefix, value);
+
+      case URL:
+        return new Link(id, id);
+
+      case MENTION:
+        try {
+          Long uid = Long.valueOf(id);
+          return new MentionNode(uid);
+        } catch (NumberFormatException e) {
+          return new Text(id);
+        }
+
+      default:
+        return new Text(type + FIELD_DELIMITER + id);
     }
   }
 
@@ -115,12 +146,33 @@ public class EntityDelimiterProcessor implements DelimiterProcessor {
     Node node = opener.getNext();
 
     if (node instanceof Text) {
-      Node result = createNode((Text) node);
+      int index = parseIndex(((Text) node).getLiteral());
 
-      if (result != null) {
-        opener.insertAfter(result);
+      if (index >= 0) {
+        Node result = entities.get(index);
+        if (result != null) {
+          opener.insertAfter(result);
+        }
         node.unlink();
       }
     }
   }
+
+  /**
+   * Return the index in the side table written in the text, -1 if the text is not a valid index.
+   */
+  private int parseIndex(String text) {
+    if (text.isEmpty() || text.length() > 9) {
+      return -1;
+    }
+    int index = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      index = index * 10 + (c - '0');
+    }
+    return (index < entities.size()) ? index : -1;
+  }
 }
@@ -17,10 +17,6 @@
 package org.symphonyoss.symphony.messageml.markdown;
 
 import static org.symphonyoss.symphony.messageml.markdown.EntityDelimiterProcessor.ENTITY_DELIMITER;
-import static org.symphonyoss.symphony.messageml.markdown.EntityDelimiterProcessor.FIELD_DELIMITER;
-import static org.symphonyoss.symphony.messageml.markdown.EntityDelimiterProcessor.GROUP_DELIMITER;
-import static org.symphonyoss.symphony.messageml.markdown.EntityDelimiterProcessor.RECORD_DELIMITER;
-import static org.symphonyoss.symphony.messageml.markdown.EntityDelimiterProcessor.TABLE;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import org.apache.commons.lang3.ObjectUtils;
@@ -67,9 +63,12 @@ import org.symphonyoss.symphony.messageml.markdown.nodes.TableNode;
 import org.symphonyoss.symphony.messageml.markdown.nodes.TableRowNode;
 import org.symphonyoss.symphony.messageml.util.IDataProvider;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.TreeMap;
 
 /**
  * Used for converting legacy messages in Markdown and JSON entities to MessageMLV2 documents.
@@ -77,7 +76,7 @@ import java.util.TreeMap;
  * @since 3/30/17
  */
 public class MarkdownParser extends AbstractVisitor {
-  private static final Parser MARKDOWN_PARSER;
+  private static final Set<Class<? extends Block>> ENABLED_BLOCK_TYPES = new HashSet<>();
   private static final String INDEX = "index";
   private static final String INDEX_START = "indexStart";
   private static final String INDEX_END = "indexEnd";
@@ -85,21 +84,19 @@ public class MarkdownParser extends AbstractVisitor {
   private static final String ID = "id";
   private static final String TEXT = "text";
   private final IDataProvider dataProvider;
+  // The entity processor holds the entities of the message being parsed, hence a Markdown parser per instance
+  private final EntityDelimiterProcessor entityProcessor = new EntityDelimiterProcessor();
+  private Parser markdownParser;
   private MessageML messageML;
   private Element parent;
   private int index;
+  private boolean continuation;
 
   static {
-    Set<Class<? extends Block>> enabledBlockTypes = new HashSet<>();
-    enabledBlockTypes.add(ThematicBreak.class);
-    enabledBlockTypes.add(FencedCodeBlock.class);
-    enabledBlockTypes.add(BlockQuote.class);
-    enabledBlockTypes.add(ListBlock.class);
-
-    MARKDOWN_PARSER = Parser.builder()
-        .enabledBlockTypes(enabledBlockTypes)
-        .customDelimiterProcessor(new EntityDelimiterProcessor())
-        .build();
+    ENABLED_BLOCK_TYPES.add(ThematicBreak.class);
+    ENABLED_BLOCK_TYPES.add(FencedCodeBlock.class);
+    ENABLED_BLOCK_TYPES.add(BlockQuote.class);
+    ENABLED_BLOCK_TYPES.add(ListBlock.class);
   }
 
   public MarkdownParser(IDataProvider dataProvider) {
@@ -136,7 +133,8 @@ public class MarkdownParser extends AbstractVisitor {
 
   @Override
   public void visit(org.commonmark.node.Paragraph paragraph) {
-    if (!(parent instanceof ListItem) && !(parent instanceof MessageML && paragraph.getPrevious() == null)) {
+    if (!(parent instanceof ListItem)
+        && !(parent instanceof MessageML && paragraph.getPrevious() == null && !continuation)) {
       LineBreak node = new LineBreak(parent);
       parent.addChild(node);
     }
@@ -280,69 +278,113 @@ public class MarkdownParser extends AbstractVisitor {
    * Markdown parser.
    */
   private String enrichMarkdown(String message, JsonNode entitiesNode, JsonNode mediaNode) throws InvalidInputException {
-
-    TreeMap<Integer, JsonNode> entities = new TreeMap<>();
-    TreeMap<Integer, JsonNode> media = new TreeMap<>();
+    entityProcessor.reset();
+    List<Splice> splices = new ArrayList<>();
 
     if (entitiesNode != null) {
       validateEntities(entitiesNode);
       for (JsonNode node : entitiesNode.findParents(INDEX_START)) {
-        entities.put(node.get(INDEX_START).intValue(), node);
+        splices.add(new Splice(node.get(INDEX_START).intValue(), node, false));
       }
     }
 
     if (mediaNode != null) {
       validateMedia(mediaNode);
       for (JsonNode node : mediaNode.findParents(INDEX)) {
-        media.put(node.get(INDEX).intValue(), node.get(TEXT));
+        splices.add(new Splice(node.get(INDEX).intValue(), node.get(TEXT), true));
       }
     }
 
-    // If entity indices are outside the message, pad the message to the necessary length
-    int lastIndex = Math.max((!entities.isEmpty()) ? entities.lastKey() : 0, (!media.isEmpty()) ? media.lastKey() : 0);
-    if (message.length() <= lastIndex) {
-      message = StringUtils.rightPad(message, lastIndex + 1);
+    if (splices.isEmpty()) {
+      return message;
     }
 
-    StringBuilder output = new StringBuilder();
+    // Stable sort: for a given index, entities come before media and the last one of each kind wins
+    Collections.sort(splices, Comparator.comparingInt(splice -> splice.index));
 
-    for (int i = 0; i < message.length(); i++) {
-      char c = message.charAt(i);
+    // If entity indices are outside the message, pad the message to the necessary length
+    int length = Math.max(message.length(), splices.get(splices.size() - 1).index + 1);
+    StringBuilder output = new StringBuilder(length + splices.size() * 8);
+    boolean[] overridden = findOverridden(splices);
+    int position = 0;
+
+    for (int i = 0; i < splices.size(); i++) {
+      Splice splice = splices.get(i);
+      if (splice.index < position || overridden[i]) {
+        // within the text replaced by a previous entity, or overridden
+        continue;
+      }
 
-      if (entities.containsKey(i)) {
-        JsonNode entity = entities.get(i);
-        String entityType = entity.get(TYPE).asText().toUpperCase();
-        String id = entity.get(ID).asText();
+      appendText(output, message, position, splice.index);
+      output.append(ENTITY_DELIMITER);
 
+      if (splice.media) {
+        output.append(entityProcessor.addTable(splice.node));
         output.append(ENTITY_DELIMITER);
-        output.append(entityType).append(FIELD_DELIMITER);
-        output.append(id);
+        position = splice.index;
+      } else {
+        JsonNode entity = splice.node;
+        output.append(entityProcessor.addEntity(entity.get(TYPE).asText().toUpperCase(), entity.get(ID).asText()));
         output.append(ENTITY_DELIMITER);
+        // We explicitly check the entity indices above, but make double sure that we don't go backwards here
+        position = Math.max(entity.get(INDEX_END).intValue(), splice.index + 1);
+      }
+    }
 
-        // We explicitly check the entity indices above, but make double sure that we don't get into an infinite loop here
-        int endIndex = entity.get(INDEX_END).intValue() - 1;
-        i = Math.max(endIndex, i);
-
-      } else if (media.containsKey(i)) {
-        JsonNode table = media.get(i);
+    appendText(output, message, position, length);
+    return output.toString();
+  }
 
-        output.append(ENTITY_DELIMITER);
-        output.append(TABLE).append(FIELD_DELIMITER);
-        for (JsonNode row : table) {
-          for (JsonNode cell : row) {
-            String text = cell.asText();
-            output.append(text).append(RECORD_DELIMITER);
-          }
-          output.append(GROUP_DELIMITER);
-        }
-        output.append(ENTITY_DELIMITER);
-        output.append(c);
-      } else {
-        output.append(c);
+  /**
+   * Flag the splices not applied at their index: entities take precedence over media, and the last one of a kind takes
+   * precedence over the previous ones.
+   */
+  private static boolean[] findOverridden(List<Splice> splices) {
+    boolean[] overridden = new boolean[splices.size()];
+    boolean entityFound = false;
+    boolean mediaFound = false;
+    for (int i = splices.size() - 1; i >= 0; i--) {
+      Splice splice = splices.get(i);
+      if (i == splices.size() - 1 || splices.get(i + 1).index != splice.index) {
+        entityFound = false;
+        mediaFound = false;
       }
+      overridden[i] = splice.media ? (entityFound || mediaFound) : entityFound;
+      entityFound |= !splice.media;
+      mediaFound |= splice.media;
     }
+    return overridden;
+  }
 
-    return output.toString();
+  /**
+   * Copy the message between the given indices, padded with spaces beyond its end.
+   */
+  private static void appendText(StringBuilder output, String message, int from, int to) {
+    if (from >= to) {
+      return;
+    }
+    int end = Math.min(to, message.length());
+    if (from < end) {
+      output.append(message, from, end);
+    }
+    for (int i = Math.max(from, end); i < to; i++) {
+      output.append(' ');
+    }
+  }
+
+  /**
+   * An entity or a table to insert in the message at a given index.
+   */
+  private static class Splice {
+    private final int index;
+    private final JsonNode node;
+    private final boolean media;
+
+    private Splice(int index, JsonNode node, boolean media) {
+      this.index = index;
+      this.node = node;
+      this.media = media;
+    }
   }
 
   /**
@@ -387,10 +429,40 @@ public class MarkdownParser extends AbstractVisitor {
     this.index = 0;
     message = message.replace((char) 160, (char) 32);
     String enriched = enrichMarkdown(message, entities, media);
-    Node markdown = MARKDOWN_PARSER.parse(enriched);
+    Node markdown = getMarkdownParser().parse(enriched);
     markdown.accept(this);
 
     return messageML;
   }
 
+  /**
+   * Parse a chunk of a Markdown message made of complete blocks, without entities, appending the resulting elements to
+   * the given document. Used to convert a message streamed in chunks without parsing its first blocks again.
+   * @param document the document the elements are appended to
+   * @param chunk Markdown blocks
+   * @param continuation whether the chunk follows blocks already appended to the document
+   */
+  public void parseBlocks(MessageML document, String chunk, boolean continuation) {
+    this.index = 0;
+    this.messageML = document;
+    this.parent = document;
+    this.continuation = continuation;
+    entityProcessor.reset();
+    try {
+      visitChildren(getMarkdownParser().parse(chunk.replace((char) 160, (char) 32)));
+    } finally {
+      this.continuation = false;
+    }
+  }
+
+  private Parser getMarkdownParser() {
+    if (markdownParser == null) {
+      markdownParser = Parser.builder()
+          .enabledBlockTypes(ENABLED_BLOCK_TYPES)
+          .customDelimiterProcessor(entityProcessor)
+          .build();
+    }
+    return markdownParser;
+  }
+
 }
@@ -24,6 +24,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.commonmark.node.*;
 import org.commonmark.renderer.text.TextContentWriter;
 import org.symphonyoss.symphony.messageml.elements.MessageML;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.markdown.nodes.EmojiNode;
 import org.symphonyoss.symphony.messageml.markdown.nodes.KeywordNode;
 import org.symphonyoss.symphony.messageml.markdown.nodes.MentionNode;
@@ -43,8 +44,10 @@ import org.symphonyoss.symphony.messageml.markdown.nodes.form.TextFieldNode;
 import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
 
 import java.text.MessageFormat;
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -83,6 +86,10 @@ public class MarkdownRenderer extends AbstractVisitor {
   private Integer orderedListCounter;
   private Character orderedListDelimiter;
   private int orderedListLevel = 0;
+  // Document linked by the sink, rendered when the output is first retrieved
+  private Document linked;
+  // Nodes whose children are being visited, the innermost first
+  private final Deque<Frame> frames = new ArrayDeque<>();
 
   /**
    * Process the document tree and generate its text representation.
@@ -92,6 +99,34 @@ public class MarkdownRenderer extends AbstractVisitor {
     visit(document);
   }
 
+  /**
+   * Generate the text representation of a MessageML document. The output is the same as rendering
+   * {@link MessageML#asMarkdown()}.
+   * @param messageML the input MessageML document.
+   */
+  public MarkdownRenderer(MessageML messageML) throws InvalidInputException {
+    DocumentSink sink = new DocumentSink();
+    messageML.asMarkdown(sink);
+    visit(sink.document);
+  }
+
+  /**
+   * Create a renderer receiving the Markdown nodes of a MessageML document from the sink returned by
+   * {@link #sink()}, e.g. when the document is traversed once for all its outputs.
+   */
+  public MarkdownRenderer() {
+  }
+
+  /**
+   * Return a sink linking the Markdown nodes it receives into a document tree, rendered when the text or the JSON of
+   * this renderer are first retrieved. To be called once.
+   */
+  public MarkdownSink sink() {
+    DocumentSink sink = new DocumentSink();
+    this.linked = sink.document;
+    return sink;
+  }
+
   @Override
   public void visit(Document document) {
     visitChildren(document);
@@ -116,8 +151,7 @@ public class MarkdownRenderer extends AbstractVisitor {
   public void visit(Paragraph paragraph) {
     writer.doubleLine();
     if (paragraph.getFirstChild() != null) {
-      visitChildren(paragraph);
-      writer.doubleLine();
+      visitChildrenThen(paragraph, writer::doubleLine);
     }
   }
 
@@ -159,13 +193,14 @@ public class MarkdownRenderer extends AbstractVisitor {
     bulletListLevel += (ul.getParent() instanceof ListItem) ? 1 : 0;
 
     bulletListMarker = ul.getBulletMarker();
-    visitChildren(ul);
-    writer.line();
+    visitChildrenThen(ul, () -> {
+      writer.line();
 
-    bulletListMarker = previousMarker;
-    bulletListLevel = previousLevel;
+      bulletListMarker = previousMarker;
+      bulletListLevel = previousLevel;
 
-    writer.line();
+      writer.line();
+    });
   }
 
   @Override
@@ -180,14 +215,15 @@ public class MarkdownRenderer extends AbstractVisitor {
 
     orderedListCounter = ol.getStartNumber();
     orderedListDelimiter = ol.getDelimiter();
-    visitChildren(ol);
-    writer.line();
+    visitChildrenThen(ol, () -> {
+      writer.line();
 
-    orderedListCounter = previousCounter;
-    orderedListDelimiter = previousDelimiter;
-    orderedListLevel = previousLevel;
+      orderedListCounter = previousCounter;
+      orderedListDelimiter = previousDelimiter;
+      orderedListLevel = previousLevel;
 
-    writer.line();
+      writer.line();
+    });
   }
 
   @Override
@@ -195,13 +231,13 @@ public class MarkdownRenderer extends AbstractVisitor {
     if (orderedListCounter != null) {
       writer.write(StringUtils.repeat(INDENT, orderedListLevel) + String.valueOf(orderedListCounter) +
           orderedListDelimiter + " ");
-      visitChildren(li);
-      writer.line();
-      orderedListCounter++;
+      visitChildrenThen(li, () -> {
+        writer.line();
+        orderedListCounter++;
+      });
     } else if (bulletListMarker != null) {
       writer.write( StringUtils.repeat(INDENT, bulletListLevel) + bulletListMarker + " ");
-      visitChildren(li);
-      writer.line();
+      visitChildrenThen(li, writer::line);
     }
   }
 
@@ -275,14 +311,12 @@ public class MarkdownRenderer extends AbstractVisitor {
 
   private void visit(FormNode form) {
     writer.write(form.getOpeningDelimiter());
-    visitChildren(form);
-    writer.write(form.getClosingDelimiter());
+    visitChildrenThen(form, () -> writer.write(form.getClosingDelimiter()));
   }
 
   private void visit(ButtonNode button) {
     writer.write(button.getOpeningDelimiter());
-    visitChildren(button);
-    writer.write(button.getClosingDelimiter());
+    visitChildrenThen(button, () -> writer.write(button.getClosingDelimiter()));
   }
 
   private void visit(SelectNode select) {
@@ -294,8 +328,7 @@ public class MarkdownRenderer extends AbstractVisitor {
 
   private void visit(OptionNode option) {
     writer.write(option.getOpeningDelimiter());
-    visitChildren(option);
-    writer.write(option.getClosingDelimiter());
+    visitChildrenThen(option, () -> writer.write(option.getClosingDelimiter()));
   }
   
   private void visit(TextFieldNode textField) {
@@ -348,31 +381,33 @@ public class MarkdownRenderer extends AbstractVisitor {
   }
   private void visit(TableNode table) {
     writer.write(table.getOpeningDelimiter());
-    visitChildren(table);
-    writer.write(table.getClosingDelimiter());
+    visitChildrenThen(table, () -> writer.write(table.getClosingDelimiter()));
   }
 
   private void visit(TableRowNode row) {
-    visitChildren(row);
-    if (row.getNext() != null) {
-      writer.write(row.getDelimiter());
-    }
+    visitChildrenThen(row, () -> {
+      if (row.getNext() != null) {
+        writer.write(row.getDelimiter());
+      }
+    });
   }
 
   private void visit(TableCellNode cell) {
-    visitChildren(cell);
-    if (cell.getNext() != null) {
-      writer.write(cell.getDelimiter());
-    }
+    visitChildrenThen(cell, () -> {
+      if (cell.getNext() != null) {
+        writer.write(cell.getDelimiter());
+      }
+    });
   }
 
   private void visit(PreformattedNode pre) {
     this.removeNewlines = false;
     writer.write(pre.getOpeningDelimiter());
-    visitChildren(pre);
-    writer.write(pre.getClosingDelimiter());
-    writer.line();
-    this.removeNewlines = true;
+    visitChildrenThen(pre, () -> {
+      writer.write(pre.getClosingDelimiter());
+      writer.line();
+      this.removeNewlines = true;
+    });
   }
 
   private void visit(TagNode tag) {
@@ -392,8 +427,43 @@ public class MarkdownRenderer extends AbstractVisitor {
 
   private void visitDelimited(Delimited delimited) {
     writer.write(delimited.getOpeningDelimiter());
-    visitChildren((Node) delimited);
-    writer.write(delimited.getClosingDelimiter());
+    visitChildrenThen((Node) delimited, () -> writer.write(delimited.getClosingDelimiter()));
+  }
+
+  @Override
+  protected void visitChildren(Node parent) {
+    visitChildrenThen(parent, null);
+  }
+
+  /**
+   * Visit the children of the node, then run the given action. The children are visited with an explicit stack, so
+   * that the depth of the document does not grow the call stack: the nodes visited while the children of a node are
+   * being visited only queue their own children.
+   */
+  private void visitChildrenThen(Node parent, Runnable after) {
+    boolean outermost = frames.isEmpty();
+    frames.push(new Frame(parent.getFirstChild(), after));
+    if (!outermost) {
+      return;
+    }
+    try {
+      while (!frames.isEmpty()) {
+        Frame frame = frames.peek();
+        Node child = frame.next;
+        if (child == null) {
+          frames.pop();
+          if (frame.after != null) {
+            frame.after.run();
+          }
+          continue;
+        }
+        // get the next node before visiting, as the visit of the node might modify it
+        frame.next = child.getNext();
+        child.accept(this);
+      }
+    } finally {
+      frames.clear();
+    }
   }
 
   /**
@@ -419,11 +489,18 @@ public class MarkdownRenderer extends AbstractVisitor {
     Matcher matcher = NOESCAPE_PATTERN.matcher(content);
     if (!matcher.matches()) {
       // Otherwise, escape reserved Markdown characters in text nodes to prevent them from being interpreted as MD
-      content = StringUtils.replaceEach(content, new String[]{"_","*","-","+","`"}, new String[]{"\\_","\\*","\\-","\\+","\\`"});
+      content = escapeReservedCharacters(content);
     }
     return content;
   }
 
+  /**
+   * Escape every reserved Markdown character.
+   */
+  public static String escapeReservedCharacters(String content) {
+    return StringUtils.replaceEach(content, new String[]{"_","*","-","+","`"}, new String[]{"\\_","\\*","\\-","\\+","\\`"});
+  }
+
   private void putJsonObject(String field, JsonNode value) {
     if (!json.has(field)) {
       json.set(field, new ArrayNode(JsonNodeFactory.instance));
@@ -437,6 +514,7 @@ public class MarkdownRenderer extends AbstractVisitor {
    * @return Markdown text
    */
   public String getText() {
+    renderLinked();
     return writer.toString();
   }
 
@@ -446,9 +524,56 @@ public class MarkdownRenderer extends AbstractVisitor {
    * input documents.
    */
   public ObjectNode getJson() {
+    renderLinked();
     return json;
   }
 
+  private void renderLinked() {
+    if (linked != null) {
+      Document document = linked;
+      linked = null;
+      visit(document);
+    }
+  }
+
+  /**
+   * Links the nodes received from a MessageML document into a document tree, as {@link MessageML#asMarkdown()} does.
+   */
+  private static class DocumentSink implements MarkdownSink {
+    private final Document document = new Document();
+    private final Deque<Node> parents = new ArrayDeque<>();
+
+    DocumentSink() {
+      parents.push(document);
+    }
+
+    @Override
+    public boolean open(Node node) {
+      try {
+        parents.peek().appendChild(node);
+      } catch (IllegalArgumentException ex) {
+        // as for MessageML#asMarkdown(), the node and its children are left out of the document
+      }
+      parents.push(node);
+      return true;
+    }
+
+    @Override
+    public void close(Node node) {
+      parents.pop();
+    }
+  }
+
+  private static class Frame {
+    private Node next;
+    private final Runnable after;
+
+    private Frame(Node next, Runnable after) {
+      this.next = next;
+      this.after = after;
+    }
+  }
+
   class TrackingWriter extends TextContentWriter {
 
     final StringBuilder out;
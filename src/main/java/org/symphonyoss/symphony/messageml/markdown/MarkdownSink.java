@@ -0,0 +1,23 @@
+package org.symphonyoss.symphony.messageml.markdown;
+
+import org.commonmark.node.Node;
+
+/**
+ * Receives the Markdown nodes of a MessageML document tree in document order, e.g. while the document is traversed
+ * for its other outputs. See {@link MarkdownRenderer#sink()}.
+ */
+public interface MarkdownSink {
+
+  /**
+   * Open a node, as the next child of the current node.
+   * @return true if the node becomes the current node and receives the nodes of the children of the element, which
+   * must then be followed by a call to {@link #close(Node)}; false if the node is complete and its children are not
+   * rendered
+   */
+  boolean open(Node node);
+
+  /**
+   * Close the current node, opened by a call to {@link #open(Node)} which returned true.
+   */
+  void close(Node node);
+}
@@ -0,0 +1,171 @@
+package org.symphonyoss.symphony.messageml.metrics;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe {@link ParseListener} accumulating all metrics in memory, meant to be shared by all contexts of an
+ * application and scraped periodically with {@link #snapshot()}.
+ */
+public class AggregatingParseListener implements ParseListener {
+
+  private final Map<ParseStage, LongAdder> stageNanos = new EnumMap<>(ParseStage.class);
+  private final Map<ParseStage, LongAdder> stageCounts = new EnumMap<>(ParseStage.class);
+  private final Map<OutputFormat, LongAdder> outputBytes = new EnumMap<>(OutputFormat.class);
+  private final ConcurrentMap<String, LongAdder> elements = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, LongAdder> dataProviderCalls = new ConcurrentHashMap<>();
+  private final LongAdder messageBytes = new LongAdder();
+  private final LongAdder entityJsonBytes = new LongAdder();
+  private final LongAdder validated = new LongAdder();
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+
+  public AggregatingParseListener() {
+    // enum maps are filled once and only read afterwards, which makes them safe to share
+    for (ParseStage stage : ParseStage.values()) {
+      stageNanos.put(stage, new LongAdder());
+      stageCounts.put(stage, new LongAdder());
+    }
+    for (OutputFormat format : OutputFormat.values()) {
+      outputBytes.put(format, new LongAdder());
+    }
+  }
+
+  @Override
+  public void onInput(long messageBytes, long entityJsonBytes) {
+    this.messageBytes.add(messageBytes);
+    this.entityJsonBytes.add(entityJsonBytes);
+  }
+
+  @Override
+  public void onStage(ParseStage stage, long nanos) {
+    stageNanos.get(stage).add(nanos);
+    stageCounts.get(stage).increment();
+  }
+
+  @Override
+  public void onDataProviderCall(String method) {
+    dataProviderCalls.computeIfAbsent(method, key -> new LongAdder()).increment();
+  }
+
+  @Override
+  public void onElements(Map<String, Integer> countsByTag) {
+    countsByTag.forEach((tag, count) -> elements.computeIfAbsent(tag, key -> new LongAdder()).add(count));
+  }
+
+  @Override
+  public void onValidated(String tag) {
+    validated.increment();
+  }
+
+  @Override
+  public void onOutput(OutputFormat format, long bytes) {
+    outputBytes.get(format).add(bytes);
+  }
+
+  @Override
+  public void onParseCompleted() {
+    completed.increment();
+  }
+
+  @Override
+  public void onParseFailed(Exception e) {
+    failed.increment();
+  }
+
+  public long getStageNanos(ParseStage stage) {
+    return stageNanos.get(stage).sum();
+  }
+
+  public long getStageCount(ParseStage stage) {
+    return stageCounts.get(stage).sum();
+  }
+
+  public long getOutputBytes(OutputFormat format) {
+    return outputBytes.get(format).sum();
+  }
+
+  public long getMessageBytes() {
+    return messageBytes.sum();
+  }
+
+  public long getEntityJsonBytes() {
+    return entityJsonBytes.sum();
+  }
+
+  public long getValidatedCount() {
+    return validated.sum();
+  }
+
+  public long getCompletedCount() {
+    return completed.sum();
+  }
+
+  public long getFailedCount() {
+    return failed.sum();
+  }
+
+  /**
+   * Return the number of elements seen so far, by MessageML tag.
+   */
+  public Map<String, Long> getElementCounts() {
+    return sum(elements);
+  }
+
+  /**
+   * Return the number of data provider calls made so far, by method.
+   */
+  public Map<String, Long> getDataProviderCalls() {
+    return sum(dataProviderCalls);
+  }
+
+  /**
+   * Return all metrics as a flat map, with keys such as <code>stage.build.nanos</code>, <code>element.p</code> or
+   * <code>dataprovider.validateURI</code>.
+   */
+  public Map<String, Long> snapshot() {
+    Map<String, Long> result = new TreeMap<>();
+    result.put("parse.completed", getCompletedCount());
+    result.put("parse.failed", getFailedCount());
+    result.put("input.message.bytes", getMessageBytes());
+    result.put("input.entityjson.bytes", getEntityJsonBytes());
+    result.put("validation.count", getValidatedCount());
+    for (ParseStage stage : ParseStage.values()) {
+      result.put("stage." + stage.getValue() + ".nanos", getStageNanos(stage));
+      result.put("stage." + stage.getValue() + ".count", getStageCount(stage));
+    }
+    for (OutputFormat format : OutputFormat.values()) {
+      result.put("output." + format.getValue() + ".bytes", getOutputBytes(format));
+    }
+    getElementCounts().forEach((tag, count) -> result.put("element." + tag, count));
+    getDataProviderCalls().forEach((method, count) -> result.put("dataprovider." + method, count));
+    return Collections.unmodifiableMap(result);
+  }
+
+  /**
+   * Clear all metrics.
+   */
+  public void reset() {
+    stageNanos.values().forEach(LongAdder::reset);
+    stageCounts.values().forEach(LongAdder::reset);
+    outputBytes.values().forEach(LongAdder::reset);
+    elements.clear();
+    dataProviderCalls.clear();
+    messageBytes.reset();
+    entityJsonBytes.reset();
+    validated.reset();
+    completed.reset();
+    failed.reset();
+  }
+
+  private static Map<String, Long> sum(Map<String, LongAdder> adders) {
+    Map<String, Long> result = new TreeMap<>();
+    adders.forEach((key, adder) -> result.put(key, adder.sum()));
+    return result;
+  }
+}
@@ -0,0 +1,82 @@
+package org.symphonyoss.symphony.messageml.metrics;
+
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.util.IDataProvider;
+import org.symphonyoss.symphony.messageml.util.IUserPresentation;
+import org.symphonyoss.symphony.messageml.util.instrument.resolver.InstrumentResolution;
+import org.symphonyoss.symphony.messageml.util.instrument.resolver.ResolutionResults;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Decorates an {@link IDataProvider} to report every call, and the time it took, to a {@link ParseListener}.
+ */
+public class InstrumentedDataProvider implements IDataProvider {
+
+  public static final String GET_USER_BY_EMAIL = "getUserPresentationByEmail";
+  public static final String GET_USER_BY_UID = "getUserPresentationByUid";
+  public static final String VALIDATE_URI = "validateURI";
+  public static final String GET_FIN_TAG_PRESENTATION = "getFinTagPresentation";
+
+  private final IDataProvider delegate;
+  private final ParseListener listener;
+
+  public InstrumentedDataProvider(IDataProvider delegate, ParseListener listener) {
+    this.delegate = delegate;
+    this.listener = listener;
+  }
+
+  @Override
+  public IUserPresentation getUserPresentation(String emailAddress) throws InvalidInputException {
+    long start = System.nanoTime();
+    try {
+      return delegate.getUserPresentation(emailAddress);
+    } finally {
+      report(GET_USER_BY_EMAIL, start);
+    }
+  }
+
+  @Override
+  public IUserPresentation getUserPresentation(Long uid) throws InvalidInputException {
+    long start = System.nanoTime();
+    try {
+      return delegate.getUserPresentation(uid);
+    } finally {
+      report(GET_USER_BY_UID, start);
+    }
+  }
+
+  @Override
+  public void validateURI(URI uri) throws InvalidInputException, ProcessingException {
+    long start = System.nanoTime();
+    try {
+      delegate.validateURI(uri);
+    } finally {
+      report(VALIDATE_URI, start);
+    }
+  }
+
+  @Override
+  public ResolutionResults getFinTagPresentation(List<InstrumentResolution> criteria) throws InvalidInputException {
+    long start = System.nanoTime();
+    try {
+      return delegate.getFinTagPresentation(criteria);
+    } finally {
+      report(GET_FIN_TAG_PRESENTATION, start);
+    }
+  }
+
+  /**
+   * Return the decorated data provider.
+   */
+  public IDataProvider getDelegate() {
+    return delegate;
+  }
+
+  private void report(String method, long start) {
+    listener.onStage(ParseStage.DATA_PROVIDER, System.nanoTime() - start);
+    listener.onDataProviderCall(method);
+  }
+}
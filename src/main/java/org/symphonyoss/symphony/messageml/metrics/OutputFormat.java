@@ -0,0 +1,21 @@
+package org.symphonyoss.symphony.messageml.metrics;
+
+/**
+ * The output formats whose size is reported to a {@link ParseListener}.
+ */
+public enum OutputFormat {
+
+  PRESENTATIONML("presentationml"),
+  MARKDOWN("markdown"),
+  TEXT("text");
+
+  private final String value;
+
+  OutputFormat(String value) {
+    this.value = value;
+  }
+
+  public String getValue() {
+    return value;
+  }
+}
@@ -0,0 +1,61 @@
+package org.symphonyoss.symphony.messageml.metrics;
+
+import java.util.Map;
+
+/**
+ * Receives metrics about the parsing of messages through a {@link org.symphonyoss.symphony.messageml.MessageMLContext}:
+ * time spent in each {@link ParseStage}, input and output sizes, elements found and data provider calls.
+ * <p>
+ * All methods have an empty default implementation, override only the ones of interest. Implementations shared
+ * between contexts must be thread safe. When no listener is given, {@link #NO_OP} is used and no metric is computed.
+ */
+public interface ParseListener {
+
+  /**
+   * Listener ignoring all events.
+   */
+  ParseListener NO_OP = new ParseListener() {};
+
+  /**
+   * Called when parsing starts, with the UTF-8 size of the message and of the EntityJSON (0 if none).
+   */
+  default void onInput(long messageBytes, long entityJsonBytes) {}
+
+  /**
+   * Called when a stage is over, with the time spent in it. A stage can be reported several times for one message
+   * (e.g. one {@link ParseStage#DATA_PROVIDER} event per call).
+   */
+  default void onStage(ParseStage stage, long nanos) {}
+
+  /**
+   * Called for every call made to the data provider.
+   * @param method name of the called method (see {@link InstrumentedDataProvider})
+   */
+  default void onDataProviderCall(String method) {}
+
+  /**
+   * Called once the document tree is built, with the number of elements by MessageML tag.
+   * Text content is counted under {@link ParseMetrics#TEXT_NODE}.
+   */
+  default void onElements(Map<String, Integer> countsByTag) {}
+
+  /**
+   * Called for every element validated while the document tree is built, with its MessageML tag.
+   */
+  default void onValidated(String tag) {}
+
+  /**
+   * Called when an output format is generated, with its UTF-8 size.
+   */
+  default void onOutput(OutputFormat format, long bytes) {}
+
+  /**
+   * Called when a message has been successfully parsed.
+   */
+  default void onParseCompleted() {}
+
+  /**
+   * Called when a message is rejected or fails to be parsed.
+   */
+  default void onParseFailed(Exception e) {}
+}
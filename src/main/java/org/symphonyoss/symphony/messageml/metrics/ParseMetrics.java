@@ -0,0 +1,67 @@
+package org.symphonyoss.symphony.messageml.metrics;
+
+import org.symphonyoss.symphony.messageml.elements.Element;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Helpers used to feed a {@link ParseListener}. They are only called when an actual listener is registered.
+ */
+public final class ParseMetrics {
+
+  public static final String TEXT_NODE = "#text";
+
+  private ParseMetrics() {
+  }
+
+  /**
+   * Number of bytes of the UTF-8 encoding of the given text, computed without encoding it.
+   */
+  public static long utf8Length(CharSequence text) {
+    if (text == null) {
+      return 0;
+    }
+
+    long length = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        length++;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Return the tag elements are counted under, {@link #TEXT_NODE} for text content.
+   */
+  public static String tagOf(Element element) {
+    return element.getMessageMLTag() != null ? element.getMessageMLTag() : TEXT_NODE;
+  }
+
+  /**
+   * Count the elements of the tree, root excluded, by MessageML tag.
+   */
+  public static Map<String, Integer> countElements(Element root) {
+    Map<String, Integer> counts = new HashMap<>();
+    Deque<Element> stack = new ArrayDeque<>(root.getChildren());
+    while (!stack.isEmpty()) {
+      Element element = stack.pop();
+      counts.merge(tagOf(element), 1, Integer::sum);
+      for (Element child : element.getChildren()) {
+        stack.push(child);
+      }
+    }
+    return counts;
+  }
+}
@@ -0,0 +1,33 @@
+package org.symphonyoss.symphony.messageml.metrics;
+
+/**
+ * The stages of the parsing pipeline reported to a {@link ParseListener}.
+ */
+public enum ParseStage {
+
+  /** Freemarker template expansion. */
+  TEMPLATE("template"),
+  /** Control characters check, XML parsing and data-entity-id checks. */
+  XML("xml"),
+  /** Construction of the MessageML document tree, including per-element checks. */
+  BUILD("build"),
+  /** Whole document validation. */
+  VALIDATE("validate"),
+  /**
+   * Calls made to the {@link org.symphonyoss.symphony.messageml.util.IDataProvider}. This time is also part of the
+   * stage during which the call was made.
+   */
+  DATA_PROVIDER("dataprovider"),
+  /** Generation of an output format from the document tree. */
+  SERIALIZE("serialize");
+
+  private final String value;
+
+  ParseStage(String value) {
+    this.value = value;
+  }
+
+  public String getValue() {
+    return value;
+  }
+}
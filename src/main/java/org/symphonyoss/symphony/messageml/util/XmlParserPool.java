@@ -0,0 +1,226 @@
+package org.symphonyoss.symphony.messageml.util;
+
+import lombok.Getter;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathFactory;
+
+/**
+ * Bounded pool of {@link DocumentBuilder} and {@link XPath} instances, which are costly to create and not thread
+ * safe. Instances are created on demand up to the maximum size and reset when returned, threads borrowing from an
+ * exhausted pool wait for an instance to be returned.
+ * <p>
+ * Unlike thread locals, the number of instances does not grow with the number of threads, which makes the pool
+ * suitable for virtual threads as well as for platform thread pools.
+ */
+public class XmlParserPool {
+
+  /** System property overriding the maximum size of the {@link #getDefault() default pool}. */
+  public static final String MAX_SIZE_PROPERTY = "messageml.xmlParserPool.maxSize";
+
+  private static final XmlParserPool DEFAULT = new XmlParserPool(
+      Integer.getInteger(MAX_SIZE_PROPERTY, Math.max(8, 2 * Runtime.getRuntime().availableProcessors())));
+
+  private final int maxSize;
+  private final Semaphore permits;
+  private final BlockingQueue<Lease> idle;
+  private final DocumentBuilderFactory dbFactory;
+  private final XPathFactory xPathFactory;
+
+  private final AtomicInteger created = new AtomicInteger();
+  private final LongAdder borrowed = new LongAdder();
+  private final LongAdder waited = new LongAdder();
+  private final LongAdder waitNanos = new LongAdder();
+  private final LongAdder discarded = new LongAdder();
+
+  public XmlParserPool(int maxSize) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("The pool size must be positive");
+    }
+    this.maxSize = maxSize;
+    this.permits = new Semaphore(maxSize, true);
+    this.idle = new ArrayBlockingQueue<>(maxSize);
+    this.dbFactory = newDocumentBuilderFactory();
+    this.xPathFactory = XPathFactory.newInstance();
+  }
+
+  /**
+   * @return the pool shared by all parsers
+   */
+  public static XmlParserPool getDefault() {
+    return DEFAULT;
+  }
+
+  private static DocumentBuilderFactory newDocumentBuilderFactory() {
+    try {
+      DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
+      // XXE prevention as per https://www.owasp.org/index.php/XML_External_Entity_(XXE)_Prevention_Cheat_Sheet
+      dbFactory.setXIncludeAware(false);
+      dbFactory.setExpandEntityReferences(false);
+      dbFactory.setIgnoringElementContentWhitespace(true);
+      dbFactory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+      dbFactory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+      return dbFactory;
+    } catch (ParserConfigurationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Borrow an instance, waiting for one to be returned if the pool is exhausted. The lease must be closed once the
+   * instance is no longer used, and the documents it produced remain valid after that.
+   */
+  public Lease borrow() throws ProcessingException {
+    if (!permits.tryAcquire()) {
+      long start = System.nanoTime();
+      try {
+        permits.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ProcessingException("Interrupted while waiting for an XML parser", e);
+      } finally {
+        waited.increment();
+        waitNanos.add(System.nanoTime() - start);
+      }
+    }
+    borrowed.increment();
+
+    Lease lease = idle.poll();
+    try {
+      if (lease == null) {
+        lease = create();
+      }
+    } catch (ParserConfigurationException | RuntimeException e) {
+      permits.release();
+      throw new ProcessingException("Failed to create an XML parser", e);
+    }
+    lease.open = true;
+    return lease;
+  }
+
+  private Lease create() throws ParserConfigurationException {
+    DocumentBuilder documentBuilder;
+    XPath xPath;
+    // factories are not thread safe, this only happens until the pool is full
+    synchronized (this) {
+      documentBuilder = dbFactory.newDocumentBuilder();
+      xPath = xPathFactory.newXPath();
+    }
+    configure(documentBuilder);
+    created.incrementAndGet();
+    return new Lease(documentBuilder, xPath);
+  }
+
+  private static void configure(DocumentBuilder documentBuilder) {
+    documentBuilder.setErrorHandler(new NullErrorHandler()); // default handler prints to stderr
+    documentBuilder.setEntityResolver(new NoOpEntityResolver());
+  }
+
+  private void release(Lease lease) {
+    try {
+      lease.documentBuilder.reset();
+      configure(lease.documentBuilder);
+      lease.xPath.reset();
+      idle.offer(lease);
+    } catch (RuntimeException e) {
+      // an instance which cannot be reset is replaced by a new one on the next borrow
+      created.decrementAndGet();
+      discarded.increment();
+    } finally {
+      permits.release();
+    }
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * @return a snapshot of the pool usage
+   */
+  public Metrics getMetrics() {
+    return new Metrics(maxSize, created.get(), idle.size(), maxSize - permits.availablePermits(),
+        permits.getQueueLength(), borrowed.sum(), waited.sum(), waitNanos.sum(), discarded.sum());
+  }
+
+  /**
+   * A {@link DocumentBuilder} and an {@link XPath} borrowed from the pool, to be used by a single thread until closed.
+   */
+  public final class Lease implements AutoCloseable {
+    private final DocumentBuilder documentBuilder;
+    private final XPath xPath;
+    private boolean open;
+
+    private Lease(DocumentBuilder documentBuilder, XPath xPath) {
+      this.documentBuilder = documentBuilder;
+      this.xPath = xPath;
+    }
+
+    public DocumentBuilder getDocumentBuilder() {
+      return documentBuilder;
+    }
+
+    public XPath getXPath() {
+      return xPath;
+    }
+
+    /**
+     * Return the instances to the pool.
+     */
+    @Override
+    public void close() {
+      if (open) {
+        open = false;
+        release(this);
+      }
+    }
+  }
+
+  /**
+   * Usage of a pool at a point in time, counters are cumulated since the pool was created.
+   */
+  @Getter
+  public static class Metrics {
+    /** Maximum number of instances. */
+    private final int maxSize;
+    /** Number of instances created and not discarded. */
+    private final int size;
+    /** Number of instances waiting to be borrowed. */
+    private final int idle;
+    /** Number of instances currently borrowed. */
+    private final int active;
+    /** Estimated number of threads waiting for an instance. */
+    private final int waiting;
+    /** Number of borrows. */
+    private final long borrowCount;
+    /** Number of borrows which had to wait for an instance to be returned. */
+    private final long waitCount;
+    /** Total time spent waiting for an instance. */
+    private final long waitNanos;
+    /** Number of instances discarded because they could not be reset. */
+    private final long discardCount;
+
+    Metrics(int maxSize, int size, int idle, int active, int waiting, long borrowCount, long waitCount,
+        long waitNanos, long discardCount) {
+      this.maxSize = maxSize;
+      this.size = size;
+      this.idle = idle;
+      this.active = active;
+      this.waiting = waiting;
+      this.borrowCount = borrowCount;
+      this.waitCount = waitCount;
+      this.waitNanos = waitNanos;
+      this.discardCount = discardCount;
+    }
+  }
+}
@@ -197,6 +197,15 @@ public class XmlPrintStream extends IndentedPrintStream {
    * @param format Input format. The Json format does not escape ", but it escapes ' !
    */
   public String escape(String in, XMLAttribute.Format format) {
+    return escapeXml(in, format);
+  }
+
+  /**
+   * Translate reserved XML characters to XML entities.
+   * @param in Input string.
+   * @param format Input format. The Json format does not escape ", but it escapes ' !
+   */
+  public static String escapeXml(String in, XMLAttribute.Format format) {
     StringBuilder out = new StringBuilder();
 
     for (char c : in.toCharArray()) {
@@ -0,0 +1,138 @@
+package org.symphonyoss.symphony.messageml.util.instrument.resolver;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded cache of the resolutions of financial instruments, which can be shared by all the parsers and kept across
+ * messages. Results are cached by {@link #criteria(InstrumentResolution) criteria}, and expire after their time to live;
+ * instruments which are not found are cached as well, with their own time to live, so that a misspelled ticker is not
+ * looked up again and again. The least recently used resolutions are dropped once the cache is full.
+ */
+public class InstrumentResolutionCache {
+
+  private final long ttlNanos;
+  private final long notFoundTtlNanos;
+  private final LongSupplier nanoTime;
+  private final Cache<InstrumentResolution, Entry> entries;
+
+  /**
+   * @param maxSize     maximum number of cached resolutions
+   * @param ttl         time to live of the resolved instruments
+   * @param notFoundTtl time to live of the instruments which are not found, zero to not cache them
+   */
+  public InstrumentResolutionCache(int maxSize, Duration ttl, Duration notFoundTtl) {
+    this(maxSize, ttl, notFoundTtl, System::nanoTime);
+  }
+
+  InstrumentResolutionCache(int maxSize, Duration ttl, Duration notFoundTtl, LongSupplier nanoTime) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("The maximum size must be positive");
+    }
+    this.ttlNanos = ttl.toNanos();
+    this.notFoundTtlNanos = notFoundTtl.toNanos();
+    this.nanoTime = nanoTime;
+    // the cache drops the entries once the longest time to live has elapsed, the others are checked when they are read
+    this.entries = CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(Duration.ofNanos(Math.max(0, Math.max(ttlNanos, notFoundTtlNanos))))
+        .ticker(new Ticker() {
+          @Override
+          public long read() {
+            return nanoTime.getAsLong();
+          }
+        })
+        .build();
+  }
+
+  /**
+   * Return the cached result of the resolution with the same criteria, whatever its resolution id.
+   *
+   * @return the result, whose instrument is null if it was not found, or null if the criteria are not cached
+   */
+  public ResolutionResult get(InstrumentResolution resolution) {
+    InstrumentResolution criteria = criteria(resolution);
+    Entry entry = entries.getIfPresent(criteria);
+    if (entry == null) {
+      return null;
+    }
+    if (nanoTime.getAsLong() - entry.expiresAt >= 0) {
+      entries.asMap().remove(criteria, entry);
+      return null;
+    }
+    return entry.result;
+  }
+
+  /**
+   * Cache the result of a resolution.
+   *
+   * @param result the result, null or without instrument if it was not found
+   */
+  public void put(InstrumentResolution resolution, ResolutionResult result) {
+    boolean found = result != null && result.getInstrument() != null;
+    long ttl = found ? ttlNanos : notFoundTtlNanos;
+    if (ttl <= 0) {
+      return;
+    }
+    if (result == null) {
+      result = new ResolutionResult();
+    }
+    entries.put(criteria(resolution), new Entry(result, nanoTime.getAsLong() + ttl));
+  }
+
+  /**
+   * @return the number of cached resolutions, including the expired ones which are not dropped yet
+   */
+  public int size() {
+    entries.cleanUp();
+    return (int) entries.size();
+  }
+
+  public void clear() {
+    entries.invalidateAll();
+  }
+
+  /**
+   * Return the criteria of a resolution without its id, blank criteria being the same as missing ones and the others
+   * being trimmed: resolutions with the same criteria are equal.
+   */
+  public static InstrumentResolution criteria(InstrumentResolution resolution) {
+    InstrumentResolution criteria = new InstrumentResolution();
+    criteria.setBbgCompTicker(normalize(resolution.getBbgCompTicker()));
+    criteria.setFigi(normalize(resolution.getFigi()));
+    criteria.setFigiTicker(normalize(resolution.getFigiTicker()));
+    criteria.setUniqueId(normalize(resolution.getUniqueId()));
+    criteria.setIsin(normalize(resolution.getIsin()));
+    criteria.setUsCode(normalize(resolution.getUsCode()));
+    criteria.setFullBbgCompTicker(normalize(resolution.getFullBbgCompTicker()));
+    criteria.setLocalCode(normalize(resolution.getLocalCode()));
+    criteria.setOperationalMic(normalize(resolution.getOperationalMic()));
+    criteria.setInstrumentClass(resolution.getInstrumentClass());
+    criteria.setCountryCode(normalize(resolution.getCountryCode()));
+    criteria.setReturnMainListing(normalize(resolution.getReturnMainListing()));
+    criteria.setBbgMarketSector(resolution.getBbgMarketSector());
+    return criteria;
+  }
+
+  private static String normalize(String value) {
+    if (value == null) {
+      return null;
+    }
+    String trimmed = value.trim();
+    return trimmed.isEmpty() ? null : trimmed;
+  }
+
+  private static class Entry {
+    private final ResolutionResult result;
+    private final long expiresAt;
+
+    Entry(ResolutionResult result, long expiresAt) {
+      this.result = result;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package org.symphonyoss.symphony.messageml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.POJONode;
+import org.junit.Before;
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.util.TestDataProvider;
+import org.symphonyoss.symphony.messageml.util.UserPresentation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+
+public class LazyEntityJsonTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private static final String ENTITY_JSON = "{\"obj\": {\"type\": \"com.symphony.test\", \"value\": [1, 2.5, null],"
+      + " \"name\": \"é\"},\n  \"unused\" : { \"type\" : {\"nested\": \"x\"},  \"list\": [ {\"type\": \"inner\"} ] } ,"
+      + " \"scalar\": 42, \"holder\": {\"deep\": {\"type\": \"com.symphony.deep\", \"id\": 1}}, \"type\": null}";
+
+  private final TestDataProvider dataProvider = new TestDataProvider();
+
+  @Before
+  public void setUp() {
+    dataProvider.setUserPresentation(new UserPresentation(1L, "user", "User Name", "user@symphony.com"));
+  }
+
+  @Test
+  public void testSameOutputs() throws Exception {
+    assertSameOutputs("<messageML><span class=\"entity\" data-entity-id=\"obj\">${entity['obj'].name}</span>"
+        + " <mention uid=\"1\"/></messageML>", ENTITY_JSON);
+    assertSameOutputs("<messageML><div class=\"entity\" data-entity-id=\"obj\"><hash tag=\"tag\"/></div>"
+        + "</messageML>", ENTITY_JSON);
+    assertSameOutputs("<messageML>${data['holder'].deep.type} <#list data?keys as key>${key} </#list></messageML>",
+        ENTITY_JSON);
+    assertSameOutputs("<messageML>Hello <cash tag=\"AAPL\"/></messageML>", ENTITY_JSON);
+    assertSameOutputs("<messageML><span class=\"entity\" data-entity-id=\"obj\">obj</span></messageML>",
+        MAPPER.writeValueAsString(ENTITY_JSON));
+    assertSameOutputs("<messageML>Hello</messageML>", "{}");
+  }
+
+  @Test
+  public void testUnreferencedEntitiesAreNotBuilt() throws Exception {
+    MessageMLParser parser = new MessageMLParser(dataProvider);
+    parser.setLazyEntityJson(true);
+    parser.parse("<messageML><span class=\"entity\" data-entity-id=\"obj\">obj</span></messageML>", ENTITY_JSON,
+        null);
+    ObjectNode entityJson = parser.getEntityJson();
+    assertTrue(entityJson.get("obj").isObject());
+    assertTrue(entityJson.get("unused") instanceof POJONode);
+    assertTrue(entityJson.get("holder") instanceof POJONode);
+
+    MessageMLContext context = new MessageMLContext(dataProvider);
+    context.setLazyEntityJson(true);
+    context.setRenderedOutputs(EnumSet.of(MessageOutput.PRESENTATIONML));
+    context.parseMessageML("<messageML><span class=\"entity\" data-entity-id=\"obj\">obj</span></messageML>",
+        ENTITY_JSON, null);
+    StringWriter out = new StringWriter();
+    try (JsonGenerator generator = MAPPER.getFactory().createGenerator(out)) {
+      context.writeEntityJson(generator);
+    }
+    // the entities which are not built are written as they were received
+    assertTrue(out.toString(), out.toString().contains(
+        "\"unused\":{ \"type\" : {\"nested\": \"x\"},  \"list\": [ {\"type\": \"inner\"} ] }"));
+    assertEquals(MAPPER.readTree(ENTITY_JSON), MAPPER.readTree(out.toString()));
+    assertEquals(MAPPER.readTree(ENTITY_JSON), context.getEntityJson());
+  }
+
+  @Test
+  public void testInvalidEntityJson() throws Exception {
+    String message = "<messageML>Hello</messageML>";
+    for (String entityJson : new String[] {"{\"obj\": {\"type\": }", "{\"obj\": 1", "[{\"obj\": 1}]", "42",
+        "\"[1]\"", "\"{\\\"obj\\\": \"", "{\"obj\": 1} trailing"}) {
+      String expected = errorMessage(new MessageMLContext(dataProvider), message, entityJson);
+
+      MessageMLContext context = new MessageMLContext(dataProvider);
+      context.setLazyEntityJson(true);
+      assertEquals(entityJson, expected, errorMessage(context, message, entityJson));
+    }
+  }
+
+  @Test
+  public void testInvalidEntityReference() throws Exception {
+    for (String message : new String[] {
+        "<messageML><span class=\"entity\" data-entity-id=\"missing\">x</span></messageML>",
+        "<messageML><span class=\"entity\" data-entity-id=\"scalar\">x</span></messageML>",
+        // the nested field is looked up in the whole EntityJSON
+        "<messageML><span class=\"entity\" data-entity-id=\"nested\">x</span></messageML>"}) {
+      String expected = errorMessage(new MessageMLContext(dataProvider), message, ENTITY_JSON);
+
+      MessageMLContext context = new MessageMLContext(dataProvider);
+      context.setLazyEntityJson(true);
+      assertEquals(message, expected, errorMessage(context, message, ENTITY_JSON));
+    }
+  }
+
+  private String errorMessage(MessageMLContext context, String message, String entityJson) throws Exception {
+    try {
+      context.parseMessageML(message, entityJson, null);
+    } catch (InvalidInputException e) {
+      return e.getMessage();
+    }
+    if (entityJson.endsWith("trailing")) {
+      // trailing content is ignored by both modes
+      return null;
+    }
+    fail("Should have thrown an exception: " + entityJson);
+    return null;
+  }
+
+  private void assertSameOutputs(String message, String entityJson) throws Exception {
+    MessageMLContext expected = new MessageMLContext(dataProvider);
+    expected.parseMessageML(message, entityJson, null);
+
+    MessageMLContext context = new MessageMLContext(dataProvider);
+    context.setLazyEntityJson(true);
+    context.parseMessageML(message, entityJson, null);
+    assertSameOutputs(message, expected, context);
+
+    context.parseMessageML(message.getBytes(StandardCharsets.UTF_8), entityJson.getBytes(StandardCharsets.UTF_8),
+        null);
+    assertSameOutputs(message, expected, context);
+  }
+
+  private void assertSameOutputs(String message, MessageMLContext expected, MessageMLContext context)
+      throws Exception {
+    assertEquals(message, expected.getPresentationML(), context.getPresentationML());
+    assertEquals(message, expected.getMarkdown(), context.getMarkdown());
+    assertEquals(message, expected.getBiContext().getItems(), context.getBiContext().getItems());
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    context.writeEntityJson(out);
+    JsonNode entityJson = expected.getEntityJson();
+    assertEquals(message, entityJson, MAPPER.readTree(out.toByteArray()));
+    assertEquals(message, entityJson, context.getEntityJson());
+    context.getEntityJson().elements().forEachRemaining(node -> assertFalse(message, node instanceof POJONode));
+  }
+}
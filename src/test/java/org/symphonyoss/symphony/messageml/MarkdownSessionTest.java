@@ -0,0 +1,89 @@
+package org.symphonyoss.symphony.messageml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.util.NoOpDataProvider;
+
+public class MarkdownSessionTest {
+
+  private static final String[] MESSAGES = {
+      "Hello world",
+      "Hello **world**\n\nSecond _paragraph_\nwith a soft break\n\nThird one\n",
+      "Intro\n\n- first\n- second\n\n- loose item\n\nAfter the list\n\n1. one\n2. two\n\n10) ten\n\nDone",
+      "Some code:\n\n```\nfirst line\n\nafter a blank line\n```\n\nText after the code\n\n~~~~\n```\n\nstill code\n~~~~\n\nEnd",
+      "> quoted\n\n> quoted again\n\nNot quoted\n\n---\n\n***bold italic***\n\n  indented\n\nlast",
+      "Inline `code` and a [link](https://symphony.com)\n\n`` ```not a fence`` ``\n\ntext\n\n```java\nint i;\n\n```\nafter",
+      "Trailing blank lines\n\n\n\nand  non-breaking spaces\n\n\n",
+      "Windows\r\n\r\nline endings\r\n\r\n- item\r\n\r\nend\r\n"
+  };
+
+  @Test
+  public void testEveryChunkMatchesOneShotParse() throws Exception {
+    for (String message : MESSAGES) {
+      for (int chunkSize : new int[] {1, 2, 3, 7, 16, message.length()}) {
+        MarkdownSession session = new MarkdownSession(new MessageMLContext(new NoOpDataProvider()));
+        for (int start = 0; start < message.length(); start += chunkSize) {
+          String received = message.substring(0, Math.min(message.length(), start + chunkSize));
+          session.append(received.substring(start));
+          assertEquals("Chunk of " + chunkSize + " of: " + received, parse(received), session.getPresentationML());
+        }
+        MessageMLContext context = session.finish(null, null);
+        assertEquals(parse(message), context.getPresentationML());
+      }
+    }
+  }
+
+  @Test
+  public void testStableBlocksAreNotParsedAgain() throws Exception {
+    MarkdownSession session = new MarkdownSession(new MessageMLContext(new NoOpDataProvider()));
+    session.append("First paragraph\n\n");
+    assertEquals(0, session.getStableLength());
+    session.append("Second");
+    assertEquals(0, session.getStableLength());
+    session.append(" paragraph\n");
+    assertEquals("First paragraph\n\n".length(), session.getStableLength());
+
+    session.append("\n```\ncode\n\n");
+    int stable = session.getStableLength();
+    session.append("Text\n");
+    assertEquals("Blank lines within code are not boundaries", stable, session.getStableLength());
+    session.append("```\n\nEnd\n");
+    assertTrue(session.getStableLength() > stable);
+  }
+
+  @Test
+  public void testStableBoundary() {
+    assertEquals(0, MarkdownSession.findStableBoundary("a\n\nb", 0));
+    assertEquals(3, MarkdownSession.findStableBoundary("a\n\nb\n", 0));
+    assertEquals(0, MarkdownSession.findStableBoundary("\n\nb\n", 0));
+    assertEquals(0, MarkdownSession.findStableBoundary("- a\n\n- b\n", 0));
+    assertEquals(0, MarkdownSession.findStableBoundary("- a\n\n  b\n", 0));
+    assertEquals(5, MarkdownSession.findStableBoundary("- a\n\nb\n", 0));
+    assertEquals(0, MarkdownSession.findStableBoundary("1. a\n\n2) b\n", 0));
+    assertEquals(6, MarkdownSession.findStableBoundary("a\n\nb\n\nc\n", 0));
+    assertEquals(6, MarkdownSession.findStableBoundary("a\n\nb\n\nc\n", 3));
+    assertEquals(0, MarkdownSession.findStableBoundary("```\na\n\nb\n", 0));
+  }
+
+  @Test
+  public void testFinishedSession() throws Exception {
+    MarkdownSession session = new MarkdownSession(new MessageMLContext(new NoOpDataProvider()));
+    session.append("Hello");
+    session.finish(null, null);
+    try {
+      session.append(" world");
+      fail("Should have thrown an exception");
+    } catch (IllegalStateException e) {
+      assertEquals("The Markdown session is already finished", e.getMessage());
+    }
+  }
+
+  private static String parse(String markdown) throws Exception {
+    MessageMLContext context = new MessageMLContext(new NoOpDataProvider());
+    context.parseMarkdown(markdown, null, null);
+    return context.getPresentationML();
+  }
+}
@@ -0,0 +1,93 @@
+package org.symphonyoss.symphony.messageml;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The messages of the test corpus: every MessageML or PresentationML file of <code>src/test/resources/payloads</code>
+ * and <code>src/test/resources/examples</code>, with the EntityJSON found next to them.
+ * <p>
+ * <code>integration_generated_message.messageml</code> is left out as it is not a valid message on its own (entity
+ * div without <i>data-entity-id</i>), as well as <code>single_jira_ticket.messageml</code> (nested entity divs
+ * referencing the same entity).
+ */
+public final class MessageCorpus {
+
+  public static final String RESOURCES = "src/test/resources/";
+
+  private static final String[] DIRECTORIES = {"payloads", "examples"};
+  private static final String[] MESSAGE_EXTENSIONS = {"messageml", "presentationml", "xml"};
+  private static final List<String> EXCLUDED = Arrays.asList(
+      "payloads/integration_generated_message.messageml",
+      "payloads/single_jira_ticket.messageml");
+
+  private MessageCorpus() {
+  }
+
+  /**
+   * @return the paths of the messages, relative to {@link #RESOURCES}
+   */
+  public static List<String> files() {
+    List<String> files = new ArrayList<>();
+    for (String directory : DIRECTORIES) {
+      File[] messages = new File(RESOURCES + directory).listFiles(
+          (dir, name) -> FilenameUtils.isExtension(name, MESSAGE_EXTENSIONS));
+      if (messages == null) {
+        continue;
+      }
+      for (File message : messages) {
+        String file = directory + "/" + message.getName();
+        if (!EXCLUDED.contains(file)) {
+          files.add(file);
+        }
+      }
+    }
+    Collections.sort(files);
+    return files;
+  }
+
+  /**
+   * @return the paths of the messages of a directory of the corpus, e.g. "examples"
+   */
+  public static List<String> files(String directory) {
+    List<String> files = new ArrayList<>();
+    for (String file : files()) {
+      if (file.startsWith(directory + "/")) {
+        files.add(file);
+      }
+    }
+    return files;
+  }
+
+  public static String read(String file) throws IOException {
+    try (InputStream in = new FileInputStream(RESOURCES + file)) {
+      return IOUtils.toString(in, StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * Entity data lives next to the message, with the same base name. Expanded messages reference the already expanded
+   * EntityJSON, when there is one.
+   *
+   * @return the EntityJSON of the message, null if it has none
+   */
+  public static String readEntityJson(String file) throws IOException {
+    String base = FilenameUtils.removeExtension(file);
+    for (String extension : new String[] {".entityjson", ".json"}) {
+      if (new File(RESOURCES + base + extension).exists()) {
+        return read(base + extension);
+      }
+    }
+    return null;
+  }
+}
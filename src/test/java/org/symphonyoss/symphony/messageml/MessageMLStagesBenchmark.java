@@ -0,0 +1,200 @@
+package org.symphonyoss.symphony.messageml;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.symphonyoss.symphony.messageml.elements.MessageML;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer;
+import org.symphonyoss.symphony.messageml.util.IDataProvider;
+import org.symphonyoss.symphony.messageml.util.NoOpDataProvider;
+import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+
+import java.io.ByteArrayOutputStream;
+/**
+ * Measures each stage of the MessageML pipeline in isolation, over every message of the {@link MessageCorpus}.
+ * <p>
+ * Run with {@link #main(String[])} to get the allocation figures of the GC profiler along with the timings. The
+ * messages are listed when the benchmark is run: the JMH launcher only measures a single message unless others are
+ * given as parameters, e.g. <code>-p file=examples/form.xml,examples/table.xml</code>.
+ */
+public class MessageMLStagesBenchmark {
+
+  private static final IDataProvider DATA_PROVIDER = new NoOpDataProvider();
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder()
+        .include(MessageMLStagesBenchmark.class.getSimpleName())
+        .include(SyntheticMessageBenchmark.class.getSimpleName())
+        .param("file", MessageCorpus.files().toArray(new String[0]))
+        .addProfiler(GCProfiler.class)
+        .build()).run();
+  }
+
+  /**
+   * A message of the corpus along with the intermediate results of every stage, computed once per trial.
+   */
+  @State(Scope.Thread)
+  public static class Corpus {
+    /** Overridden by the whole corpus when run with {@link #main(String[])}. */
+    @Param("examples/complex.xml")
+    public String file;
+
+    public String message;
+    public String entityJson;
+    public String expandedMessage;
+    public ObjectNode userEntityJson;
+    public MessageMLParser parser;
+    public MessageMLContext context;
+    public MessageML messageML;
+
+    @Setup(Level.Trial)
+    public void doSetup() throws Exception {
+      message = MessageCorpus.read(file);
+      entityJson = MessageCorpus.readEntityJson(file);
+
+      parser = new MessageMLParser(DATA_PROVIDER);
+      parser.reset();
+      parser.parseEntityJson(entityJson);
+      userEntityJson = parser.getEntityJson().deepCopy();
+      expandedMessage = parser.expandTemplates(message, parser.getEntityJson());
+
+      context = new MessageMLContext(DATA_PROVIDER);
+      context.parseMessageML(message, entityJson, null);
+      messageML = context.getMessageML();
+    }
+
+    /**
+     * Stages mutating their input (DOM elements, attributes of the tree) need a fresh copy for every invocation.
+     */
+    MessageML buildTree() throws InvalidInputException, ProcessingException {
+      parser.reset();
+      parser.parseEntityJson(entityJson);
+      return parser.buildMessageML(parser.parseDocument(expandedMessage), null);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class FreshDocument {
+    public MessageMLParser parser;
+    public org.w3c.dom.Element document;
+
+    @Setup(Level.Invocation)
+    public void doSetup(Corpus corpus) throws InvalidInputException, ProcessingException {
+      parser = corpus.parser;
+      parser.reset();
+      parser.parseEntityJson(corpus.entityJson);
+      document = parser.parseDocument(corpus.expandedMessage);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class FreshTree {
+    public MessageML messageML;
+
+    @Setup(Level.Invocation)
+    public void doSetup(Corpus corpus) throws InvalidInputException, ProcessingException {
+      messageML = corpus.buildTree();
+    }
+  }
+
+  /**
+   * The outcome is returned so that the validation cannot be eliminated as dead code.
+   */
+  @Benchmark
+  public boolean preValidation(Corpus corpus) {
+    try {
+      MessageMLParser.validateMessageText(corpus.expandedMessage);
+      return true;
+    } catch (InvalidInputException e) {
+      return false;
+    }
+  }
+
+  @Benchmark
+  public String freemarkerExpansion(Corpus corpus) throws Exception {
+    return corpus.parser.expandTemplates(corpus.message, corpus.parser.getEntityJson());
+  }
+
+  @Benchmark
+  public org.w3c.dom.Element domParse(Corpus corpus) throws InvalidInputException, ProcessingException {
+    return corpus.parser.parseDocument(corpus.expandedMessage);
+  }
+
+  @Benchmark
+  public MessageML buildAll(FreshDocument fresh) throws InvalidInputException, ProcessingException {
+    return fresh.parser.buildMessageML(fresh.document, null);
+  }
+
+  @Benchmark
+  public MessageML validate(FreshTree fresh) throws InvalidInputException {
+    fresh.messageML.validate();
+    return fresh.messageML;
+  }
+
+  @Benchmark
+  public MessageML enhanceFinancialTags(FreshTree fresh) throws InvalidInputException {
+    fresh.messageML.enhanceFinancialTags(fresh.messageML, DATA_PROVIDER);
+    return fresh.messageML;
+  }
+
+  @Benchmark
+  public String asPresentationML(Corpus corpus) {
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    XmlPrintStream out = new XmlPrintStream(bout);
+    out.setNoIndent(true);
+    out.setNoNl(true);
+    corpus.messageML.asPresentationML(out, corpus.context);
+    out.close();
+    return bout.toString();
+  }
+
+  @Benchmark
+  public void asMarkdown(Corpus corpus, Blackhole bh) throws InvalidInputException {
+    MarkdownRenderer renderer = new MarkdownRenderer(corpus.messageML.asMarkdown());
+    bh.consume(renderer.getText());
+    bh.consume(renderer.getJson());
+  }
+
+  /**
+   * Entities are merged into the user supplied EntityJSON, hence the copy.
+   */
+  @Benchmark
+  public ObjectNode asEntityJson(Corpus corpus) {
+    return corpus.messageML.asEntityJson(corpus.userEntityJson.deepCopy());
+  }
+
+  /**
+   * PresentationML, Markdown, legacy entities and EntityJSON in a single traversal, to compare with the sum of the
+   * benchmarks above.
+   */
+  @Benchmark
+  public void asOutputs(Corpus corpus, Blackhole bh) throws InvalidInputException {
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    XmlPrintStream out = new XmlPrintStream(bout);
+    out.setNoIndent(true);
+    out.setNoNl(true);
+    MarkdownRenderer renderer = new MarkdownRenderer();
+    ObjectNode entityJson = corpus.userEntityJson.deepCopy();
+    corpus.messageML.asOutputs(out, corpus.context, renderer.sink(), entityJson);
+    out.close();
+    bh.consume(bout.toString());
+    bh.consume(renderer.getText());
+    bh.consume(renderer.getJson());
+    bh.consume(entityJson);
+  }
+
+  @Benchmark
+  public String getText(Corpus corpus) throws InvalidInputException, ProcessingException {
+    return corpus.context.getText();
+  }
+}
@@ -0,0 +1,128 @@
+package org.symphonyoss.symphony.messageml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.util.IUserPresentation;
+import org.symphonyoss.symphony.messageml.util.TestDataProvider;
+
+import java.net.URI;
+
+public class MessageMLValidatorTest {
+
+  private static final String MENTION = "<messageML>Hello <mention uid=\"1\"/></messageML>";
+  private static final String UNKNOWN_MENTION = "<messageML>Hello <mention uid=\"2\"/></messageML>";
+
+  private CountingDataProvider dataProvider;
+  private MessageMLValidator validator;
+
+  @Before
+  public void setUp() {
+    dataProvider = new CountingDataProvider();
+    dataProvider.setUserPresentation(1L, "bot.user1", "Bot User01", "bot.user1@localhost.com");
+    validator = new MessageMLValidator(dataProvider, DataProviderPolicy.FULL);
+  }
+
+  @Test
+  public void testValidMessage() throws Exception {
+    ValidationResult result = validator.validate(
+        "<messageML>Hello <b>world</b> <a href=\"https://symphony.com\">link</a></messageML>", null, null);
+    assertTrue(result.isValid());
+    assertNull(result.getError());
+    assertNull(result.getErrorMessage());
+    assertEquals(0, result.getSkippedLookups());
+  }
+
+  @Test
+  public void testInvalidMessage() throws Exception {
+    ValidationResult result = validator.validate("<messageML><b foo=\"bar\">Hello</b></messageML>", null, null);
+    assertFalse(result.isValid());
+    assertEquals("Attribute \"foo\" is not allowed in \"b\"", result.getErrorMessage());
+    assertEquals(-1, result.getLine());
+    assertNull(result.getLimit());
+
+    result = validator.validate("<messageML>\n<p>Hello</b>\n</messageML>", null, null);
+    assertFalse(result.isValid());
+    assertEquals(2, result.getLine());
+    assertTrue(result.getColumn() > 0);
+
+    validator.setParseLimits(new ParseLimits().maxElements(2));
+    result = validator.validate("<messageML><b>1</b><b>2</b><b>3</b></messageML>", null, null);
+    assertEquals(ParseBudget.ELEMENTS, result.getLimit());
+  }
+
+  @Test
+  public void testPolicies() throws Exception {
+    ValidationResult result = validator.validate(MENTION, null, null, DataProviderPolicy.SKIP);
+    assertTrue(result.isValid());
+    assertEquals(1, result.getSkippedLookups());
+    assertEquals(0, dataProvider.calls);
+
+    result = validator.validate(MENTION, null, null, DataProviderPolicy.CACHED_ONLY);
+    assertTrue(result.isValid());
+    assertEquals(1, result.getSkippedLookups());
+    assertEquals(0, dataProvider.calls);
+
+    result = validator.validate(MENTION, null, null, DataProviderPolicy.FULL);
+    assertTrue(result.isValid());
+    assertEquals(0, result.getSkippedLookups());
+    assertEquals(1, dataProvider.calls);
+
+    result = validator.validate(MENTION, null, null, DataProviderPolicy.CACHED_ONLY);
+    assertTrue(result.isValid());
+    assertEquals(0, result.getSkippedLookups());
+    assertEquals(1, dataProvider.calls);
+
+    // the cache is not read with the full policy
+    result = validator.validate(MENTION, null, null, DataProviderPolicy.FULL);
+    assertTrue(result.isValid());
+    assertEquals(2, dataProvider.calls);
+
+    result = validator.validate("<messageML><a href=\"ftp://symphony.com\">link</a></messageML>", null, null);
+    assertEquals("URI scheme \"ftp\" is not supported by the pod.", result.getErrorMessage());
+    assertEquals(3, dataProvider.calls);
+  }
+
+  @Test
+  public void testFailedLookupsAreCached() throws Exception {
+    assertTrue(validator.validate(UNKNOWN_MENTION, null, null, DataProviderPolicy.SKIP).isValid());
+
+    ValidationResult result = validator.validate(UNKNOWN_MENTION, null, null, DataProviderPolicy.FULL);
+    assertEquals("Failed to lookup user \"2\"", result.getErrorMessage());
+    result = validator.validate(UNKNOWN_MENTION, null, null, DataProviderPolicy.CACHED_ONLY);
+    assertEquals("Failed to lookup user \"2\"", result.getErrorMessage());
+    assertEquals(1, dataProvider.calls);
+  }
+
+  @Test
+  public void testEntityJsonIsValidated() throws Exception {
+    ValidationResult result = validator.validate(
+        "<messageML><span class=\"entity\" data-entity-id=\"obj\">Hello</span></messageML>", "[1]", null);
+    assertEquals("Error parsing EntityJSON: provided content is not a JSON object", result.getErrorMessage());
+
+    result = validator.validate("<messageML>${entity['obj'].value}</messageML>",
+        "{\"obj\": {\"value\": \"Hello\"}}", null);
+    assertTrue(result.isValid());
+  }
+
+  private static class CountingDataProvider extends TestDataProvider {
+    private int calls;
+
+    @Override
+    public IUserPresentation getUserPresentation(Long uid) throws InvalidInputException {
+      calls++;
+      return super.getUserPresentation(uid);
+    }
+
+    @Override
+    public void validateURI(URI uri) throws InvalidInputException {
+      calls++;
+      super.validateURI(uri);
+    }
+  }
+}
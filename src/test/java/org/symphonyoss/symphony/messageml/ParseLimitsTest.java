@@ -0,0 +1,208 @@
+package org.symphonyoss.symphony.messageml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.elements.Div;
+import org.symphonyoss.symphony.messageml.exceptions.ParseLimitExceededException;
+import org.symphonyoss.symphony.messageml.util.NoOpDataProvider;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ParseLimitsTest {
+
+  private MessageMLContext context;
+
+  @Before
+  public void setUp() {
+    context = new MessageMLContext(new NoOpDataProvider());
+  }
+
+  @Test
+  public void testNoLimits() throws Exception {
+    context.setParseLimits(new ParseLimits());
+    context.parseMessageML(SyntheticMessages.nesting(64), null, null);
+    assertNotNull(context.getPresentationML());
+  }
+
+  @Test
+  public void testMaxInputBytes() throws Exception {
+    context.setParseLimits(new ParseLimits().maxInputBytes(40));
+    context.parseMessageML("<messageML>Hello</messageML>", null, null);
+
+    assertLimitExceeded(ParseBudget.INPUT_BYTES, "<messageML>Hello world, hello world!</messageML>", null);
+    assertLimitExceeded(ParseBudget.INPUT_BYTES, "<messageML>Hello</messageML>",
+        "{\"object001\": {\"type\": \"org.symphonyoss.fin.security\", \"version\": \"0.1\"}}");
+  }
+
+  @Test
+  public void testMaxDepth() throws Exception {
+    // each level of nesting is a div holding a bold element
+    context.setParseLimits(new ParseLimits().maxDepth(9));
+    context.parseMessageML(SyntheticMessages.nesting(8), null, null);
+
+    assertLimitExceeded(ParseBudget.DEPTH, SyntheticMessages.nesting(9), null);
+  }
+
+  @Test
+  public void testMaxElements() throws Exception {
+    context.setParseLimits(new ParseLimits().maxElements(11));
+    context.parseMessageML(SyntheticMessages.mentions(10), null, null);
+
+    assertLimitExceeded(ParseBudget.ELEMENTS, SyntheticMessages.mentions(11), null);
+  }
+
+  @Test
+  public void testMaxTableCells() throws Exception {
+    context.setParseLimits(new ParseLimits().maxTableCells(12));
+    context.parseMessageML(SyntheticMessages.tableRows(3, 3), null, null);
+
+    assertLimitExceeded(ParseBudget.TABLE_CELLS, SyntheticMessages.tableRows(4, 3), null);
+  }
+
+  @Test
+  public void testMaxAttributeLength() throws Exception {
+    context.setParseLimits(new ParseLimits().maxAttributeLength(20));
+    context.parseMessageML("<messageML><a href=\"https://symphony.com\">link</a></messageML>", null, null);
+
+    assertLimitExceeded(ParseBudget.ATTRIBUTE_LENGTH,
+        "<messageML><a href=\"https://symphony.com/some/long/path\">link</a></messageML>", null);
+  }
+
+  @Test
+  public void testMaxExpandedTemplateSize() throws Exception {
+    context.setParseLimits(new ParseLimits().maxExpandedTemplateSize(100));
+    String message = "<messageML><#list 1..%d as i>${i} </#list></messageML>";
+    context.parseMessageML(String.format(message, 10), null, null);
+
+    assertLimitExceeded(ParseBudget.EXPANDED_TEMPLATE_SIZE, String.format(message, 100000), null);
+  }
+
+  @Test
+  public void testMaxWallTime() throws Exception {
+    context.setParseLimits(new ParseLimits().maxWallTime(Duration.ofNanos(1)));
+    assertLimitExceeded(ParseBudget.WALL_TIME, SyntheticMessages.tableRows(100, 5), null);
+  }
+
+  @Test
+  public void testRemoveLimits() throws Exception {
+    context.setParseLimits(new ParseLimits().maxElements(1));
+    assertLimitExceeded(ParseBudget.ELEMENTS, SyntheticMessages.mentions(2), null);
+
+    context.setParseLimits(null);
+    context.parseMessageML(SyntheticMessages.mentions(2), null, null);
+  }
+
+  @Test
+  public void testMaxRegexProbeSteps() throws Exception {
+    context.setParseLimits(new ParseLimits().maxRegexProbeSteps(50_000_000));
+    context.parseMessageML(textField("^[a-z]+(-[a-z0-9]+)*$"), null, null);
+
+    assertLimitExceeded(ParseBudget.REGEX_PROBE_STEPS, textField("(.*a){8}"), null);
+    assertLimitExceeded(ParseBudget.REGEX_PROBE_STEPS, textField("^(\\w+)+\\1$"), null);
+
+    // patterns are not probed without a budget
+    context.setParseLimits(new ParseLimits());
+    context.parseMessageML(textField("(.*b){8}"), null, null);
+  }
+
+  @Test
+  public void testLimitsDuringTreeBuild() throws Exception {
+    // the tree build also enforces the limits, whatever the pre-scan found
+    MessageMLParser parser = new MessageMLParser(new NoOpDataProvider());
+    parser.setLimits(new ParseLimits().maxDepth(2));
+    parser.reset();
+    parser.parseEntityJson(null);
+    try {
+      parser.buildMessageML(parser.parseDocument("<messageML><div><p><b>deep</b></p></div></messageML>"), null);
+      fail("Should have thrown an exception");
+    } catch (ParseLimitExceededException e) {
+      assertEquals(ParseBudget.DEPTH, e.getLimit());
+    }
+  }
+
+  @Test
+  public void testDeepTreeWithSmallStack() throws Exception {
+    // no depth limit unless one is configured
+    int depth = 20000;
+    runWithSmallStack(() -> {
+      context.parseMessageML(SyntheticMessages.nesting(depth), null, null);
+      assertEquals(depth, context.getMessageML().countChildrenOfType(Div.class).intValue());
+      assertTrue(context.getPresentationML().contains("Level <b>" + (depth - 1) + "</b></div></div>"));
+      assertTrue(context.getMarkdown().contains("Level **" + (depth - 1) + "**"));
+      assertTrue(context.getMessageML().asText().startsWith("Level 0Level 1"));
+      assertTrue(context.getText().endsWith("Level " + (depth - 1)));
+      assertTrue(context.getText(false).startsWith("Level 0Level 1"));
+      assertEquals(0, context.getEntityJson().size());
+    });
+  }
+
+  @Test
+  public void testDeepCardsWithSmallStack() throws Exception {
+    // cards, expandable cards, forms and grouped elements print their own PresentationML
+    int depth = 3000;
+    StringBuilder sb = new StringBuilder("<messageML>");
+    for (int i = 0; i < depth; i++) {
+      sb.append("<card><header>Card ").append(i).append("</header><body><expandable-card state=\"expanded\">")
+          .append("<header>Details</header><body><div>");
+    }
+    sb.append("<form id=\"form\"><checkbox name=\"check\">Check</checkbox><button name=\"send\">Send</button></form>");
+    for (int i = 0; i < depth; i++) {
+      sb.append("</div></body></expandable-card></body></card>");
+    }
+    String message = sb.append("</messageML>").toString();
+
+    runWithSmallStack(() -> {
+      context.parseMessageML(message, null, null);
+      String presentationML = context.getPresentationML();
+      assertTrue(presentationML.contains("<div class=\"cardHeader\">Card " + (depth - 1) + "</div>"));
+      assertTrue(presentationML.contains("\">Check</label></div><button type=\"action\" name=\"send\">Send</button>"));
+      assertTrue(context.getMarkdown().contains("Card " + (depth - 1)));
+      assertTrue(context.getMessageML().asText().startsWith("Card 0DetailsCard 1"));
+
+      // the PresentationML is read back as it was printed, but for the generated id of the checkbox
+      context.parseMessageML(presentationML, null, null);
+      String id = "checkbox-group-[\\w-]+";
+      assertEquals(presentationML.replaceAll(id, ""), context.getPresentationML().replaceAll(id, ""));
+    });
+  }
+
+  private static void runWithSmallStack(ThrowingRunnable test) throws InterruptedException {
+    AtomicReference<Throwable> error = new AtomicReference<>();
+    Thread thread = new Thread(null, () -> {
+      try {
+        test.run();
+      } catch (Throwable e) {
+        error.set(e);
+      }
+    }, "small-stack", 256 * 1024);
+    thread.start();
+    thread.join();
+    if (error.get() != null) {
+      throw new AssertionError(error.get());
+    }
+  }
+
+  private interface ThrowingRunnable {
+    void run() throws Exception;
+  }
+
+  private static String textField(String pattern) {
+    return "<messageML><form id=\"form\"><text-field name=\"field\" pattern=\"" + pattern
+        + "\" pattern-error-message=\"invalid\"/><button name=\"send\">Send</button></form></messageML>";
+  }
+
+  private void assertLimitExceeded(String limit, String message, String entityJson) throws Exception {
+    try {
+      context.parseMessageML(message, entityJson, null);
+      fail("Should have thrown an exception");
+    } catch (ParseLimitExceededException e) {
+      assertEquals(limit, e.getLimit());
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package org.symphonyoss.symphony.messageml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.bi.BiFields;
+import org.symphonyoss.symphony.messageml.bi.BiItem;
+import org.symphonyoss.symphony.messageml.util.NoOpDataProvider;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class PlainTextFastPathTest {
+
+  // Non ASCII characters are only serialized properly by the general path when UTF-8 is the default charset
+  private static final String ALPHABET = "abcXYZ019 .,;:!?'\"()[]{}>=/\\|~^%@$#_*-+`\n\r\t"
+      + (StandardCharsets.UTF_8.equals(Charset.defaultCharset()) ? "éü€中" : "");
+
+  @Test
+  public void testFastPathMatchesGeneralPath() throws Exception {
+    Random random = new Random(42);
+    int fast = 0;
+    for (int i = 0; i < 2000; i++) {
+      StringBuilder text = new StringBuilder();
+      int length = random.nextInt(i % 10 == 0 ? 200 : 12);
+      for (int j = 0; j < length; j++) {
+        text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+      }
+      String message = "<messageML>" + text + "</messageML>";
+      if (MessageMLParser.plainText(message) != null) {
+        fast++;
+      }
+      assertSameOutputs(message);
+    }
+    assertTrue(fast > 1000);
+  }
+
+  @Test
+  public void testEdgeCases() throws Exception {
+    for (String text : new String[] {"", " ", "\n", "  Hello  ", "a\r\nb\rc\n\nd", "]]", "] ]>", "$ {x}", "# {x}",
+        "-", "***", "1. item", "# title", "> quote", "Hello world"}) {
+      assertSameOutputs("<messageML>" + text + "</messageML>");
+    }
+  }
+
+  @Test
+  public void testDetection() {
+    assertEquals("Hello", MessageMLParser.plainText("<messageML>Hello</messageML>"));
+    assertEquals("", MessageMLParser.plainText("<messageML></messageML>"));
+    assertEquals("a\nb\nc", MessageMLParser.plainText("<messageML>a\r\nb\rc</messageML>"));
+    assertNull(MessageMLParser.plainText("<messageML>"));
+    assertNull(MessageMLParser.plainText(" <messageML>Hello</messageML>"));
+    assertNull(MessageMLParser.plainText("<messageML>Hello <b>world</b></messageML>"));
+    assertNull(MessageMLParser.plainText("<messageML>Tom &amp; Jerry</messageML>"));
+    assertNull(MessageMLParser.plainText("<messageML>Hello ${name}</messageML>"));
+    assertNull(MessageMLParser.plainText("<messageML>Hello #{name}</messageML>"));
+    assertNull(MessageMLParser.plainText("<messageML>]]></messageML>"));
+    assertNull(MessageMLParser.plainText("<messageML>\u0001</messageML>"));
+    assertNull(MessageMLParser.plainText("<messageML xmlns=\"https://finos.org/messageml\">Hello</messageML>"));
+  }
+
+  @Test
+  public void testEntityJsonUsesGeneralPath() throws Exception {
+    MessageMLContext context = new MessageMLContext(new NoOpDataProvider());
+    context.parseMessageML("<messageML>Hello</messageML>", "{\"key\": {\"type\": \"custom\"}}", null);
+    assertEquals("custom", context.getEntityJson().path("key").path("type").asText());
+  }
+
+  /**
+   * A leading space makes the parser take the general path, without changing the message.
+   */
+  private static void assertSameOutputs(String message) throws Exception {
+    MessageMLContext fast = new MessageMLContext(new NoOpDataProvider());
+    MessageMLContext general = new MessageMLContext(new NoOpDataProvider());
+    Exception fastError = null;
+    Exception generalError = null;
+    try {
+      fast.parseMessageML(message, null, null);
+    } catch (Exception e) {
+      fastError = e;
+    }
+    try {
+      general.parseMessageML(" " + message, null, null);
+    } catch (Exception e) {
+      generalError = e;
+    }
+    if (generalError != null) {
+      assertNotNull(message, fastError);
+      // messages may differ by the position of the error
+      assertEquals(message, generalError.getClass(), fastError.getClass());
+      return;
+    }
+    assertNull(message, fastError);
+
+    assertEquals(message, general.getPresentationML(), fast.getPresentationML());
+    assertEquals(message, general.getText(), fast.getText());
+    assertEquals(message, general.getText(true), fast.getText(true));
+    assertEquals(message, general.getText(false), fast.getText(false));
+    assertEquals(message, general.getMarkdown(), fast.getMarkdown());
+    assertEquals(message, general.getEntities(), fast.getEntities());
+    assertEquals(message, general.getEntityJson(), fast.getEntityJson());
+    assertEquals(message, biItems(general), biItems(fast));
+  }
+
+  private static List<BiItem> biItems(MessageMLContext context) {
+    return context.getBiContext().getItems().stream()
+        .filter(item -> !BiFields.MESSAGE_LENGTH.getValue().equals(item.getName()))
+        .collect(Collectors.toList());
+  }
+}
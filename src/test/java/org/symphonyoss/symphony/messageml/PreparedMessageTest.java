@@ -0,0 +1,263 @@
+package org.symphonyoss.symphony.messageml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.util.IDataProvider;
+import org.symphonyoss.symphony.messageml.util.NoOpDataProvider;
+import org.symphonyoss.symphony.messageml.util.XMLAttribute;
+import org.symphonyoss.symphony.messageml.util.XmlPrintStream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class PreparedMessageTest {
+
+  private static final IDataProvider DATA_PROVIDER = new NoOpDataProvider();
+
+  private static final String REPORT = "<messageML><h1 class=\"${style}\">Report ${title}</h1>"
+      + "<p>Dear ${name},<br/>see <b>below</b> ${name}</p>"
+      + "<table><thead><tr><th>Name</th><th>Value</th></tr></thead><tbody>"
+      + "<#list rows as row><tr><td>${row.name}</td><td class=\"${row.style}\">${row.value}</td></tr></#list>"
+      + "</tbody></table>"
+      + "<ul><#list items as item><li>${item.label}</li></#list></ul>"
+      + "<pre>${code}</pre><code>${code}</code><hash tag=\"static\"/></messageML>";
+
+  private static final String[] VALUES = {"plain", "<b>&amp;\"quoted\" 'single'</b>", "a_b*c-d+e`f", "line1\nline2",
+      "crlf\r\nline\rend", "_", "  spaced  ", "{{slot0&_}}", ""};
+
+  @Test
+  public void testBindingsMatchFullParse() throws Exception {
+    PreparedMessage prepared = PreparedMessage.prepare(DATA_PROVIDER, REPORT, null, null);
+    assertEquals(new java.util.TreeSet<>(Arrays.asList("code", "items", "name", "rows", "style", "title")),
+        prepared.getNames());
+
+    int v = 0;
+    for (int rows : new int[] {1, 0, 3, 2}) {
+      for (int items : new int[] {2, 1, 0}) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("style", "big");
+        values.put("title", VALUES[v++ % VALUES.length]);
+        values.put("name", VALUES[v++ % VALUES.length]);
+        values.put("code", VALUES[v++ % VALUES.length]);
+        List<Map<String, Object>> rowValues = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+          Map<String, Object> row = new HashMap<>();
+          row.put("name", VALUES[v++ % VALUES.length]);
+          row.put("style", "cell" + i);
+          row.put("value", i % 2 == 0 ? VALUES[v++ % VALUES.length] : i);
+          rowValues.add(row);
+        }
+        values.put("rows", rowValues);
+        List<Map<String, Object>> itemValues = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+          itemValues.add(Collections.singletonMap("label", VALUES[v++ % VALUES.length]));
+        }
+        values.put("items", itemValues);
+
+        assertBinding(prepared, REPORT, values);
+      }
+    }
+  }
+
+  @Test
+  public void testAdjacentSections() throws Exception {
+    String message = "<messageML><table><tbody>"
+        + "<#list first as row><tr><td>${row.a}</td></tr></#list>"
+        + "<#list second as row><tr><td>${row.a}</td></tr></#list>"
+        + "</tbody></table></messageML>";
+    PreparedMessage prepared = PreparedMessage.prepare(DATA_PROVIDER, message, null, null);
+
+    for (int first = 0; first < 3; first++) {
+      for (int second = 0; second < 3; second++) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("first", rows("a", first, "first"));
+        values.put("second", rows("a", second, "second"));
+        assertBinding(prepared, message, values);
+      }
+    }
+  }
+
+  @Test
+  public void testRejectedPlaceholders() throws Exception {
+    assertPrepareFails("<messageML><a href=\"${url}\">link</a></messageML>");
+    assertPrepareFails("<messageML><mention uid=\"${uid}\"/></messageML>");
+    assertPrepareFails("<messageML><hash tag=\"${tag}\"/></messageML>");
+    assertPrepareFails("<messageML><#if x>text</#if></messageML>");
+    assertPrepareFails("<messageML>${x?upper_case}</messageML>");
+    assertPrepareFails("<messageML><#list a as r><#list b as s>${s.x}</#list></#list></messageML>");
+    assertPrepareFails("<messageML><#list a as r>static</#list></messageML>");
+    assertPrepareFails("<messageML><#list a as r>${r.x}</messageML>");
+    assertPrepareFails("<messageML><unknown>${x}</unknown></messageML>");
+  }
+
+  @Test
+  public void testInvalidValues() throws Exception {
+    PreparedMessage prepared = PreparedMessage.prepare(DATA_PROVIDER,
+        "<messageML><span class=\"${style}\">${text}</span><ul><#list items as item><li>${item.x}</li></#list></ul>"
+            + "</messageML>", null, null);
+
+    Map<String, Object> values = new HashMap<>();
+    values.put("style", "big");
+    values.put("text", "text");
+    values.put("items", rows("x", 1, ""));
+    assertEquals("<div data-format=\"PresentationML\" data-version=\"2.0\"><span class=\"big\">text</span><ul><li>0</li>"
+        + "</ul></div>", prepared.bind(values).getPresentationML());
+
+    values.put("text", "control \u0001");
+    assertBindFails(prepared, values, "Invalid control characters in message");
+    values.put("text", "text");
+    values.put("style", "two\nlines");
+    assertBindFails(prepared, values, "Line breaks are not allowed in the value of attribute placeholder \"${style}\"");
+    values.remove("style");
+    assertBindFails(prepared, values, "Missing value for placeholder \"${style}\"");
+    values.put("style", "big");
+    values.put("items", "not rows");
+    assertBindFails(prepared, values, "The value of repeated section \"items\" must be a collection of rows");
+    values.put("items", Collections.emptyList());
+    // an empty list is not valid MessageML
+    try {
+      prepared.bind(values);
+      fail("Should have thrown an exception");
+    } catch (InvalidInputException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("ul"));
+    }
+  }
+
+  @Test
+  public void testInvalidAttributeValues() throws Exception {
+    String message = "<messageML><form id=\"form\"><text-field name=\"${name}\" label=\"${label}\"/>"
+        + "<button name=\"send\">Send</button></form></messageML>";
+    PreparedMessage prepared = PreparedMessage.prepare(DATA_PROVIDER, message, null, null);
+
+    Map<String, Object> values = new HashMap<>();
+    values.put("name", "name");
+    values.put("label", "Label");
+    assertTrue(prepared.bind(values).getPresentationML().contains(">Label</label>"));
+
+    values.put("name", "");
+    assertBindFailsAsParse(prepared, message, values);
+    values.put("name", "name");
+    values.put("label", String.join("", Collections.nCopies(300, "l")));
+    assertBindFailsAsParse(prepared, message, values);
+    values.put("label", "Label");
+    assertTrue(prepared.bind(values).getPresentationML().contains(">Label</label>"));
+  }
+
+  @Test
+  public void testInvalidTextValues() throws Exception {
+    String message = "<messageML><form id=\"form\"><text-field name=\"field\" maxlength=\"20\">${value}</text-field>"
+        + "<button name=\"send\">Send</button></form></messageML>";
+    PreparedMessage prepared = PreparedMessage.prepare(DATA_PROVIDER, message, null, null);
+
+    Map<String, Object> values = new HashMap<>();
+    values.put("value", String.join("", Collections.nCopies(36, "v")));
+    assertBindFailsAsParse(prepared, message, values);
+
+    String shortMessage = message.replace("maxlength=\"20\"", "maxlength=\"5\"");
+    prepared = PreparedMessage.prepare(DATA_PROVIDER, shortMessage, null, null);
+    values.put("value", "abc");
+    assertBinding(prepared, shortMessage, values);
+    values.put("value", "abcdef");
+    assertBindFailsAsParse(prepared, shortMessage, values);
+  }
+
+  private static List<Map<String, Object>> rows(String name, int count, String prefix) {
+    List<Map<String, Object>> rows = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      rows.add(Collections.singletonMap(name, prefix + i));
+    }
+    return rows;
+  }
+
+  private static void assertPrepareFails(String message) throws Exception {
+    try {
+      PreparedMessage.prepare(DATA_PROVIDER, message, null, null);
+      fail("Should have thrown an exception: " + message);
+    } catch (InvalidInputException e) {
+      // expected
+    }
+  }
+
+  private static void assertBindFails(PreparedMessage prepared, Map<String, Object> values, String error) {
+    try {
+      prepared.bind(values);
+      fail("Should have thrown an exception");
+    } catch (InvalidInputException e) {
+      assertEquals(error, e.getMessage());
+    }
+  }
+
+  /**
+   * Check that binding the values fails as parsing the message expanded with the same values does.
+   */
+  private static void assertBindFailsAsParse(PreparedMessage prepared, String message, Map<String, Object> values)
+      throws Exception {
+    try {
+      new MessageMLContext(DATA_PROVIDER).parseMessageML(expand(message, values), null, null);
+      fail("Should have thrown an exception: " + expand(message, values));
+    } catch (InvalidInputException e) {
+      assertBindFails(prepared, values, e.getMessage());
+    }
+  }
+
+  /**
+   * Compare the outputs of the bound message to the outputs of the message expanded with the same values.
+   */
+  private static void assertBinding(PreparedMessage prepared, String message, Map<String, Object> values)
+      throws Exception {
+    MessageMLContext context = new MessageMLContext(DATA_PROVIDER);
+    String expanded = expand(message, values);
+    BoundMessage bound;
+    try {
+      context.parseMessageML(expanded, null, null);
+    } catch (InvalidInputException e) {
+      try {
+        prepared.bind(values);
+        fail("Should have thrown an exception: " + e.getMessage());
+      } catch (InvalidInputException expected) {
+        return;
+      }
+    }
+    bound = prepared.bind(values);
+    assertEquals(expanded, context.getPresentationML(), bound.getPresentationML());
+    assertEquals(expanded, context.getMarkdown(), bound.getMarkdown());
+    assertEquals(expanded, context.getText(), bound.getText());
+    assertEquals(expanded, context.getEntityJson(), bound.getEntityJson());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static String expand(String message, Map<String, Object> values) {
+    Matcher list = Pattern.compile("<#list (\\w+) as (\\w+)>(.*?)</#list>").matcher(message);
+    StringBuffer sb = new StringBuffer();
+    while (list.find()) {
+      StringBuilder rows = new StringBuilder();
+      for (Map<String, Object> row : (List<Map<String, Object>>) values.get(list.group(1))) {
+        rows.append(substitute(list.group(3), list.group(2) + ".", row));
+      }
+      list.appendReplacement(sb, Matcher.quoteReplacement(rows.toString()));
+    }
+    list.appendTail(sb);
+    return substitute(sb.toString(), "", values);
+  }
+
+  private static String substitute(String message, String prefix, Map<String, Object> values) {
+    Matcher placeholder = Pattern.compile("\\$\\{" + Pattern.quote(prefix) + "(\\w+)}").matcher(message);
+    StringBuffer sb = new StringBuffer();
+    while (placeholder.find()) {
+      String value = XmlPrintStream.escapeXml(values.get(placeholder.group(1)).toString(), XMLAttribute.Format.STANDARD);
+      placeholder.appendReplacement(sb, Matcher.quoteReplacement(value));
+    }
+    placeholder.appendTail(sb);
+    return sb.toString();
+  }
+}
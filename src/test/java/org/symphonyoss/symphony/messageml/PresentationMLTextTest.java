@@ -0,0 +1,53 @@
+package org.symphonyoss.symphony.messageml;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.util.NoOpDataProvider;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+public class PresentationMLTextTest {
+
+  private static final String[] MESSAGES = {
+      "<messageML>Hello <b>world</b></messageML>",
+      "<messageML>Tom &amp; Jerry &lt;3 &#169; &#x1F600; &#128512;</messageML>",
+      "<messageML>a\r\nb\rc\n\nd<p>  e\r\n </p>  </messageML>",
+      "<messageML><table><tr><th>A</th><th> B </th></tr><tr><td>1</td><td>2</td></tr></table> after</messageML>",
+      "<messageML><card iconSrc=\"icon.png\"><header>Header</header><body>Body <i>text</i></body></card></messageML>",
+      "<messageML><ul><li>one</li><li> two </li></ul><code>a &gt; b</code><br/>end</messageML>",
+      "<messageML><div class=\"entity\" data-entity-id=\"obj\">Entity</div></messageML>"
+  };
+
+  @Test
+  public void testTextMatchesDocument() throws Exception {
+    for (String message : MESSAGES) {
+      MessageMLContext context = new MessageMLContext(new NoOpDataProvider());
+      context.parseMessageML(message, "{\"obj\": {\"key\": \"value\"}}", null);
+      String presentationML = context.getPresentationML();
+      org.w3c.dom.Element document = new MessageMLParser(new NoOpDataProvider()).parseDocument(presentationML);
+
+      assertEquals(message, document.getTextContent(), context.getText());
+      assertEquals(message, textContent(document, true), context.getText(true));
+      assertEquals(message, textContent(document, false), context.getText(false));
+    }
+  }
+
+  /**
+   * The text content of each child of the document, separated by a single space.
+   */
+  private static String textContent(org.w3c.dom.Element document, boolean preserveWhitespace) {
+    StringBuilder text = new StringBuilder();
+    NodeList nodes = document.getChildNodes();
+    for (int i = 0; i < nodes.getLength(); i++) {
+      Node node = nodes.item(i);
+      String content = preserveWhitespace ? node.getTextContent() : node.getTextContent().trim();
+      if (i > 0 && StringUtils.isNotEmpty(content)) {
+        text.append(" ");
+      }
+      text.append(content);
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,115 @@
+package org.symphonyoss.symphony.messageml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.util.NoOpDataProvider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+public class RenderedOutputsTest {
+
+  private static final String[][] MESSAGES = {
+      {"<messageML>Hello <b>world</b><br/>&lt;text&gt; &amp; <i> </i>end</messageML>", null},
+      {"<messageML>Hello world</messageML>", null},
+      {"<messageML><p>one</p>\r\n<p>two &#x1F600;</p><hr/><ul><li>item</li></ul><pre>code</pre></messageML>", null},
+      {"<messageML><mention uid=\"123\"/> <hash tag=\"tag\"/> <cash tag=\"AAPL\"/>"
+          + " <a href=\"https://symphony.com\">link</a></messageML>", null},
+      {"<messageML>Hello ${entity['obj'].name}</messageML>", "{\"obj\": {\"name\": \"world\"}}"},
+      {"<div data-format=\"PresentationML\" data-version=\"2.0\">Hello <b>world</b></div>", null}
+  };
+
+  @Test
+  public void testOutputsMatchSeparateRendering() throws Exception {
+    for (String[] message : messages()) {
+      assertSameOutputs(message[0], message[1], EnumSet.allOf(MessageOutput.class));
+      assertSameOutputs(message[0], message[1], EnumSet.of(MessageOutput.PRESENTATIONML, MessageOutput.TEXT));
+      assertSameOutputs(message[0], message[1], EnumSet.of(MessageOutput.MARKDOWN, MessageOutput.ENTITY_JSON));
+      assertSameOutputs(message[0], message[1], EnumSet.of(MessageOutput.ENTITIES));
+      assertSameOutputs(message[0], message[1], Collections.emptySet());
+    }
+  }
+
+  @Test
+  public void testDefaultIsRestored() throws Exception {
+    MessageMLContext context = new MessageMLContext(new NoOpDataProvider());
+    context.setRenderedOutputs(EnumSet.of(MessageOutput.TEXT));
+    context.setRenderedOutputs(null);
+    context.parseMessageML("<messageML>Hello <b>world</b></messageML>", null, null);
+    assertEquals("<div data-format=\"PresentationML\" data-version=\"2.0\">Hello <b>world</b></div>",
+        context.getPresentationML());
+    assertEquals("Hello **world**", context.getMarkdown());
+    assertNotNull(context.getEntityJson());
+  }
+
+  /**
+   * The text is read from the PresentationML as it would be from its normalized DOM tree.
+   */
+  @Test
+  public void testTextMatchesDocument() throws Exception {
+    MessageMLParser parser = new MessageMLParser(new NoOpDataProvider());
+    String[] presentationMLs = {
+        "<div data-format=\"PresentationML\" data-version=\"2.0\">a<b>b</b>c<i></i><br/> d </div>",
+        "<div data-format=\"PresentationML\" data-version=\"2.0\"><a href=\"https://a.com?a=1&amp;b=>\">x</a>"
+            + "<span title='\"&gt;'> &lt;y&gt; &quot;&apos;&#65;&#x42;</span>\r\nz\rw</div>",
+        "<div data-format=\"PresentationML\" data-version=\"2.0\">  <p/>  <p> </p></div>",
+        "<div data-format=\"PresentationML\" data-version=\"2.0\"></div>"
+    };
+    for (String presentationML : presentationMLs) {
+      org.w3c.dom.Element document = parser.parseDocument(presentationML);
+      assertEquals(presentationML, document.getTextContent(), PresentationMLText.textContent(presentationML));
+      for (boolean preserveWhitespace : new boolean[] {true, false}) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < document.getChildNodes().getLength(); i++) {
+          String content = document.getChildNodes().item(i).getTextContent();
+          content = preserveWhitespace ? content : content.trim();
+          if (i > 0 && !content.isEmpty()) {
+            text.append(' ');
+          }
+          text.append(content);
+        }
+        assertEquals(presentationML, text.toString(),
+            PresentationMLText.textContent(presentationML, preserveWhitespace));
+      }
+    }
+  }
+
+  private static void assertSameOutputs(String message, String entityJson, Set<MessageOutput> outputs)
+      throws Exception {
+    MessageMLContext expected = new MessageMLContext(new NoOpDataProvider());
+    expected.parseMessageML(message, entityJson, null);
+    MessageMLContext context = new MessageMLContext(new NoOpDataProvider());
+    context.setRenderedOutputs(outputs);
+    context.parseMessageML(message, entityJson, null);
+
+    String description = outputs + " " + message;
+    assertEquals(description, maskIds(expected.getPresentationML()), maskIds(context.getPresentationML()));
+    assertEquals(description, expected.getMarkdown(), context.getMarkdown());
+    assertEquals(description, expected.getEntities(), context.getEntities());
+    assertEquals(description, expected.getEntityJson(), context.getEntityJson());
+    assertEquals(description, maskIds(expected.getText()), maskIds(context.getText()));
+    assertEquals(description, maskIds(expected.getText(false)), maskIds(context.getText(false)));
+    assertEquals(description, maskIds(expected.getText(true)), maskIds(context.getText(true)));
+  }
+
+  private static List<String[]> messages() throws Exception {
+    List<String[]> messages = new ArrayList<>();
+    Collections.addAll(messages, MESSAGES);
+    for (String example : MessageCorpus.files("examples")) {
+      messages.add(new String[] {MessageCorpus.read(example), MessageCorpus.readEntityJson(example)});
+    }
+    return messages;
+  }
+
+  /**
+   * Generated ids are random.
+   */
+  private static String maskIds(String text) {
+    return text.replaceAll("(id|for)=\"[^\"]*\"", "$1=\"\"");
+  }
+}
@@ -0,0 +1,48 @@
+package org.symphonyoss.symphony.messageml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.util.NoOpDataProvider;
+
+import java.io.IOException;
+
+/**
+ * Parsing and rendering a form with a select holding up to 10k options, to check that the time per option stays the
+ * same as the list grows. Run with <code>-prof gc</code> to compare the memory allocated per message.
+ */
+public class SelectOptionsBenchmark {
+
+  @State(Scope.Thread)
+  public static class Options {
+    @Param({"100", "1000", "10000"})
+    public int count;
+    public String message;
+
+    @Setup(Level.Trial)
+    public void doSetup() {
+      message = SyntheticMessages.selectOptions(count);
+    }
+  }
+
+  @Benchmark
+  public void parse(Options state, Blackhole bh) throws InvalidInputException, ProcessingException, IOException {
+    MessageMLContext context = new MessageMLContext(new NoOpDataProvider());
+    context.parseMessageML(state.message, null, null);
+    bh.consume(context.getMessageML());
+  }
+
+  @Benchmark
+  public void parseAndRender(Options state, Blackhole bh)
+      throws InvalidInputException, ProcessingException, IOException {
+    MessageMLContext context = new MessageMLContext(new NoOpDataProvider());
+    context.parseMessageML(state.message, null, null);
+    bh.consume(context.getPresentationML());
+  }
+}
@@ -0,0 +1,108 @@
+package org.symphonyoss.symphony.messageml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.util.NoOpDataProvider;
+
+import java.io.IOException;
+
+/**
+ * End-to-end parsing of generated messages, to check how the pipeline scales with the number of entities, the size of
+ * tables and the nesting depth.
+ */
+public class SyntheticMessageBenchmark {
+
+  @State(Scope.Thread)
+  public static class Mentions {
+    @Param({"10", "100", "1000"})
+    public int count;
+    public String message;
+
+    @Setup(Level.Trial)
+    public void doSetup() {
+      message = SyntheticMessages.mentions(count);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class TableRows {
+    @Param({"10", "100", "1000"})
+    public int count;
+    public String message;
+
+    @Setup(Level.Trial)
+    public void doSetup() {
+      message = SyntheticMessages.tableRows(count, 5);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Nesting {
+    @Param({"8", "32", "128"})
+    public int depth;
+    public String message;
+
+    @Setup(Level.Trial)
+    public void doSetup() {
+      message = SyntheticMessages.nesting(depth);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class PlainText {
+    @Param({"16", "256", "4096"})
+    public int length;
+    public String message;
+
+    @Setup(Level.Trial)
+    public void doSetup() {
+      message = SyntheticMessages.plainText(length);
+    }
+  }
+
+  @Benchmark
+  public void plainText(PlainText state, Blackhole bh) throws InvalidInputException, ProcessingException, IOException {
+    parse(state.message, bh);
+  }
+
+  /**
+   * The same message with a leading space, which is not eligible to the plain text fast path.
+   */
+  @Benchmark
+  public void plainTextGeneralPath(PlainText state, Blackhole bh)
+      throws InvalidInputException, ProcessingException, IOException {
+    parse(" " + state.message, bh);
+  }
+
+  @Benchmark
+  public void mentions(Mentions state, Blackhole bh) throws InvalidInputException, ProcessingException, IOException {
+    parse(state.message, bh);
+  }
+
+  @Benchmark
+  public void tableRows(TableRows state, Blackhole bh) throws InvalidInputException, ProcessingException, IOException {
+    parse(state.message, bh);
+  }
+
+  @Benchmark
+  public void nesting(Nesting state, Blackhole bh) throws InvalidInputException, ProcessingException, IOException {
+    parse(state.message, bh);
+  }
+
+  private static void parse(String message, Blackhole bh)
+      throws InvalidInputException, ProcessingException, IOException {
+    MessageMLContext context = new MessageMLContext(new NoOpDataProvider());
+    context.parseMessageML(message, null, null);
+
+    bh.consume(context.getPresentationML());
+    bh.consume(context.getMarkdown());
+    bh.consume(context.getEntityJson());
+  }
+}
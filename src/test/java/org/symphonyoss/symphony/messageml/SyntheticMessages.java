@@ -0,0 +1,80 @@
+package org.symphonyoss.symphony.messageml;
+
+/**
+ * Generators of MessageML messages of a given shape, used by benchmarks.
+ */
+public final class SyntheticMessages {
+
+  private SyntheticMessages() {
+  }
+
+  /**
+   * A message made of text only, of about the given length.
+   */
+  public static String plainText(int length) {
+    StringBuilder sb = new StringBuilder("<messageML>");
+    while (sb.length() < length + 11) {
+      sb.append("Lorem ipsum dolor sit amet, \"consectetur\" > adipiscing elit. ");
+    }
+    return sb.append("</messageML>").toString();
+  }
+
+  /**
+   * A paragraph with the given number of mentions, separated by some text.
+   */
+  public static String mentions(int count) {
+    StringBuilder sb = new StringBuilder("<messageML><p>");
+    for (int i = 0; i < count; i++) {
+      sb.append("Hello <mention uid=\"").append(1000000L + i).append("\"/>, ");
+    }
+    return sb.append("</p></messageML>").toString();
+  }
+
+  /**
+   * A table with a header and the given number of rows, each row containing text and a hashtag.
+   */
+  public static String tableRows(int rows, int columns) {
+    StringBuilder sb = new StringBuilder("<messageML><table><thead><tr>");
+    for (int c = 0; c < columns; c++) {
+      sb.append("<th>Column ").append(c).append("</th>");
+    }
+    sb.append("</tr></thead><tbody>");
+    for (int r = 0; r < rows; r++) {
+      sb.append("<tr>");
+      for (int c = 0; c < columns; c++) {
+        sb.append("<td>Cell ").append(r).append('-').append(c).append(" <hash tag=\"tag").append(c).append("\"/></td>");
+      }
+      sb.append("</tr>");
+    }
+    return sb.append("</tbody></table></messageML>").toString();
+  }
+
+  /**
+   * Divs nested down to the given depth, each level holding some styled text.
+   */
+  public static String nesting(int depth) {
+    StringBuilder sb = new StringBuilder("<messageML>");
+    for (int i = 0; i < depth; i++) {
+      sb.append("<div>Level <b>").append(i).append("</b>");
+    }
+    for (int i = 0; i < depth; i++) {
+      sb.append("</div>");
+    }
+    return sb.append("</messageML>").toString();
+  }
+
+  /**
+   * A form holding a select with the given number of options, the last one selected.
+   */
+  public static String selectOptions(int count) {
+    StringBuilder sb = new StringBuilder("<messageML><form id=\"form\"><select name=\"reference\">");
+    for (int i = 0; i < count; i++) {
+      sb.append("<option value=\"ref-").append(i).append('"');
+      if (i == count - 1) {
+        sb.append(" selected=\"true\"");
+      }
+      sb.append(">Reference ").append(i).append("</option>");
+    }
+    return sb.append("</select><button name=\"send\">Send</button></form></messageML>").toString();
+  }
+}
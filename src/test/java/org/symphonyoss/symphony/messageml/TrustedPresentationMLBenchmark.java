@@ -0,0 +1,71 @@
+package org.symphonyoss.symphony.messageml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.util.NoOpDataProvider;
+
+import java.io.IOException;
+
+/**
+ * Rendering stored PresentationML again, validated as any input or trusted with
+ * {@link MessageMLContext#setTrustedPresentationML(boolean)}. The data provider answers immediately, the gain is
+ * larger with a provider calling a remote service.
+ */
+public class TrustedPresentationMLBenchmark {
+
+  @State(Scope.Thread)
+  public static class StoredMessage {
+    @Param({"mentions", "tableRows", "form"})
+    public String kind;
+    public String presentationML;
+    public String entityJson;
+
+    @Setup(Level.Trial)
+    public void doSetup() throws Exception {
+      String message;
+      switch (kind) {
+        case "mentions":
+          message = SyntheticMessages.mentions(100);
+          break;
+        case "tableRows":
+          message = SyntheticMessages.tableRows(100, 5);
+          break;
+        default:
+          message = MessageCorpus.read("examples/form.xml");
+      }
+      MessageMLContext context = new MessageMLContext(new NoOpDataProvider());
+      context.parseMessageML(message, null, null);
+      presentationML = context.getPresentationML();
+      entityJson = context.getEntityJson().toString();
+    }
+  }
+
+  @Benchmark
+  public void validated(StoredMessage state, Blackhole bh)
+      throws InvalidInputException, ProcessingException, IOException {
+    render(state, false, bh);
+  }
+
+  @Benchmark
+  public void trusted(StoredMessage state, Blackhole bh)
+      throws InvalidInputException, ProcessingException, IOException {
+    render(state, true, bh);
+  }
+
+  private static void render(StoredMessage state, boolean trusted, Blackhole bh)
+      throws InvalidInputException, ProcessingException, IOException {
+    MessageMLContext context = new MessageMLContext(new NoOpDataProvider());
+    context.setTrustedPresentationML(trusted);
+    context.parseMessageML(state.presentationML, state.entityJson, null);
+
+    bh.consume(context.getPresentationML());
+    bh.consume(context.getMarkdown());
+  }
+}
@@ -0,0 +1,157 @@
+package org.symphonyoss.symphony.messageml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.util.IUserPresentation;
+import org.symphonyoss.symphony.messageml.util.NoOpDataProvider;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class TrustedPresentationMLTest {
+
+  @Test
+  public void testTrustedMatchesValidated() throws Exception {
+    List<String> messages = new ArrayList<>();
+    for (String file : MessageCorpus.files("examples")) {
+      // templates are left out, the PresentationML they expand to is checked with the other messages
+      String message = MessageCorpus.read(file);
+      if (!message.contains("${")) {
+        messages.add(message);
+      }
+    }
+    messages.add(SyntheticMessages.mentions(10));
+    messages.add(SyntheticMessages.tableRows(5, 3));
+    messages.add("<messageML>Hello <hash tag=\"tag\"/> <a href=\"https://symphony.com\">link</a>"
+        + " <cash tag=\"AAPL\"/></messageML>");
+
+    for (String message : messages) {
+      MessageMLContext source = new MessageMLContext(new NoOpDataProvider());
+      source.parseMessageML(message, null, null);
+      String presentationML = source.getPresentationML();
+      String entityJson = source.getEntityJson().toString();
+
+      CountingDataProvider dataProvider = new CountingDataProvider();
+      MessageMLContext validated = new MessageMLContext(dataProvider);
+      validated.parseMessageML(presentationML, entityJson, null);
+
+      MessageMLContext trusted = new MessageMLContext(dataProvider);
+      trusted.setTrustedPresentationML(true);
+      int calls = dataProvider.calls;
+      trusted.parseMessageML(presentationML, entityJson, null);
+      assertEquals(presentationML, calls, dataProvider.calls);
+
+      assertEquals(presentationML, withoutIds(validated.getPresentationML()), withoutIds(trusted.getPresentationML()));
+      assertEquals(presentationML, validated.getMarkdown(), trusted.getMarkdown());
+      assertEquals(presentationML, validated.getText(), trusted.getText());
+      assertEquals(presentationML, validated.getEntityJson(), trusted.getEntityJson());
+    }
+  }
+
+  @Test
+  public void testDialogTargets() throws Exception {
+    MessageMLContext source = new MessageMLContext(new NoOpDataProvider());
+    source.parseMessageML(MessageCorpus.read("examples/action-dialog.xml"), null, null);
+
+    MessageMLContext trusted = new MessageMLContext(new NoOpDataProvider());
+    trusted.setTrustedPresentationML(true);
+    trusted.parseMessageML(source.getPresentationML(), source.getEntityJson().toString(), null);
+    // dialogs get a new id on each rendering
+    Matcher dialogs = Pattern.compile("<dialog [^>]*id=\"([^\"]+)\"").matcher(trusted.getPresentationML());
+    Matcher targets = Pattern.compile("data-target-id=\"([^\"]+)\"").matcher(trusted.getPresentationML());
+    int count = 0;
+    while (dialogs.find()) {
+      assertTrue(targets.find());
+      assertEquals(dialogs.group(1), targets.group(1));
+      count++;
+    }
+    assertTrue(count > 0);
+  }
+
+  @Test
+  public void testMessageMLIsValidated() throws Exception {
+    MessageMLContext context = new MessageMLContext(new CountingDataProvider());
+    context.setTrustedPresentationML(true);
+    try {
+      context.parseMessageML("<messageML><a href=\"ftp://symphony.com\">link</a></messageML>", null, null);
+      fail("Should have thrown an exception");
+    } catch (InvalidInputException e) {
+      assertEquals("URI scheme \"ftp\" is not supported by the pod.", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testPresentationMLIsNotValidated() throws Exception {
+    String message = "<div data-format=\"PresentationML\" data-version=\"2.0\">"
+        + "<a href=\"ftp://symphony.com\">link</a></div>";
+    MessageMLContext context = new MessageMLContext(new CountingDataProvider());
+    try {
+      context.parseMessageML(message, null, null);
+      fail("Should have thrown an exception");
+    } catch (InvalidInputException e) {
+      assertEquals("URI scheme \"ftp\" is not supported by the pod.", e.getMessage());
+    }
+
+    context.setTrustedPresentationML(true);
+    context.parseMessageML(message, null, null);
+    assertEquals(message, context.getPresentationML());
+
+    context.setTrustedPresentationML(false);
+    try {
+      context.parseMessageML(message, null, null);
+      fail("Should have thrown an exception");
+    } catch (InvalidInputException e) {
+      assertEquals("URI scheme \"ftp\" is not supported by the pod.", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testContainsAttribute() {
+    assertTrue(MessageMLParser.containsAttribute("card", "card"));
+    assertTrue(MessageMLParser.containsAttribute(" barStyle\tcard\n", "card"));
+    assertTrue(MessageMLParser.containsAttribute("card-body card", "card"));
+    assertFalse(MessageMLParser.containsAttribute("card-body", "card"));
+    assertFalse(MessageMLParser.containsAttribute("cards mycard", "card"));
+    assertFalse(MessageMLParser.containsAttribute("", "card"));
+    assertFalse(MessageMLParser.containsAttribute("card body", "card"));
+  }
+
+  /**
+   * Some elements are given random ids on each rendering.
+   */
+  private static String withoutIds(String presentationML) {
+    return presentationML.replaceAll("(id|for|data-target-id)=\"[^\"]*\"", "$1=\"\"");
+  }
+
+  private static class CountingDataProvider extends NoOpDataProvider {
+    private int calls;
+
+    @Override
+    public IUserPresentation getUserPresentation(Long uid) throws InvalidInputException {
+      calls++;
+      return super.getUserPresentation(uid);
+    }
+
+    @Override
+    public IUserPresentation getUserPresentation(String emailAddress) throws InvalidInputException {
+      calls++;
+      return super.getUserPresentation(emailAddress);
+    }
+
+    @Override
+    public void validateURI(URI uri) throws InvalidInputException {
+      calls++;
+      if ("ftp".equals(uri.getScheme())) {
+        throw new InvalidInputException("URI scheme \"" + uri.getScheme() + "\" is not supported by the pod.");
+      }
+    }
+  }
+}
@@ -0,0 +1,140 @@
+package org.symphonyoss.symphony.messageml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ParseLimitExceededException;
+import org.symphonyoss.symphony.messageml.util.NoOpDataProvider;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class Utf8InputTest {
+
+  private static final String ENTITY_JSON = "{\"obj\": {\"type\": \"org.symphonyoss.taxonomy\", \"version\": \"1.0\","
+      + " \"id\": [{\"type\": \"org.symphonyoss.taxonomy.hashtag\", \"value\": \"café\"}]}}";
+
+  private static final String[] MESSAGES = {
+      "<messageML>Hello</messageML>",
+      "<messageML>Café € 😀 <b>bold</b><br/>line</messageML>",
+      "<messageML><span class=\"entity\" data-entity-id=\"obj\">café</span></messageML>",
+      "<messageML>Hello ${entity['obj'].type}</messageML>",
+      "<messageML>\r\n<p>crlf</p>\r\n</messageML>",
+      "<div data-format=\"PresentationML\" data-version=\"2.0\">Hello <b>world</b></div>"
+  };
+
+  @Test
+  public void testBytesMatchString() throws Exception {
+    for (String message : MESSAGES) {
+      MessageMLContext expected = new MessageMLContext(new NoOpDataProvider());
+      expected.parseMessageML(message, ENTITY_JSON, null);
+
+      MessageMLContext context = new MessageMLContext(new NoOpDataProvider());
+      context.parseMessageML(utf8(message), utf8(ENTITY_JSON), null);
+      assertSameOutputs(message, expected, context);
+
+      ByteBuffer heap = ByteBuffer.wrap(utf8("padding" + message), "padding".length(), utf8(message).length);
+      context.parseMessageML(heap.slice(), ByteBuffer.wrap(utf8(ENTITY_JSON)), null);
+      assertSameOutputs(message, expected, context);
+
+      ByteBuffer direct = ByteBuffer.allocateDirect(utf8(message).length);
+      direct.put(utf8(message)).flip();
+      context.parseMessageML(direct, ByteBuffer.wrap(utf8(ENTITY_JSON)), null);
+      assertSameOutputs(message, expected, context);
+      assertEquals(message, utf8(message).length, direct.remaining());
+
+      context.parseMessageML(stream(message), stream(ENTITY_JSON), null);
+      assertSameOutputs(message, expected, context);
+    }
+  }
+
+  @Test
+  public void testByteOrderMark() throws Exception {
+    MessageMLContext context = new MessageMLContext(new NoOpDataProvider());
+    byte[] message = utf8("\uFEFF<messageML>Hello</messageML>");
+    context.parseMessageML(message, null, null);
+    assertEquals("<div data-format=\"PresentationML\" data-version=\"2.0\">Hello</div>", context.getPresentationML());
+  }
+
+  @Test
+  public void testInvalidInput() throws Exception {
+    assertInvalid(new byte[] {'<', 'a', (byte) 0xC3, '>'}, "Invalid messageML: the input is not valid UTF-8");
+    assertInvalid(utf8("<messageML>\u0001</messageML>"), "Invalid control characters in message");
+    assertInvalid(utf8("  "), "Error parsing message: the message cannot be null or empty");
+    assertInvalid(null, "Error parsing message: the message cannot be null or empty");
+
+    MessageMLContext context = new MessageMLContext(new NoOpDataProvider());
+    try {
+      context.parseMessageML(utf8("<messageML>Hello</messageML>"), utf8("[1]"), null);
+      fail("Should have thrown an exception");
+    } catch (InvalidInputException e) {
+      assertEquals("Error parsing EntityJSON: provided content is not a JSON object", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testLimitsOnBytes() throws Exception {
+    MessageMLContext context = new MessageMLContext(new NoOpDataProvider());
+    // 24 characters, 27 bytes
+    String attribute = "https://symphony.com/ééé";
+    context.setParseLimits(new ParseLimits().maxAttributeLength(24).maxInputBytes(100));
+    context.parseMessageML(utf8("<messageML><a href=\"" + attribute + "\">link</a></messageML>"), null, null);
+
+    context.setParseLimits(new ParseLimits().maxAttributeLength(20));
+    try {
+      context.parseMessageML(utf8("<messageML><a href=\"" + attribute + "\">link</a></messageML>"), null, null);
+      fail("Should have thrown an exception");
+    } catch (ParseLimitExceededException e) {
+      assertEquals(ParseBudget.ATTRIBUTE_LENGTH, e.getLimit());
+    }
+
+    context.setParseLimits(new ParseLimits().maxInputBytes(10));
+    try {
+      context.parseMessageML(stream("<messageML>Hello</messageML>"), null, null);
+      fail("Should have thrown an exception");
+    } catch (ParseLimitExceededException e) {
+      assertEquals(ParseBudget.INPUT_BYTES, e.getLimit());
+    }
+  }
+
+  @Test
+  public void testScanning() {
+    Utf8Input input = Utf8Input.of(utf8("café <b>😀</b>"));
+    // "é" takes 2 bytes and "😀" 4 bytes
+    assertEquals(6, Utf8Input.indexOf(input, "<b>", 0));
+    assertEquals(-1, Utf8Input.indexOf(input, "<b>", 7));
+    assertEquals(1, input.decodedLength(3, 5));
+    assertEquals(2, input.decodedLength(9, 13));
+    assertEquals(input.decodedLength(0, input.length()), "café <b>😀</b>".length());
+  }
+
+  private static void assertInvalid(byte[] message, String error) throws Exception {
+    try {
+      new MessageMLContext(new NoOpDataProvider()).parseMessageML(message, null, null);
+      fail("Should have thrown an exception");
+    } catch (InvalidInputException e) {
+      assertEquals(error, e.getMessage());
+    }
+  }
+
+  private static void assertSameOutputs(String message, MessageMLContext expected, MessageMLContext context)
+      throws Exception {
+    assertEquals(message, expected.getPresentationML(), context.getPresentationML());
+    assertEquals(message, expected.getMarkdown(), context.getMarkdown());
+    assertEquals(message, expected.getText(), context.getText());
+    assertEquals(message, expected.getEntityJson(), context.getEntityJson());
+    assertEquals(message, expected.getBiContext().getItems(), context.getBiContext().getItems());
+  }
+
+  private static byte[] utf8(String text) {
+    return text.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static InputStream stream(String text) {
+    return new ByteArrayInputStream(utf8(text));
+  }
+}
@@ -0,0 +1,66 @@
+package org.symphonyoss.symphony.messageml;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.metrics.ParseListener;
+import org.symphonyoss.symphony.messageml.metrics.ParseMetrics;
+import org.symphonyoss.symphony.messageml.util.NoOpDataProvider;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class ValidationPassTest {
+
+  private static final String FORM_ELEMENTS = "<messageML><form id=\"form\">"
+      + "<checkbox name=\"c1\" value=\"v1\">Checkbox <b>1</b></checkbox><checkbox name=\"c2\">Checkbox 2</checkbox>"
+      + "<radio name=\"r\" value=\"1\" checked=\"true\">One</radio><radio name=\"r\" value=\"2\">Two</radio>"
+      + "<person-selector name=\"person\" placeholder=\"Person\"/><room-selector name=\"room\"/>"
+      + "<date-selector name=\"date\"/><text-field name=\"text\" pattern=\"[a-z]+\" pattern-error-message=\"lower\"/>"
+      + "<date-picker name=\"picker\" label=\"Date\"/><time-picker name=\"time\" title=\"Time\"/>"
+      + "<select name=\"select\"><option value=\"1\">One</option><option value=\"2\">Two</option></select>"
+      + "<button name=\"send\">Send</button></form></messageML>";
+
+  /**
+   * Every element of the tree is validated exactly once, text content excepted, from MessageML as from the
+   * PresentationML it is rendered to.
+   */
+  @Test
+  public void testElementsAreValidatedOnce() throws Exception {
+    for (String example : MessageCorpus.files("examples")) {
+      String message = MessageCorpus.read(example);
+      if (!message.contains("${")) {
+        String presentationML = assertValidatedOnce(message, null);
+        assertValidatedOnce(presentationML, null);
+      }
+    }
+    String presentationML = assertValidatedOnce(FORM_ELEMENTS, null);
+    assertValidatedOnce(presentationML, null);
+  }
+
+  private static String assertValidatedOnce(String message, String entityJson) throws Exception {
+    CountingListener listener = new CountingListener();
+    MessageMLContext context = new MessageMLContext(new NoOpDataProvider(), listener);
+    context.parseMessageML(message, entityJson, null);
+
+    Map<String, Integer> expected = new HashMap<>(listener.elements);
+    expected.remove(ParseMetrics.TEXT_NODE);
+    assertEquals(message, expected, listener.validated);
+    return context.getPresentationML();
+  }
+
+  private static class CountingListener implements ParseListener {
+    private final Map<String, Integer> validated = new HashMap<>();
+    private Map<String, Integer> elements;
+
+    @Override
+    public void onValidated(String tag) {
+      validated.merge(tag, 1, Integer::sum);
+    }
+
+    @Override
+    public void onElements(Map<String, Integer> countsByTag) {
+      elements = countsByTag;
+    }
+  }
+}
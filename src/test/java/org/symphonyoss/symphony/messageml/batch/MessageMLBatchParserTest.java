@@ -0,0 +1,195 @@
+package org.symphonyoss.symphony.messageml.batch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.MessageMLContext;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
+import org.symphonyoss.symphony.messageml.util.IUserPresentation;
+import org.symphonyoss.symphony.messageml.util.NoOpDataProvider;
+import org.symphonyoss.symphony.messageml.util.instrument.resolver.InstrumentResolution;
+import org.symphonyoss.symphony.messageml.util.instrument.resolver.ResolutionResults;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MessageMLBatchParserTest {
+
+  private CountingDataProvider dataProvider;
+  private ForkJoinPool pool;
+  private MessageMLBatchParser batchParser;
+
+  @Before
+  public void setUp() {
+    dataProvider = new CountingDataProvider();
+    pool = new ForkJoinPool(4);
+    batchParser = new MessageMLBatchParser(dataProvider, pool);
+  }
+
+  @After
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  @Test
+  public void testResultsInOrder() throws Exception {
+    List<MessageInput> inputs = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      inputs.add(new MessageInput("<messageML>Message " + i + "</messageML>"));
+    }
+
+    List<MessageResult> results = batchParser.parseBatch(inputs);
+
+    assertEquals(50, results.size());
+    for (int i = 0; i < 50; i++) {
+      assertTrue(results.get(i).isSuccess());
+      assertEquals("<div data-format=\"PresentationML\" data-version=\"2.0\">Message " + i + "</div>",
+          results.get(i).getContext().getPresentationML());
+    }
+  }
+
+  @Test
+  public void testErrorsDoNotFailTheBatch() throws Exception {
+    List<MessageResult> results = batchParser.parseBatch(Arrays.asList(
+        new MessageInput("<messageML>Hello</messageML>"),
+        new MessageInput("<messageML><unknown/></messageML>"),
+        new MessageInput("<messageML>World</messageML>")));
+
+    assertTrue(results.get(0).isSuccess());
+    assertFalse(results.get(1).isSuccess());
+    assertTrue(results.get(1).getError() instanceof InvalidInputException);
+    assertTrue(results.get(2).isSuccess());
+  }
+
+  @Test
+  public void testIdenticalMessagesParsedOnce() throws Exception {
+    MessageInput announcement = new MessageInput("<messageML>Hello <mention uid=\"1\"/></messageML>");
+    List<MessageResult> results = batchParser.parseBatch(Arrays.asList(announcement, announcement,
+        new MessageInput(announcement.getMessage())));
+
+    MessageMLContext context = results.get(0).getContext();
+    assertSame(context, results.get(1).getContext());
+    assertSame(context, results.get(2).getContext());
+    assertEquals(1, dataProvider.userCalls.get());
+  }
+
+  @Test
+  public void testLookupsSharedAcrossTheBatch() throws Exception {
+    List<MessageInput> inputs = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      inputs.add(new MessageInput("<messageML>Message " + i + " <mention uid=\"1\"/> <mention uid=\"2\"/> "
+          + "<a href=\"https://symphony.com\">link</a> <mention email=\"user" + (i % 2) + "@symphony.com\"/>"
+          + "</messageML>"));
+    }
+
+    List<MessageResult> results = batchParser.parseBatch(inputs);
+
+    for (MessageResult result : results) {
+      assertTrue(result.isSuccess());
+    }
+    // users 1, 2, user0@symphony.com and user1@symphony.com
+    assertEquals(4, dataProvider.userCalls.get());
+    assertEquals(1, dataProvider.uriCalls.get());
+  }
+
+  @Test
+  public void testFailedLookupsShared() throws Exception {
+    dataProvider.failingUid = 3L;
+    List<MessageResult> results = batchParser.parseBatch(Arrays.asList(
+        new MessageInput("<messageML>First <mention uid=\"3\"/></messageML>"),
+        new MessageInput("<messageML>Second <mention uid=\"3\"/></messageML>")));
+
+    assertFalse(results.get(0).isSuccess());
+    assertFalse(results.get(1).isSuccess());
+    assertEquals(1, dataProvider.userCalls.get());
+  }
+
+  @Test
+  public void testFinTagsResolvedOnce() throws Exception {
+    List<MessageInput> inputs = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      inputs.add(new MessageInput("<messageML>Message " + i
+          + " <tag fullbbgcompticker=\"226 HK Equity\" fallback-ticker=\"226\"/>"
+          + " <tag fullbbgcompticker=\"700 HK Equity\" fallback-ticker=\"700\"/></messageML>"));
+    }
+
+    ForkJoinPool singleThread = new ForkJoinPool(1);
+    try {
+      List<MessageResult> results = new MessageMLBatchParser(dataProvider, singleThread).parseBatch(inputs);
+      for (MessageResult result : results) {
+        assertTrue(result.isSuccess());
+      }
+    } finally {
+      singleThread.shutdown();
+    }
+    assertEquals(1, dataProvider.finTagCalls.get());
+    assertEquals(2, dataProvider.finTagCriteria.get());
+  }
+
+  @Test
+  public void testFinTagsOfTheBatchResolvedInOneCall() throws Exception {
+    List<MessageInput> inputs = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      inputs.add(new MessageInput("<messageML>Message " + i
+          + " <tag fullbbgcompticker=\"" + i + " HK Equity\" fallback-ticker=\"" + i + "\"/>"
+          + " <tag fullbbgcompticker=\"700 HK Equity\" fallback-ticker=\"700\"/></messageML>"));
+    }
+    inputs.add(new MessageInput("<messageML><tag fullbbgcompticker=\"UNKNOWN Equity\"/></messageML>"));
+
+    List<MessageResult> results = batchParser.parseBatch(inputs);
+
+    for (int i = 0; i < 10; i++) {
+      assertTrue(results.get(i).isSuccess());
+      assertEquals("Message " + i + " $" + i + " $700", results.get(i).getContext().getMarkdown());
+    }
+    assertFalse(results.get(10).isSuccess());
+    assertEquals(1, dataProvider.finTagCalls.get());
+    assertEquals(12, dataProvider.finTagCriteria.get());
+  }
+
+  private static class CountingDataProvider extends NoOpDataProvider {
+    private final AtomicInteger userCalls = new AtomicInteger();
+    private final AtomicInteger uriCalls = new AtomicInteger();
+    private final AtomicInteger finTagCalls = new AtomicInteger();
+    private final AtomicInteger finTagCriteria = new AtomicInteger();
+    private Long failingUid;
+
+    @Override
+    public IUserPresentation getUserPresentation(String emailAddress) throws InvalidInputException {
+      userCalls.incrementAndGet();
+      return super.getUserPresentation(emailAddress);
+    }
+
+    @Override
+    public IUserPresentation getUserPresentation(Long uid) throws InvalidInputException {
+      userCalls.incrementAndGet();
+      if (uid.equals(failingUid)) {
+        throw new InvalidInputException("Failed to lookup user \"" + uid + "\"");
+      }
+      return super.getUserPresentation(uid);
+    }
+
+    @Override
+    public void validateURI(URI uri) throws InvalidInputException, ProcessingException {
+      uriCalls.incrementAndGet();
+    }
+
+    @Override
+    public ResolutionResults getFinTagPresentation(List<InstrumentResolution> criteria)
+        throws InvalidInputException {
+      finTagCalls.incrementAndGet();
+      finTagCriteria.addAndGet(criteria.size());
+      return super.getFinTagPresentation(criteria);
+    }
+  }
+}
@@ -0,0 +1,166 @@
+package org.symphonyoss.symphony.messageml.batch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.util.IUserPresentation;
+import org.symphonyoss.symphony.messageml.util.NoOpDataProvider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public class MessagePipelineTest {
+
+  @Test
+  public void testOrderedEmission() throws Exception {
+    List<MessageResult> results = Collections.synchronizedList(new ArrayList<>());
+    try (MessagePipeline pipeline = new MessagePipeline(new NoOpDataProvider(), results::add, 4, 8, true)) {
+      for (int i = 0; i < 100; i++) {
+        pipeline.submit(new MessageInput("<messageML>Message " + i + "</messageML>"));
+      }
+    }
+
+    assertEquals(100, results.size());
+    for (int i = 0; i < 100; i++) {
+      assertTrue(results.get(i).isSuccess());
+      assertEquals("<messageML>Message " + i + "</messageML>", results.get(i).getInput().getMessage());
+    }
+  }
+
+  @Test
+  public void testUnorderedEmission() throws Exception {
+    List<MessageResult> results = Collections.synchronizedList(new ArrayList<>());
+    try (MessagePipeline pipeline = new MessagePipeline(new NoOpDataProvider(), results::add, 4, 8, false)) {
+      for (int i = 0; i < 100; i++) {
+        pipeline.submit(new MessageInput("<messageML>Message " + i + "</messageML>"));
+      }
+      pipeline.submit(new MessageInput("<messageML><unknown/></messageML>"));
+    }
+
+    assertEquals(101, results.size());
+    assertEquals(1, results.stream().filter(result -> !result.isSuccess()).count());
+  }
+
+  @Test
+  public void testMarkdown() throws Exception {
+    List<MessageResult> results = Collections.synchronizedList(new ArrayList<>());
+    try (MessagePipeline pipeline = new MessagePipeline(new NoOpDataProvider(), results::add, 2, 2, true)) {
+      pipeline.submit(MessageInput.markdown("Hello **world**", null, null));
+    }
+
+    assertEquals("<div data-format=\"PresentationML\" data-version=\"2.0\">Hello <b>world</b></div>",
+        results.get(0).getContext().getPresentationML());
+  }
+
+  @Test
+  public void testBackpressure() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    BlockingDataProvider dataProvider = new BlockingDataProvider(release);
+    List<MessageResult> results = Collections.synchronizedList(new ArrayList<>());
+
+    try (MessagePipeline pipeline = new MessagePipeline(dataProvider, results::add, 2, 3, true)) {
+      for (int i = 0; i < 3; i++) {
+        assertTrue(pipeline.offer(new MessageInput("<messageML><mention uid=\"" + i + "\"/></messageML>"), 1,
+            TimeUnit.SECONDS));
+      }
+      assertEquals(3, pipeline.getInFlight());
+      assertFalse(pipeline.offer(new MessageInput("<messageML>Rejected</messageML>"), 10, TimeUnit.MILLISECONDS));
+
+      release.countDown();
+      assertTrue(pipeline.offer(new MessageInput("<messageML>Accepted</messageML>"), 10, TimeUnit.SECONDS));
+    }
+
+    assertEquals(4, results.size());
+  }
+
+  @Test
+  public void testSubscriberSubmittingMessages() throws Exception {
+    List<MessageResult> results = Collections.synchronizedList(new ArrayList<>());
+    MessagePipeline[] pipeline = new MessagePipeline[1];
+    Consumer<MessageResult> subscriber = result -> {
+      results.add(result);
+      if (results.size() < 10) {
+        try {
+          // no permit is left but the one of the result received
+          pipeline[0].submit(new MessageInput("<messageML>Follow-up " + results.size() + "</messageML>"));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+    try (MessagePipeline messagePipeline = new MessagePipeline(new NoOpDataProvider(), subscriber, 2, 1, true)) {
+      pipeline[0] = messagePipeline;
+      messagePipeline.submit(new MessageInput("<messageML>First</messageML>"));
+      assertTrue(awaitSize(results, 10));
+    }
+
+    assertEquals(10, results.size());
+  }
+
+  @Test
+  public void testSubscriberFailuresAreIsolated() throws Exception {
+    List<MessageResult> results = Collections.synchronizedList(new ArrayList<>());
+    Consumer<MessageResult> subscriber = result -> {
+      results.add(result);
+      if (result.getInput().getMessage().contains("Fail")) {
+        throw new IllegalStateException("Subscriber failure");
+      }
+    };
+    try (MessagePipeline pipeline = new MessagePipeline(new NoOpDataProvider(), subscriber, 4, 4, true)) {
+      for (int i = 0; i < 20; i++) {
+        pipeline.submit(new MessageInput("<messageML>" + (i % 3 == 0 ? "Fail " : "Message ") + i + "</messageML>"));
+      }
+    }
+
+    assertEquals(20, results.size());
+    for (int i = 0; i < 20; i++) {
+      assertTrue(results.get(i).getInput().getMessage().endsWith(" " + i + "</messageML>"));
+    }
+  }
+
+  @Test
+  public void testSubmitAfterClose() throws Exception {
+    MessagePipeline pipeline = new MessagePipeline(new NoOpDataProvider(), result -> { }, 1, 1, true);
+    pipeline.close();
+    try {
+      pipeline.submit(new MessageInput("<messageML>Hello</messageML>"));
+      fail("Should have thrown an exception");
+    } catch (IllegalStateException e) {
+      assertEquals("The pipeline is closed", e.getMessage());
+    }
+  }
+
+  private static boolean awaitSize(List<MessageResult> results, int size) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (results.size() < size && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    return results.size() >= size;
+  }
+
+  private static class BlockingDataProvider extends NoOpDataProvider {
+    private final CountDownLatch release;
+
+    BlockingDataProvider(CountDownLatch release) {
+      this.release = release;
+    }
+
+    @Override
+    public IUserPresentation getUserPresentation(Long uid) throws InvalidInputException {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return super.getUserPresentation(uid);
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package org.symphonyoss.symphony.messageml.elements;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.MessageMLContext;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.util.NoOpDataProvider;
+
+import java.util.Arrays;
+
+public class ContentModelTest {
+
+  @Test
+  public void testContains() {
+    MessageML root = new MessageML(FormatEnum.MESSAGEML, "2.0");
+    ContentModel model = ContentModel.of(Bold.class, Italic.class);
+    assertTrue(model.contains(new Bold(root)));
+    assertFalse(model.contains(new Paragraph(root)));
+    assertTrue(model.with(Paragraph.class).contains(new Paragraph(root)));
+    assertEquals(Arrays.asList(Bold.class, Italic.class), model.getTypes());
+  }
+
+  @Test
+  public void testAncestorKinds() {
+    MessageML root = new MessageML(FormatEnum.MESSAGEML, "2.0");
+    Form form = new Form(root, FormatEnum.MESSAGEML);
+    Div div = new Div(form);
+    Div nested = new Div(div);
+    Paragraph paragraph = new Paragraph(nested);
+
+    assertTrue(ContentModel.of(Form.class).intersects(paragraph.getAncestorKinds()));
+    assertTrue(ContentModel.of(MessageML.class).intersects(paragraph.getAncestorKinds()));
+    assertFalse(ContentModel.of(Form.class).intersects(form.getAncestorKinds()));
+    assertFalse(ContentModel.of(Paragraph.class).intersects(paragraph.getAncestorKinds()));
+    // siblings share their ancestor kinds, which are not copied again when a kind repeats
+    assertSame(nested.getAncestorKinds(), new Span(div).getAncestorKinds());
+    assertSame(nested.getAncestorKinds(), paragraph.getAncestorKinds());
+  }
+
+  @Test
+  public void testDeepForm() throws Exception {
+    int depth = 200;
+    StringBuilder message = new StringBuilder("<messageML><form id=\"form\">");
+    for (int i = 0; i < depth; i++) {
+      message.append("<div><text-field name=\"field").append(i).append("\"/>");
+    }
+    for (int i = 0; i < depth; i++) {
+      message.append("</div>");
+    }
+    message.append("<button name=\"send\">Send</button></form></messageML>");
+
+    MessageMLContext context = new MessageMLContext(new NoOpDataProvider());
+    context.parseMessageML(message.toString(), null, null);
+
+    try {
+      context.parseMessageML(message.toString().replace("<text-field name=\"field" + (depth - 1) + "\"/>",
+          "<form id=\"nested\"><button name=\"send\">Send</button></form>"), null, null);
+      fail("Should have thrown an exception");
+    } catch (InvalidInputException e) {
+      assertEquals("Element \"form\" cannot be an inner child of the following elements: [form]", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package org.symphonyoss.symphony.messageml.elements;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+
+import java.util.Arrays;
+
+public class PickerAttributesTest {
+
+  @Test
+  public void testValuesAreCached() throws Exception {
+    PickerAttributes.clear();
+    assertSame(PickerAttributes.formatter("dd/MM/yyyy"), PickerAttributes.formatter("dd/MM/yyyy"));
+
+    String dates = "[{\"day\": \"2020-12-24\"}, {\"from\": \"2020-12-25\", \"to\": \"2020-12-31\"}]";
+    assertEquals("[{\"type\":\"date\",\"day\":\"2020-12-24\"},{\"type\":\"range\",\"from\":\"2020-12-25\","
+        + "\"to\":\"2020-12-31\"}]", PickerAttributes.dateIntervals(dates));
+    assertSame(PickerAttributes.dateIntervals(dates), PickerAttributes.dateIntervals(dates));
+
+    String times = "[{\"time\": \"10:00:00\"}]";
+    assertSame(PickerAttributes.timeIntervals(times), PickerAttributes.timeIntervals(times));
+
+    String zones = "[\"Europe/Paris\", \"UTC+01:00\"]";
+    assertSame(PickerAttributes.timezones(zones), PickerAttributes.timezones(zones));
+    assertEquals(Arrays.asList("Europe/Paris", "UTC+01:00"), PickerAttributes.timezones(zones).getZones());
+    assertEquals("[\"Europe/Paris\",\"UTC+01:00\"]", PickerAttributes.timezones(zones).getJson());
+  }
+
+  @Test
+  public void testInvalidValuesAreNotCached() throws Exception {
+    String dates = "[{\"day\": \"2020-13-24\"}]";
+    for (int i = 0; i < 2; i++) {
+      try {
+        PickerAttributes.dateIntervals(dates);
+        fail("Should have thrown an exception");
+      } catch (InvalidInputException e) {
+        // expected each time
+      }
+    }
+  }
+
+  @Test
+  public void testTimezones() {
+    assertTrue(PickerAttributes.isValidTimezone("America/New_York"));
+    assertTrue(PickerAttributes.isValidTimezone("Z"));
+    assertTrue(PickerAttributes.isValidTimezone("GMT+2"));
+    assertFalse(PickerAttributes.isValidTimezone("America/Rome"));
+    assertFalse(PickerAttributes.isValidTimezone(""));
+  }
+}
@@ -0,0 +1,58 @@
+package org.symphonyoss.symphony.messageml.elements;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.regex.PatternSyntaxException;
+
+public class RegexPatternsTest {
+
+  private static final long BUDGET = 50_000_000;
+
+  @Test
+  public void testPatternsAreCached() {
+    RegexPatterns.clear();
+    assertSame(RegexPatterns.compile("[a-z]+"), RegexPatterns.compile("[a-z]+"));
+    assertEquals(1L, RegexPatterns.size());
+    try {
+      RegexPatterns.compile("[a-z");
+      fail("Should have thrown an exception");
+    } catch (PatternSyntaxException e) {
+      assertEquals(1L, RegexPatterns.size());
+    }
+  }
+
+  @Test
+  public void testCatastrophicBacktracking() {
+    assertTrue(RegexPatterns.isSafe("^[a-z]+(-[a-z0-9]+)*$", BUDGET));
+    assertTrue(RegexPatterns.isSafe("\\d{3}-\\d{4}", BUDGET));
+    assertTrue(RegexPatterns.isSafe("(a|ab)*c", BUDGET));
+
+    assertTrue(RegexPatterns.isSafe("[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}", BUDGET));
+
+    assertFalse(RegexPatterns.isSafe("(.*a){8}", BUDGET));
+    assertFalse(RegexPatterns.isSafe("^(a+)+\\1$", BUDGET));
+    assertFalse(RegexPatterns.isSafe("\\w+\\w+\\w+x", BUDGET));
+
+    // the outcome only depends on the budget: a smaller budget is rejected without probing again, a larger one is
+    // probed again
+    assertFalse(RegexPatterns.isSafe("(.*a){8}", BUDGET / 2));
+    assertFalse(RegexPatterns.isSafe("(.*a){8}", BUDGET * 2));
+    assertTrue(RegexPatterns.isSafe("(a|ab)*c", 1_000_000));
+    assertFalse(RegexPatterns.isSafe("(a|ab)*c", 100));
+  }
+
+  @Test
+  public void testCacheIsBounded() {
+    RegexPatterns.clear();
+    for (int i = 0; i < 5000; i++) {
+      RegexPatterns.compile("[a-z]{" + i + "}");
+    }
+    assertTrue(RegexPatterns.size() <= 1024);
+  }
+}
@@ -1,23 +1,34 @@
 package org.symphonyoss.symphony.messageml.elements;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.apache.commons.io.IOUtils;
 import org.junit.Test;
+import org.symphonyoss.symphony.messageml.MessageMLContext;
 import org.symphonyoss.symphony.messageml.bi.BiFields;
 import org.symphonyoss.symphony.messageml.bi.BiItem;
 import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
 import org.symphonyoss.symphony.messageml.exceptions.ProcessingException;
 import org.symphonyoss.symphony.messageml.util.TestDataProvider;
+import org.symphonyoss.symphony.messageml.util.instrument.resolver.InstrumentResolution;
+import org.symphonyoss.symphony.messageml.util.instrument.resolver.InstrumentResolutionCache;
 import org.symphonyoss.symphony.messageml.util.instrument.resolver.ResolutionResults;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class TagTest extends ElementTest {
 
@@ -124,6 +135,142 @@ public class TagTest extends ElementTest {
     assertMessageLengthBiItem(items.get(2), input.length());
   }
 
+  @Test
+  public void testSameCriteriaAreResolvedOnce() throws Exception {
+    CountingDataProvider provider = new CountingDataProvider(retrieveJsonPayload("finref_response"));
+    MessageMLContext context = new MessageMLContext(provider);
+    context.parseMessageML("<messageML><tag fullbbgcompticker=\"000930 CH Equity\"/> <tag fullbbgcompticker=\"226 HK "
+        + "Equity\"/> <tag fullbbgcompticker=\" 000930 CH Equity \" fallback-ticker=\"fb\"/></messageML>", null,
+        MessageML.MESSAGEML_VERSION);
+
+    assertEquals(1, provider.criteria.size());
+    List<InstrumentResolution> criteria = provider.criteria.get(0);
+    assertEquals(2, criteria.size());
+    assertEquals("0", criteria.get(0).getResolutionId());
+    assertEquals("000930 CH Equity", criteria.get(0).getFullBbgCompTicker());
+    assertEquals("1", criteria.get(1).getResolutionId());
+    assertEquals("$000930 $226 $000930", context.getMarkdown());
+  }
+
+  @Test
+  public void testDeferredFinancialTags() throws Exception {
+    CountingDataProvider provider = new CountingDataProvider(retrieveJsonPayload("finref_response"));
+    String input = "<messageML><tag fullbbgcompticker=\"000930 CH Equity\"/> <tag fullbbgcompticker=\"226 HK Equity\"/>"
+        + "</messageML>";
+    MessageMLContext expected = new MessageMLContext(provider);
+    expected.parseMessageML(input, null, MessageML.MESSAGEML_VERSION);
+
+    MessageMLContext context = new MessageMLContext(provider);
+    context.setDeferredFinancialTags(true);
+    context.parseMessageML(input, null, MessageML.MESSAGEML_VERSION);
+    assertEquals(1, provider.criteria.size());
+    assertEquals(2, context.getMessageML().getFinancialTagCriteria().size());
+
+    context.resolveFinancialTags();
+    assertEquals(2, provider.criteria.size());
+    assertEquals(expected.getPresentationML(), context.getPresentationML());
+    assertEquals(expected.getMarkdown(), context.getMarkdown());
+    assertEquals(expected.getEntityJson(), context.getEntityJson());
+
+    // tags without fallback ticker are still checked once resolved
+    provider.results = retrieveJsonPayload("finref_with_instrument_not_found_response");
+    context.parseMessageML("<messageML><tag fullbbgcompticker=\"UNKNOWN Equity\"/></messageML>", null,
+        MessageML.MESSAGEML_VERSION);
+    InvalidInputException exception = assertThrows(InvalidInputException.class, context::resolveFinancialTags);
+    assertEquals("No instrument found , \"fallback-ticker\" attribute is required", exception.getMessage());
+  }
+
+  @Test
+  public void testResolutionsAreCached() throws Exception {
+    InstrumentResolutionCache cache =
+        new InstrumentResolutionCache(16, Duration.ofMinutes(10), Duration.ofMinutes(1));
+    CountingDataProvider provider = new CountingDataProvider(retrieveJsonPayload("finref_response"));
+    MessageMLContext context = new MessageMLContext(provider);
+    context.setInstrumentResolutionCache(cache);
+    String input = "<messageML><tag fullbbgcompticker=\"000930 CH Equity\"/></messageML>";
+    context.parseMessageML(input, null, MessageML.MESSAGEML_VERSION);
+    context.parseMessageML(input, null, MessageML.MESSAGEML_VERSION);
+    assertEquals(1, provider.criteria.size());
+    assertEquals("$000930", context.getMarkdown());
+
+    // instruments which are not found are cached as well
+    provider.results = retrieveJsonPayload("finref_with_instrument_not_found_response");
+    input = "<messageML><tag fullbbgcompticker=\"UNKNOWN Equity\" fallback-ticker=\"fb\"/></messageML>";
+    context.parseMessageML(input, null, MessageML.MESSAGEML_VERSION);
+    context.parseMessageML(input, null, MessageML.MESSAGEML_VERSION);
+    assertEquals(2, provider.criteria.size());
+    assertEquals("$fb", context.getMarkdown());
+
+    // the cache is shared by contexts
+    MessageMLContext otherContext = new MessageMLContext(provider);
+    otherContext.setInstrumentResolutionCache(cache);
+    otherContext.parseMessageML("<messageML><tag fullbbgcompticker=\"000930 CH Equity\"/> <tag "
+        + "fullbbgcompticker=\"226 HK Equity\" fallback-ticker=\"fb\"/></messageML>", null, MessageML.MESSAGEML_VERSION);
+    assertEquals(3, provider.criteria.size());
+    assertEquals(1, provider.criteria.get(2).size());
+    assertEquals("226 HK Equity", provider.criteria.get(2).get(0).getFullBbgCompTicker());
+    assertEquals("$000930 $fb", otherContext.getMarkdown());
+  }
+
+  @Test
+  public void testFallbackTickerAfterDeadline() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CountingDataProvider provider = new CountingDataProvider(retrieveJsonPayload("finref_response")) {
+      @Override
+      public ResolutionResults getFinTagPresentation(List<InstrumentResolution> criteria) {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return super.getFinTagPresentation(criteria);
+      }
+    };
+    InstrumentResolutionCache cache =
+        new InstrumentResolutionCache(16, Duration.ofMinutes(10), Duration.ofMinutes(1));
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      MessageMLContext context = new MessageMLContext(provider);
+      context.setInstrumentResolutionCache(cache);
+      context.setFinancialTagDeadline(Duration.ofMillis(50), executor);
+      String input = "<messageML><tag fullbbgcompticker=\"000930 CH Equity\" fallback-ticker=\"fb\"/></messageML>";
+      context.parseMessageML(input, null, MessageML.MESSAGEML_VERSION);
+      assertEquals("$fb", context.getMarkdown());
+      assertTrue(context.isPartiallyEnriched());
+
+      // tags without fallback ticker are still rejected
+      assertThrows(InvalidInputException.class, () -> context.parseMessageML(
+          "<messageML><tag fullbbgcompticker=\"226 HK Equity\"/></messageML>", null, MessageML.MESSAGEML_VERSION));
+
+      // the late results are cached for the next messages
+      release.countDown();
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+      context.parseMessageML(input, null, MessageML.MESSAGEML_VERSION);
+      assertEquals("$000930", context.getMarkdown());
+      assertFalse(context.isPartiallyEnriched());
+      assertEquals(2, provider.criteria.size());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testResolvedBeforeDeadline() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      MessageMLContext context =
+          new MessageMLContext(new CountingDataProvider(retrieveJsonPayload("finref_response")));
+      context.setFinancialTagDeadline(Duration.ofSeconds(10), executor);
+      context.parseMessageML("<messageML><tag fullbbgcompticker=\"000930 CH Equity\"/></messageML>", null,
+          MessageML.MESSAGEML_VERSION);
+      assertEquals("$000930", context.getMarkdown());
+      assertFalse(context.isPartiallyEnriched());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   private ResolutionResults retrieveJsonPayload(String fileName) throws IOException {
     ClassLoader classLoader = getClass().getClassLoader();
     InputStream stream = classLoader.getResourceAsStream("payloads/" + fileName + ".json");
@@ -143,4 +290,19 @@ public class TagTest extends ElementTest {
     assertEquals("EntityJSON", expectedJson, MAPPER.writeValueAsString(context.getEntityJson()));
     assertEquals("Legacy entities", 1, context.getEntities().size());
   }
+
+  private static class CountingDataProvider extends TestDataProvider {
+    private final List<List<InstrumentResolution>> criteria = new ArrayList<>();
+    private ResolutionResults results;
+
+    CountingDataProvider(ResolutionResults results) {
+      this.results = results;
+    }
+
+    @Override
+    public ResolutionResults getFinTagPresentation(List<InstrumentResolution> criteria) {
+      this.criteria.add(criteria);
+      return results;
+    }
+  }
 }
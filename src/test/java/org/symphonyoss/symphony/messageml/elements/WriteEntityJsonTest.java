@@ -0,0 +1,117 @@
+package org.symphonyoss.symphony.messageml.elements;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.MessageMLContext;
+import org.symphonyoss.symphony.messageml.MessageOutput;
+import org.symphonyoss.symphony.messageml.util.TestDataProvider;
+import org.symphonyoss.symphony.messageml.util.UserPresentation;
+import org.symphonyoss.symphony.messageml.util.instrument.resolver.ResolutionResults;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+
+public class WriteEntityJsonTest {
+
+  private static final String ENTITY_JSON = "{\"obj\": {\"type\": \"com.symphony.test\", \"value\": [1, 2.5, null],"
+      + " \"name\": \"é\"}, \"tag1\": {\"type\": \"org.symphonyoss.fin.security\", \"id\": []}}";
+
+  private final TestDataProvider dataProvider = new TestDataProvider();
+
+  @Before
+  public void setUp() throws Exception {
+    dataProvider.setUserPresentation(new UserPresentation(1L, "user", "User Name", "user@symphony.com"));
+    try (InputStream in = getClass().getClassLoader().getResourceAsStream("payloads/finref_response.json")) {
+      dataProvider.setResolutionResults(Element.MAPPER.readValue(IOUtils.toString(in, StandardCharsets.UTF_8),
+          ResolutionResults.class));
+    }
+  }
+
+  @Test
+  public void testEntitiesAreStreamed() throws Exception {
+    assertStreamed("<messageML>Hello <mention uid=\"1\"/> <hash tag=\"tag\"/> <cash tag=\"AAPL\"/>"
+        + " <emoji shortcode=\"smiley\"/> <emoji shortcode=\"custom\" family=\"fam\"/></messageML>", null);
+    assertStreamed("<messageML>Hello <mention email=\"unknown@symphony.com\" strict=\"false\"/></messageML>", null);
+    assertStreamed("<messageML><span class=\"entity\" data-entity-id=\"obj\">${entity['obj'].name}</span>"
+        + " <hash tag=\"tag\"/></messageML>", ENTITY_JSON);
+    assertStreamed("<messageML><tag fullbbgcompticker=\"000930 CH Equity\" fallback-ticker=\"fb\"/>"
+        + "<hash tag=\"tag\"/></messageML>", null);
+    assertStreamed("<messageML>Hello</messageML>", ENTITY_JSON);
+  }
+
+  @Test
+  public void testEntitiesAddedToReceivedOnesAreBuilt() throws Exception {
+    // the resolved tag adds its ids to the received entity
+    assertBuilt("<div data-format=\"PresentationML\" data-version=\"2.0\">"
+        + "<span class=\"entity\" data-entity-id=\"tag1\">$fb</span></div>",
+        "<messageML><tag fullbbgcompticker=\"000930 CH Equity\" fallback-ticker=\"fb\"/></messageML>", ENTITY_JSON);
+    // the hashtag is added to the received entity the div refers to
+    assertBuilt(null, "<messageML><div class=\"entity\" data-entity-id=\"obj\"><hash tag=\"tag\"/></div></messageML>",
+        ENTITY_JSON);
+  }
+
+  private void assertStreamed(String message, String entityJson) throws Exception {
+    MessageMLContext context = parse(message, entityJson);
+    ObjectNode received = (entityJson != null) ? (ObjectNode) Element.MAPPER.readTree(entityJson) : null;
+    StringWriter out = new StringWriter();
+    try (JsonGenerator generator = Element.MAPPER.getFactory().createGenerator(out)) {
+      assertTrue(message, context.getMessageML().writeEntityJson(generator, received));
+    }
+    ObjectNode expected = context.getMessageML().asEntityJson((received != null) ? received.deepCopy() : null);
+    assertEquals(message, Element.MAPPER.writeValueAsString(expected), out.toString());
+
+    assertSameEntityJson(message, entityJson);
+  }
+
+  private void assertBuilt(String presentationML, String message, String entityJson) throws Exception {
+    MessageMLContext context = parse(message, entityJson);
+    ObjectNode received = (ObjectNode) Element.MAPPER.readTree(entityJson);
+    JsonGenerator generator = Element.MAPPER.getFactory().createGenerator(new ByteArrayOutputStream());
+    assertFalse(message, context.getMessageML().writeEntityJson(generator, received));
+    assertEquals(message, Element.MAPPER.readTree(entityJson), received);
+
+    assertSameEntityJson(message, entityJson);
+    if (presentationML != null) {
+      assertSameEntityJson(presentationML, entityJson);
+    }
+  }
+
+  /**
+   * The EntityJSON written by a context which does not build it is the one it would build.
+   */
+  private void assertSameEntityJson(String message, String entityJson) throws Exception {
+    String expected = Element.MAPPER.writeValueAsString(parse(message, entityJson).getEntityJson());
+
+    MessageMLContext context = new MessageMLContext(dataProvider);
+    context.setRenderedOutputs(EnumSet.of(MessageOutput.PRESENTATIONML));
+    context.parseMessageML(message, entityJson, null);
+    for (int i = 0; i < 2; i++) {
+      StringWriter out = new StringWriter();
+      try (JsonGenerator generator = Element.MAPPER.getFactory().createGenerator(out)) {
+        context.writeEntityJson(generator);
+      }
+      assertEquals(message, expected, out.toString());
+    }
+    // non ASCII characters may be escaped in UTF-8
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    context.writeEntityJson(bytes);
+    assertEquals(message, Element.MAPPER.readTree(expected), Element.MAPPER.readTree(bytes.toByteArray()));
+    assertEquals(message, expected, Element.MAPPER.writeValueAsString(context.getEntityJson()));
+  }
+
+  private MessageMLContext parse(String message, String entityJson) throws Exception {
+    MessageMLContext context = new MessageMLContext(dataProvider);
+    context.parseMessageML(message, entityJson, null);
+    return context;
+  }
+}
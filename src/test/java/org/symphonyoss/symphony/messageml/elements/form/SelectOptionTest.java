@@ -2,6 +2,7 @@ package org.symphonyoss.symphony.messageml.elements.form;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 import static org.symphonyoss.symphony.messageml.markdown.MarkdownRenderer.addEscapeCharacter;
 
 import org.junit.Test;
@@ -55,6 +56,30 @@ public class SelectOptionTest extends ElementTest {
     verifySelectPresentation((Select) select, name, true, required, placeholder, false, false);
   }
 
+  @Test
+  public void testOptionAttributes() throws Exception {
+    String input = "<messageML><form id=\"" + FORM_ID_ATTR + "\"><select name=\"id\">"
+        + "<option selected=\"true\" value=\"1\">Option 1</option></select>" + ACTION_BTN_ELEMENT + "</form></messageML>";
+    context.parseMessageML(input, null, MessageML.MESSAGEML_VERSION);
+
+    Element option = context.getMessageML().getChild(0).getChild(0).getChild(0);
+    Map<String, String> attributes = option.getAttributes();
+    assertEquals(Option.class, option.getClass());
+    assertEquals("1", attributes.get(VALUE_ATTR));
+    assertEquals("true", attributes.get(SELECTED_ATTR));
+    assertEquals(Stream.of(SELECTED_ATTR, VALUE_ATTR).collect(Collectors.toList()),
+        attributes.keySet().stream().collect(Collectors.toList()));
+    assertNull(option.getAttribute(null));
+    assertNull(attributes.get(null));
+
+    try {
+      attributes.put(VALUE_ATTR, "2");
+      fail("The attributes of an option are read-only");
+    } catch (UnsupportedOperationException e) {
+      assertEquals("1", option.getAttribute(VALUE_ATTR));
+    }
+  }
+
   @Test
   public void testCompleteRequiredSelectWithLabelAndTooltip() throws Exception {
     String name = "complete-required-id";
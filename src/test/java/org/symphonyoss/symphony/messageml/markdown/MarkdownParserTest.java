@@ -2,8 +2,13 @@ package org.symphonyoss.symphony.messageml.markdown;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
 import org.symphonyoss.symphony.messageml.MessageMLContext;
@@ -12,6 +17,8 @@ import org.symphonyoss.symphony.messageml.util.TestDataProvider;
 @Slf4j
 public class MarkdownParserTest {
 
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
   @RequiredArgsConstructor
   enum Example {
     ITALIC_WITH_CODE(
@@ -31,4 +38,70 @@ public class MarkdownParserTest {
     final String presentationML = context.getPresentationML();
     assertEquals(example.presentationML, presentationML);
   }
+
+  @Test
+  void testEntityIdsNotParsedAsMarkdown() throws Exception {
+    String url = "https://symphony.com/some_path_with_*stars*";
+    String markdown = "Go to " + url + " now";
+    JsonNode entities = entities(entity("URL", url, 6, 6 + url.length()));
+
+    final MessageMLContext context = new MessageMLContext(new TestDataProvider());
+    context.parseMarkdown(markdown, entities, null);
+    assertEquals("<div data-format=\"PresentationML\" data-version=\"2.0\">Go to <a href=\"" + url + "\">" + url
+        + "</a> now</div>", context.getPresentationML());
+  }
+
+  @Test
+  void testEntitiesAndMedia() throws Exception {
+    String markdown = "#tag1 and #tag2 then";
+    JsonNode entities = entities(entity("KEYWORD", "#tag1", 0, 5), entity("KEYWORD", "#tag2", 10, 15));
+    ObjectNode media = MAPPER.createObjectNode();
+    ObjectNode table = media.putArray("mediaItems").addObject();
+    table.put("index", 16);
+    ArrayNode row = table.putArray("text").addArray();
+    row.add("A").add("B");
+
+    final MessageMLContext context = new MessageMLContext(new TestDataProvider());
+    context.parseMarkdown(markdown, entities, media);
+    assertEquals("<div data-format=\"PresentationML\" data-version=\"2.0\">"
+        + "<span class=\"entity\" data-entity-id=\"keyword1\">#tag1</span> and "
+        + "<span class=\"entity\" data-entity-id=\"keyword2\">#tag2</span> <table><tr><td>A</td><td>B</td></tr></table>then</div>", context.getPresentationML());
+  }
+
+  @Test
+  void testManyEntities() throws Exception {
+    StringBuilder markdown = new StringBuilder();
+    ArrayNode hashtags = MAPPER.createArrayNode();
+    for (int i = 0; i < 5000; i++) {
+      int start = markdown.length();
+      markdown.append("#tag").append(i);
+      hashtags.add(entity("KEYWORD", markdown.substring(start), start, markdown.length()));
+      markdown.append(' ');
+    }
+    ObjectNode entities = MAPPER.createObjectNode();
+    entities.set("hashtags", hashtags);
+
+    final MessageMLContext context = new MessageMLContext(new TestDataProvider());
+    context.parseMarkdown(markdown.toString(), entities, null);
+    assertTrue(context.getPresentationML().endsWith(
+        "<span class=\"entity\" data-entity-id=\"keyword5000\">#tag4999</span></div>"));
+  }
+
+  private static ObjectNode entity(String type, String id, int start, int end) {
+    ObjectNode entity = MAPPER.createObjectNode();
+    entity.put("id", id);
+    entity.put("type", type);
+    entity.put("indexStart", start);
+    entity.put("indexEnd", end);
+    return entity;
+  }
+
+  private static JsonNode entities(ObjectNode... entities) {
+    ObjectNode node = MAPPER.createObjectNode();
+    ArrayNode array = node.putArray("entities");
+    for (ObjectNode entity : entities) {
+      array.add(entity);
+    }
+    return node;
+  }
 }
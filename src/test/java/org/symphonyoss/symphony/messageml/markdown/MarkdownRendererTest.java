@@ -0,0 +1,58 @@
+package org.symphonyoss.symphony.messageml.markdown;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.MessageCorpus;
+import org.symphonyoss.symphony.messageml.MessageMLContext;
+import org.symphonyoss.symphony.messageml.SyntheticMessages;
+import org.symphonyoss.symphony.messageml.elements.MessageML;
+import org.symphonyoss.symphony.messageml.util.NoOpDataProvider;
+
+/**
+ * Checks that rendering the Markdown nodes a MessageML document sends to a sink gives the same output as rendering its
+ * Markdown document tree.
+ */
+public class MarkdownRendererTest {
+
+  @Test
+  public void testCorpus() throws Exception {
+    for (String file : MessageCorpus.files()) {
+      assertSameOutput(file, MessageCorpus.read(file), MessageCorpus.readEntityJson(file));
+    }
+  }
+
+  @Test
+  public void testSyntheticMessages() throws Exception {
+    assertSameOutput("mentions", SyntheticMessages.mentions(50), null);
+    assertSameOutput("table", SyntheticMessages.tableRows(20, 4), null);
+    assertSameOutput("nesting", SyntheticMessages.nesting(16), null);
+  }
+
+  @Test
+  public void testEdgeCases() throws Exception {
+    assertSameOutput("code", "<messageML><code>Some <b>bold</b> and <a href=\"https://symphony.com\">link</a>"
+        + "<hash tag=\"tag\"/></code></messageML>", null);
+    assertSameOutput("nested lists", "<messageML><ul><li>One<ol><li>Two</li><li>Three<ul><li>Four</li></ul></li>"
+        + "</ol></li><li>Five</li></ul><p></p><hr/></messageML>", null);
+    assertSameOutput("pre", "<messageML><pre>Line 1\nLine 2 <i>italic</i></pre>Text\nafter</messageML>", null);
+    assertSameOutput("table", "<messageML><table><tr><td>A</td> <td>B</td></tr> <tr><td>C</td><td></td></tr>"
+        + "</table></messageML>", null);
+  }
+
+  private static void assertSameOutput(String name, String message, String entityJson) throws Exception {
+    MessageMLContext context = new MessageMLContext(new NoOpDataProvider());
+    context.parseMessageML(message, entityJson, null);
+    MessageML messageML = context.getMessageML();
+
+    MarkdownRenderer expected = new MarkdownRenderer(messageML.asMarkdown());
+    MarkdownRenderer actual = new MarkdownRenderer(messageML);
+    MarkdownRenderer outputs = new MarkdownRenderer();
+    messageML.asOutputs(null, context, outputs.sink(), null);
+
+    assertEquals(name, expected.getText(), actual.getText());
+    assertEquals(name, expected.getJson(), actual.getJson());
+    assertEquals(name, expected.getText(), outputs.getText());
+    assertEquals(name, expected.getJson(), outputs.getJson());
+  }
+}
@@ -0,0 +1,101 @@
+package org.symphonyoss.symphony.messageml.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.symphonyoss.symphony.messageml.MessageMLContext;
+import org.symphonyoss.symphony.messageml.exceptions.InvalidInputException;
+import org.symphonyoss.symphony.messageml.util.NoOpDataProvider;
+
+import java.util.Map;
+
+public class AggregatingParseListenerTest {
+
+  private AggregatingParseListener listener;
+  private MessageMLContext context;
+
+  @Before
+  public void setUp() {
+    listener = new AggregatingParseListener();
+    context = new MessageMLContext(new NoOpDataProvider(), listener);
+  }
+
+  @Test
+  public void testParseMessageML() throws Exception {
+    String message = "<messageML><p>Hello <mention uid=\"123\"/> <a href=\"https://symphony.com\">link</a></p></messageML>";
+    context.parseMessageML(message, null, null);
+    String presentationML = context.getPresentationML();
+    String text = context.getText();
+
+    assertEquals(1, listener.getCompletedCount());
+    assertEquals(0, listener.getFailedCount());
+    assertEquals(message.length(), listener.getMessageBytes());
+    assertEquals(0, listener.getEntityJsonBytes());
+
+    for (ParseStage stage : ParseStage.values()) {
+      assertTrue(stage.name(), listener.getStageCount(stage) > 0);
+    }
+    // entity json, markdown, presentationML and text
+    assertEquals(4, listener.getStageCount(ParseStage.SERIALIZE));
+
+    assertEquals(presentationML.getBytes("UTF-8").length, listener.getOutputBytes(OutputFormat.PRESENTATIONML));
+    assertEquals(context.getMarkdown().length(), listener.getOutputBytes(OutputFormat.MARKDOWN));
+    assertEquals(text.getBytes("UTF-8").length, listener.getOutputBytes(OutputFormat.TEXT));
+
+    Map<String, Long> elements = listener.getElementCounts();
+    assertEquals(Long.valueOf(1), elements.get("p"));
+    assertEquals(Long.valueOf(1), elements.get("mention"));
+    assertEquals(Long.valueOf(1), elements.get("a"));
+    assertEquals(Long.valueOf(3), elements.get(ParseMetrics.TEXT_NODE));
+
+    Map<String, Long> calls = listener.getDataProviderCalls();
+    assertEquals(Long.valueOf(1), calls.get(InstrumentedDataProvider.GET_USER_BY_UID));
+    assertEquals(Long.valueOf(1), calls.get(InstrumentedDataProvider.VALIDATE_URI));
+  }
+
+  @Test
+  public void testParseMarkdown() throws Exception {
+    context.parseMarkdown("Hello **world**", null, null);
+
+    assertEquals(1, listener.getCompletedCount());
+    assertTrue(listener.getStageCount(ParseStage.BUILD) > 0);
+    assertEquals(Long.valueOf(1), listener.getElementCounts().get("b"));
+  }
+
+  @Test
+  public void testParseFailure() throws Exception {
+    try {
+      context.parseMessageML("<messageML><unknown/></messageML>", null, null);
+      fail("Should have thrown an exception");
+    } catch (InvalidInputException e) {
+      assertEquals(0, listener.getCompletedCount());
+      assertEquals(1, listener.getFailedCount());
+    }
+  }
+
+  @Test
+  public void testSnapshotAndReset() throws Exception {
+    context.parseMessageML("<messageML>Hello</messageML>", null, null);
+
+    Map<String, Long> snapshot = listener.snapshot();
+    assertEquals(Long.valueOf(1), snapshot.get("parse.completed"));
+    assertEquals(Long.valueOf(1), snapshot.get("element." + ParseMetrics.TEXT_NODE));
+    assertTrue(snapshot.get("stage.xml.nanos") > 0);
+
+    listener.reset();
+    assertEquals(Long.valueOf(0), listener.snapshot().get("parse.completed"));
+    assertTrue(listener.getElementCounts().isEmpty());
+  }
+
+  @Test
+  public void testUtf8Length() {
+    assertEquals(0, ParseMetrics.utf8Length(null));
+    assertEquals(5, ParseMetrics.utf8Length("hello"));
+    assertEquals(2, ParseMetrics.utf8Length("é"));
+    assertEquals(3, ParseMetrics.utf8Length("€"));
+    assertEquals(4, ParseMetrics.utf8Length("😀"));
+  }
+}
@@ -0,0 +1,104 @@
+package org.symphonyoss.symphony.messageml.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class XmlParserPoolTest {
+
+  @Test
+  public void testInstancesAreReused() throws Exception {
+    XmlParserPool pool = new XmlParserPool(2);
+    XmlParserPool.Lease first = pool.borrow();
+    first.close();
+    // closing twice does not return the instance twice
+    first.close();
+    XmlParserPool.Lease second = pool.borrow();
+    assertSame(first, second);
+
+    XmlParserPool.Metrics metrics = pool.getMetrics();
+    assertEquals(2, metrics.getMaxSize());
+    assertEquals(1, metrics.getSize());
+    assertEquals(0, metrics.getIdle());
+    assertEquals(1, metrics.getActive());
+    assertEquals(2, metrics.getBorrowCount());
+    assertEquals(0, metrics.getWaitCount());
+    second.close();
+    assertEquals(0, pool.getMetrics().getActive());
+    assertEquals(1, pool.getMetrics().getIdle());
+  }
+
+  @Test
+  public void testInstancesAreResetAfterFailure() throws Exception {
+    XmlParserPool pool = new XmlParserPool(1);
+    try (XmlParserPool.Lease lease = pool.borrow()) {
+      lease.getDocumentBuilder().parse(new InputSource(new StringReader("<a><b></a>")));
+      fail("Should have thrown an exception");
+    } catch (SAXException e) {
+      // expected
+    }
+    try (XmlParserPool.Lease lease = pool.borrow()) {
+      Document document = lease.getDocumentBuilder().parse(new InputSource(new StringReader("<a><b/></a>")));
+      assertEquals("b", document.getDocumentElement().getFirstChild().getNodeName());
+    }
+    // external entities are still disabled after a reset
+    try (XmlParserPool.Lease lease = pool.borrow()) {
+      lease.getDocumentBuilder().parse(new InputSource(new StringReader(
+          "<!DOCTYPE a [<!ENTITY e SYSTEM \"file:///etc/passwd\">]><a>&e;</a>")));
+      fail("Should have thrown an exception");
+    } catch (SAXException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("DOCTYPE"));
+    }
+  }
+
+  @Test
+  public void testPoolIsBounded() throws Exception {
+    XmlParserPool pool = new XmlParserPool(2);
+    int threads = 16;
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < threads * 10; i++) {
+        String xml = "<root><item" + i + "/></root>";
+        results.add(executor.submit(() -> {
+          start.await();
+          try (XmlParserPool.Lease lease = pool.borrow()) {
+            Document document = lease.getDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+            Thread.sleep(1);
+            return document.getDocumentElement().getFirstChild().getNodeName();
+          }
+        }));
+      }
+      start.countDown();
+      for (int i = 0; i < results.size(); i++) {
+        assertEquals("item" + i, results.get(i).get(10, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    XmlParserPool.Metrics metrics = pool.getMetrics();
+    assertEquals(2, metrics.getSize());
+    assertEquals(2, metrics.getIdle());
+    assertEquals(0, metrics.getActive());
+    assertEquals(threads * 10, metrics.getBorrowCount());
+    assertTrue(metrics.getWaitCount() > 0);
+    assertTrue(metrics.getWaitNanos() > 0);
+  }
+}
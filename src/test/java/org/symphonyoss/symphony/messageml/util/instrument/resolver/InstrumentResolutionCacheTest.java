@@ -0,0 +1,87 @@
+package org.symphonyoss.symphony.messageml.util.instrument.resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class InstrumentResolutionCacheTest {
+
+  private final AtomicLong now = new AtomicLong();
+
+  @Test
+  public void testResultsExpire() {
+    InstrumentResolutionCache cache = cache(16);
+    ResolutionResult found = result(new Instrument());
+    cache.put(resolution("0", "AAPL US Equity"), found);
+    cache.put(resolution("1", "UNKNOWN Equity"), null);
+
+    // the resolution id is not part of the criteria
+    assertSame(found, cache.get(resolution("7", "AAPL US Equity")));
+    assertNull(cache.get(resolution("1", "UNKNOWN Equity")).getInstrument());
+
+    now.addAndGet(Duration.ofSeconds(90).toNanos());
+    assertSame(found, cache.get(resolution("0", "AAPL US Equity")));
+    assertNull(cache.get(resolution("1", "UNKNOWN Equity")));
+
+    now.addAndGet(Duration.ofMinutes(10).toNanos());
+    assertNull(cache.get(resolution("0", "AAPL US Equity")));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testNotFoundAreNotCachedWithoutTtl() {
+    InstrumentResolutionCache cache =
+        new InstrumentResolutionCache(16, Duration.ofMinutes(10), Duration.ZERO, now::get);
+    cache.put(resolution("0", "UNKNOWN Equity"), result(null));
+    assertNull(cache.get(resolution("0", "UNKNOWN Equity")));
+  }
+
+  @Test
+  public void testSizeIsBounded() {
+    InstrumentResolutionCache cache = cache(2);
+    cache.put(resolution("0", "A"), result(new Instrument()));
+    cache.put(resolution("0", "B"), null);
+    cache.get(resolution("0", "A"));
+    // the least recently used resolution is dropped
+    cache.put(resolution("0", "C"), result(new Instrument()));
+    assertEquals(2, cache.size());
+    assertNull(cache.get(resolution("0", "B")));
+
+    cache.put(resolution("0", "D"), result(new Instrument()));
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void testCriteria() {
+    InstrumentResolution resolution = resolution("3", "  AAPL US Equity ");
+    resolution.setIsin("");
+    resolution.setInstrumentClass(InstrumentKind.EQUITY);
+
+    InstrumentResolution expected = resolution(null, "AAPL US Equity");
+    expected.setInstrumentClass(InstrumentKind.EQUITY);
+    assertEquals(expected, InstrumentResolutionCache.criteria(resolution));
+  }
+
+  private InstrumentResolutionCache cache(int maxSize) {
+    return new InstrumentResolutionCache(maxSize, Duration.ofMinutes(10), Duration.ofMinutes(1), now::get);
+  }
+
+  private static InstrumentResolution resolution(String resolutionId, String fullBbgCompTicker) {
+    InstrumentResolution resolution = new InstrumentResolution();
+    resolution.setResolutionId(resolutionId);
+    resolution.setFullBbgCompTicker(fullBbgCompTicker);
+    return resolution;
+  }
+
+  private static ResolutionResult result(Instrument instrument) {
+    ResolutionResult result = new ResolutionResult();
+    result.setInstrument(instrument);
+    result.setReturnCode((instrument != null) ? 0 : 1);
+    return result;
+  }
+}